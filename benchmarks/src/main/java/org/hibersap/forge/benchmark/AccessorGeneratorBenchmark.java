@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.forge.sap.AccessorGenerator;
+import org.jboss.forge.parser.JavaParser;
+import org.jboss.forge.parser.java.Field;
+import org.jboss.forge.parser.java.JavaClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures generating the accessors and toString() of a class with {@link AccessorGenerator} for an increasing
+ * number of fields
+ * 
+ * The fields are parsed before every invocation, so only the accessors and toString() are measured. The generator
+ * should scale linearly: four times the fields take about four times as long, while Refactory takes more than ten
+ * times as long.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccessorGeneratorBenchmark {
+
+	@Param({ "50", "500", "2000" })
+	public int fields;
+
+	private JavaClass javaClass;
+
+	@Setup(Level.Invocation)
+	public void parseClass() {
+		final StringBuilder source = new StringBuilder(
+				"package org.example.hibersap;\n\nimport java.math.BigDecimal;\n\npublic class WideStructure {\n");
+
+		for (int i = 0; i < this.fields; i++) {
+			source.append("\n\t@Parameter(\"F").append(i).append("\")\n\t").append(i % 2 == 0 ? "String" : "BigDecimal")
+					.append(" _f").append(i).append(";\n");
+		}
+
+		this.javaClass = JavaParser.parse(JavaClass.class, source.append('}').toString());
+	}
+
+	@Benchmark
+	public JavaClass generator() {
+		final AccessorGenerator generator = new AccessorGenerator(this.javaClass);
+
+		for (final Field<JavaClass> field : this.javaClass.getFields()) {
+			generator.addAccessors(field);
+		}
+
+		return generator.generate();
+	}
+
+}
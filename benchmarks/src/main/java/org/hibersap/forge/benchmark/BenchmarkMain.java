@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks with the JMH command line and writes the results to jmh-result.json
+ * 
+ * The JSON file can be kept per release and compared to find regressions, e.g. with a JMH result visualizer. Other
+ * result options given on the command line (-rf, -rff) take precedence.
+ * 
+ */
+public final class BenchmarkMain {
+
+	/** The default result file **/
+	private static final String RESULT_FILE = "jmh-result.json";
+
+	private BenchmarkMain() {
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+
+		if (!arguments.contains("-rf")) {
+			arguments.add("-rf");
+			arguments.add("json");
+		}
+
+		if (!arguments.contains("-rff")) {
+			arguments.add("-rff");
+			arguments.add(BenchmarkMain.RESULT_FILE);
+		}
+
+		org.openjdk.jmh.Main.main(arguments.toArray(new String[arguments.size()]));
+	}
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.forge.sap.ColumnarTableGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a table parameter mapped to a list of structure beans with the same table mapped to a columnar table class,
+ * see {@link ColumnarTableGenerator}
+ * 
+ * The benchmarks measure converting the row maps passed by the Hibersap JCo adapter and scanning a column of the
+ * converted table. The heap retained per row by both forms is measured once per trial and printed on tear down. The
+ * classes below mirror the generated sources of a table with five fields, mapped with the standard type mapping to
+ * beans and with the compact type mapping to columns.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ColumnarTableBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int rows;
+
+	private List<Map<String, Object>> sapRows;
+	private List<ItemRow> beans;
+	private ItemTable table;
+	private long beanBytes;
+	private long columnarBytes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.sapRows = new ArrayList<Map<String, Object>>(this.rows);
+
+		for (int i = 0; i < this.rows; i++) {
+			final Map<String, Object> sapRow = new HashMap<String, Object>();
+
+			sapRow.put("AMOUNT", BigDecimal.valueOf(i * 7L, 2));
+			sapRow.put("CURRENCY", i % 2 == 0 ? "EUR" : "USD");
+			sapRow.put("DELETED", i % 10 == 0 ? "X" : "");
+			sapRow.put("DOC_NO", String.format("%018d", i / 10));
+			sapRow.put("ITEM_NO", String.format("%06d", i % 10));
+			this.sapRows.add(sapRow);
+		}
+
+		final long empty = usedHeap();
+
+		this.beans = convertToBeans(this.sapRows);
+		this.beanBytes = usedHeap() - empty;
+		this.table = convertToTable(this.sapRows);
+		this.columnarBytes = usedHeap() - empty - this.beanBytes;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.out.printf("%nRetained heap per row: beans %d bytes, columnar %d bytes%n", this.beanBytes / this.rows,
+				this.columnarBytes / this.rows);
+	}
+
+	@Benchmark
+	public Object convertBeans() {
+		return convertToBeans(this.sapRows);
+	}
+
+	@Benchmark
+	public Object convertColumnar() {
+		return convertToTable(this.sapRows);
+	}
+
+	@Benchmark
+	public BigDecimal scanBeans() {
+		BigDecimal sum = BigDecimal.ZERO;
+
+		for (final ItemRow row : this.beans) {
+			if (!"X".equals(row.deleted)) {
+				sum = sum.add(row.amount);
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long scanColumnar() {
+		final ItemTableCursor cursor = this.table.cursor();
+		long sum = 0;
+
+		while (cursor.next()) {
+			if (cursor.getDeleted() != 'X') {
+				sum += cursor.getAmount();
+			}
+		}
+		return sum;
+	}
+
+	private static List<ItemRow> convertToBeans(final List<Map<String, Object>> sapRows) {
+		final List<ItemRow> beans = new ArrayList<ItemRow>(sapRows.size());
+
+		for (final Map<String, Object> sapRow : sapRows) {
+			final ItemRow row = new ItemRow();
+
+			row.amount = (BigDecimal) sapRow.get("AMOUNT");
+			row.currency = (String) sapRow.get("CURRENCY");
+			row.deleted = (String) sapRow.get("DELETED");
+			row.docNo = (String) sapRow.get("DOC_NO");
+			row.itemNo = (String) sapRow.get("ITEM_NO");
+			beans.add(row);
+		}
+		return beans;
+	}
+
+	private static ItemTable convertToTable(final List<Map<String, Object>> sapRows) {
+		final ItemTable table = new ItemTable(sapRows.size());
+
+		for (final Map<String, Object> sapRow : sapRows) {
+			final int row = table.addRow();
+			final String deleted = (String) sapRow.get("DELETED");
+
+			table.amount[row] = ((BigDecimal) sapRow.get("AMOUNT")).movePointRight(2).longValueExact();
+			table.currency[row] = (String) sapRow.get("CURRENCY");
+			table.deleted[row] = deleted.length() == 0 ? ' ' : deleted.charAt(0);
+			table.docNo[row] = Long.parseLong((String) sapRow.get("DOC_NO"));
+			table.itemNo[row] = Integer.parseInt((String) sapRow.get("ITEM_NO"));
+		}
+		return table;
+	}
+
+	private static long usedHeap() {
+		final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * A row of the table mapped to a structure bean
+	 * 
+	 */
+	static final class ItemRow {
+
+		BigDecimal amount;
+		String currency;
+		String deleted;
+		String docNo;
+		String itemNo;
+
+	}
+
+	/**
+	 * The table mapped to a columnar table class with the compact type mapping
+	 * 
+	 */
+	static final class ItemTable {
+
+		private int size;
+		private int capacity;
+		long[] amount;
+		String[] currency;
+		char[] deleted;
+		long[] docNo;
+		int[] itemNo;
+
+		ItemTable(final int capacity) {
+			this.capacity = Math.max(1, capacity);
+			this.amount = new long[this.capacity];
+			this.currency = new String[this.capacity];
+			this.deleted = new char[this.capacity];
+			this.docNo = new long[this.capacity];
+			this.itemNo = new int[this.capacity];
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		int addRow() {
+			if (this.size == this.capacity) {
+				this.capacity *= 2;
+				this.amount = Arrays.copyOf(this.amount, this.capacity);
+				this.currency = Arrays.copyOf(this.currency, this.capacity);
+				this.deleted = Arrays.copyOf(this.deleted, this.capacity);
+				this.docNo = Arrays.copyOf(this.docNo, this.capacity);
+				this.itemNo = Arrays.copyOf(this.itemNo, this.capacity);
+			}
+			return this.size++;
+		}
+
+		ItemTableCursor cursor() {
+			return new ItemTableCursor(this);
+		}
+
+	}
+
+	/**
+	 * The cursor of {@link ItemTable}
+	 * 
+	 */
+	static final class ItemTableCursor {
+
+		private final ItemTable table;
+		private int row = -1;
+
+		ItemTableCursor(final ItemTable table) {
+			this.table = table;
+		}
+
+		boolean next() {
+			if (this.row + 1 < this.table.size()) {
+				this.row++;
+				return true;
+			}
+			return false;
+		}
+
+		long getAmount() {
+			return this.table.amount[this.row];
+		}
+
+		char getDeleted() {
+			return this.table.deleted[this.row];
+		}
+
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.configuration.xml.HibersapConfig;
+import org.hibersap.configuration.xml.SessionManagerConfig;
+import org.hibersap.forge.manager.ConnectionPropertiesManager;
+import org.hibersap.forge.manager.HibersapXMLManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading and writing the configuration files of a project with {@link HibersapXMLManager} and
+ * {@link ConnectionPropertiesManager}
+ * 
+ * The hibersap.xml has the given number of session managers with 500 annotated classes and 10 properties each. The
+ * sap-connection.properties has the default properties and 10 additional properties per session manager. The files
+ * are written to a temporary directory, which is deleted after the trial.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfigurationFilesBenchmark {
+
+	private static final int ANNOTATED_CLASSES = 500;
+	private static final int PROPERTIES = 10;
+
+	@Param({ "1", "20" })
+	public int sessionManagers;
+
+	private File directory;
+	private String hibersapXMLPath;
+	private String propertiesPath;
+	private HibersapXMLManager hibersapXMLManager;
+	private ConnectionPropertiesManager connectionPropertiesManager;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		final List<String> functionNames = SyntheticNames.create(ANNOTATED_CLASSES);
+
+		this.directory = File.createTempFile("hibersap-benchmark", "");
+		this.directory.delete();
+		this.directory.mkdirs();
+		this.hibersapXMLPath = new File(this.directory, "META-INF").getPath() + File.separator;
+		this.propertiesPath = new File(this.directory, ".hibersap").getPath() + File.separator;
+
+		this.hibersapXMLManager = new HibersapXMLManager(this.hibersapXMLPath);
+		this.connectionPropertiesManager = new ConnectionPropertiesManager(this.propertiesPath);
+
+		for (int i = 0; i < this.sessionManagers; i++) {
+			final SessionManagerConfig sessionManagerConfig = new SessionManagerConfig("SM" + i);
+			final List<String> annotatedClasses = new ArrayList<String>(ANNOTATED_CLASSES);
+
+			for (final String functionName : functionNames) {
+				annotatedClasses.add("org.example.hibersap.sm" + i + "." + functionName.replace("/", "_"));
+			}
+
+			for (int j = 0; j < PROPERTIES; j++) {
+				sessionManagerConfig.setProperty("jco.client.setting" + j, "value" + j);
+				this.connectionPropertiesManager.setSAPProperty("sm" + i + ".setting" + j, "value" + j);
+			}
+
+			sessionManagerConfig.setAnnotatedClasses(annotatedClasses);
+			this.hibersapXMLManager.addSessionManager(sessionManagerConfig);
+		}
+
+		this.hibersapXMLManager.writeHibersapXML();
+		this.connectionPropertiesManager.writeSAPProperties();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		delete(this.directory);
+	}
+
+	private static void delete(final File file) {
+		final File[] children = file.listFiles();
+
+		if (children != null) {
+			for (final File child : children) {
+				delete(child);
+			}
+		}
+
+		file.delete();
+	}
+
+	@Benchmark
+	public HibersapConfig readHibersapXML() throws Exception {
+		return new HibersapXMLManager(this.hibersapXMLPath).getHibersapConfig();
+	}
+
+	@Benchmark
+	public void writeHibersapXML() throws Exception {
+		this.hibersapXMLManager.writeHibersapXML();
+	}
+
+	@Benchmark
+	public ConnectionPropertiesManager readConnectionProperties() throws IOException {
+		return new ConnectionPropertiesManager(this.propertiesPath);
+	}
+
+	@Benchmark
+	public void writeConnectionProperties() throws IOException {
+		this.connectionPropertiesManager.writeSAPProperties();
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.forge.sap.SAPEntity;
+import org.hibersap.forge.sap.SAPEntityBuilder;
+import org.hibersap.mapping.model.BapiMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SAPEntityBuilder#createNew(String, String, BapiMapping)} for functions of increasing size
+ * 
+ * The functions are created by {@link SyntheticMappings}: 2 structures make 24 fields, 8 make 96 and 32 make 384. The
+ * classes are built but not formatted to source, see {@link EntityEmitterBenchmark} for the complete generation.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EntityBuilderBenchmark {
+
+	@Param({ "2", "8", "32" })
+	public int structures;
+
+	private BapiMapping mapping;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.mapping = SyntheticMappings.create(this.structures);
+	}
+
+	@Benchmark
+	public SAPEntity createNew() {
+		final SAPEntityBuilder builder = new SAPEntityBuilder();
+
+		builder.createNew("WideFunction", "org.example.hibersap", this.mapping);
+
+		return builder.getSAPEntity();
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.forge.sap.AstEntityEmitter;
+import org.hibersap.forge.sap.EntityEmitter;
+import org.hibersap.forge.sap.TemplateEntityEmitter;
+import org.hibersap.mapping.model.BapiMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares emitting the sources of a wide SAP entity with the {@link AstEntityEmitter}, which builds and formats a
+ * Java syntax tree, one structure class after the other or on all cores, to the {@link TemplateEntityEmitter}, which
+ * writes the sources directly
+ * 
+ * The function is created by {@link SyntheticMappings}, e.g. 32 structures make 384 fields.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EntityEmitterBenchmark {
+
+	@Param({ "32" })
+	public int structures;
+
+	private final EntityEmitter astEmitter = new AstEntityEmitter(null);
+	private final EntityEmitter parallelAstEmitter = new AstEntityEmitter(null, Runtime.getRuntime()
+			.availableProcessors());
+	private final EntityEmitter templateEmitter = new TemplateEntityEmitter();
+
+	private BapiMapping mapping;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.mapping = SyntheticMappings.create(this.structures);
+	}
+
+	@Benchmark
+	public Object ast() {
+		return this.astEmitter.emit("WideFunction", "org.example.hibersap", this.mapping).getSources();
+	}
+
+	@Benchmark
+	public Object parallelAst() {
+		return this.parallelAstEmitter.emit("WideFunction", "org.example.hibersap", this.mapping).getSources();
+	}
+
+	@Benchmark
+	public Object template() {
+		return this.templateEmitter.emit("WideFunction", "org.example.hibersap", this.mapping).getSources();
+	}
+
+}
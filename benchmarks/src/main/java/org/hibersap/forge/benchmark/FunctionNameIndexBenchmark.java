@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.forge.index.FunctionNameIndex;
+import org.hibersap.forge.sap.SAPLikePattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lookup latency of the memory-mapped {@link FunctionNameIndex} compared to scanning a list of names
+ * 
+ * The heap used by the mapped index and by the list is printed once per trial.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FunctionNameIndexBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int names;
+
+	private final SAPLikePattern prefixPattern = new SAPLikePattern("Z_OBJ42*");
+	private final SAPLikePattern wildcardPattern = new SAPLikePattern("*OBJ42?_GET?LIST");
+
+	private File file;
+	private FunctionNameIndex index;
+	private List<String> list;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("function-names", ".idx");
+
+		final FileOutputStream outputStream = new FileOutputStream(this.file);
+
+		FunctionNameIndex.write(outputStream, SyntheticNames.create(this.names));
+		outputStream.close();
+
+		final long heapBeforeIndex = SyntheticNames.usedHeap();
+		this.index = FunctionNameIndex.map(this.file, 0);
+		final long heapAfterIndex = SyntheticNames.usedHeap();
+		this.list = SyntheticNames.create(this.names);
+		final long heapAfterList = SyntheticNames.usedHeap();
+
+		System.out.println();
+		System.out.println("Heap used by " + this.names + " names: mapped index " + (heapAfterIndex - heapBeforeIndex)
+				/ 1024 + " KB, list " + (heapAfterList - heapAfterIndex) / 1024 + " KB, index file "
+				+ this.file.length() / 1024 + " KB");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.file.deleteOnExit();
+	}
+
+	@Benchmark
+	public List<String> indexPrefixLookup() {
+		return this.index.search(this.prefixPattern, 0);
+	}
+
+	@Benchmark
+	public List<String> indexWildcardLookup() {
+		return this.index.search(this.wildcardPattern, 0);
+	}
+
+	@Benchmark
+	public List<String> listScanPrefixLookup() {
+		return scan(this.prefixPattern);
+	}
+
+	@Benchmark
+	public List<String> listScanWildcardLookup() {
+		return scan(this.wildcardPattern);
+	}
+
+	private List<String> scan(final SAPLikePattern pattern) {
+		final List<String> result = new ArrayList<String>();
+
+		for (final String name : this.list) {
+			if (pattern.matches(name)) {
+				result.add(name);
+			}
+		}
+
+		return result;
+	}
+
+}
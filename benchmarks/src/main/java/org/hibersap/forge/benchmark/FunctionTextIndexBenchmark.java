@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.forge.index.FunctionTextIndex;
+import org.hibersap.forge.index.FunctionTextIndex.Hit;
+import org.hibersap.forge.sap.SAPLikePattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link FunctionTextIndex}: reading it with its persisted postings compared to indexing the texts while
+ * reading, the first search after reading, and replacing the text of a single function
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FunctionTextIndexBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int functions;
+
+	private static final String[] WORDS = { "Create", "Change", "Read", "List", "Details", "Purchase", "Order",
+			"Customer", "Material", "Document" };
+
+	private final SAPLikePattern changedPattern = new SAPLikePattern("Z_OBJ42*");
+
+	private byte[] indexBytes;
+	private byte[] textsBytes;
+	private FunctionTextIndex index;
+	private int version;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		final List<String> names = SyntheticNames.create(this.functions);
+		final ByteArrayOutputStream texts = new ByteArrayOutputStream();
+		final DataOutputStream textsStream = new DataOutputStream(texts);
+
+		this.index = new FunctionTextIndex();
+		textsStream.writeInt(names.size());
+
+		for (int i = 0; i < names.size(); i++) {
+			final String text = text(i);
+
+			this.index.put(names.get(i), text);
+			textsStream.writeUTF(names.get(i));
+			textsStream.writeUTF(text);
+		}
+
+		textsStream.close();
+		this.textsBytes = texts.toByteArray();
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream outputStream = new DataOutputStream(bytes);
+
+		this.index.write(outputStream);
+		outputStream.close();
+		this.indexBytes = bytes.toByteArray();
+	}
+
+	@Benchmark
+	public FunctionTextIndex readPostings() throws IOException {
+		final FunctionTextIndex readIndex = new FunctionTextIndex();
+
+		readIndex.read(new DataInputStream(new ByteArrayInputStream(this.indexBytes)));
+
+		return readIndex;
+	}
+
+	@Benchmark
+	public FunctionTextIndex readTextsAndIndex() throws IOException {
+		final FunctionTextIndex readIndex = new FunctionTextIndex();
+
+		readIndex.readTexts(new DataInputStream(new ByteArrayInputStream(this.textsBytes)));
+
+		return readIndex;
+	}
+
+	@Benchmark
+	public List<Hit> readPostingsAndSearch() throws IOException {
+		return readPostings().search("create purchase ordr", 20);
+	}
+
+	@Benchmark
+	public List<Hit> search() {
+		return this.index.search("create purchase ordr", 20);
+	}
+
+	@Benchmark
+	public int replaceSlice() {
+		//Replaces the texts of the functions of one object, as done when refreshing a pattern
+		final int removed = this.index.removeMatching(this.changedPattern);
+
+		this.version++;
+		this.index.put("Z_OBJ42_CREATE", text(this.version));
+		this.index.put("Z_OBJ42_READ", text(this.version + 1));
+
+		return removed;
+	}
+
+	private static String text(final int i) {
+		return WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " object " + i / 100;
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.hibersap.forge.sap.AstEntityEmitter;
+import org.hibersap.forge.sap.EntityEmitter;
+import org.hibersap.forge.sap.MappingDescriptorGenerator;
+import org.hibersap.forge.sap.SAPEntitySource;
+import org.hibersap.forge.sap.StructureRegistry;
+import org.hibersap.mapping.AnnotationBapiMapper;
+import org.hibersap.mapping.model.BapiMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares creating the Hibersap mappings of many BAPI classes at session manager build time from their annotations,
+ * as the AnnotationConfiguration does, and with their generated mapping descriptors, as the generated
+ * DescriptorConfiguration does, see {@link MappingDescriptorGenerator}
+ * 
+ * The entities are generated from {@link SyntheticMappings} with four structures each and compiled once per trial,
+ * which needs a JDK. Every measurement loads the BAPI classes with a new class loader, so the reflection data of the
+ * classes is not cached yet, like at application startup. The descriptor classes are loaded by the measured code.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MappingDescriptorBenchmark {
+
+	private static final String JAVA_PACKAGE = "org.example.hibersap";
+	private static final int STRUCTURES = 4;
+
+	@Param({ "1000" })
+	public int bapis;
+
+	private File directory;
+	private final List<String> bapiClassNames = new ArrayList<String>();
+	private URLClassLoader classLoader;
+	private List<Class<?>> bapiClasses;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+		if (compiler == null) {
+			throw new IllegalStateException("Compiling the generated entities needs a JDK");
+		}
+
+		this.directory = File.createTempFile("hibersap-benchmark", "");
+		this.directory.delete();
+
+		final EntityEmitter emitter = new AstEntityEmitter(new StructureRegistry(), 1, true);
+		final File sourceDirectory = new File(this.directory, "src");
+		final File classDirectory = new File(this.directory, "classes");
+		final List<String> arguments = new ArrayList<String>();
+
+		classDirectory.mkdirs();
+		arguments.add("-nowarn");
+		arguments.add("-classpath");
+		arguments.add(System.getProperty("java.class.path"));
+		arguments.add("-d");
+		arguments.add(classDirectory.getPath());
+
+		for (int i = 0; i < this.bapis; i++) {
+			final SAPEntitySource entity = emitter.emit("ZBapi" + i, JAVA_PACKAGE, SyntheticMappings.create(STRUCTURES));
+
+			for (final Entry<String, String> source : entity.getSources().entrySet()) {
+				arguments.add(write(sourceDirectory, source.getKey(), source.getValue()).getPath());
+			}
+
+			this.bapiClassNames.add(entity.getBapiClassName());
+		}
+
+		if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0) {
+			throw new IllegalStateException("Compiling the generated entities failed");
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void loadBapiClasses() throws Exception {
+		this.classLoader = new URLClassLoader(new URL[] { new File(this.directory, "classes").toURI().toURL() },
+				getClass().getClassLoader());
+		this.bapiClasses = new ArrayList<Class<?>>(this.bapiClassNames.size());
+
+		for (final String bapiClassName : this.bapiClassNames) {
+			this.bapiClasses.add(Class.forName(bapiClassName, true, this.classLoader));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		delete(this.directory);
+	}
+
+	@Benchmark
+	public Map<Class<?>, BapiMapping> annotations() {
+		final AnnotationBapiMapper mapper = new AnnotationBapiMapper();
+		final Map<Class<?>, BapiMapping> mappings = new HashMap<Class<?>, BapiMapping>();
+
+		for (final Class<?> bapiClass : this.bapiClasses) {
+			mappings.put(bapiClass, mapper.mapBapi(bapiClass));
+		}
+		return mappings;
+	}
+
+	@Benchmark
+	public Map<Class<?>, BapiMapping> descriptors() throws Exception {
+		final Map<Class<?>, BapiMapping> mappings = new HashMap<Class<?>, BapiMapping>();
+
+		for (final Class<?> bapiClass : this.bapiClasses) {
+			final BapiMapping mapping = (BapiMapping) Class.forName(bapiClass.getName() + "Descriptor", true,
+					this.classLoader).getMethod("create").invoke(null);
+
+			mappings.put(mapping.getAssociatedClass(), mapping);
+		}
+		return mappings;
+	}
+
+	private static File write(final File sourceDirectory, final String className, final String source)
+			throws Exception {
+		final File file = new File(sourceDirectory, className.replace('.', File.separatorChar) + ".java");
+
+		file.getParentFile().mkdirs();
+
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private static void delete(final File file) {
+		final File[] children = file.listFiles();
+
+		if (children != null) {
+			for (final File child : children) {
+				delete(child);
+			}
+		}
+
+		file.delete();
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.forge.mapping.MetadataRepository;
+import org.hibersap.forge.mapping.MetadataRepositoryWriter;
+import org.hibersap.forge.mapping.MetadataSnapshot;
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.ErrorHandling;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares loading function metadata from a {@link MetadataRepository} to reading a gzipped
+ * {@link MetadataSnapshot}
+ * 
+ * Every function uses the same RETURN structure and one of 100 item tables, like BAPIRET2 and the address types in a
+ * real system. The file sizes and the heap used by an opened repository are printed once per trial.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetadataRepositoryBenchmark {
+
+	private static final int ITEM_TABLES = 100;
+
+	@Param({ "20000" })
+	public int functions;
+
+	private File repositoryFile;
+	private File snapshotFile;
+	private List<String> functionNames;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		final MetadataRepositoryWriter writer = new MetadataRepositoryWriter();
+		final MetadataSnapshot snapshot = new MetadataSnapshot("benchmark", 0L);
+
+		this.functionNames = SyntheticNames.create(this.functions);
+		this.repositoryFile = File.createTempFile("metadata", ".repository");
+		this.snapshotFile = File.createTempFile("metadata", ".snapshot");
+
+		for (int i = 0; i < this.functions; i++) {
+			final BapiMapping mapping = createMapping(this.functionNames.get(i), i % ITEM_TABLES);
+
+			writer.add(mapping);
+			snapshot.put(mapping);
+		}
+
+		writer.write(this.repositoryFile, "benchmark", 0L);
+		snapshot.write(this.snapshotFile);
+
+		final long heapBeforeRepository = SyntheticNames.usedHeap();
+		final MetadataRepository repository = MetadataRepository.open(this.repositoryFile);
+
+		for (final String functionName : this.functionNames) {
+			repository.get(functionName);
+		}
+
+		final long heapAfterRepository = SyntheticNames.usedHeap();
+
+		System.out.println();
+		System.out.println("Metadata of " + this.functions + " functions: repository file "
+				+ this.repositoryFile.length() / 1024 + " KB with " + repository.getComponentCount()
+				+ " components, snapshot file " + this.snapshotFile.length() / 1024
+				+ " KB, heap of the repository after reading all functions "
+				+ (heapAfterRepository - heapBeforeRepository) / 1024 + " KB");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.repositoryFile.deleteOnExit();
+		this.snapshotFile.deleteOnExit();
+	}
+
+	@Benchmark
+	public BapiMapping repositoryOpenAndGetOne() throws IOException {
+		return MetadataRepository.open(this.repositoryFile).get(this.functionNames.get(this.functions / 2));
+	}
+
+	@Benchmark
+	public void repositoryOpenAndGetAll(final Blackhole blackhole) throws IOException {
+		final MetadataRepository repository = MetadataRepository.open(this.repositoryFile);
+
+		for (final String functionName : this.functionNames) {
+			blackhole.consume(repository.get(functionName));
+		}
+	}
+
+	@Benchmark
+	public MetadataSnapshot snapshotRead() throws IOException {
+		return MetadataSnapshot.read(this.snapshotFile);
+	}
+
+	private static BapiMapping createMapping(final String functionName, final int itemTable) {
+		final BapiMapping mapping = new BapiMapping(null, functionName, new ErrorHandling("RETURN", new String[] { "E",
+				"A" }));
+		final StructureMapping returnStructure = new StructureMapping(null, "RETURN", "_return", null);
+		final StructureMapping itemStructure = new StructureMapping(null, "ITEMS", "_items", null);
+
+		for (final String field : new String[] { "TYPE", "ID", "NUMBER", "MESSAGE", "LOG_NO", "LOG_MSG_NO",
+				"MESSAGE_V1", "MESSAGE_V2", "MESSAGE_V3", "MESSAGE_V4", "PARAMETER", "ROW", "FIELD", "SYSTEM" }) {
+			returnStructure.addParameter(new FieldMapping(String.class, field, "_" + field.toLowerCase(), null));
+		}
+
+		itemStructure.addParameter(new FieldMapping(String.class, "ITEM_NO", "_itemNo", null));
+		itemStructure.addParameter(new FieldMapping(BigDecimal.class, "PRICE_" + itemTable, "_price" + itemTable,
+				null));
+		mapping.addImportParameter(new FieldMapping(String.class, "TESTRUN", "_testrun", null));
+		mapping.addExportParameter(returnStructure);
+		mapping.addTableParameter(new TableMapping(List.class, null, "ITEMS", "_items", itemStructure, null));
+
+		return mapping;
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+
+/**
+ * Creates synthetic function mappings of a given size
+ * 
+ */
+public final class SyntheticMappings {
+
+	private static final int STRUCTURE_FIELDS = 10;
+	private static final Class<?>[] FIELD_TYPES = { String.class, BigDecimal.class, Date.class, int.class, Integer.class };
+
+	private SyntheticMappings() {
+	}
+
+	/**
+	 * Creates the mapping of a function with the given number of structures with ten fields each, half of them as
+	 * tables, and as many import and export fields, e.g. 32 structures make 384 fields
+	 * 
+	 * No two structures have the same field layout, so all structure classes are created even with a structure
+	 * registry.
+	 * 
+	 * @param structures - the number of structures
+	 * @return the mapping
+	 */
+	public static BapiMapping create(final int structures) {
+		final BapiMapping mapping = new BapiMapping(null, "Z_WIDE_FUNCTION", null);
+
+		for (int i = 0; i < structures; i++) {
+			final StructureMapping structure = new StructureMapping(null, "STRUCT" + i, "_struct" + i, null);
+
+			for (int j = 0; j < STRUCTURE_FIELDS; j++) {
+				structure.addParameter(new FieldMapping(FIELD_TYPES[(i + j) % FIELD_TYPES.length], "S" + i + "_F" + j,
+						"_s" + i + "F" + j, null));
+			}
+
+			if (i % 2 == 0) {
+				mapping.addExportParameter(structure);
+			} else {
+				mapping.addTableParameter(new TableMapping(List.class, null, "TABLE" + i, "_table" + i, structure,
+						null));
+			}
+
+			mapping.addImportParameter(new FieldMapping(FIELD_TYPES[i % FIELD_TYPES.length], "IMPORT" + i, "_import"
+					+ i, null));
+			mapping.addExportParameter(new FieldMapping(FIELD_TYPES[i % FIELD_TYPES.length], "EXPORT" + i, "_export"
+					+ i, null));
+		}
+
+		return mapping;
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates synthetic but realistic looking SAP function names
+ * 
+ */
+public final class SyntheticNames {
+
+	private static final String[] PREFIXES = { "BAPI_", "Z_", "RFC_", "/ABC/" };
+	private static final String[] SUFFIXES = { "GET_LIST", "GETLIST", "CREATE", "CHANGE", "READ", "GET_DETAIL" };
+
+	private SyntheticNames() {
+	}
+
+	/**
+	 * Creates the given number of distinct function names
+	 * 
+	 * @param count - the number of names
+	 * @return the names
+	 */
+	public static List<String> create(final int count) {
+		final List<String> names = new ArrayList<String>(count);
+
+		for (int i = 0; i < count; i++) {
+			final String prefix = PREFIXES[i % PREFIXES.length];
+			final String suffix = SUFFIXES[(i / PREFIXES.length) % SUFFIXES.length];
+			final int object = i / (PREFIXES.length * SUFFIXES.length);
+
+			names.add(prefix + "OBJ" + object + "_" + suffix);
+		}
+
+		return names;
+	}
+
+	/**
+	 * Gets the used heap after a garbage collection
+	 * 
+	 * @return the used heap in bytes
+	 */
+	public static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.forge.sap.SAPFunctionModuleSearch;
+import org.hibersap.forge.sap.SAPLikePattern;
+import org.hibersap.forge.sap.TableRowDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares decoding the DATA rows of RFC_READ_TABLE with a {@link TableRowDecoder} to mapping them the way Hibersap
+ * does for {@link SAPFunctionModuleSearch}, i.e. one reflectively created and filled object per row followed by
+ * {@link SAPFunctionModuleSearch#getFunctionNames()}
+ * 
+ * The rows are fixed-width TFDIR rows (FUNCNAME, 30 characters) held in memory, so the call of the SAP system is not
+ * measured. Run with -prof gc to compare the allocation rates.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TableRowDecodingBenchmark {
+
+	private static final int FUNCNAME_LENGTH = 30;
+
+	@Param({ "100000" })
+	public int rows;
+
+	private final SAPLikePattern pattern = new SAPLikePattern("Z_OBJ4*");
+
+	private List<String> data;
+	private Constructor<?> functionModuleConstructor;
+	private Field functionModuleName;
+	private Field functionModules;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		final Class<?> functionModuleClass = Class.forName(SAPFunctionModuleSearch.class.getName() + "$FunctionModule");
+
+		this.data = new ArrayList<String>(this.rows);
+
+		for (final String name : SyntheticNames.create(this.rows)) {
+			final StringBuilder row = new StringBuilder(name);
+
+			while (row.length() < FUNCNAME_LENGTH) {
+				row.append(' ');
+			}
+			this.data.add(row.toString());
+		}
+
+		this.functionModuleConstructor = functionModuleClass.getDeclaredConstructor();
+		this.functionModuleName = functionModuleClass.getDeclaredField("name");
+		this.functionModules = SAPFunctionModuleSearch.class.getDeclaredField("functionModules");
+		this.functionModuleConstructor.setAccessible(true);
+		this.functionModuleName.setAccessible(true);
+		this.functionModules.setAccessible(true);
+	}
+
+	@Benchmark
+	public int hibersapMapping(final Blackhole blackhole) throws Exception {
+		final SAPFunctionModuleSearch search = new SAPFunctionModuleSearch("*", 0);
+		final List<Object> mappedRows = new ArrayList<Object>();
+		int matches = 0;
+
+		for (final String row : this.data) {
+			final Object functionModule = this.functionModuleConstructor.newInstance();
+
+			//Hibersap trims character fields when mapping them
+			this.functionModuleName.set(functionModule, row.trim());
+			mappedRows.add(functionModule);
+		}
+
+		this.functionModules.set(search, mappedRows);
+
+		for (final String functionName : search.getFunctionNames()) {
+			if (this.pattern.matches(functionName)) {
+				matches++;
+			}
+			blackhole.consume(functionName);
+		}
+
+		return matches;
+	}
+
+	@Benchmark
+	public int rowDecoder(final Blackhole blackhole) {
+		final TableRowDecoder decoder = new TableRowDecoder(new int[] { 0 }, new int[] { FUNCNAME_LENGTH });
+		int matches = 0;
+
+		for (final String row : this.data) {
+			decoder.decode(row);
+
+			final CharSequence functionName = decoder.get(0);
+
+			if (this.pattern.matches(functionName)) {
+				matches++;
+			}
+			blackhole.consume(functionName);
+		}
+
+		return matches;
+	}
+
+}
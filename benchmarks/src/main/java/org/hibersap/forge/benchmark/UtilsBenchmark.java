@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.hibersap.forge.util.FilterCollection;
+import org.hibersap.forge.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link Utils#toCamelCase(String, char)} on function names and {@link FilterCollection#filter()} on
+ * connection properties
+ * 
+ * The properties look like sap-connection.properties: jco.client.*, jco.destination.*, jca.* and other settings. The
+ * filter keeps the jco.* properties which do not contain "context", like the connection setup of the plugin.
+ * FilterCollection removes entries from its collection, so every invocation filters a new copy; the copy is part of the
+ * measured time.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UtilsBenchmark {
+
+	@Param({ "1000" })
+	public int size;
+
+	private List<String> functionNames;
+	private List<Entry<Object, Object>> properties;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final Properties connection = new Properties();
+
+		for (int i = 0; i < this.size; i++) {
+			switch (i % 4) {
+			case 0:
+				connection.setProperty("jco.client.setting" + i, "value" + i);
+				break;
+			case 1:
+				connection.setProperty("jco.destination.setting" + i, "value" + i);
+				break;
+			case 2:
+				connection.setProperty("jca.context.setting" + i, "value" + i);
+				break;
+			default:
+				connection.setProperty("catalog.setting" + i, "value" + i);
+			}
+		}
+
+		this.functionNames = SyntheticNames.create(this.size);
+		this.properties = new ArrayList<Entry<Object, Object>>(connection.entrySet());
+	}
+
+	@Benchmark
+	public void toCamelCase(final Blackhole blackhole) {
+		for (final String functionName : this.functionNames) {
+			blackhole.consume(Utils.toCamelCase(functionName, '_'));
+		}
+	}
+
+	@Benchmark
+	public Collection<Entry<Object, Object>> filter() {
+		return new FilterCollection(new ArrayList<Entry<Object, Object>>(this.properties), "jco", "context")
+				.filter();
+	}
+
+}
@@ -19,22 +19,58 @@
 
 package org.hibersap.forge;
 
-import org.hibersap.configuration.AnnotationConfiguration;
 import org.hibersap.configuration.xml.Property;
 import org.hibersap.configuration.xml.SessionManagerConfig;
+import org.hibersap.execution.jco.JCoEnvironment;
 import org.hibersap.forge.exception.SessionManagerDuplicateException;
 import org.hibersap.forge.manager.ConnectionPropertiesManager;
+import org.hibersap.forge.manager.FingerprintManager;
+import org.hibersap.forge.index.FunctionTextIndex.Hit;
+import org.hibersap.forge.manager.FunctionCatalogManager;
+import org.hibersap.forge.manager.FunctionTextManager;
 import org.hibersap.forge.manager.HibersapXMLManager;
-import org.hibersap.forge.sap.SAPEntity;
+import org.hibersap.forge.manager.MetadataCacheManager;
+import org.hibersap.forge.manager.StructureRegistryManager;
+import org.hibersap.forge.manager.TimingHistoryManager;
+import org.hibersap.forge.mapping.MappingFingerprint;
+import org.hibersap.forge.mapping.MetadataRepository;
+import org.hibersap.forge.mapping.MetadataRepositoryWriter;
+import org.hibersap.forge.mapping.MetadataSnapshot;
+import org.hibersap.forge.mapping.MetadataSource;
+import org.hibersap.forge.sap.AstEntityEmitter;
+import org.hibersap.forge.sap.BulkEntityGenerator;
+import org.hibersap.forge.sap.CompactTypeMapping;
+import org.hibersap.forge.sap.ConnectionProbe;
+import org.hibersap.forge.sap.EmitterType;
+import org.hibersap.forge.sap.EntityEmitter;
+import org.hibersap.forge.sap.FunctionChangeStamp;
+import org.hibersap.forge.sap.FunctionMapper;
+import org.hibersap.forge.sap.FunctionModuleFilter;
+import org.hibersap.forge.sap.FunctionNameCallback;
+import org.hibersap.forge.sap.GenerationOptions;
+import org.hibersap.forge.sap.MappingDescriptorGenerator;
+import org.hibersap.forge.sap.OptionsEntityEmitter;
+import org.hibersap.forge.sap.PagedFunctionModuleSearch;
+import org.hibersap.forge.sap.ParallelFunctionModuleSearch;
+import org.hibersap.forge.sap.RowHeapEstimate;
+import org.hibersap.forge.sap.SAPEcho;
 import org.hibersap.forge.sap.SAPEntityBuilder;
+import org.hibersap.forge.sap.SAPEntitySource;
 import org.hibersap.forge.sap.SAPFunctionModuleSearch;
+import org.hibersap.forge.sap.SAPTableRead;
+import org.hibersap.forge.sap.SessionManagerRegistry;
+import org.hibersap.forge.sap.SessionProbeTarget;
+import org.hibersap.forge.sap.StructureRegistry;
 import org.hibersap.forge.util.FilterCollection;
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
+import org.hibersap.forge.util.PhaseTimer;
 import org.hibersap.forge.util.Utils;
 import org.hibersap.generation.bapi.ReverseBapiMapper;
 import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.TableMapping;
 import org.hibersap.session.Session;
 import org.hibersap.session.SessionManager;
-import org.jboss.forge.parser.java.JavaClass;
 import org.jboss.forge.project.Project;
 import org.jboss.forge.project.dependencies.Dependency;
 import org.jboss.forge.project.dependencies.DependencyBuilder;
@@ -54,11 +90,18 @@ import javax.inject.Inject;
 import javax.xml.bind.JAXBException;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -92,22 +135,44 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
      * The SAP connection properties *
      */
     private final ConnectionPropertiesManager sapConnectionPropertiesManager;
+    /**
+     * The local SAP function catalog *
+     */
+    private final FunctionCatalogManager functionCatalogManager;
+    /**
+     * The local SAP function texts *
+     */
+    private final FunctionTextManager functionTextManager;
+    /**
+     * The local SAP function metadata cache *
+     */
+    private final MetadataCacheManager metadataCacheManager;
+    /**
+     * The warm session managers of the shell *
+     */
+    private final SessionManagerRegistry sessionManagerRegistry;
 
     /**
      * Constructor - Instantiates the plugin
      *
-     * @param project - the Forge project
-     * @param shell   - the Forge shell
+     * @param project                - the Forge project
+     * @param shell                  - the Forge shell
+     * @param sessionManagerRegistry - the warm session managers of the shell
      * @throws IOException
      */
     @Inject
-    public GenerateSAPEntitiesPlugin( final Project project, final Shell shell ) throws IOException {
+    public GenerateSAPEntitiesPlugin( final Project project, final Shell shell,
+                                      final SessionManagerRegistry sessionManagerRegistry ) throws IOException {
         final String pluginDirPath = shell.getEnvironment().getPluginDirectory().getFullyQualifiedName();
         final String configDirPath = pluginDirPath + "/org/hibersap/forge/hibersap-plugin/config/";
 
         this.shell = shell;
         this.project = project;
         this.sapConnectionPropertiesManager = new ConnectionPropertiesManager( configDirPath );
+        this.functionCatalogManager = new FunctionCatalogManager( configDirPath );
+        this.functionTextManager = new FunctionTextManager( configDirPath );
+        this.metadataCacheManager = new MetadataCacheManager( configDirPath );
+        this.sessionManagerRegistry = sessionManagerRegistry;
     }
 
     /**
@@ -134,6 +199,7 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
                              @Option( name = "value", help = "the property value" ) final String value ) throws IOException {
         this.sapConnectionPropertiesManager.setSAPProperty( key, value );
         this.sapConnectionPropertiesManager.writeSAPProperties();
+        this.sessionManagerRegistry.invalidate();
     }
 
     /**
@@ -146,14 +212,163 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
     public void deleteProperty( @Option( name = "key", help = "the property key" ) final String key ) throws IOException {
         this.sapConnectionPropertiesManager.deleteSAPProperty( key );
         this.sapConnectionPropertiesManager.writeSAPProperties();
+        this.sessionManagerRegistry.invalidate();
+    }
+
+    /**
+     * Measures the round-trip latency and throughput of the SAP connection at increasing concurrency with STFC_CONNECTION echo calls
+     * and prints a table of the results. Recommended values for jco.destination.pool_capacity and jco.destination.peak_limit
+     * are derived from the results and written to the connection properties on request.
+     *
+     * @param maxConcurrency - the highest number of concurrent calls to probe
+     * @param calls          - the number of calls per concurrency level
+     * @param payloadSize    - the number of characters sent with every call (at most 255)
+     * @throws IOException
+     */
+    @Command( value = "probe-connection", help = "Measures latency and throughput of the SAP connection and recommends the pool size" )
+    public void probeConnection(
+            @Option( name = "max-concurrency", help = "Highest number of concurrent calls to probe. Default value is 16", defaultValue = "16" )
+            final int maxConcurrency,
+            @Option( name = "calls", help = "Number of calls per concurrency level. Default value is 200", defaultValue = "200" )
+            final int calls,
+            @Option( name = "payload-size", help = "Number of characters sent with every call, at most 255. Default value is 255", defaultValue = "255" )
+            final int payloadSize ) throws IOException {
+        final SessionManagerConfig sessionManagerConfig = createSessionManagerConfig();
+        final String maxConnections = Integer.toString( Math.max( 1, maxConcurrency ) );
+
+        //A separate destination, so the probed concurrency is not limited by the configured pool
+        sessionManagerConfig.setName( sessionManagerConfig.getName() + "-probe" );
+        sessionManagerConfig.setProperty( "jco.destination.pool_capacity", maxConnections );
+        sessionManagerConfig.setProperty( "jco.destination.peak_limit", maxConnections );
+        sessionManagerConfig.addAnnotatedClass( SAPEcho.class );
+
+        final ConnectionProbe probe = new ConnectionProbe( new SessionProbeTarget(
+                this.sessionManagerRegistry.getSessionManager( sessionManagerConfig ) ), calls,
+                                                           Math.min( payloadSize, SAPEcho.MAX_TEXT_LENGTH ) );
+        final List<ConnectionProbe.Result> results = new ArrayList<ConnectionProbe.Result>();
+
+        this.shell.println( format( "%11s %11s %11s %11s %13s %7s", "concurrency", "median ms", "p95 ms", "calls/s",
+                                    "chars/s", "errors" ) );
+
+        for ( final int concurrency : ConnectionProbe.getConcurrencyLevels( maxConcurrency ) ) {
+            final ConnectionProbe.Result result = probe.probe( concurrency );
+
+            results.add( result );
+            this.shell.println( format( "%11d %11.1f %11.1f %11.1f %13.0f %7d", concurrency, result.getMedianMillis(),
+                                        result.getPercentileMillis( 95 ), result.getCallsPerSecond(),
+                                        result.getCharactersPerSecond(), result.getErrors() ) );
+
+            if ( result.getFirstError() != null ) {
+                this.shell.println( RED, "First error: " + result.getFirstError() );
+            }
+        }
+
+        final int poolCapacity = ConnectionProbe.recommendPoolCapacity( results );
+        final int peakLimit = ConnectionProbe.recommendPeakLimit( results );
+
+        this.shell.println();
+        this.shell.println( "Recommended jco.destination.pool_capacity=" + poolCapacity + ", jco.destination.peak_limit=" + peakLimit );
+
+        if ( this.shell.promptBoolean( "Write the recommended values to the connection properties?", false ) ) {
+            this.sapConnectionPropertiesManager.setSAPProperty( "jco.destination.pool_capacity", Integer.toString( poolCapacity ) );
+            this.sapConnectionPropertiesManager.setSAPProperty( "jco.destination.peak_limit", Integer.toString( peakLimit ) );
+            this.sapConnectionPropertiesManager.writeSAPProperties();
+            this.sessionManagerRegistry.invalidate();
+        }
+    }
+
+    /**
+     * Builds or refreshes the local catalog of remote-enabled SAP function names.
+     * Without a name pattern the whole catalog is rebuilt, otherwise only the names matching the pattern are refreshed.
+     * The short texts of the functions are refreshed in the logon language, too, if requested.
+     *
+     * @param namePattern - the name pattern of the functions to refresh
+     * @param withTexts   - true to refresh the short texts of the functions
+     * @throws IOException
+     */
+    @Command( value = "build-catalog", help = "Builds or refreshes the local catalog of SAP function names" )
+    public void buildCatalog(
+            @Option( name = "name-pattern", help = "Pattern of the function names to refresh. Use * and ? as wildcards. Default value is *", defaultValue = "*" )
+            final String namePattern,
+            @Option( name = "with-texts", help = "Refreshes the short texts of the functions for search-functions", flagOnly = true )
+            final boolean withTexts ) throws IOException {
+        final SessionManager sessionManager = getSessionManager();
+        final String systemKey = this.sapConnectionPropertiesManager.getSystemKey();
+        //The function names are streamed with JCo directly, the session manager registered the destination
+        final int foundNames = this.functionCatalogManager.refresh( JCoEnvironment.getDestination( sessionManager.getConfig().getName() ),
+                                                                    systemKey, namePattern );
+        int foundTexts = 0;
+
+        if ( withTexts ) {
+            final Session session = sessionManager.openSession();
+
+            try {
+                //Only texts of remote-enabled functions are of interest
+                final Set<String> functionNames = new HashSet<String>( this.functionCatalogManager.search( namePattern, 0 ) );
+
+                foundTexts = this.functionTextManager.refresh( session, systemKey,
+                                                               this.sapConnectionPropertiesManager.getLanguageKey(), namePattern, functionNames );
+            } finally {
+                session.close();
+            }
+        }
+
+        this.functionCatalogManager.writeCatalog();
+        this.shell.println( "Refreshed " + foundNames + " function names, catalog contains "
+                                    + this.functionCatalogManager.size() + " function names" );
+
+        if ( withTexts ) {
+            this.functionTextManager.writeTexts();
+            this.shell.println( "Refreshed " + foundTexts + " function texts, catalog contains "
+                                        + this.functionTextManager.size() + " function texts" );
+        }
+    }
+
+    /**
+     * Searches the local catalog for the functions best matching the given words, e.g. "create purchase order".
+     * Function names and short texts are searched fuzzy, so parts of words and small typos match, too.
+     * The short texts must have been built with build-catalog --with-texts before.
+     *
+     * @param query      - the words to search for
+     * @param maxResults - the number of max. results
+     * @throws IOException
+     */
+    @Command( value = "search-functions", help = "Searches function names and short texts of the local catalog" )
+    public void searchFunctions(
+            @Option( name = "query", help = "Words to search in function names and short texts", required = true ) final String query,
+            @Option( name = "max-results", help = "Number of max. results. Default value is 20", defaultValue = "20" )
+            final int maxResults ) throws IOException {
+        if ( this.functionTextManager.size() == 0 ) {
+            this.shell.println( RED, "No function texts available, run build-catalog --with-texts first" );
+            return;
+        }
+
+        for ( final Hit hit : this.functionTextManager.search( query, maxResults ) ) {
+            this.shell.println( format( "%-30s %s", hit.getName(), hit.getText() ) );
+        }
     }
 
     /**
      * Generates all necessary classes to access a chosen SAP function.
      * Searches for SAP functions with the given name pattern and shows results according to given max. result number (0 shows all results).
+     * Several comma separated name patterns are searched at the same time and their results are merged.
+     * The search can be restricted to a function group, a development package or a namespace; the restrictions are evaluated by the SAP system.
      *
-     * @param namePattern - the name pattern to search for SAP functions
-     * @param maxResults  - the number of max. results showing in the search result list (type 0 for all results)
+     * @param namePattern   - the name pattern to search for SAP functions; several patterns are separated by comma
+     * @param maxResults    - the number of max. results per name pattern showing in the search result list (type 0 for all results)
+     * @param pageSize      - the number of function names read per call; found names are shown page by page
+     * @param functionGroup - the function group pattern to restrict the search to
+     * @param packageName   - the development package pattern to restrict the search to
+     * @param namespace     - the namespace to restrict the search to, e.g. /ABC/ or customer
+     * @param refreshMetadata - true to read the function metadata from the SAP system even if it is cached
+     * @param snapshotPath  - the metadata snapshot file to generate from without calling the SAP system, null to call the SAP system
+     * @param timings       - true to print the wall time and allocated bytes of each phase and append them to the timing history
+     * @param emitter       - the backend emitting the Java sources, ast or template
+     * @param compact       - true to map fields to primitive types where possible and print the estimated heap per row of both type mappings
+     * @param flagsAsBoolean - true to map CHAR(1) fields to boolean instead of char in compact mode
+     * @param columnarTables - true to map table parameters to columnar table classes instead of lists of structure objects
+     * @param streamingTables - the comma separated SAP names of the table parameters to map to row stream classes, null for none
+     * @param mappingDescriptors - true to generate a class creating the Hibersap mapping of the entity without reading its annotations
      * @throws JAXBException
      * @throws ParserConfigurationException
      * @throws FileNotFoundException
@@ -164,32 +379,91 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
      */
     @DefaultCommand( help = "Generates the necessary Java classes for a given SAP function" )
     public void generateSAPEntities(
-            @Option( name = "name-pattern", help = "Pattern to search SAP function names. Use * and ? as wildcards." ) final String namePattern,
-            @Option( name = "max-results", help = "Number of max. results. Use 0 for unlimited result list. Default value is 20", defaultValue = "20" )
-            final int maxResults )
+            @Option( name = "name-pattern", help = "Pattern to search SAP function names. Use * and ? as wildcards. Separate several patterns by comma." ) final String namePattern,
+            @Option( name = "max-results", help = "Number of max. results per pattern. Use 0 for unlimited result list. Default value is 20", defaultValue = "20" )
+            final int maxResults,
+            @Option( name = "page-size", help = "Number of function names read per call. Default value is 1000", defaultValue = "1000" )
+            final int pageSize,
+            @Option( name = "function-group", help = "Pattern of the function group to search in. Use * and ? as wildcards." ) final String functionGroup,
+            @Option( name = "package", help = "Pattern of the development package to search in. Use * and ? as wildcards." ) final String packageName,
+            @Option( name = "namespace", help = "Namespace to search in, e.g. /ABC/, or customer for functions starting with Y or Z" ) final String namespace,
+            @Option( name = "refresh-metadata", help = "Reads the function metadata from the SAP system even if it is cached", flagOnly = true )
+            final boolean refreshMetadata,
+            @Option( name = "snapshot", help = "Metadata snapshot file to generate from without a SAP connection, see export-snapshot" )
+            final String snapshotPath,
+            @Option( name = "timings", help = "Prints the time and allocated bytes of each phase and keeps them in a history", flagOnly = true )
+            final boolean timings,
+            @Option( name = "emitter", help = "Backend emitting the Java sources: ast or template (faster). Default value is ast", defaultValue = "ast" )
+            final String emitter,
+            @Option( name = "compact", help = "Maps CHAR(1), NUMC and packed number fields to primitive types and prints the estimated heap per row", flagOnly = true )
+            final boolean compact,
+            @Option( name = "flags-as-boolean", help = "Maps CHAR(1) fields to boolean instead of char with --compact. Use only if they are all X/space flags", flagOnly = true )
+            final boolean flagsAsBoolean,
+            @Option( name = "columnar-tables", help = "Maps table parameters to classes storing the rows column by column instead of lists of objects", flagOnly = true )
+            final boolean columnarTables,
+            @Option( name = "streaming-tables", help = "SAP names of table parameters mapped to classes converting the rows one by one while iterating. Separate several names by comma." )
+            final String streamingTables,
+            @Option( name = "mapping-descriptors", help = "Generates a class creating the Hibersap mapping of the entity, used by the generated DescriptorConfiguration", flagOnly = true )
+            final boolean mappingDescriptors )
             throws JAXBException, ParserConfigurationException, FileNotFoundException, TransformerException,
-                   SessionManagerDuplicateException, ClassNotFoundException {
+                   SessionManagerDuplicateException, ClassNotFoundException, IOException {
+        final long startedAt = System.currentTimeMillis();
+        final PhaseTimer timer = new PhaseTimer( timings );
+        final EmitterType emitterType = EmitterType.forName( emitter );
+
+        //The SAP types of the fields are not part of the cached mappings and snapshots, they are read from JCo
+        if ( compact && ( snapshotPath != null || emitterType != EmitterType.AST ) ) {
+            throw new IllegalArgumentException( "--compact needs a SAP connection and the ast emitter" );
+        }
+        if ( columnarTables && emitterType != EmitterType.AST ) {
+            throw new IllegalArgumentException( "--columnar-tables needs the ast emitter" );
+        }
+        if ( streamingTables != null && emitterType != EmitterType.AST ) {
+            throw new IllegalArgumentException( "--streaming-tables needs the ast emitter" );
+        }
+        if ( mappingDescriptors && emitterType != EmitterType.AST ) {
+            throw new IllegalArgumentException( "--mapping-descriptors needs the ast emitter" );
+        }
+
         final SessionManagerConfig sessionManagerConfig = createSessionManagerConfig();
-        final AnnotationConfiguration configuration = new AnnotationConfiguration( sessionManagerConfig );
-        final SessionManager sessionManager = configuration.buildSessionManager();
-        final SAPFunctionModuleSearch functionModuleSearch = new SAPFunctionModuleSearch( namePattern, maxResults );
-        final Session session = sessionManager.openSession();
 
-        try {
-            session.execute( functionModuleSearch );
-        } finally {
-            session.close();
+        if ( snapshotPath != null ) {
+            timer.start( "read-snapshot" );
         }
 
-        final List<String> functionNames = functionModuleSearch.getFunctionNames();
+        final MetadataSource snapshot = readSnapshot( snapshotPath );
+        final SessionManager sessionManager;
+        final List<String> functionNames;
+
+        if ( snapshot == null ) {
+            final FunctionModuleFilter filter = new FunctionModuleFilter( functionGroup, packageName, namespace );
+
+            timer.start( "connect" );
+            sessionManager = getSessionManager();
+            timer.start( "search" );
+            functionNames = searchFunctionNames( sessionManager, Utils.split( namePattern, ',' ), maxResults, pageSize,
+                                                 filter );
+        } else {
+            sessionManager = null;
+            timer.start( "search" );
+            functionNames = snapshot.getFunctionNames( Utils.split( namePattern, ',' ) );
+        }
+
+        timer.stop();
         functionNames.add( "Cancel" );
         final String functionName = this.shell.promptChoiceTyped(
                 "\nSelect a function to generate the necessary Java classes:", functionNames );
 
         if ( !functionName.equals( "Cancel" ) ) {
-            final ReverseBapiMapper reverseBAPIMapper = new ReverseBapiMapper();
-            final BapiMapping functionMapping = reverseBAPIMapper.map( functionName, sessionManager );
+            timer.start( "read-metadata" );
+
+            final BapiMapping functionMapping = snapshot == null ? mapFunction( sessionManager, functionName,
+                                                                                readChangeStamps( sessionManager, Collections.singleton( functionName ) ).get( functionName ),
+                                                                                refreshMetadata ) : snapshot.map( functionName );
+            final CompactTypeMapping compactTypes = compact ? CompactTypeMapping.read(
+                    JCoEnvironment.getDestination( sessionManager.getConfig().getName() ), functionName, flagsAsBoolean ) : null;
 
+            timer.stop();
             this.shell.println();
 
             final String defaultClassName = Utils.toCamelCase( functionMapping.getBapiName(), '_' );
@@ -203,24 +477,59 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
             final String javaPackage = this.shell.prompt( "Please enter a Java package. Leave empty for default\n",
                                                           defaultJavaPackage );
 
-            final SAPEntityBuilder sapEntityBuilder = new SAPEntityBuilder();
-            sapEntityBuilder.createNew( className, javaPackage, functionMapping );
+            timer.start( "build-entity" );
 
-            final SAPEntity sapEntity = sapEntityBuilder.getSAPEntity();
-            final Set<JavaClass> javaClasses = sapEntity.getStructureClasses();
+            final StructureRegistryManager structureRegistryManager = readStructureRegistry( java );
+            final GenerationOptions options = new GenerationOptions( compact, flagsAsBoolean, columnarTables,
+                                                                     getTableNames( functionMapping, streamingTables ),
+                                                                     mappingDescriptors );
+            //Only one entity is generated, so its structure classes are built on all cores
+            final SAPEntitySource sapEntity;
+
+            if ( options.isSet() ) {
+                final SAPEntityBuilder sapEntityBuilder = new SAPEntityBuilder( structureRegistryManager.getStructureRegistry(),
+                                                                                Runtime.getRuntime().availableProcessors(), columnarTables,
+                                                                                mappingDescriptors );
+
+                sapEntityBuilder.createNew( className, javaPackage, functionMapping, compactTypes,
+                                            options.getStreamingTables() );
+                sapEntity = SAPEntitySource.of( sapEntityBuilder.getSAPEntity() );
+            } else {
+                sapEntity = emitterType.createEmitter( structureRegistryManager.getStructureRegistry(),
+                                                       Runtime.getRuntime().availableProcessors() )
+                        .emit( className, javaPackage, functionMapping );
+            }
 
-            javaClasses.add( sapEntity.getBapiClass() );
             this.shell.println();
+            timer.start( "save-sources" );
 
-            for ( final JavaClass javaClass : javaClasses ) {
-                java.saveJavaSource( javaClass );
-                this.shell.println( "Created SAP entity [" + javaClass.getQualifiedName() + "]" );
+            for ( final Entry<String, String> source : sapEntity.getSources().entrySet() ) {
+                saveJavaSource( java, source.getKey(), source.getValue() );
+                this.shell.println( "Created SAP entity [" + source.getKey() + "]" );
+            }
+            if ( mappingDescriptors ) {
+                saveDescriptorConfiguration( java, javaPackage );
             }
 
-            final String bapiClassName = sapEntity.getBapiClass().getQualifiedName();
+            structureRegistryManager.writeStructureRegistry();
+
+            final String bapiClassName = sapEntity.getBapiClassName();
+            final FingerprintManager fingerprintManager = new FingerprintManager( getProjectConfigDirPath() );
+
+            fingerprintManager.put( bapiClassName, functionName, MappingFingerprint.of( functionMapping ) );
+            fingerprintManager.putOptions( bapiClassName, options );
+            fingerprintManager.writeFingerprints();
             sessionManagerConfig.setAnnotatedClasses( Collections.singletonList( bapiClassName ) );
+            timer.stop();
+
+            handleConfiguration( sessionManagerConfig, timer );
 
-            handleConfiguration( sessionManagerConfig );
+            if ( compactTypes != null ) {
+                printHeapEstimates( RowHeapEstimate.of( functionMapping, compactTypes ) );
+            }
+            if ( timings ) {
+                printTimings( "generate", startedAt, timer );
+            }
         } else {
             this.shell.println();
             this.shell.println( "Command canceled..." );
@@ -228,17 +537,559 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
         }
     }
 
+    /**
+     * Generates the Java classes for many SAP functions without prompting.
+     * The functions are given by names or name patterns. Their metadata is read and their classes are built concurrently,
+     * limited by the JCo destination pool capacity. All classes are saved at once and hibersap.xml is updated once at the end.
+     *
+     * @param namePattern     - the names or name patterns of the functions; several are separated by comma
+     * @param javaPackage     - the Java package of the generated classes
+     * @param poolSize        - the max. number of functions generated at the same time (0 for the JCo destination pool capacity)
+     * @param refreshMetadata - true to read the function metadata from the SAP system even if it is cached
+     * @param snapshotPath    - the metadata snapshot file to generate from without calling the SAP system, null to call the SAP system
+     * @param emitter         - the backend emitting the Java sources, ast or template
+     * @param mappingDescriptors - true to generate a class creating the Hibersap mapping of every entity without reading its annotations
+     * @throws JAXBException
+     * @throws SessionManagerDuplicateException
+     *
+     * @throws ClassNotFoundException
+     * @throws IOException
+     */
+    @Command( value = "generate-bulk", help = "Generates the necessary Java classes for many SAP functions without prompting" )
+    public void generateBulk(
+            @Option( name = "name-pattern", help = "Names or patterns of the SAP functions. Use * and ? as wildcards. Separate several names by comma.", required = true )
+            final String namePattern,
+            @Option( name = "package", help = "Java package of the generated classes. Default value is the project base package + .hibersap" )
+            final String javaPackage,
+            @Option( name = "pool-size", help = "Number of functions generated at the same time. Default value is the JCo destination pool capacity", defaultValue = "0" )
+            final int poolSize,
+            @Option( name = "refresh-metadata", help = "Reads the function metadata from the SAP system even if it is cached", flagOnly = true )
+            final boolean refreshMetadata,
+            @Option( name = "snapshot", help = "Metadata snapshot file to generate from without a SAP connection, see export-snapshot" )
+            final String snapshotPath,
+            @Option( name = "emitter", help = "Backend emitting the Java sources: ast or template (faster). Default value is ast", defaultValue = "ast" )
+            final String emitter,
+            @Option( name = "mapping-descriptors", help = "Generates a class creating the Hibersap mapping of every entity, used by the generated DescriptorConfiguration", flagOnly = true )
+            final boolean mappingDescriptors )
+            throws JAXBException, SessionManagerDuplicateException, ClassNotFoundException, IOException {
+        final EmitterType emitterType = EmitterType.forName( emitter );
+
+        if ( mappingDescriptors && emitterType != EmitterType.AST ) {
+            throw new IllegalArgumentException( "--mapping-descriptors needs the ast emitter" );
+        }
+
+        final SessionManagerConfig sessionManagerConfig = createSessionManagerConfig();
+        final MetadataSource snapshot = readSnapshot( snapshotPath );
+        final SessionManager sessionManager;
+        final List<String> functionNames;
+
+        if ( snapshot == null ) {
+            sessionManager = getSessionManager();
+            functionNames = searchFunctionNames( sessionManager, Utils.split( namePattern, ',' ), 0,
+                                                 PagedFunctionModuleSearch.DEFAULT_PAGE_SIZE, FunctionModuleFilter.NONE );
+        } else {
+            sessionManager = null;
+            functionNames = snapshot.getFunctionNames( Utils.split( namePattern, ',' ) );
+        }
+
+        if ( functionNames.isEmpty() ) {
+            this.shell.println( RED, "No function found for [" + namePattern + "]" );
+            return;
+        }
+
+        final JavaSourceFacet java = this.project.getFacet( JavaSourceFacet.class );
+        final String targetPackage = javaPackage == null || javaPackage.trim().isEmpty() ? java.getBasePackage()
+                + ".hibersap" : javaPackage.trim();
+        final int poolCapacity = getPoolCapacity();
+        final StructureRegistryManager structureRegistryManager = readStructureRegistry( java );
+        final Map<String, String> changeStamps = snapshot == null ? readChangeStamps( sessionManager, functionNames ) : null;
+        final FunctionMapper functionMapper = snapshot != null ? snapshot : new FunctionMapper() {
+
+            public BapiMapping map( final String functionName ) throws IOException {
+                return mapFunction( sessionManager, functionName, changeStamps.get( functionName ), refreshMetadata );
+            }
+        };
+        final BulkEntityGenerator generator = new BulkEntityGenerator( functionMapper, targetPackage, poolSize > 0 ? Math.min( poolSize, poolCapacity ) : poolCapacity,
+                                                                     createEmitter( emitterType, structureRegistryManager.getStructureRegistry(),
+                                                                                    mappingDescriptors ) );
+
+        this.shell.println();
+        this.shell.println( "Generating " + functionNames.size() + " SAP entities..." );
+
+        final BulkEntityGenerator.Result result = generator.generate( functionNames );
+        final List<String> bapiClassNames = saveEntities( java, result, new GenerationOptions( false, false, false,
+                                                                                               Collections.<String>emptySet(),
+                                                                                               mappingDescriptors ) );
+
+        if ( mappingDescriptors && !bapiClassNames.isEmpty() ) {
+            saveDescriptorConfiguration( java, targetPackage );
+        }
+
+        structureRegistryManager.writeStructureRegistry();
+
+        if ( !bapiClassNames.isEmpty() ) {
+            sessionManagerConfig.setAnnotatedClasses( bapiClassNames );
+            updateConfiguration( sessionManagerConfig );
+        }
+    }
+
+    /**
+     * Regenerates the SAP entities whose function interface changed since they were generated.
+     * The function of every BAPI class recorded in .hibersap/fingerprints.properties is mapped again and its fingerprint is compared
+     * to the fingerprint at generation time. Functions are mapped concurrently, limited by the JCo destination pool capacity.
+     * Since unchanged functions are answered from the metadata cache, only changed functions are read from the SAP system.
+     * The cache is also invalidated by changes of the dictionary types used by a function, so an interface changed through a structure is detected.
+     * Entities are regenerated with the options recorded at generation time (compact types, columnar or streaming tables, mapping descriptors),
+     * which are built with the ast emitter whatever emitter is chosen. Entities with compact types need a SAP connection, they fail with a snapshot.
+     * Entities recorded without options but with a mapping descriptor, generated by an older plugin version, are regenerated with a mapping descriptor.
+     *
+     * @param poolSize        - the max. number of functions mapped at the same time (0 for the JCo destination pool capacity)
+     * @param refreshMetadata - true to read the function metadata from the SAP system even if it is cached
+     * @param snapshotPath    - the metadata snapshot file to compare with instead of calling the SAP system, null to call the SAP system
+     * @param force           - true to regenerate all entities, even if their function interface did not change
+     * @param emitter         - the backend emitting the Java sources, ast or template
+     * @throws IOException
+     */
+    @Command( value = "regenerate", help = "Regenerates the SAP entities whose function interface changed" )
+    public void regenerate(
+            @Option( name = "pool-size", help = "Number of functions mapped at the same time. Default value is the JCo destination pool capacity", defaultValue = "0" )
+            final int poolSize,
+            @Option( name = "refresh-metadata", help = "Reads the function metadata from the SAP system even if it is cached", flagOnly = true )
+            final boolean refreshMetadata,
+            @Option( name = "snapshot", help = "Metadata snapshot file to compare with instead of a SAP connection, see export-snapshot" )
+            final String snapshotPath,
+            @Option( name = "force", help = "Regenerates all entities, even if the interface of their function did not change", flagOnly = true )
+            final boolean force,
+            @Option( name = "emitter", help = "Backend emitting the Java sources: ast or template (faster). Default value is ast", defaultValue = "ast" )
+            final String emitter ) throws IOException {
+        final EmitterType emitterType = EmitterType.forName( emitter );
+        final JavaSourceFacet java = this.project.getFacet( JavaSourceFacet.class );
+        final FingerprintManager fingerprintManager = new FingerprintManager( getProjectConfigDirPath() );
+        final Map<String, String> functionNames = new LinkedHashMap<String, String>();
+        final Map<String, String> fingerprints = new HashMap<String, String>();
+        final Map<String, GenerationOptions> options = new HashMap<String, GenerationOptions>();
+
+        for ( final String bapiClassName : fingerprintManager.getBapiClassNames() ) {
+            //Entities deleted from the project are not brought back
+            if ( !java.getJavaResource( bapiClassName ).exists() ) {
+                fingerprintManager.remove( bapiClassName );
+            } else {
+                functionNames.put( bapiClassName, fingerprintManager.getFunctionName( bapiClassName ) );
+
+                if ( !force ) {
+                    fingerprints.put( bapiClassName, fingerprintManager.getFingerprint( bapiClassName ) );
+                }
+
+                //A descriptor left from before the function changed would create a wrong mapping
+                if ( !fingerprintManager.getOptions( bapiClassName ).isSet()
+                        && hasDescriptorClass( java, Collections.singleton( bapiClassName ) ) ) {
+                    fingerprintManager.putOptions( bapiClassName, new GenerationOptions( false, false, false,
+                                                                                         Collections.<String>emptySet(), true ) );
+                }
+
+                options.put( bapiClassName, fingerprintManager.getOptions( bapiClassName ) );
+            }
+        }
+
+        fingerprintManager.writeFingerprints();
+
+        if ( functionNames.isEmpty() ) {
+            this.shell.println( RED, "No generated SAP entities recorded, generate entities first" );
+            return;
+        }
+
+        final MetadataSource snapshot = readSnapshot( snapshotPath );
+        final SessionManager sessionManager = snapshot == null ? getSessionManager() : null;
+        final Map<String, String> changeStamps = snapshot == null ? readChangeStamps( sessionManager,
+                                                                                      functionNames.values() ) : null;
+        final FunctionMapper functionMapper = snapshot != null ? snapshot : new FunctionMapper() {
+
+            public BapiMapping map( final String functionName ) throws IOException {
+                return mapFunction( sessionManager, functionName, changeStamps.get( functionName ), refreshMetadata );
+            }
+        };
+        final int poolCapacity = getPoolCapacity();
+        final StructureRegistryManager structureRegistryManager = readStructureRegistry( java );
+        final StructureRegistry structureRegistry = structureRegistryManager.getStructureRegistry();
+        final EntityEmitter entityEmitter = new OptionsEntityEmitter( createEmitter( emitterType, structureRegistry, false ),
+                                                                      structureRegistry, options, sessionManager == null ? null
+                : JCoEnvironment.getDestination( sessionManager.getConfig().getName() ) );
+        final BulkEntityGenerator generator = new BulkEntityGenerator( functionMapper, java.getBasePackage() + ".hibersap",
+                                                                       poolSize > 0 ? Math.min( poolSize, poolCapacity ) : poolCapacity,
+                                                                       entityEmitter );
+
+        this.shell.println();
+        this.shell.println( "Comparing " + functionNames.size() + " SAP entities..." );
+
+        final BulkEntityGenerator.Result result = generator.regenerate( functionNames, fingerprints );
+
+        saveEntities( java, result, null );
+        structureRegistryManager.writeStructureRegistry();
+        this.shell.println( "Regenerated " + result.getEntities().size() + " SAP entities, "
+                                    + result.getUnchanged().size() + " unchanged" );
+    }
+
+    /**
+     * Saves the classes of generated SAP entities and records their fingerprints and options. Failures are reported.
+     *
+     * @param java    - the Java source facet of the project
+     * @param result  - the result of a bulk generation
+     * @param options - the options all entities were generated with, null to keep the recorded options
+     * @return the qualified names of the saved BAPI classes
+     * @throws IOException
+     */
+    private List<String> saveEntities( final JavaSourceFacet java, final BulkEntityGenerator.Result result,
+                                       final GenerationOptions options ) throws IOException {
+        final FingerprintManager fingerprintManager = new FingerprintManager( getProjectConfigDirPath() );
+        final List<String> bapiClassNames = new ArrayList<String>();
+
+        for ( final SAPEntitySource sapEntity : result.getEntities() ) {
+            final String bapiClassName = sapEntity.getBapiClassName();
+
+            for ( final Entry<String, String> source : sapEntity.getSources().entrySet() ) {
+                saveJavaSource( java, source.getKey(), source.getValue() );
+            }
+
+            fingerprintManager.put( bapiClassName, result.getFunctionNames().get( bapiClassName ),
+                                    result.getFingerprints().get( bapiClassName ) );
+
+            if ( options != null ) {
+                fingerprintManager.putOptions( bapiClassName, options );
+            }
+            bapiClassNames.add( bapiClassName );
+            this.shell.println( "Created SAP entity [" + bapiClassName + "]" );
+        }
+
+        fingerprintManager.writeFingerprints();
+
+        for ( final Map.Entry<String, Throwable> failure : result.getFailures().entrySet() ) {
+            this.shell.println( RED, "Failed to generate function [" + failure.getKey() + "]: " + failure.getValue().getMessage() );
+        }
+
+        return bapiClassNames;
+    }
+
+    /**
+     * Exports the metadata of SAP functions to a snapshot file.
+     * The snapshot is a metadata repository, which stores every distinct structure and table once.
+     * Entities can be generated from the snapshot without a SAP connection by passing it with --snapshot to the generate commands.
+     *
+     * @param namePattern     - the names or name patterns of the functions; several are separated by comma
+     * @param snapshotPath    - the snapshot file, relative to the project root if not absolute
+     * @param refreshMetadata - true to read the function metadata from the SAP system even if it is cached
+     * @throws IOException
+     */
+    @Command( value = "export-snapshot", help = "Exports the metadata of SAP functions to a snapshot file for offline generation" )
+    public void exportSnapshot(
+            @Option( name = "name-pattern", help = "Names or patterns of the SAP functions. Use * and ? as wildcards. Separate several names by comma.", required = true )
+            final String namePattern,
+            @Option( name = "file", help = "Snapshot file, relative to the project root if not absolute", required = true )
+            final String snapshotPath,
+            @Option( name = "refresh-metadata", help = "Reads the function metadata from the SAP system even if it is cached", flagOnly = true )
+            final boolean refreshMetadata ) throws IOException {
+        final SessionManager sessionManager = getSessionManager();
+        final List<String> functionNames = searchFunctionNames( sessionManager, Utils.split( namePattern, ',' ), 0,
+                                                                PagedFunctionModuleSearch.DEFAULT_PAGE_SIZE, FunctionModuleFilter.NONE );
+
+        if ( functionNames.isEmpty() ) {
+            this.shell.println( RED, "No function found for [" + namePattern + "]" );
+            return;
+        }
+
+        final MetadataRepositoryWriter writer = new MetadataRepositoryWriter();
+        final Map<String, String> changeStamps = readChangeStamps( sessionManager, functionNames );
+
+        for ( final String functionName : functionNames ) {
+            writer.add( mapFunction( sessionManager, functionName, changeStamps.get( functionName ), refreshMetadata ) );
+        }
+
+        final File snapshotFile = getProjectFile( snapshotPath );
+
+        writer.write( snapshotFile, this.sapConnectionPropertiesManager.getSystemKey(), System.currentTimeMillis() );
+        this.shell.println( "Exported metadata of " + writer.size() + " functions with " + writer.getComponentCount()
+                                    + " distinct structures and tables to [" + snapshotFile + "]" );
+    }
+
+    /**
+     * Reads a metadata snapshot, which is a metadata repository or a snapshot of an older plugin version
+     *
+     * @param snapshotPath - the snapshot file, relative to the project root if not absolute
+     * @return the snapshot, null if no path is given
+     * @throws IOException
+     */
+    private MetadataSource readSnapshot( final String snapshotPath ) throws IOException {
+        if ( snapshotPath == null || snapshotPath.trim().isEmpty() ) {
+            return null;
+        }
+
+        final File snapshotFile = getProjectFile( snapshotPath );
+        final MetadataSource snapshot = MetadataRepository.isRepository( snapshotFile ) ? MetadataRepository.open( snapshotFile )
+                : MetadataSnapshot.read( snapshotFile );
+
+        this.shell.println( "Using metadata snapshot of [" + snapshot.getSystemKey() + "] with " + snapshot.size()
+                                    + " functions" );
+
+        return snapshot;
+    }
+
+    /**
+     * Creates the emitter of the SAP entities of a bulk generation
+     *
+     * @param emitterType        - the emitter type
+     * @param structureRegistry  - the registry of shared structure classes
+     * @param mappingDescriptors - true to add a mapping descriptor class to the entities, which needs the ast emitter
+     * @return the emitter
+     */
+    private EntityEmitter createEmitter( final EmitterType emitterType, final StructureRegistry structureRegistry,
+                                         final boolean mappingDescriptors ) {
+        return mappingDescriptors ? new AstEntityEmitter( structureRegistry, 1, true ) : emitterType.createEmitter( structureRegistry );
+    }
+
+    /**
+     * Checks if one of the given BAPI classes has a mapping descriptor class in the project
+     *
+     * @param java           - the Java source facet of the project
+     * @param bapiClassNames - the qualified names of the BAPI classes
+     * @return true if a mapping descriptor class exists
+     * @throws FileNotFoundException
+     */
+    private boolean hasDescriptorClass( final JavaSourceFacet java, final Set<String> bapiClassNames )
+            throws FileNotFoundException {
+        for ( final String bapiClassName : bapiClassNames ) {
+            final int packageEnd = bapiClassName.lastIndexOf( '.' );
+            final String descriptorClassName = bapiClassName.substring( 0, packageEnd + 1 )
+                    + MappingDescriptorGenerator.getDescriptorClassName( bapiClassName.substring( packageEnd + 1 ) );
+
+            if ( java.getJavaResource( descriptorClassName ).exists() ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Saves the Hibersap configuration creating the mappings with the mapping descriptors, unless it exists already
+     *
+     * @param java        - the Java source facet of the project
+     * @param javaPackage - the Java package of the configuration
+     * @throws FileNotFoundException
+     */
+    private void saveDescriptorConfiguration( final JavaSourceFacet java, final String javaPackage )
+            throws FileNotFoundException {
+        final String className = javaPackage + "." + MappingDescriptorGenerator.CONFIGURATION_CLASS_NAME;
+
+        if ( !java.getJavaResource( className ).exists() ) {
+            saveJavaSource( java, className, MappingDescriptorGenerator.createConfigurationSource( javaPackage ) );
+            this.shell.println( "Created Hibersap configuration [" + className + "]" );
+        }
+    }
+
+    /**
+     * Saves the source of a generated Java class to the project
+     *
+     * @param java      - the Java source facet of the project
+     * @param className - the qualified class name
+     * @param source    - the source
+     * @throws FileNotFoundException
+     */
+    private void saveJavaSource( final JavaSourceFacet java, final String className, final String source )
+            throws FileNotFoundException {
+        final FlightEvent event = FlightEvents.FILE_WRITE.begin();
+
+        event.set( "path", java.getJavaResource( className ).setContents( source ).getFullyQualifiedName() ).commit();
+    }
+
+    /**
+     * Gets the path of the .hibersap directory of the project, which holds the state of the generated classes
+     *
+     * @return the directory path ending with a slash
+     */
+    private String getProjectConfigDirPath() {
+        return this.project.getProjectRoot().getFullyQualifiedName() + "/.hibersap/";
+    }
+
+    /**
+     * Gets a file of the project
+     *
+     * @param path - the file path, relative to the project root if not absolute
+     * @return the file
+     */
+    private File getProjectFile( final String path ) {
+        final File file = new File( path.trim() );
+
+        return file.isAbsolute() ? file : new File( this.project.getProjectRoot().getFullyQualifiedName(), path.trim() );
+    }
+
+    /**
+     * Reads the registry of shared structure classes from the .hibersap directory of the project.
+     * Registered classes which do not exist in the project anymore are removed, so they are generated again.
+     *
+     * @param java - the Java source facet of the project
+     * @return the structure registry manager
+     * @throws IOException
+     */
+    private StructureRegistryManager readStructureRegistry( final JavaSourceFacet java ) throws IOException {
+        final StructureRegistryManager structureRegistryManager = new StructureRegistryManager( getProjectConfigDirPath() );
+        final StructureRegistry structureRegistry = structureRegistryManager.getStructureRegistry();
+
+        for ( final String className : structureRegistry.getClassNames() ) {
+            if ( !java.getJavaResource( className ).exists() ) {
+                structureRegistry.remove( className );
+            }
+        }
+
+        return structureRegistryManager;
+    }
+
+    /**
+     * Searches for SAP function names with the given name patterns and merges the results without duplicates.
+     * The local function catalog is used if it is available for the current SAP system, not stale and the search is not filtered, otherwise the SAP system is called.
+     * The SAP system is called page by page with one session per pattern, limited by the JCo destination pool capacity.
+     * The names of every page are shown as soon as they arrive.
+     *
+     * @param sessionManager - the session manager to call the SAP system with
+     * @param namePatterns   - the name patterns to search for SAP functions
+     * @param maxResults     - the number of max. results per pattern (0 for all results)
+     * @param pageSize       - the number of function names read per call
+     * @param filter         - the filter restricting the searched functions
+     * @return the found function names
+     */
+    private List<String> searchFunctionNames( final SessionManager sessionManager, final List<String> namePatterns,
+                                              final int maxResults, final int pageSize, final FunctionModuleFilter filter ) {
+        if ( filter.isEmpty() && this.functionCatalogManager.isUsable( this.sapConnectionPropertiesManager.getSystemKey(), getCatalogMaxAge() ) ) {
+            final Set<String> functionNames = new LinkedHashSet<String>();
+
+            for ( final String namePattern : namePatterns ) {
+                functionNames.addAll( this.functionCatalogManager.search( namePattern, maxResults ) );
+            }
+
+            return new ArrayList<String>( functionNames );
+        }
+
+        final ParallelFunctionModuleSearch functionModuleSearch = new ParallelFunctionModuleSearch( namePatterns,
+                                                                                                    maxResults, pageSize, getPoolCapacity(), filter );
+
+        return functionModuleSearch.execute( sessionManager, new FunctionNameCallback() {
+
+            public boolean handle( final List<String> pageNames ) {
+                for ( final String functionName : pageNames ) {
+                    GenerateSAPEntitiesPlugin.this.shell.println( "Found function [" + functionName + "]" );
+                }
+
+                return true;
+            }
+        } );
+    }
+
+    /**
+     * Reads the change stamps of SAP functions for the metadata cache.
+     * The stamps of all functions are read together, but reading them still takes several calls, which can take longer than reading the metadata of a few functions.
+     * So the metadata cache is only used if the property metadata.cache is true.
+     *
+     * @param sessionManager - the session manager to call the SAP system with
+     * @param functionNames  - the function names
+     * @return the change stamps by function name, empty if the metadata cache is not used
+     */
+    private Map<String, String> readChangeStamps( final SessionManager sessionManager,
+                                                  final Collection<String> functionNames ) {
+        final String metadataCache = this.sapConnectionPropertiesManager.getSAPProperty( "metadata.cache" );
+
+        if ( metadataCache == null || !Boolean.parseBoolean( metadataCache.trim() ) ) {
+            return Collections.emptyMap();
+        }
+
+        final Session session = sessionManager.openSession();
+
+        try {
+            return FunctionChangeStamp.read( session, functionNames );
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Maps the metadata of a SAP function.
+     * The mapping is taken from the local metadata cache as long as the function was not changed, otherwise it is read from the SAP system and cached.
+     *
+     * @param sessionManager  - the session manager to call the SAP system with
+     * @param functionName    - the function name
+     * @param changeStamp     - the change stamp of the function, null or empty to read the metadata without the cache
+     * @param refreshMetadata - true to read the metadata from the SAP system even if it is cached
+     * @return the function mapping
+     * @throws IOException
+     */
+    private BapiMapping mapFunction( final SessionManager sessionManager, final String functionName,
+                                     final String changeStamp, final boolean refreshMetadata ) throws IOException {
+        final FlightEvent event = FlightEvents.METADATA_FETCH.begin().set( "function", functionName );
+        final String systemKey = this.sapConnectionPropertiesManager.getSystemKey();
+        final boolean cacheable = changeStamp != null && !changeStamp.isEmpty();
+
+        if ( !refreshMetadata && cacheable ) {
+            final BapiMapping cachedMapping = this.metadataCacheManager.get( systemKey, functionName, changeStamp );
+
+            if ( cachedMapping != null ) {
+                //Functions are mapped concurrently in bulk mode
+                synchronized ( this.shell ) {
+                    this.shell.println( "Using cached metadata of function [" + functionName + "]" );
+                }
+                event.set( "source", "cache" ).commit();
+                return cachedMapping;
+            }
+        }
+
+        final BapiMapping functionMapping = new ReverseBapiMapper().map( functionName, sessionManager );
+
+        //Without a change stamp a cached mapping could never be invalidated
+        if ( cacheable ) {
+            this.metadataCacheManager.put( systemKey, functionName, changeStamp, functionMapping );
+        }
+
+        event.set( "source", "sap" ).commit();
+
+        return functionMapping;
+    }
+
+    /**
+     * Gets the JCo destination pool capacity from the property jco.destination.pool_capacity
+     *
+     * @return the pool capacity, 1 if not set
+     */
+    private int getPoolCapacity() {
+        final String poolCapacity = this.sapConnectionPropertiesManager.getSAPProperty( "jco.destination.pool_capacity" );
+
+        return poolCapacity == null ? 1 : Math.max( 1, Integer.parseInt( poolCapacity.trim() ) );
+    }
+
+    /**
+     * Gets the max. age of the function catalog from the optional property catalog.max-age-hours
+     *
+     * @return the max. age in milliseconds
+     */
+    private long getCatalogMaxAge() {
+        final String maxAgeHours = this.sapConnectionPropertiesManager.getSAPProperty( "catalog.max-age-hours" );
+
+        if ( maxAgeHours == null ) {
+            return FunctionCatalogManager.DEFAULT_MAX_AGE;
+        }
+
+        return Long.parseLong( maxAgeHours.trim() ) * 60L * 60L * 1000L;
+    }
+
     /**
      * @param sessionManagerConfig The Hibersap configuration object
+     * @param timer                The timer measuring the phases; prompts are not measured
      * @throws JAXBException
      * @throws SessionManagerDuplicateException
      *
      * @throws ClassNotFoundException
      * @throws FileNotFoundException
      */
-    private void handleConfiguration( final SessionManagerConfig sessionManagerConfig ) throws JAXBException,
+    private void handleConfiguration( final SessionManagerConfig sessionManagerConfig, final PhaseTimer timer ) throws JAXBException,
                                                                                                SessionManagerDuplicateException, ClassNotFoundException,
                                                                                                FileNotFoundException {
+        timer.start( "read-hibersap-xml" );
+
         final DirectoryResource metaInfDir = this.project.getProjectRoot().getChildDirectory(
                 "src/main/resources/META-INF" );
         final String metaInfDirPath = metaInfDir.getFullyQualifiedName() + "/";
@@ -246,6 +1097,8 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
         final String sessionManagerName = sessionManagerConfig.getName();
         final String messageBody = "\nSession manager [" + sessionManagerName + "] ";
         final List<String> sessionManagerNames = xmlManager.getSessionManagerNames();
+
+        timer.stop();
         final String newSessionManager = "New session manager from current properties";
         final String sessionManagerNameChoice;
         final boolean update;
@@ -289,6 +1142,8 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
                             "Would you like to use JCo or JCA adapter for the current session manager?\nLeave empty for default",
                             "[jJ][cC][aAoO]", "JCo" );
 
+            timer.start( "handle-dependencies" );
+
             if ( adapter.matches( "[jJ][cC][aA]" ) ) {
                 //Set session manager for JCA environment
                 sessionManagerConfig.setContext( this.sapConnectionPropertiesManager.getSAPProperty( "jca.context" ) );
@@ -299,28 +1154,123 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
                 //Set properties empty; Nullpointer if set null
                 sessionManagerConfig.setProperties( Collections.<Property>emptyList() );
                 //Handle dependencies for JCA environment
-                handleDependencies( false );
+                handleDependencies( false, true );
             } else {
                 //Set session manager for JCo environment
                 sessionManagerConfig.setJcaConnectionFactory( null );
                 sessionManagerConfig.setJcaConnectionSpecFactory( null );
                 //Handle dependencies for JCo environment
-                handleDependencies( true );
+                handleDependencies( true, true );
             }
 
+            timer.start( "add-session-manager" );
             xmlManager.addAndOverrideSessionManager( sessionManagerConfig );
             this.shell.println( messageBody + "added..." );
         }
 
+        timer.start( "write-hibersap-xml" );
+
         if ( update ) {
             xmlManager.updateSessionManager( sessionManagerName, sessionManagerConfig );
             this.shell.println( messageBody + "updated..." );
         }
 
         xmlManager.writeHibersapXML();
+        timer.stop();
         this.shell.println( "\nWrote configuration file [hibersap.xml]\n" );
     }
 
+    /**
+     * Gets the SAP names of chosen table parameters of a function
+     *
+     * @param functionMapping - the function mapping
+     * @param tableNames      - the comma separated SAP names of the table parameters, null for none
+     * @return the SAP names
+     * @throws IllegalArgumentException if a name is not the name of a table parameter of the function
+     */
+    private Set<String> getTableNames( final BapiMapping functionMapping, final String tableNames ) {
+        final Set<String> existingTableNames = new HashSet<String>();
+        final Set<String> chosenTableNames = new HashSet<String>();
+
+        for ( final TableMapping tableMapping : functionMapping.getTableParameters() ) {
+            existingTableNames.add( tableMapping.getSapName() );
+        }
+
+        for ( final String tableName : Utils.split( tableNames, ',' ) ) {
+            final String upperCaseTableName = tableName.toUpperCase();
+
+            if ( !existingTableNames.contains( upperCaseTableName ) ) {
+                throw new IllegalArgumentException( "No table parameter " + upperCaseTableName + " in function "
+                                                    + functionMapping.getBapiName() + ", found " + existingTableNames );
+            }
+
+            chosenTableNames.add( upperCaseTableName );
+        }
+
+        return chosenTableNames;
+    }
+
+    /**
+     * Prints the estimated heap per row of the structure and table parameters of a function with the standard and the compact type mapping
+     *
+     * @param estimates - the estimates of the parameters
+     */
+    private void printHeapEstimates( final List<RowHeapEstimate> estimates ) {
+        if ( estimates.isEmpty() ) {
+            return;
+        }
+
+        this.shell.println( "Estimated heap per row (64-bit JVM, compressed references):" );
+        this.shell.println( format( "%-30s %12s %12s %7s", "parameter", "standard B", "compact B", "saved %" ) );
+
+        for ( final RowHeapEstimate estimate : estimates ) {
+            this.shell.println( format( "%-30s %12d %12d %7.1f", estimate.getParameterName(), estimate.getStandardBytes(),
+                                        estimate.getCompactBytes(), estimate.getSavedPercent() ) );
+        }
+
+        this.shell.println();
+    }
+
+    /**
+     * Prints the wall time and allocated bytes of each phase of a command, compared to the average of the last runs,
+     * and appends them to the timing history in the .hibersap directory of the project
+     *
+     * @param command   - the command name
+     * @param startedAt - the start time of the command in milliseconds
+     * @param timer     - the timer of the command
+     * @throws IOException
+     */
+    private void printTimings( final String command, final long startedAt, final PhaseTimer timer ) throws IOException {
+        final TimingHistoryManager timingHistoryManager = new TimingHistoryManager( getProjectConfigDirPath() );
+        final Map<String, Long> averageNanos = timingHistoryManager.getAverageNanos( command, 10 );
+        final long totalNanos = Math.max( 1, timer.getTotalNanos() );
+
+        this.shell.println( format( "%-20s %11s %7s %13s %11s", "phase", "ms", "%", "allocated KB", "avg ms" ) );
+
+        for ( final PhaseTimer.Phase phase : timer.getPhases() ) {
+            final Long average = averageNanos.get( phase.getName() );
+
+            this.shell.println( format( "%-20s %11.1f %7.1f %13s %11s", phase.getName(), phase.getNanos() / 1e6,
+                                        phase.getNanos() * 100.0 / totalNanos,
+                                        phase.getAllocatedBytes() < 0 ? "n/a" : Long.toString( phase.getAllocatedBytes() / 1024 ),
+                                        average == null ? "-" : format( "%.1f", average / 1e6 ) ) );
+        }
+
+        this.shell.println( format( "%-20s %11.1f", "total", timer.getTotalNanos() / 1e6 ) );
+        this.shell.println();
+        timingHistoryManager.append( command, startedAt, timer );
+    }
+
+    /**
+     * Gets the session manager for the current connection properties.
+     * The session manager is kept for the life of the shell and reused by later commands, until the connection properties change.
+     *
+     * @return the session manager
+     */
+    private SessionManager getSessionManager() {
+        return this.sessionManagerRegistry.getSessionManager( createSessionManagerConfig() );
+    }
+
     /**
      * Creates the necessary session manager configuration for the function module search
      *
@@ -332,6 +1282,7 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
         sessionManagerConfig.setName( this.sapConnectionPropertiesManager.getSAPProperty( "session-manager.name" ) );
         // Setting JCo context is not necessary, because it's set by default when creating a new SessionManangerConfig object
         sessionManagerConfig.addAnnotatedClass( SAPFunctionModuleSearch.class );
+        sessionManagerConfig.addAnnotatedClass( SAPTableRead.class );
 
         //Filter JCo properties from property list
         //New Set necessary, because the sapConnection properties shall not be affected
@@ -348,10 +1299,48 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
         return sessionManagerConfig;
     }
 
+    /**
+     * Updates the session manager of the given configuration in hibersap.xml without prompting.
+     * The annotated classes are added to an existing session manager with the same name, otherwise a new JCo session manager is added.
+     * Missing dependencies are added in their newest version, bean validation is not added.
+     *
+     * @param sessionManagerConfig The Hibersap configuration object
+     * @throws JAXBException
+     * @throws SessionManagerDuplicateException
+     *
+     * @throws ClassNotFoundException
+     * @throws FileNotFoundException
+     */
+    private void updateConfiguration( final SessionManagerConfig sessionManagerConfig ) throws JAXBException,
+                                                                                               SessionManagerDuplicateException, ClassNotFoundException,
+                                                                                               FileNotFoundException {
+        final DirectoryResource metaInfDir = this.project.getProjectRoot().getChildDirectory(
+                "src/main/resources/META-INF" );
+        final HibersapXMLManager xmlManager = new HibersapXMLManager( metaInfDir.getFullyQualifiedName() + "/" );
+        final String sessionManagerName = sessionManagerConfig.getName();
+
+        if ( xmlManager.sessionManagerNameExists( sessionManagerName ) ) {
+            xmlManager.updateSessionManager( sessionManagerName, sessionManagerConfig );
+            this.shell.println( "\nSession manager [" + sessionManagerName + "] updated..." );
+        } else {
+            sessionManagerConfig.setJcaConnectionFactory( null );
+            sessionManagerConfig.setJcaConnectionSpecFactory( null );
+            handleDependencies( true, false );
+            xmlManager.addSessionManager( sessionManagerConfig );
+            this.shell.println( "\nSession manager [" + sessionManagerName + "] added..." );
+        }
+
+        xmlManager.writeHibersapXML();
+        this.shell.println( "\nWrote configuration file [hibersap.xml]\n" );
+    }
+
     /**
      * Checks for the necessary Hibersap dependencies and add them to project pom.xml if necessary
+     *
+     * @param jco         - true for the dependencies of the JCo adapter, false for the JCA adapter
+     * @param interactive - true to ask for bean validation and the versions, false to add the newest versions without bean validation
      */
-    private void handleDependencies( final boolean jco ) {
+    private void handleDependencies( final boolean jco, final boolean interactive ) {
         final DependencyFacet dependencyFacet = this.project.getFacet( DependencyFacet.class );
 
         this.shell.println();
@@ -363,28 +1352,28 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
         //Add hibersap-core dependency
         final Dependency hibersapCore = DependencyBuilder.create().setGroupId( "org.hibersap" )
                                                          .setArtifactId( "hibersap-core" );
-        addDependency( dependencyFacet, hibersapCore );
+        addDependency( dependencyFacet, hibersapCore, interactive );
 
         if ( jco ) {
             //Add hibersap-jco dependency
             final Dependency hibersapJCo = DependencyBuilder.create().setGroupId( "org.hibersap" )
                                                             .setArtifactId( "hibersap-jco" );
-            addDependency( dependencyFacet, hibersapJCo );
+            addDependency( dependencyFacet, hibersapJCo, interactive );
 
             //Add SAP JCo dependency
             final Dependency sapJCo = DependencyBuilder.create().setGroupId( "com.sap" ).setArtifactId( "sap-jco" );
-            addDependency( dependencyFacet, sapJCo );
+            addDependency( dependencyFacet, sapJCo, interactive );
         } else {
             //Add hibersap-jca dependency
             final Dependency hibersapJCA = DependencyBuilder.create().setGroupId( "org.hibersap" )
                                                             .setArtifactId( "hibersap-jca" );
-            addDependency( dependencyFacet, hibersapJCA );
+            addDependency( dependencyFacet, hibersapJCA, interactive );
         }
 
         //Add javax validation api for bean validation
         final Dependency beanValidation = DependencyBuilder.create().setGroupId( "javax.validation" )
                                                            .setArtifactId( "validation-api" );
-        addDependency( dependencyFacet, beanValidation );
+        addDependency( dependencyFacet, beanValidation, interactive );
     }
 
     /**
@@ -392,10 +1381,17 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
      *
      * @param dependencyFacet - the project dependency facet
      * @param dependency      - the dependency
+     * @param interactive     - true to ask for bean validation and the version, false to add the newest version without bean validation
      */
-    private void addDependency( final DependencyFacet dependencyFacet, final Dependency dependency ) {
+    private void addDependency( final DependencyFacet dependencyFacet, final Dependency dependency,
+                                final boolean interactive ) {
         if ( !dependencyFacet.hasDirectDependency( dependency ) ) {
             if ( dependency.getArtifactId().equals( "validation-api" ) ) {
+                if ( !interactive ) {
+                    this.shell.println( "Bean validation not added [" + dependency.getGroupId() + ":" + dependency.getArtifactId() + "]" );
+                    return;
+                }
+
                 this.shell.println();
 
                 //Check if user wants to use bean validation
@@ -417,13 +1413,14 @@ public final class GenerateSAPEntitiesPlugin implements Plugin {
                 return;
             }
 
-            final Dependency newDependency = this.shell.promptChoiceTyped( "Which version do you want to install?",
-                                                                           versions );
+            //The versions are resolved in ascending order
+            final Dependency newDependency = interactive ? this.shell.promptChoiceTyped( "Which version do you want to install?",
+                                                                                         versions ) : versions.get( versions.size() - 1 );
 
             dependencyFacet.addDirectDependency( newDependency );
 
             //Just to have a nicer shell view
-            if ( versions.size() > 1 ) {
+            if ( interactive && versions.size() > 1 ) {
                 this.shell.println();
             }
             this.shell.println( "Dependency added [" + newDependency.getArtifactId() + "]" );
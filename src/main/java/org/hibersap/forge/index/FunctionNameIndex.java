@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.index;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.hibersap.forge.sap.SAPLikePattern;
+
+/**
+ * A read-only index of function names which is memory-mapped from a file
+ * 
+ * The names are stored in ascending byte order together with a table of their offsets. Searches locate the literal
+ * prefix of a pattern by binary search and match the wildcards directly on the mapped bytes, so neither the index nor
+ * a search allocates objects per name besides the returned matches.
+ * 
+ * Layout: magic, version, number of names n, n + 1 name offsets relative to the name data, name data (ISO-8859-1)
+ * 
+ */
+public class FunctionNameIndex {
+
+	/** The magic number at the start of an index ("HFNI") **/
+	private static final int INDEX_MAGIC = 0x48464E49;
+	/** The version of the index format **/
+	private static final int INDEX_VERSION = 1;
+	/** The size of the fixed index header in bytes **/
+	private static final int HEADER_SIZE = 12;
+	/** The charset of function names; SAP function names only contain ASCII characters **/
+	private static final Charset NAME_CHARSET = Charset.forName("ISO-8859-1");
+
+	/** The mapped index **/
+	private final ByteBuffer buffer;
+	/** The number of names **/
+	private final int size;
+	/** The position of the offset table in the buffer **/
+	private final int offsetsPosition;
+	/** The position of the name data in the buffer **/
+	private final int dataPosition;
+
+	/**
+	 * Constructor - Instantiates a new FunctionNameIndex on the given buffer
+	 * 
+	 * @param buffer - the buffer containing the index, starting at position 0
+	 * @throws IOException
+	 */
+	public FunctionNameIndex(final ByteBuffer buffer) throws IOException {
+		if (buffer.getInt(0) != FunctionNameIndex.INDEX_MAGIC
+				|| buffer.getInt(4) != FunctionNameIndex.INDEX_VERSION) {
+			throw new IOException("Unsupported function name index format");
+		}
+
+		this.buffer = buffer;
+		this.size = buffer.getInt(8);
+		this.offsetsPosition = FunctionNameIndex.HEADER_SIZE;
+		this.dataPosition = this.offsetsPosition + (this.size + 1) * 4;
+	}
+
+	/**
+	 * Maps the index stored in the given file at the given position
+	 * 
+	 * @param file - the file
+	 * @param position - the position of the index in the file
+	 * @return the index
+	 * @throws IOException
+	 */
+	public static FunctionNameIndex map(final File file, final long position) throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+		try {
+			final FileChannel channel = randomAccessFile.getChannel();
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size()
+					- position);
+
+			//The mapping stays valid after closing the channel
+			return new FunctionNameIndex(buffer);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Unmaps a mapped index, so its file can be replaced
+	 * 
+	 * Java offers no API to release a mapping, so the cleaner of the buffer is invoked directly. If that is not
+	 * possible on the running JVM, the mapping is released when the buffer is garbage collected. The index must not be
+	 * used afterwards.
+	 */
+	public void close() {
+		if (!(this.buffer instanceof MappedByteBuffer)) {
+			return;
+		}
+
+		try {
+			//Java 9 and later
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+
+			unsafeField.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafeField.get(null), this.buffer);
+			return;
+		} catch (final Exception e) {
+			//Not available, try the cleaner of the buffer
+		}
+
+		try {
+			final Method cleanerMethod = this.buffer.getClass().getMethod("cleaner");
+
+			cleanerMethod.setAccessible(true);
+
+			final Object cleaner = cleanerMethod.invoke(this.buffer);
+
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (final Exception e) {
+			//Released by the garbage collector
+		}
+	}
+
+	/**
+	 * Writes an index of the given names to the given stream
+	 * 
+	 * @param outputStream - the stream
+	 * @param names - the function names
+	 * @throws IOException
+	 */
+	public static void write(final OutputStream outputStream, final Collection<String> names) throws IOException {
+		final byte[][] encodedNames = new byte[names.size()][];
+		int i = 0;
+
+		for (final String name : names) {
+			encodedNames[i++] = name.getBytes(FunctionNameIndex.NAME_CHARSET);
+		}
+
+		Arrays.sort(encodedNames, new Comparator<byte[]>() {
+
+			public int compare(final byte[] first, final byte[] second) {
+				return compareBytes(first, 0, first.length, second);
+			}
+		});
+
+		final DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+		int offset = 0;
+
+		dataOutputStream.writeInt(FunctionNameIndex.INDEX_MAGIC);
+		dataOutputStream.writeInt(FunctionNameIndex.INDEX_VERSION);
+		dataOutputStream.writeInt(encodedNames.length);
+
+		for (final byte[] encodedName : encodedNames) {
+			dataOutputStream.writeInt(offset);
+			offset += encodedName.length;
+		}
+
+		dataOutputStream.writeInt(offset);
+
+		for (final byte[] encodedName : encodedNames) {
+			dataOutputStream.write(encodedName);
+		}
+
+		dataOutputStream.flush();
+	}
+
+	/**
+	 * Gets the number of names
+	 * 
+	 * @return the number of names
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the name at the given position
+	 * 
+	 * @param index - the position of the name in ascending order
+	 * @return the name
+	 */
+	public String get(final int index) {
+		final int start = nameStart(index);
+		final byte[] bytes = new byte[nameStart(index + 1) - start];
+
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = this.buffer.get(start + i);
+		}
+
+		return new String(bytes, FunctionNameIndex.NAME_CHARSET);
+	}
+
+	/**
+	 * Gets all names
+	 * 
+	 * @return the names in ascending order
+	 */
+	public List<String> getAll() {
+		final List<String> names = new ArrayList<String>(this.size);
+
+		for (int i = 0; i < this.size; i++) {
+			names.add(get(i));
+		}
+
+		return names;
+	}
+
+	/**
+	 * Searches for names matching the given pattern
+	 * 
+	 * @param pattern - the pattern
+	 * @param maxResults - the max. number of results. Use 0 for no limitation.
+	 * @return the matching names in ascending order
+	 */
+	public List<String> search(final SAPLikePattern pattern, final int maxResults) {
+		final byte[] prefix = pattern.getLiteralPrefix().getBytes(FunctionNameIndex.NAME_CHARSET);
+		final NameSequence name = new NameSequence();
+		final List<String> result = new ArrayList<String>();
+
+		for (int i = lowerBound(prefix); i < this.size; i++) {
+			name.select(i);
+
+			if (!name.startsWith(prefix)) {
+				break;
+			}
+			if (pattern.matches(name)) {
+				result.add(get(i));
+
+				if (result.size() == maxResults) {
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Finds the position of the first name which is not less than the given prefix
+	 * 
+	 * @param prefix - the prefix
+	 * @return the position
+	 */
+	private int lowerBound(final byte[] prefix) {
+		int low = 0;
+		int high = this.size;
+
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			final int start = nameStart(middle);
+
+			if (compareBytes(prefix, 0, prefix.length, start, nameStart(middle + 1) - start) > 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Gets the position of the name with the given index in the buffer
+	 * 
+	 * @param index - the index of the name
+	 * @return the position
+	 */
+	private int nameStart(final int index) {
+		return this.dataPosition + this.buffer.getInt(this.offsetsPosition + index * 4);
+	}
+
+	/**
+	 * Compares the given bytes with the name stored at the given position
+	 * 
+	 * @param bytes - the bytes
+	 * @param from - the first byte to compare
+	 * @param length - the number of bytes to compare
+	 * @param namePosition - the position of the name in the buffer
+	 * @param nameLength - the length of the name
+	 * @return a negative number, zero or a positive number as the bytes are less than, equal to or greater than the name
+	 */
+	private int compareBytes(final byte[] bytes, final int from, final int length, final int namePosition,
+			final int nameLength) {
+		final int minLength = Math.min(length, nameLength);
+
+		for (int i = 0; i < minLength; i++) {
+			final int difference = (bytes[from + i] & 0xFF) - (this.buffer.get(namePosition + i) & 0xFF);
+
+			if (difference != 0) {
+				return difference;
+			}
+		}
+
+		return length - nameLength;
+	}
+
+	/**
+	 * Compares the given bytes with the other bytes in unsigned byte order
+	 * 
+	 * @param bytes - the bytes
+	 * @param from - the first byte to compare
+	 * @param length - the number of bytes to compare
+	 * @param other - the other bytes
+	 * @return a negative number, zero or a positive number as the bytes are less than, equal to or greater than the other bytes
+	 */
+	private static int compareBytes(final byte[] bytes, final int from, final int length, final byte[] other) {
+		final int minLength = Math.min(length, other.length);
+
+		for (int i = 0; i < minLength; i++) {
+			final int difference = (bytes[from + i] & 0xFF) - (other[i] & 0xFF);
+
+			if (difference != 0) {
+				return difference;
+			}
+		}
+
+		return length - other.length;
+	}
+
+	/**
+	 * A reusable view on a name stored in the buffer
+	 * 
+	 */
+	private class NameSequence implements CharSequence {
+
+		/** The position of the name in the buffer **/
+		private int start;
+		/** The length of the name **/
+		private int length;
+
+		/**
+		 * Selects the name with the given index
+		 * 
+		 * @param index - the index of the name
+		 */
+		public void select(final int index) {
+			this.start = nameStart(index);
+			this.length = nameStart(index + 1) - this.start;
+		}
+
+		/**
+		 * Checks if the selected name starts with the given prefix
+		 * 
+		 * @param prefix - the prefix
+		 * @return true if the name starts with the prefix
+		 */
+		public boolean startsWith(final byte[] prefix) {
+			return prefix.length <= this.length && compareBytes(prefix, 0, prefix.length, this.start, prefix.length) == 0;
+		}
+
+		public int length() {
+			return this.length;
+		}
+
+		public char charAt(final int index) {
+			return (char) (FunctionNameIndex.this.buffer.get(this.start + index) & 0xFF);
+		}
+
+		public CharSequence subSequence(final int start, final int end) {
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder builder = new StringBuilder(this.length);
+
+			for (int i = 0; i < this.length; i++) {
+				builder.append(charAt(i));
+			}
+
+			return builder.toString();
+		}
+
+	}
+
+}
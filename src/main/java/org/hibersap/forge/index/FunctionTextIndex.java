@@ -0,0 +1,653 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hibersap.forge.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.hibersap.forge.sap.SAPLikePattern;
+
+/**
+ * A fuzzy search index over function names and their short texts
+ * 
+ * Names and texts are split into words and every word into trigrams. A query matches the functions sharing trigrams
+ * with it; matches are ranked by the inverse document frequency of the shared trigrams, with trigrams of the name
+ * weighted higher than trigrams of the text.
+ * 
+ * The trigram postings are updated as functions are added or removed: a new function is appended to the postings of
+ * its trigrams, a removed function is only marked as removed and skipped by searches until more than half of the
+ * functions are removed, then the postings are compacted. The postings are written and read along with the texts, so
+ * they are never rebuilt from the texts.
+ * 
+ */
+public class FunctionTextIndex {
+
+	/** The weight of a trigram found in the function name **/
+	private static final float NAME_WEIGHT = 2f;
+	/** The weight of a trigram found in the short text **/
+	private static final float TEXT_WEIGHT = 1f;
+	/** The number of bits used to encode a character of a trigram **/
+	private static final int CHAR_BITS = 6;
+	/** The number of possible trigram keys **/
+	private static final int GRAM_KEYS = 1 << 3 * FunctionTextIndex.CHAR_BITS;
+	/** The code of a word boundary **/
+	private static final int BOUNDARY = 0;
+	/** The initial number of document numbers **/
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The short texts by function name **/
+	private final TreeMap<String, String> texts = new TreeMap<String, String>();
+	/** The document numbers by function name **/
+	private final Map<String, Integer> documents = new HashMap<String, Integer>();
+
+	/** The function names by document number, null for removed functions **/
+	private String[] names = new String[FunctionTextIndex.INITIAL_CAPACITY];
+	/** The number of distinct trigrams by document number **/
+	private int[] gramCounts = new int[FunctionTextIndex.INITIAL_CAPACITY];
+	/** The number of used document numbers **/
+	private int documentCount;
+	/** The trigram postings of the function names **/
+	private Postings namePostings = new Postings();
+	/** The trigram postings of the short texts **/
+	private Postings textPostings = new Postings();
+
+	/**
+	 * Adds a function or replaces its short text
+	 * 
+	 * @param name - the function name
+	 * @param text - the short text, may be empty
+	 */
+	public void put(final String name, final String text) {
+		final String value = text == null ? "" : text;
+		final String previousValue = this.texts.put(name, value);
+
+		if (previousValue != null) {
+			if (previousValue.equals(value)) {
+				return;
+			}
+
+			removeDocument(name, previousValue);
+		}
+
+		addDocument(name, value);
+		compactIfSparse();
+	}
+
+	/**
+	 * Removes all functions matching the given pattern
+	 * 
+	 * @param pattern - the pattern
+	 * @return the number of removed functions
+	 */
+	public int removeMatching(final SAPLikePattern pattern) {
+		final String prefix = pattern.getLiteralPrefix();
+		final SortedMap<String, String> candidates = this.texts.subMap(prefix, prefix + Character.MAX_VALUE);
+		final Iterator<Entry<String, String>> iterator = candidates.entrySet().iterator();
+		int removed = 0;
+
+		while (iterator.hasNext()) {
+			final Entry<String, String> entry = iterator.next();
+
+			if (pattern.matches(entry.getKey())) {
+				removeDocument(entry.getKey(), entry.getValue());
+				iterator.remove();
+				removed++;
+			}
+		}
+
+		compactIfSparse();
+
+		return removed;
+	}
+
+	/**
+	 * Removes all functions
+	 */
+	public void clear() {
+		this.texts.clear();
+		this.documents.clear();
+		this.names = new String[FunctionTextIndex.INITIAL_CAPACITY];
+		this.gramCounts = new int[FunctionTextIndex.INITIAL_CAPACITY];
+		this.documentCount = 0;
+		this.namePostings = new Postings();
+		this.textPostings = new Postings();
+	}
+
+	/**
+	 * Gets the number of indexed functions
+	 * 
+	 * @return the number of functions
+	 */
+	public int size() {
+		return this.texts.size();
+	}
+
+	/**
+	 * Gets the short text of the given function
+	 * 
+	 * @param name - the function name
+	 * @return the short text, null if the function is not indexed
+	 */
+	public String getText(final String name) {
+		return this.texts.get(name);
+	}
+
+	/**
+	 * Searches for the functions best matching the given query
+	 * 
+	 * @param query - the query, e.g. "purchase order create"
+	 * @param maxResults - the max. number of results
+	 * @return the matches, best match first
+	 */
+	public List<Hit> search(final String query, final int maxResults) {
+		final int[] queryGrams = grams(query);
+		final float[] scores = new float[this.documentCount];
+		final int[] touched = new int[this.documentCount];
+		int touchedCount = 0;
+
+		for (final int gram : queryGrams) {
+			touchedCount = score(this.namePostings, gram, FunctionTextIndex.NAME_WEIGHT, scores, touched, touchedCount);
+			touchedCount = score(this.textPostings, gram, FunctionTextIndex.TEXT_WEIGHT, scores, touched, touchedCount);
+		}
+
+		final PriorityQueue<Hit> bestHits = new PriorityQueue<Hit>();
+
+		for (int i = 0; i < touchedCount; i++) {
+			final int document = touched[i];
+			final Hit hit = new Hit(this.names[document], this.texts.get(this.names[document]), scores[document]
+					/ (float) Math.sqrt(this.gramCounts[document]));
+
+			bestHits.add(hit);
+
+			if (bestHits.size() > maxResults) {
+				bestHits.poll();
+			}
+		}
+
+		final List<Hit> hits = new ArrayList<Hit>(bestHits);
+
+		Collections.sort(hits, Collections.reverseOrder());
+
+		return hits;
+	}
+
+	/**
+	 * Adds the weighted score of the given trigram to all functions containing it
+	 * 
+	 * @param postings - the postings to take the functions from
+	 * @param gram - the trigram
+	 * @param weight - the weight of the postings
+	 * @param scores - the scores per function
+	 * @param touched - the functions with a score
+	 * @param touchedCount - the number of functions with a score
+	 * @return the new number of functions with a score
+	 */
+	private int score(final Postings postings, final int gram, final float weight, final float[] scores,
+			final int[] touched, final int touchedCount) {
+		final int[] documents = postings.documents[gram];
+		final float gramWeight = weight
+				* (float) Math.log(1.0 + (double) this.texts.size() / Math.max(1, postings.frequencies[gram]));
+		int count = touchedCount;
+
+		for (int i = 0; i < postings.sizes[gram]; i++) {
+			final int document = documents[i];
+
+			//Removed functions stay in the postings until they are compacted
+			if (this.names[document] == null) {
+				continue;
+			}
+			if (scores[document] == 0f) {
+				touched[count++] = document;
+			}
+			scores[document] += gramWeight;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Adds a function to the postings
+	 * 
+	 * @param name - the function name
+	 * @param text - the short text
+	 */
+	private void addDocument(final String name, final String text) {
+		if (this.documentCount == this.names.length) {
+			this.names = Arrays.copyOf(this.names, this.names.length * 2);
+			this.gramCounts = Arrays.copyOf(this.gramCounts, this.gramCounts.length * 2);
+		}
+
+		final int document = this.documentCount++;
+		final int[] nameGrams = grams(name);
+		final int[] textGrams = grams(text);
+
+		this.names[document] = name;
+		this.gramCounts[document] = Math.max(1, nameGrams.length + textGrams.length);
+		this.documents.put(name, document);
+		this.namePostings.add(document, nameGrams);
+		this.textPostings.add(document, textGrams);
+	}
+
+	/**
+	 * Marks a function of the postings as removed
+	 * 
+	 * @param name - the function name
+	 * @param text - the short text the function was added with
+	 */
+	private void removeDocument(final String name, final String text) {
+		final int document = this.documents.remove(name);
+
+		this.names[document] = null;
+		this.namePostings.remove(grams(name));
+		this.textPostings.remove(grams(text));
+	}
+
+	/**
+	 * Compacts the postings if more than half of their functions are removed
+	 */
+	private void compactIfSparse() {
+		if (this.documentCount - this.documents.size() > this.documentCount / 2) {
+			compact();
+		}
+	}
+
+	/**
+	 * Removes the removed functions from the postings and numbers the functions without gaps
+	 */
+	private void compact() {
+		final int[] newDocuments = new int[this.documentCount];
+		int count = 0;
+
+		for (int document = 0; document < this.documentCount; document++) {
+			if (this.names[document] == null) {
+				newDocuments[document] = -1;
+			} else {
+				newDocuments[document] = count;
+				this.names[count] = this.names[document];
+				this.gramCounts[count] = this.gramCounts[document];
+				this.documents.put(this.names[count], count);
+				count++;
+			}
+		}
+
+		Arrays.fill(this.names, count, this.documentCount, null);
+		this.documentCount = count;
+		this.namePostings.compact(newDocuments);
+		this.textPostings.compact(newDocuments);
+	}
+
+	/**
+	 * Gets the distinct trigrams of the words of the given text
+	 * 
+	 * Every word is surrounded by boundaries, so the start and the end of a word are trigrams, too.
+	 * 
+	 * @param text - the text
+	 * @return the trigram keys in ascending order
+	 */
+	static int[] grams(final String text) {
+		final int[] grams = new int[text.length() * 2 + 2];
+		int count = 0;
+		int previous = FunctionTextIndex.BOUNDARY;
+		int current = FunctionTextIndex.BOUNDARY;
+
+		for (int i = 0; i <= text.length(); i++) {
+			final int next = i < text.length() ? code(text.charAt(i)) : FunctionTextIndex.BOUNDARY;
+
+			if (next == FunctionTextIndex.BOUNDARY && current == FunctionTextIndex.BOUNDARY) {
+				continue;
+			}
+			if (current != FunctionTextIndex.BOUNDARY) {
+				grams[count++] = (previous << 2 * FunctionTextIndex.CHAR_BITS) | (current << FunctionTextIndex.CHAR_BITS)
+						| next;
+			}
+
+			previous = current;
+			current = next;
+		}
+
+		Arrays.sort(grams, 0, count);
+
+		int distinct = 0;
+
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || grams[distinct - 1] != grams[i]) {
+				grams[distinct++] = grams[i];
+			}
+		}
+
+		return Arrays.copyOf(grams, distinct);
+	}
+
+	/**
+	 * Gets the code of a character; letters are case insensitive, all characters but letters and digits are word
+	 * boundaries
+	 * 
+	 * @param character - the character
+	 * @return the code
+	 */
+	private static int code(final char character) {
+		if (character >= 'a' && character <= 'z') {
+			return character - 'a' + 1;
+		}
+		if (character >= 'A' && character <= 'Z') {
+			return character - 'A' + 1;
+		}
+		if (character >= '0' && character <= '9') {
+			return character - '0' + 27;
+		}
+
+		return FunctionTextIndex.BOUNDARY;
+	}
+
+	/**
+	 * Reads the functions and their postings from the given stream
+	 * 
+	 * @param inputStream - the stream
+	 * @throws IOException
+	 */
+	public void read(final DataInputStream inputStream) throws IOException {
+		final int size = inputStream.readInt();
+
+		clear();
+		this.names = new String[Math.max(FunctionTextIndex.INITIAL_CAPACITY, size)];
+		this.gramCounts = new int[this.names.length];
+
+		for (int document = 0; document < size; document++) {
+			final String name = inputStream.readUTF();
+
+			this.texts.put(name, inputStream.readUTF());
+			this.documents.put(name, document);
+			this.names[document] = name;
+		}
+
+		this.documentCount = size;
+		this.namePostings.read(inputStream, this.gramCounts, size);
+		this.textPostings.read(inputStream, this.gramCounts, size);
+
+		for (int document = 0; document < size; document++) {
+			this.gramCounts[document] = Math.max(1, this.gramCounts[document]);
+		}
+	}
+
+	/**
+	 * Reads functions written without postings by an older version and adds them to the postings
+	 * 
+	 * @param inputStream - the stream
+	 * @throws IOException
+	 */
+	public void readTexts(final DataInputStream inputStream) throws IOException {
+		final int size = inputStream.readInt();
+
+		clear();
+
+		for (int i = 0; i < size; i++) {
+			put(inputStream.readUTF(), inputStream.readUTF());
+		}
+	}
+
+	/**
+	 * Writes the functions and their postings to the given stream
+	 * 
+	 * @param outputStream - the stream
+	 * @throws IOException
+	 */
+	public void write(final DataOutputStream outputStream) throws IOException {
+		compact();
+		outputStream.writeInt(this.documentCount);
+
+		for (int document = 0; document < this.documentCount; document++) {
+			outputStream.writeUTF(this.names[document]);
+			outputStream.writeUTF(this.texts.get(this.names[document]));
+		}
+
+		this.namePostings.write(outputStream);
+		this.textPostings.write(outputStream);
+	}
+
+	/**
+	 * The functions per trigram, in the order they were added
+	 * 
+	 */
+	private static class Postings {
+
+		/** The functions per trigram, including removed functions; null for trigrams without functions **/
+		private final int[][] documents = new int[FunctionTextIndex.GRAM_KEYS][];
+		/** The number of entries per trigram in documents **/
+		private final int[] sizes = new int[FunctionTextIndex.GRAM_KEYS];
+		/** The number of not removed functions per trigram **/
+		private final int[] frequencies = new int[FunctionTextIndex.GRAM_KEYS];
+
+		/**
+		 * Adds a function to the postings of its trigrams
+		 * 
+		 * @param document - the document number of the function
+		 * @param grams - the distinct trigrams of the function
+		 */
+		public void add(final int document, final int[] grams) {
+			for (final int gram : grams) {
+				int[] gramDocuments = this.documents[gram];
+
+				if (gramDocuments == null) {
+					gramDocuments = new int[4];
+					this.documents[gram] = gramDocuments;
+				} else if (this.sizes[gram] == gramDocuments.length) {
+					gramDocuments = Arrays.copyOf(gramDocuments, gramDocuments.length * 2);
+					this.documents[gram] = gramDocuments;
+				}
+
+				gramDocuments[this.sizes[gram]++] = document;
+				this.frequencies[gram]++;
+			}
+		}
+
+		/**
+		 * Counts a function of the postings of its trigrams as removed
+		 * 
+		 * @param grams - the distinct trigrams of the function
+		 */
+		public void remove(final int[] grams) {
+			for (final int gram : grams) {
+				this.frequencies[gram]--;
+			}
+		}
+
+		/**
+		 * Removes the removed functions and renumbers the others
+		 * 
+		 * @param newDocuments - the new document numbers by old document number, -1 for removed functions
+		 */
+		public void compact(final int[] newDocuments) {
+			for (int gram = 0; gram < FunctionTextIndex.GRAM_KEYS; gram++) {
+				final int[] gramDocuments = this.documents[gram];
+				int count = 0;
+
+				for (int i = 0; i < this.sizes[gram]; i++) {
+					final int document = newDocuments[gramDocuments[i]];
+
+					if (document >= 0) {
+						gramDocuments[count++] = document;
+					}
+				}
+
+				this.sizes[gram] = count;
+				if (count == 0) {
+					this.documents[gram] = null;
+				}
+			}
+		}
+
+		/**
+		 * Reads the postings and counts the trigrams per function
+		 * 
+		 * @param inputStream - the stream
+		 * @param gramCounts - the numbers of trigrams by document number to add to
+		 * @param documentCount - the number of functions
+		 * @throws IOException
+		 */
+		public void read(final DataInputStream inputStream, final int[] gramCounts, final int documentCount)
+				throws IOException {
+			final int gramCount = inputStream.readInt();
+
+			for (int i = 0; i < gramCount; i++) {
+				final int gram = inputStream.readInt();
+				final int size = inputStream.readInt();
+
+				if (gram < 0 || gram >= FunctionTextIndex.GRAM_KEYS || size <= 0 || size > documentCount) {
+					throw new IOException("Invalid postings of trigram " + gram);
+				}
+
+				final int[] gramDocuments = new int[size];
+
+				//Reading the postings of a trigram at once is much faster than reading every number
+				final byte[] bytes = new byte[size * 4];
+
+				inputStream.readFully(bytes);
+
+				for (int j = 0; j < size; j++) {
+					final int document = (bytes[j * 4] & 0xFF) << 24 | (bytes[j * 4 + 1] & 0xFF) << 16
+							| (bytes[j * 4 + 2] & 0xFF) << 8 | bytes[j * 4 + 3] & 0xFF;
+
+					if (document < 0 || document >= documentCount) {
+						throw new IOException("Invalid function " + document + " in postings of trigram " + gram);
+					}
+
+					gramDocuments[j] = document;
+					gramCounts[document]++;
+				}
+
+				this.documents[gram] = gramDocuments;
+				this.sizes[gram] = size;
+				this.frequencies[gram] = size;
+			}
+		}
+
+		/**
+		 * Writes the postings of all trigrams with functions
+		 * 
+		 * @param outputStream - the stream
+		 * @throws IOException
+		 */
+		public void write(final DataOutputStream outputStream) throws IOException {
+			int gramCount = 0;
+
+			for (int gram = 0; gram < FunctionTextIndex.GRAM_KEYS; gram++) {
+				if (this.sizes[gram] > 0) {
+					gramCount++;
+				}
+			}
+
+			outputStream.writeInt(gramCount);
+
+			for (int gram = 0; gram < FunctionTextIndex.GRAM_KEYS; gram++) {
+				if (this.sizes[gram] > 0) {
+					outputStream.writeInt(gram);
+					outputStream.writeInt(this.sizes[gram]);
+
+					for (int i = 0; i < this.sizes[gram]; i++) {
+						outputStream.writeInt(this.documents[gram][i]);
+					}
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * A function matching a query
+	 * 
+	 */
+	public static class Hit implements Comparable<Hit> {
+
+		/** The function name **/
+		private final String name;
+		/** The short text **/
+		private final String text;
+		/** The relevance **/
+		private final float score;
+
+		/**
+		 * Constructor - Instantiates a new Hit
+		 * 
+		 * @param name - the function name
+		 * @param text - the short text
+		 * @param score - the relevance
+		 */
+		public Hit(final String name, final String text, final float score) {
+			this.name = name;
+			this.text = text;
+			this.score = score;
+		}
+
+		/**
+		 * Gets the function name
+		 * 
+		 * @return the function name
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Gets the short text
+		 * 
+		 * @return the short text
+		 */
+		public String getText() {
+			return this.text;
+		}
+
+		/**
+		 * Gets the relevance
+		 * 
+		 * @return the relevance, higher is better
+		 */
+		public float getScore() {
+			return this.score;
+		}
+
+		/*
+		 * Orders by ascending relevance; equal relevance is ordered by descending name, so the best hits are
+		 * ordered by name in reverse order
+		 * 
+		 * (non-Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo(final Hit other) {
+			if (this.score != other.score) {
+				return this.score < other.score ? -1 : 1;
+			}
+
+			return other.name.compareTo(this.name);
+		}
+
+	}
+
+}
@@ -1,173 +1,233 @@
-/*
- * Copyright (C) 2012 akquinet AG
- *
- * This file is part of the Forge Hibersap Plugin.
- *
- * The Forge Hibersap Plugin is free software: you can redistribute it and/or
- * modify it under the terms of the GNU Lesser General Public License as published
- * by the Free Software Foundation, either version 3 of the License, or (at your
- * option) any later version.
- *
- * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
- * General Public License for more details.
- *
- * You should have received a copy of the GNU Lesser General Public License along
- * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
- */
-
-package org.hibersap.forge.manager;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.Map.Entry;
-import java.util.Properties;
-import java.util.Set;
-
-import org.hibersap.forge.util.Utils;
-
-/**
- * Manager class for Hibersap SAP connection properties
- * 
- * Provides functionality to read/create, update and write the SAP connection properties
- *  
- * @author Max Schwaab
- *
- */
-public class ConnectionPropertiesManager {
-
-	/** The path to the default properties **/
-	private final static String DEFAULT_PROPERTIES_PATH = "/META-INF/";
-	/** The filename for the connection properties **/
-	private final static String SAP_PROPERTIES_FILENAME = "sap-connection.properties";
-
-	/** The SAP connection properties **/
-	private final Properties sapConnection = new Properties();//TODO sorted properties
-
-	/** The path to store the individual SAP connection properties **/
-	private final String sapPropertiesStorePath;
-
-	/**
-	 * Constructor - Instantiates a new SAPConnectionPropertiesManager
-	 * 
-	 * The default SAP connection properties will be loaded at creation
-	 * 
-	 * @param storePath - path to store the SAP connection properties without filename
-	 * @throws IOException
-	 */
-	public ConnectionPropertiesManager(final String sapPropertiesStorePath) throws IOException {
-		Utils.checkPath(sapPropertiesStorePath);
-		this.sapPropertiesStorePath = sapPropertiesStorePath;
-
-		//Read or create SAP connection properties
-		final String filePath = sapPropertiesStorePath + ConnectionPropertiesManager.SAP_PROPERTIES_FILENAME;
-		final File file = new File(filePath);
-
-		if (file.exists()) {
-			readSAPProperties();
-		} else {
-			readDefaultSAPProperties();
-			writeSAPProperties();
-		}
-	}
-
-	/**
-	 * Loads the default SAP connection properties
-	 * 
-	 * @throws IOException 
-	 */
-	private void readDefaultSAPProperties() throws IOException {
-		readSAPProperties(ConnectionPropertiesManager.DEFAULT_PROPERTIES_PATH, true);
-	}
-
-	/**
-	 * Reads the SAP connection properties from the given sapPropertiesStorePath (see {@link ConnectionPropertiesManager#setSAPPropertiesStorePath(String)})
-	 * 
-	 * @throws IOException
-	 */
-	private void readSAPProperties() throws IOException {
-		readSAPProperties(this.sapPropertiesStorePath, false);
-	}
-
-	/**
-	 * Reads the SAP connection properties from the given path
-	 * 
-	 * @param path - the path to the properties file without filename
-	 * @param readDefault - indicator whether to read default properties or not
-	 * @throws IOException 
-	 */
-	private void readSAPProperties(final String path, final boolean readDefault) throws IOException {
-		final String filePath = path + ConnectionPropertiesManager.SAP_PROPERTIES_FILENAME;
-		final InputStream inputStream = readDefault ? getClass().getResourceAsStream(filePath) : new FileInputStream(
-				filePath);
-
-		this.sapConnection.clear();
-		this.sapConnection.load(inputStream);
-
-		inputStream.close();
-	}
-
-	/**
-	 * Stores the SAP connection properties to the given sapPropertiesStorePath (see {@link ConnectionPropertiesManager#setSAPPropertiesStorePath(String)})
-	 * 
-	 * @throws IOException 
-	 */
-	public void writeSAPProperties() throws IOException {
-		final File file = new File(this.sapPropertiesStorePath + ConnectionPropertiesManager.SAP_PROPERTIES_FILENAME);
-		final File fileDir = file.getParentFile();
-		final FileOutputStream outputStream;
-
-		if (!fileDir.exists()) {
-			fileDir.mkdir();
-		}
-
-		outputStream = new FileOutputStream(file);
-		this.sapConnection.store(outputStream, "forge hibersap plugin \nSAP connection properties");
-		outputStream.close();
-	}
-
-	/**
-	 * Gets all SAP connection properties
-	 * 
-	 * @return the SAP connection properties
-	 */
-	public Set<Entry<Object, Object>> getAllSAPProperties() {
-		return this.sapConnection.entrySet();
-	}
-
-	/**
-	 * Gets the property value for the given property key
-	 * 
-	 * @param key - the key
-	 * @return the value belonging to the given key
-	 */
-	public String getSAPProperty(final String key) {
-		final String property = this.sapConnection.getProperty(key);
-
-		return property;
-	}
-
-	/**
-	 * Sets a SAP connection property
-	 * 
-	 * @param key - the property key
-	 * @param value - the property value
-	 */
-	public void setSAPProperty(final String key, final String value) {
-		this.sapConnection.setProperty(key, value);
-	}
-
-	/**
-	 * Deletes a SAP connection property
-	 * 
-	 * @param key - the property key
-	 */
-	public void deleteSAPProperty(final String key) {
-		this.sapConnection.remove(key);
-	}
-
-}
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.manager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+
+import org.hibersap.forge.util.Utils;
+
+/**
+ * Manager class for Hibersap SAP connection properties
+ * 
+ * Provides functionality to read/create, update and write the SAP connection properties
+ *  
+ * @author Max Schwaab
+ *
+ */
+public class ConnectionPropertiesManager {
+
+	/** The path to the default properties **/
+	private final static String DEFAULT_PROPERTIES_PATH = "/META-INF/";
+	/** The filename for the connection properties **/
+	private final static String SAP_PROPERTIES_FILENAME = "sap-connection.properties";
+	/** The SAP language keys of the common two letter ISO language codes **/
+	private final static Map<String, String> ISO_LANGUAGES = new HashMap<String, String>();
+
+	static {
+		final String[][] languages = { { "CS", "C" }, { "DA", "K" }, { "DE", "D" }, { "EL", "G" }, { "EN", "E" },
+				{ "ES", "S" }, { "FI", "U" }, { "FR", "F" }, { "HU", "H" }, { "IT", "I" }, { "JA", "J" },
+				{ "KO", "3" }, { "NL", "N" }, { "NO", "O" }, { "PL", "L" }, { "PT", "P" }, { "RU", "R" },
+				{ "SV", "V" }, { "TR", "T" }, { "ZH", "1" } };
+
+		for (final String[] language : languages) {
+			ConnectionPropertiesManager.ISO_LANGUAGES.put(language[0], language[1]);
+		}
+	}
+
+	/** The SAP connection properties **/
+	private final Properties sapConnection = new Properties();//TODO sorted properties
+
+	/** The path to store the individual SAP connection properties **/
+	private final String sapPropertiesStorePath;
+
+	/**
+	 * Constructor - Instantiates a new SAPConnectionPropertiesManager
+	 * 
+	 * The default SAP connection properties will be loaded at creation
+	 * 
+	 * @param storePath - path to store the SAP connection properties without filename
+	 * @throws IOException
+	 */
+	public ConnectionPropertiesManager(final String sapPropertiesStorePath) throws IOException {
+		Utils.checkPath(sapPropertiesStorePath);
+		this.sapPropertiesStorePath = sapPropertiesStorePath;
+
+		//Read or create SAP connection properties
+		final String filePath = sapPropertiesStorePath + ConnectionPropertiesManager.SAP_PROPERTIES_FILENAME;
+		final File file = new File(filePath);
+
+		if (file.exists()) {
+			readSAPProperties();
+		} else {
+			readDefaultSAPProperties();
+			writeSAPProperties();
+		}
+	}
+
+	/**
+	 * Loads the default SAP connection properties
+	 * 
+	 * @throws IOException 
+	 */
+	private void readDefaultSAPProperties() throws IOException {
+		readSAPProperties(ConnectionPropertiesManager.DEFAULT_PROPERTIES_PATH, true);
+	}
+
+	/**
+	 * Reads the SAP connection properties from the given sapPropertiesStorePath (see {@link ConnectionPropertiesManager#setSAPPropertiesStorePath(String)})
+	 * 
+	 * @throws IOException
+	 */
+	private void readSAPProperties() throws IOException {
+		readSAPProperties(this.sapPropertiesStorePath, false);
+	}
+
+	/**
+	 * Reads the SAP connection properties from the given path
+	 * 
+	 * @param path - the path to the properties file without filename
+	 * @param readDefault - indicator whether to read default properties or not
+	 * @throws IOException 
+	 */
+	private void readSAPProperties(final String path, final boolean readDefault) throws IOException {
+		final String filePath = path + ConnectionPropertiesManager.SAP_PROPERTIES_FILENAME;
+		final InputStream inputStream = readDefault ? getClass().getResourceAsStream(filePath) : new FileInputStream(
+				filePath);
+
+		this.sapConnection.clear();
+		this.sapConnection.load(inputStream);
+
+		inputStream.close();
+	}
+
+	/**
+	 * Stores the SAP connection properties to the given sapPropertiesStorePath (see {@link ConnectionPropertiesManager#setSAPPropertiesStorePath(String)})
+	 * 
+	 * @throws IOException 
+	 */
+	public void writeSAPProperties() throws IOException {
+		final File file = new File(this.sapPropertiesStorePath + ConnectionPropertiesManager.SAP_PROPERTIES_FILENAME);
+		final File fileDir = file.getParentFile();
+		final FileOutputStream outputStream;
+
+		if (!fileDir.exists()) {
+			fileDir.mkdir();
+		}
+
+		outputStream = new FileOutputStream(file);
+		this.sapConnection.store(outputStream, "forge hibersap plugin \nSAP connection properties");
+		outputStream.close();
+	}
+
+	/**
+	 * Gets all SAP connection properties
+	 * 
+	 * @return the SAP connection properties
+	 */
+	public Set<Entry<Object, Object>> getAllSAPProperties() {
+		return this.sapConnection.entrySet();
+	}
+
+	/**
+	 * Gets the property value for the given property key
+	 * 
+	 * @param key - the key
+	 * @return the value belonging to the given key
+	 */
+	public String getSAPProperty(final String key) {
+		final String property = this.sapConnection.getProperty(key);
+
+		return property;
+	}
+
+	/**
+	 * Gets a key identifying the configured SAP system and client
+	 * 
+	 * The key is built from the system ID (or application server and system number) and the client, e.g. "sap.host/00/001".
+	 * 
+	 * @return the system key
+	 */
+	public String getSystemKey() {
+		final String systemId = this.sapConnection.getProperty("jco.client.r3name");
+		final String host;
+
+		if (systemId != null) {
+			host = systemId;
+		} else if (this.sapConnection.getProperty("jco.client.ashost") != null) {
+			host = this.sapConnection.getProperty("jco.client.ashost") + "/"
+					+ this.sapConnection.getProperty("jco.client.sysnr");
+		} else {
+			host = this.sapConnection.getProperty("jco.client.mshost");
+		}
+
+		return host + "/" + this.sapConnection.getProperty("jco.client.client");
+	}
+
+	/**
+	 * Gets the SAP language key of the logon language from the property jco.client.lang
+	 * 
+	 * Two letter ISO codes (e.g. "EN") are converted to the one letter key used in SAP tables (e.g. "E").
+	 * 
+	 * @return the language key, "E" if no or an unknown language is set
+	 */
+	public String getLanguageKey() {
+		final String language = this.sapConnection.getProperty("jco.client.lang");
+
+		if (language == null || language.trim().isEmpty()) {
+			return "E";
+		}
+		if (language.trim().length() == 1) {
+			return language.trim().toUpperCase();
+		}
+
+		final String languageKey = ConnectionPropertiesManager.ISO_LANGUAGES.get(language.trim().toUpperCase());
+
+		return languageKey == null ? "E" : languageKey;
+	}
+
+	/**
+	 * Sets a SAP connection property
+	 * 
+	 * @param key - the property key
+	 * @param value - the property value
+	 */
+	public void setSAPProperty(final String key, final String value) {
+		this.sapConnection.setProperty(key, value);
+	}
+
+	/**
+	 * Deletes a SAP connection property
+	 * 
+	 * @param key - the property key
+	 */
+	public void deleteSAPProperty(final String key) {
+		this.sapConnection.remove(key);
+	}
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.manager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.hibersap.forge.sap.GenerationOptions;
+import org.hibersap.forge.util.Utils;
+
+/**
+ * Manager class for the fingerprints of the generated SAP entities of a project
+ * 
+ * For every generated BAPI class the function name and the fingerprint of the function mapping (see
+ * {@link org.hibersap.forge.mapping.MappingFingerprint}) at generation time are stored, so entities are only
+ * regenerated if the interface of their function changed. The options the class was generated with are stored too,
+ * so it is regenerated the same way.
+ * 
+ */
+public class FingerprintManager {
+
+	/** The filename for the fingerprints **/
+	private final static String FINGERPRINTS_FILENAME = "fingerprints.properties";
+	/** The key suffix of a function name **/
+	private final static String FUNCTION_SUFFIX = ".function";
+	/** The key suffix of a fingerprint **/
+	private final static String FINGERPRINT_SUFFIX = ".fingerprint";
+	/** The key suffix of the generation options **/
+	private final static String OPTIONS_SUFFIX = ".options";
+
+	/** The path to store the fingerprints **/
+	private final String fingerprintsStorePath;
+	/** The fingerprints properties **/
+	private final Properties fingerprints = new Properties();
+
+	/**
+	 * Constructor - Instantiates a new FingerprintManager
+	 * 
+	 * Existing fingerprints will be loaded at creation
+	 * 
+	 * @param fingerprintsStorePath - path to store the fingerprints without filename, e.g. the .hibersap directory of
+	 *            the project
+	 * @throws IOException
+	 */
+	public FingerprintManager(final String fingerprintsStorePath) throws IOException {
+		Utils.checkPath(fingerprintsStorePath);
+		this.fingerprintsStorePath = fingerprintsStorePath;
+
+		final File file = getFingerprintsFile();
+
+		if (file.exists()) {
+			final InputStream inputStream = new FileInputStream(file);
+
+			try {
+				this.fingerprints.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		}
+	}
+
+	/**
+	 * Records a generated BAPI class
+	 * 
+	 * @param bapiClassName - the qualified name of the BAPI class
+	 * @param functionName - the function name
+	 * @param fingerprint - the fingerprint of the function mapping
+	 */
+	public void put(final String bapiClassName, final String functionName, final String fingerprint) {
+		this.fingerprints.setProperty(bapiClassName + FingerprintManager.FUNCTION_SUFFIX, functionName);
+		this.fingerprints.setProperty(bapiClassName + FingerprintManager.FINGERPRINT_SUFFIX, fingerprint);
+	}
+
+	/**
+	 * Records the options a BAPI class was generated with
+	 * 
+	 * @param bapiClassName - the qualified name of the BAPI class
+	 * @param options - the generation options
+	 */
+	public void putOptions(final String bapiClassName, final GenerationOptions options) {
+		if (options.isSet()) {
+			this.fingerprints.setProperty(bapiClassName + FingerprintManager.OPTIONS_SUFFIX, options.toString());
+		} else {
+			this.fingerprints.remove(bapiClassName + FingerprintManager.OPTIONS_SUFFIX);
+		}
+	}
+
+	/**
+	 * Removes a BAPI class
+	 * 
+	 * @param bapiClassName - the qualified name of the BAPI class
+	 */
+	public void remove(final String bapiClassName) {
+		this.fingerprints.remove(bapiClassName + FingerprintManager.FUNCTION_SUFFIX);
+		this.fingerprints.remove(bapiClassName + FingerprintManager.FINGERPRINT_SUFFIX);
+		this.fingerprints.remove(bapiClassName + FingerprintManager.OPTIONS_SUFFIX);
+	}
+
+	/**
+	 * Gets the qualified names of all recorded BAPI classes
+	 * 
+	 * @return the sorted class names
+	 */
+	public List<String> getBapiClassNames() {
+		final List<String> bapiClassNames = new ArrayList<String>();
+
+		for (final String key : this.fingerprints.stringPropertyNames()) {
+			if (key.endsWith(FingerprintManager.FUNCTION_SUFFIX)) {
+				bapiClassNames.add(key.substring(0, key.length() - FingerprintManager.FUNCTION_SUFFIX.length()));
+			}
+		}
+
+		Collections.sort(bapiClassNames);
+
+		return bapiClassNames;
+	}
+
+	/**
+	 * Gets the function name of a BAPI class
+	 * 
+	 * @param bapiClassName - the qualified name of the BAPI class
+	 * @return the function name, null if the class is not recorded
+	 */
+	public String getFunctionName(final String bapiClassName) {
+		return this.fingerprints.getProperty(bapiClassName + FingerprintManager.FUNCTION_SUFFIX);
+	}
+
+	/**
+	 * Gets the fingerprint of a BAPI class
+	 * 
+	 * @param bapiClassName - the qualified name of the BAPI class
+	 * @return the fingerprint at generation time, null if the class is not recorded
+	 */
+	public String getFingerprint(final String bapiClassName) {
+		return this.fingerprints.getProperty(bapiClassName + FingerprintManager.FINGERPRINT_SUFFIX);
+	}
+
+	/**
+	 * Gets the options a BAPI class was generated with
+	 * 
+	 * @param bapiClassName - the qualified name of the BAPI class
+	 * @return the generation options, {@link GenerationOptions#NONE} if none are recorded
+	 */
+	public GenerationOptions getOptions(final String bapiClassName) {
+		final String options = this.fingerprints.getProperty(bapiClassName + FingerprintManager.OPTIONS_SUFFIX);
+
+		return options == null ? GenerationOptions.NONE : GenerationOptions.parse(options);
+	}
+
+	/**
+	 * Stores the fingerprints to the given fingerprintsStorePath
+	 * 
+	 * @throws IOException
+	 */
+	public void writeFingerprints() throws IOException {
+		final File file = getFingerprintsFile();
+		final File fileDir = file.getParentFile();
+
+		if (!fileDir.exists()) {
+			fileDir.mkdirs();
+		}
+
+		final OutputStream outputStream = new FileOutputStream(file);
+
+		try {
+			this.fingerprints.store(outputStream,
+					"forge hibersap plugin \nFunction names, interface fingerprints and options of generated BAPI classes");
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Gets the fingerprints file
+	 * 
+	 * @return the fingerprints file
+	 */
+	private File getFingerprintsFile() {
+		return new File(this.fingerprintsStorePath + FingerprintManager.FINGERPRINTS_FILENAME);
+	}
+
+}
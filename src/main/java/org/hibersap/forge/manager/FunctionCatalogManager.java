@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.manager;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.hibersap.forge.index.FunctionNameIndex;
+import org.hibersap.forge.sap.FunctionNameCallback;
+import org.hibersap.forge.sap.PagedFunctionModuleSearch;
+import org.hibersap.forge.sap.SAPFunctionModuleSearch;
+import org.hibersap.forge.sap.SAPLikePattern;
+import org.hibersap.forge.sap.StreamingTableRead;
+import org.hibersap.forge.sap.TableRowCallback;
+import org.hibersap.forge.sap.TableRowDecoder;
+import org.hibersap.forge.util.Utils;
+import org.hibersap.session.Session;
+
+import com.sap.conn.jco.JCoDestination;
+
+/**
+ * Manages the local catalog of remote-enabled SAP function names
+ * 
+ * The catalog is stored in a compact file next to the SAP connection properties and allows to answer name pattern
+ * searches without calling the SAP system. The names are memory-mapped as a {@link FunctionNameIndex} and only
+ * loaded into the heap when the catalog is refreshed.
+ * 
+ */
+public class FunctionCatalogManager {
+
+	/** The filename for the function catalog **/
+	private final static String CATALOG_FILENAME = "function-catalog.dat";
+	/** The magic number at the start of a catalog file ("HFCT") **/
+	private final static int CATALOG_MAGIC = 0x48464354;
+	/** The version of the catalog file format **/
+	private final static int CATALOG_VERSION = 2;
+	/** The default time in milliseconds after which the catalog is stale (24 hours) **/
+	public final static long DEFAULT_MAX_AGE = 24L * 60L * 60L * 1000L;
+	/** The number of function names read per call when refreshing **/
+	private final static int REFRESH_PAGE_SIZE = 5000;
+
+	/** The path to store the function catalog **/
+	private final String catalogStorePath;
+	/** The memory-mapped function names of the stored catalog **/
+	private FunctionNameIndex index;
+	/** The sorted function names, only loaded when the catalog is refreshed **/
+	private TreeSet<String> functionNames;
+	/** The key of the SAP system the catalog belongs to **/
+	private String systemKey = "";
+	/** The time of the last full refresh, 0 if the catalog was never fully built **/
+	private long builtAt;
+	/** The time of the last refresh **/
+	private long updatedAt;
+
+	/**
+	 * Constructor - Instantiates a new FunctionCatalogManager
+	 * 
+	 * An existing catalog will be mapped at creation
+	 * 
+	 * @param catalogStorePath - path to store the function catalog without filename
+	 * @throws IOException
+	 */
+	public FunctionCatalogManager(final String catalogStorePath) throws IOException {
+		Utils.checkPath(catalogStorePath);
+		this.catalogStorePath = catalogStorePath;
+
+		if (getCatalogFile().exists()) {
+			readCatalog();
+		}
+	}
+
+	/**
+	 * Checks if the catalog can answer searches for the given SAP system
+	 * 
+	 * @param systemKey - the key of the SAP system (see {@link ConnectionPropertiesManager#getSystemKey()})
+	 * @param maxAge - the max. age of the last full refresh in milliseconds
+	 * @return true if the catalog was fully built for the given system and is not stale
+	 */
+	public boolean isUsable(final String systemKey, final long maxAge) {
+		return this.builtAt > 0 && systemKey.equals(this.systemKey)
+				&& System.currentTimeMillis() - this.builtAt <= maxAge;
+	}
+
+	/**
+	 * Searches the catalog for function names matching the given pattern
+	 * 
+	 * @param namePattern - the name pattern. May contain wildcards (* or ?).
+	 * @param maxResults - the max. number of results. Use 0 for no limitation.
+	 * @return the matching function names in ascending order
+	 */
+	public List<String> search(final String namePattern, final int maxResults) {
+		final SAPLikePattern pattern = new SAPLikePattern(namePattern);
+
+		if (this.functionNames == null) {
+			return this.index != null ? this.index.search(pattern, maxResults) : new ArrayList<String>();
+		}
+
+		final List<String> result = new ArrayList<String>();
+
+		for (final String functionName : getCandidates(pattern)) {
+			if (pattern.matches(functionName)) {
+				result.add(functionName);
+
+				if (result.size() == maxResults) {
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Refreshes the part of the catalog matching the given pattern from the SAP system
+	 * 
+	 * Names matching the pattern are replaced by the current search result, all other names are kept. Refreshing
+	 * with a pattern matching all names (e.g. *) rebuilds the whole catalog.
+	 * 
+	 * @param session - the session to the SAP system
+	 * @param systemKey - the key of the SAP system (see {@link ConnectionPropertiesManager#getSystemKey()})
+	 * @param namePattern - the name pattern. May contain wildcards (* or ?).
+	 * @return the number of function names found for the given pattern
+	 */
+	public int refresh(final Session session, final String systemKey, final String namePattern) {
+		final SAPLikePattern pattern = new SAPLikePattern(namePattern);
+		final PagedFunctionModuleSearch functionModuleSearch = new PagedFunctionModuleSearch(namePattern, 0,
+				FunctionCatalogManager.REFRESH_PAGE_SIZE);
+		final List<String> foundNames = new ArrayList<String>();
+
+		functionModuleSearch.execute(session, new FunctionNameCallback() {
+
+			public boolean handle(final List<String> functionNames) {
+				foundNames.addAll(functionNames);
+				return true;
+			}
+		});
+
+		replaceNames(systemKey, pattern, foundNames);
+
+		return foundNames.size();
+	}
+
+	/**
+	 * Refreshes the part of the catalog matching the given pattern from the SAP system, calling JCo directly
+	 * 
+	 * Works like {@link #refresh(Session, String, String)}, but streams the rows of TFDIR into the catalog without
+	 * mapping them to objects first.
+	 * 
+	 * @param destination - the JCo destination of the SAP system
+	 * @param systemKey - the key of the SAP system (see {@link ConnectionPropertiesManager#getSystemKey()})
+	 * @param namePattern - the name pattern. May contain wildcards (* or ?).
+	 * @return the number of function names found for the given pattern
+	 */
+	public int refresh(final JCoDestination destination, final String systemKey, final String namePattern) {
+		final SAPLikePattern pattern = new SAPLikePattern(namePattern);
+		final StreamingTableRead tableRead = new StreamingTableRead("TFDIR", Collections.singletonList("FUNCNAME"),
+				SAPFunctionModuleSearch.createWhereClause(pattern, ""), 0, FunctionCatalogManager.REFRESH_PAGE_SIZE,
+				"FUNCNAME");
+		final List<String> foundNames = new ArrayList<String>();
+
+		tableRead.execute(destination, new TableRowCallback() {
+
+			public boolean handle(final TableRowDecoder row) {
+				foundNames.add(row.get(0).toString());
+				return true;
+			}
+		});
+
+		replaceNames(systemKey, pattern, foundNames);
+
+		return foundNames.size();
+	}
+
+	/**
+	 * Replaces the names matching the given pattern by the given names
+	 * 
+	 * @param systemKey - the key of the SAP system
+	 * @param pattern - the refreshed pattern
+	 * @param foundNames - the names found for the pattern
+	 */
+	private void replaceNames(final String systemKey, final SAPLikePattern pattern, final List<String> foundNames) {
+		loadFunctionNames();
+
+		if (!systemKey.equals(this.systemKey)) {
+			//Names of another system must not be mixed up
+			this.functionNames.clear();
+			this.builtAt = 0;
+			this.systemKey = systemKey;
+		}
+
+		final Iterator<String> iterator = getCandidates(pattern).iterator();
+
+		while (iterator.hasNext()) {
+			if (pattern.matches(iterator.next())) {
+				iterator.remove();
+			}
+		}
+
+		this.functionNames.addAll(foundNames);
+		this.updatedAt = System.currentTimeMillis();
+
+		if (pattern.getSapPattern().matches("%+")) {
+			this.builtAt = this.updatedAt;
+		}
+	}
+
+	/**
+	 * Gets the number of function names in the catalog
+	 * 
+	 * @return the number of function names
+	 */
+	public int size() {
+		if (this.functionNames != null) {
+			return this.functionNames.size();
+		}
+
+		return this.index != null ? this.index.size() : 0;
+	}
+
+	/**
+	 * Gets the time of the last full refresh
+	 * 
+	 * @return the time in milliseconds, 0 if the catalog was never fully built
+	 */
+	public long getBuiltAt() {
+		return this.builtAt;
+	}
+
+	/**
+	 * Loads the function names of the mapped catalog into the heap to modify them
+	 */
+	private void loadFunctionNames() {
+		if (this.functionNames == null) {
+			this.functionNames = new TreeSet<String>();
+
+			if (this.index != null) {
+				this.functionNames.addAll(this.index.getAll());
+				//Unmapped, so the catalog file can be replaced when it is written
+				this.index.close();
+				this.index = null;
+			}
+		}
+	}
+
+	/**
+	 * Gets the names which may match the given pattern, i.e. all names starting with the literal prefix of the pattern
+	 * 
+	 * @param pattern - the pattern
+	 * @return a view on the candidate names
+	 */
+	private SortedSet<String> getCandidates(final SAPLikePattern pattern) {
+		final String prefix = pattern.getLiteralPrefix();
+
+		return this.functionNames.subSet(prefix, prefix + Character.MAX_VALUE);
+	}
+
+	/**
+	 * Gets the catalog file
+	 * 
+	 * @return the catalog file
+	 */
+	private File getCatalogFile() {
+		return new File(this.catalogStorePath + FunctionCatalogManager.CATALOG_FILENAME);
+	}
+
+	/**
+	 * Reads the catalog header from the given catalogStorePath and maps the function names
+	 * 
+	 * A catalog of another format version is ignored, so it will be rebuilt.
+	 * 
+	 * @throws IOException
+	 */
+	private void readCatalog() throws IOException {
+		final File file = getCatalogFile();
+		final RandomAccessFile inputFile = new RandomAccessFile(file, "r");
+		final long indexPosition;
+
+		try {
+			if (inputFile.readInt() != FunctionCatalogManager.CATALOG_MAGIC
+					|| inputFile.readInt() != FunctionCatalogManager.CATALOG_VERSION) {
+				return;
+			}
+
+			this.systemKey = inputFile.readUTF();
+			this.builtAt = inputFile.readLong();
+			this.updatedAt = inputFile.readLong();
+			indexPosition = inputFile.getFilePointer();
+		} finally {
+			inputFile.close();
+		}
+
+		this.index = FunctionNameIndex.map(file, indexPosition);
+	}
+
+	/**
+	 * Stores the catalog to the given catalogStorePath
+	 * 
+	 * The catalog is written to a temporary file first and renamed to the catalog file, so a catalog mapped by another
+	 * process is never seen half written.
+	 * 
+	 * @throws IOException
+	 */
+	public void writeCatalog() throws IOException {
+		final File file = getCatalogFile();
+		final File fileDir = file.getParentFile();
+
+		//The mapped names must be loaded and unmapped before the file gets replaced
+		loadFunctionNames();
+
+		if (!fileDir.exists()) {
+			fileDir.mkdirs();
+		}
+
+		final File tempFile = File.createTempFile(FunctionCatalogManager.CATALOG_FILENAME, ".tmp", fileDir);
+
+		try {
+			writeCatalog(tempFile);
+		} catch (final IOException e) {
+			tempFile.delete();
+			throw e;
+		}
+
+		//Renaming to an existing file fails on Windows
+		if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+			tempFile.delete();
+			throw new IOException("Could not replace function catalog " + file);
+		}
+	}
+
+	/**
+	 * Writes the catalog to the given file
+	 * 
+	 * @param file - the file
+	 * @throws IOException
+	 */
+	private void writeCatalog(final File file) throws IOException {
+		final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		try {
+			outputStream.writeInt(FunctionCatalogManager.CATALOG_MAGIC);
+			outputStream.writeInt(FunctionCatalogManager.CATALOG_VERSION);
+			outputStream.writeUTF(this.systemKey);
+			outputStream.writeLong(this.builtAt);
+			outputStream.writeLong(this.updatedAt);
+			FunctionNameIndex.write(outputStream, this.functionNames);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.manager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.hibersap.forge.index.FunctionTextIndex;
+import org.hibersap.forge.index.FunctionTextIndex.Hit;
+import org.hibersap.forge.sap.SAPLikePattern;
+import org.hibersap.forge.sap.SAPTableRead;
+import org.hibersap.forge.util.Utils;
+import org.hibersap.session.Session;
+
+/**
+ * Manages the local index of SAP function names and short texts for ranked fuzzy searches
+ * 
+ * The short texts are read from the table TFTIT in the logon language and stored in a file next to the SAP connection
+ * properties. The file is only read when the texts are searched or refreshed.
+ * 
+ */
+public class FunctionTextManager {
+
+	/** The filename for the function texts **/
+	private final static String TEXTS_FILENAME = "function-texts.dat";
+	/** The magic number at the start of a texts file ("HFTX") **/
+	private final static int TEXTS_MAGIC = 0x48465458;
+	/** The version of the texts file format, 2 adds the trigram postings **/
+	private final static int TEXTS_VERSION = 2;
+	/** The version of the texts file format without trigram postings **/
+	private final static int TEXTS_ONLY_VERSION = 1;
+	/** The table holding the short texts of the functions **/
+	private final static String TEXT_TABLE = "TFTIT";
+	/** The number of texts read per call when refreshing **/
+	private final static int REFRESH_PAGE_SIZE = 5000;
+
+	/** The path to store the function texts **/
+	private final String textsStorePath;
+	/** The indexed function texts, null until the texts file was read **/
+	private FunctionTextIndex index;
+	/** The key of the SAP system the texts belong to **/
+	private String systemKey = "";
+	/** The language key of the texts **/
+	private String languageKey = "";
+	/** The time of the last refresh **/
+	private long updatedAt;
+
+	/**
+	 * Constructor - Instantiates a new FunctionTextManager
+	 * 
+	 * @param textsStorePath - path to store the function texts without filename
+	 */
+	public FunctionTextManager(final String textsStorePath) {
+		Utils.checkPath(textsStorePath);
+		this.textsStorePath = textsStorePath;
+	}
+
+	/**
+	 * Searches the function names and short texts for the given query
+	 * 
+	 * @param query - the query, e.g. "create purchase order"
+	 * @param maxResults - the max. number of results
+	 * @return the best matching functions, best match first
+	 * @throws IOException
+	 */
+	public List<Hit> search(final String query, final int maxResults) throws IOException {
+		return getIndex().search(query, maxResults);
+	}
+
+	/**
+	 * Refreshes the texts of the functions matching the given pattern from the SAP system
+	 * 
+	 * Texts of functions matching the pattern are replaced by the current texts, all other texts are kept. Texts of
+	 * another SAP system or language are dropped. The texts are read by key range: every call starts after the
+	 * greatest function name read before, so the SAP system reads every text once.
+	 * 
+	 * @param session - the session to the SAP system
+	 * @param systemKey - the key of the SAP system (see {@link ConnectionPropertiesManager#getSystemKey()})
+	 * @param languageKey - the SAP language key of the texts (see {@link ConnectionPropertiesManager#getLanguageKey()})
+	 * @param namePattern - the name pattern. May contain wildcards (* or ?).
+	 * @param functionNames - the names of the functions to keep, e.g. the remote-enabled functions of the catalog. Use
+	 *            null to keep all functions.
+	 * @return the number of texts found for the given pattern
+	 * @throws IOException
+	 */
+	public int refresh(final Session session, final String systemKey, final String languageKey,
+			final String namePattern, final Collection<String> functionNames) throws IOException {
+		final FunctionTextIndex textIndex = getIndex();
+		final SAPLikePattern pattern = new SAPLikePattern(namePattern);
+		final String where = "SPRAS EQ '" + languageKey + "' AND FUNCNAME LIKE '" + pattern.getSapPattern() + "'";
+		final List<String> fieldNames = Arrays.asList("FUNCNAME", "STEXT");
+		String lastName = null;
+		int found = 0;
+
+		if (!systemKey.equals(this.systemKey) || !languageKey.equals(this.languageKey)) {
+			//Texts of another system or language must not be mixed up
+			textIndex.clear();
+			this.systemKey = systemKey;
+			this.languageKey = languageKey;
+		}
+
+		textIndex.removeMatching(pattern);
+
+		while (true) {
+			final SAPTableRead tableRead = new SAPTableRead(FunctionTextManager.TEXT_TABLE, fieldNames,
+					lastName == null ? where : where + " AND FUNCNAME GT '" + lastName.replace("'", "''") + "'",
+					FunctionTextManager.REFRESH_PAGE_SIZE, 0);
+
+			tableRead.execute(session);
+
+			final List<String[]> rows = tableRead.getRows();
+
+			for (final String[] row : rows) {
+				//RFC_READ_TABLE does not sort the rows
+				if (lastName == null || row[0].compareTo(lastName) > 0) {
+					lastName = row[0];
+				}
+				if (functionNames == null || functionNames.contains(row[0])) {
+					textIndex.put(row[0], row.length > 1 ? row[1] : "");
+					found++;
+				}
+			}
+
+			if (rows.size() < FunctionTextManager.REFRESH_PAGE_SIZE) {
+				break;
+			}
+		}
+
+		this.updatedAt = System.currentTimeMillis();
+
+		return found;
+	}
+
+	/**
+	 * Gets the number of indexed function texts
+	 * 
+	 * @return the number of texts
+	 * @throws IOException
+	 */
+	public int size() throws IOException {
+		return getIndex().size();
+	}
+
+	/**
+	 * Gets the time of the last refresh
+	 * 
+	 * @return the time in milliseconds, 0 if the texts were never refreshed
+	 * @throws IOException
+	 */
+	public long getUpdatedAt() throws IOException {
+		getIndex();
+
+		return this.updatedAt;
+	}
+
+	/**
+	 * Gets the text index, reading the stored texts on first access
+	 * 
+	 * @return the text index
+	 * @throws IOException
+	 */
+	private FunctionTextIndex getIndex() throws IOException {
+		if (this.index == null) {
+			this.index = new FunctionTextIndex();
+
+			if (getTextsFile().exists()) {
+				readTexts();
+			}
+		}
+
+		return this.index;
+	}
+
+	/**
+	 * Gets the texts file
+	 * 
+	 * @return the texts file
+	 */
+	private File getTextsFile() {
+		return new File(this.textsStorePath + FunctionTextManager.TEXTS_FILENAME);
+	}
+
+	/**
+	 * Reads the texts from the given textsStorePath
+	 * 
+	 * Texts written without trigram postings are indexed while reading; texts of an unknown format version are
+	 * ignored, so they will be rebuilt.
+	 * 
+	 * @throws IOException
+	 */
+	private void readTexts() throws IOException {
+		final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(
+				getTextsFile())));
+
+		try {
+			if (inputStream.readInt() != FunctionTextManager.TEXTS_MAGIC) {
+				return;
+			}
+
+			final int version = inputStream.readInt();
+
+			if (version != FunctionTextManager.TEXTS_VERSION && version != FunctionTextManager.TEXTS_ONLY_VERSION) {
+				return;
+			}
+
+			this.systemKey = inputStream.readUTF();
+			this.languageKey = inputStream.readUTF();
+			this.updatedAt = inputStream.readLong();
+
+			if (version == FunctionTextManager.TEXTS_ONLY_VERSION) {
+				this.index.readTexts(inputStream);
+			} else {
+				this.index.read(inputStream);
+			}
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Stores the texts to the given textsStorePath
+	 * 
+	 * @throws IOException
+	 */
+	public void writeTexts() throws IOException {
+		final FunctionTextIndex textIndex = getIndex();
+		final File file = getTextsFile();
+		final File fileDir = file.getParentFile();
+
+		if (!fileDir.exists()) {
+			fileDir.mkdirs();
+		}
+
+		final File tempFile = File.createTempFile(FunctionTextManager.TEXTS_FILENAME, ".tmp", fileDir);
+
+		try {
+			writeTexts(tempFile, textIndex);
+		} catch (final IOException e) {
+			tempFile.delete();
+			throw e;
+		}
+
+		//Renaming to an existing file fails on Windows
+		if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+			tempFile.delete();
+			throw new IOException("Could not replace function texts " + file);
+		}
+	}
+
+	/**
+	 * Writes the texts to the given file
+	 * 
+	 * @param file - the file
+	 * @param textIndex - the indexed texts
+	 * @throws IOException
+	 */
+	private void writeTexts(final File file, final FunctionTextIndex textIndex) throws IOException {
+		final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		try {
+			outputStream.writeInt(FunctionTextManager.TEXTS_MAGIC);
+			outputStream.writeInt(FunctionTextManager.TEXTS_VERSION);
+			outputStream.writeUTF(this.systemKey);
+			outputStream.writeUTF(this.languageKey);
+			outputStream.writeLong(this.updatedAt);
+			textIndex.write(outputStream);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+}
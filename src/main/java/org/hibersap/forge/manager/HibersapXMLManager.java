@@ -36,6 +36,8 @@ import org.hibersap.configuration.xml.HibersapConfig;
 import org.hibersap.configuration.xml.HibersapJaxbXmlParser;
 import org.hibersap.configuration.xml.SessionManagerConfig;
 import org.hibersap.forge.exception.SessionManagerDuplicateException;
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
 import org.hibersap.forge.util.Utils;
 
 /**
@@ -218,6 +220,7 @@ public class HibersapXMLManager {
 	 * @throws JAXBException
 	 */
 	public void writeHibersapXML() throws JAXBException {
+		final FlightEvent event = FlightEvents.FILE_WRITE.begin();
 		final JAXBContext context = JAXBContext.newInstance(HibersapConfig.class);
 		final Marshaller marshaller = context.createMarshaller();
 		final File file = new File(this.hibersapXMLStorePath + HibersapXMLManager.HIBERSAPXML_FILENAME);
@@ -228,6 +231,7 @@ public class HibersapXMLManager {
 		}
 		
 		marshaller.marshal(this.hibersapConfig, file);
+		event.set("path", file.getPath()).commit();
 	}
 
 	/**
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.manager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+
+import org.hibersap.forge.mapping.BapiMappingCodec;
+import org.hibersap.forge.util.Utils;
+import org.hibersap.mapping.model.BapiMapping;
+
+/**
+ * Manages the local cache of SAP function metadata
+ * 
+ * Every function mapping is stored in its own file below the cache directory, one directory per SAP system. A cached
+ * mapping is only used while the change stamp of the function (see
+ * {@link org.hibersap.forge.sap.FunctionChangeStamp}) is unchanged.
+ * 
+ */
+public class MetadataCacheManager {
+
+	/** The name of the cache directory **/
+	private final static String CACHE_DIRNAME = "metadata-cache";
+	/** The magic number at the start of a cache file ("HFMC") **/
+	private final static int CACHE_MAGIC = 0x48464D43;
+	/** The version of the cache file format **/
+	private final static int CACHE_VERSION = 1;
+
+	/** The path to store the cache directory **/
+	private final String cacheStorePath;
+
+	/**
+	 * Constructor - Instantiates a new MetadataCacheManager
+	 * 
+	 * @param cacheStorePath - path to store the cache directory without directory name
+	 */
+	public MetadataCacheManager(final String cacheStorePath) {
+		Utils.checkPath(cacheStorePath);
+		this.cacheStorePath = cacheStorePath;
+	}
+
+	/**
+	 * Gets the cached mapping of a function
+	 * 
+	 * @param systemKey - the key of the SAP system (see {@link ConnectionPropertiesManager#getSystemKey()})
+	 * @param functionName - the function name
+	 * @param changeStamp - the current change stamp of the function
+	 * @return the mapping, null if no mapping is cached for the given change stamp
+	 */
+	public BapiMapping get(final String systemKey, final String functionName, final String changeStamp) {
+		final File file = getCacheFile(systemKey, functionName);
+
+		if (!file.exists()) {
+			return null;
+		}
+
+		try {
+			final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+			try {
+				if (inputStream.readInt() != MetadataCacheManager.CACHE_MAGIC
+						|| inputStream.readInt() != MetadataCacheManager.CACHE_VERSION
+						|| !changeStamp.equals(inputStream.readUTF())) {
+					return null;
+				}
+
+				return BapiMappingCodec.read(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		} catch (final IOException e) {
+			//An unreadable entry is a cache miss, it will be overwritten
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the mapping of a function
+	 * 
+	 * @param systemKey - the key of the SAP system (see {@link ConnectionPropertiesManager#getSystemKey()})
+	 * @param functionName - the function name
+	 * @param changeStamp - the current change stamp of the function
+	 * @param mapping - the mapping
+	 * @throws IOException
+	 */
+	public void put(final String systemKey, final String functionName, final String changeStamp,
+			final BapiMapping mapping) throws IOException {
+		final File file = getCacheFile(systemKey, functionName);
+		final File fileDir = file.getParentFile();
+
+		if (!fileDir.exists()) {
+			fileDir.mkdirs();
+		}
+
+		final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		try {
+			outputStream.writeInt(MetadataCacheManager.CACHE_MAGIC);
+			outputStream.writeInt(MetadataCacheManager.CACHE_VERSION);
+			outputStream.writeUTF(changeStamp);
+			BapiMappingCodec.write(outputStream, mapping);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Removes the cached mapping of a function
+	 * 
+	 * @param systemKey - the key of the SAP system
+	 * @param functionName - the function name
+	 */
+	public void remove(final String systemKey, final String functionName) {
+		getCacheFile(systemKey, functionName).delete();
+	}
+
+	/**
+	 * Gets the cache file of a function
+	 * 
+	 * @param systemKey - the key of the SAP system
+	 * @param functionName - the function name
+	 * @return the cache file
+	 */
+	private File getCacheFile(final String systemKey, final String functionName) {
+		return new File(this.cacheStorePath + MetadataCacheManager.CACHE_DIRNAME + "/" + encode(systemKey) + "/"
+				+ encode(functionName) + ".bin");
+	}
+
+	/**
+	 * Encodes a name to be usable as file name, e.g. /ABC/FUNCTION as %2FABC%2FFUNCTION
+	 * 
+	 * @param name - the name
+	 * @return the encoded name
+	 */
+	private static String encode(final String name) {
+		try {
+			return URLEncoder.encode(name, "UTF-8");
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.manager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.hibersap.forge.sap.StructureRegistry;
+import org.hibersap.forge.util.Utils;
+
+/**
+ * Manager class for the registry of shared structure classes of a project
+ * 
+ * Provides functionality to read and write the registry, so structure classes are reused between runs
+ * 
+ */
+public class StructureRegistryManager {
+
+	/** The filename for the structure registry **/
+	private final static String REGISTRY_FILENAME = "structure-registry.properties";
+
+	/** The path to store the structure registry **/
+	private final String registryStorePath;
+	/** The structure registry **/
+	private final StructureRegistry structureRegistry = new StructureRegistry();
+
+	/**
+	 * Constructor - Instantiates a new StructureRegistryManager
+	 * 
+	 * An existing registry will be loaded at creation
+	 * 
+	 * @param registryStorePath - path to store the structure registry without filename, e.g. the .hibersap directory
+	 *            of the project
+	 * @throws IOException
+	 */
+	public StructureRegistryManager(final String registryStorePath) throws IOException {
+		Utils.checkPath(registryStorePath);
+		this.registryStorePath = registryStorePath;
+
+		final File file = getRegistryFile();
+
+		if (file.exists()) {
+			final Properties properties = new Properties();
+			final InputStream inputStream = new FileInputStream(file);
+
+			try {
+				properties.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
+
+			this.structureRegistry.load(properties);
+		}
+	}
+
+	/**
+	 * Gets the structure registry
+	 * 
+	 * @return the structure registry
+	 */
+	public StructureRegistry getStructureRegistry() {
+		return this.structureRegistry;
+	}
+
+	/**
+	 * Stores the structure registry to the given registryStorePath
+	 * 
+	 * @throws IOException
+	 */
+	public void writeStructureRegistry() throws IOException {
+		final File file = getRegistryFile();
+		final File fileDir = file.getParentFile();
+
+		if (!fileDir.exists()) {
+			fileDir.mkdirs();
+		}
+
+		final OutputStream outputStream = new FileOutputStream(file);
+
+		try {
+			this.structureRegistry.toProperties().store(outputStream,
+					"forge hibersap plugin \nGenerated structure classes by field layout");
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Gets the registry file
+	 * 
+	 * @return the registry file
+	 */
+	private File getRegistryFile() {
+		return new File(this.registryStorePath + StructureRegistryManager.REGISTRY_FILENAME);
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.manager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibersap.forge.util.PhaseTimer;
+import org.hibersap.forge.util.PhaseTimer.Phase;
+import org.hibersap.forge.util.Utils;
+
+/**
+ * Manages the history of the phase timings of plugin commands
+ * 
+ * Every timed run appends one line per phase to a CSV file: start time, command, phase, wall time in nanoseconds and
+ * allocated bytes. The averages of previous runs show whether a phase got slower.
+ * 
+ */
+public class TimingHistoryManager {
+
+	/** The filename of the timing history **/
+	private final static String HISTORY_FILENAME = "timing-history.csv";
+	/** The separator of the values of a line **/
+	private final static char SEPARATOR = ';';
+
+	/** The path to store the timing history **/
+	private final String historyStorePath;
+
+	/**
+	 * Constructor - Instantiates a new TimingHistoryManager
+	 * 
+	 * @param historyStorePath - path to store the timing history without filename
+	 */
+	public TimingHistoryManager(final String historyStorePath) {
+		Utils.checkPath(historyStorePath);
+		this.historyStorePath = historyStorePath;
+	}
+
+	/**
+	 * Appends the phases of a run to the history
+	 * 
+	 * @param command - the command name
+	 * @param startedAt - the start time of the run in milliseconds
+	 * @param timer - the timer of the run
+	 * @throws IOException
+	 */
+	public void append(final String command, final long startedAt, final PhaseTimer timer) throws IOException {
+		final File file = getHistoryFile();
+		final File fileDir = file.getParentFile();
+
+		if (!fileDir.exists()) {
+			fileDir.mkdirs();
+		}
+
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+
+		try {
+			for (final Phase phase : timer.getPhases()) {
+				writer.write(Long.toString(startedAt) + TimingHistoryManager.SEPARATOR + command
+						+ TimingHistoryManager.SEPARATOR + phase.getName() + TimingHistoryManager.SEPARATOR
+						+ phase.getNanos() + TimingHistoryManager.SEPARATOR + phase.getAllocatedBytes() + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Gets the average wall time of the phases of the last runs of a command
+	 * 
+	 * @param command - the command name
+	 * @param runs - the max. number of runs to average
+	 * @return the average wall time in nanoseconds by phase name, empty if there is no history
+	 * @throws IOException
+	 */
+	public Map<String, Long> getAverageNanos(final String command, final int runs) throws IOException {
+		final Map<String, List<Long>> phaseNanos = new HashMap<String, List<Long>>();
+		final File file = getHistoryFile();
+
+		if (file.exists()) {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+
+			try {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					final List<String> values = Utils.split(line, TimingHistoryManager.SEPARATOR);
+
+					if (values.size() == 5 && values.get(1).equals(command)) {
+						if (!phaseNanos.containsKey(values.get(2))) {
+							phaseNanos.put(values.get(2), new ArrayList<Long>());
+						}
+
+						phaseNanos.get(values.get(2)).add(Long.valueOf(values.get(3)));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		final Map<String, Long> averageNanos = new HashMap<String, Long>();
+
+		for (final Map.Entry<String, List<Long>> phase : phaseNanos.entrySet()) {
+			final List<Long> nanos = phase.getValue();
+			final List<Long> lastNanos = nanos.subList(Math.max(0, nanos.size() - runs), nanos.size());
+			long sum = 0;
+
+			for (final Long value : lastNanos) {
+				sum += value;
+			}
+
+			averageNanos.put(phase.getKey(), sum / lastNanos.size());
+		}
+
+		return averageNanos;
+	}
+
+	/**
+	 * Gets the history file
+	 * 
+	 * @return the history file
+	 */
+	private File getHistoryFile() {
+		return new File(this.historyStorePath + TimingHistoryManager.HISTORY_FILENAME);
+	}
+
+}
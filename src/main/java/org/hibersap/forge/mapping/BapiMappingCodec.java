@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.mapping;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibersap.conversion.Converter;
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.ErrorHandling;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.ParameterMapping;
+import org.hibersap.mapping.model.ParameterMapping.ParamType;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+
+/**
+ * Writes and reads {@link BapiMapping} trees in a compact binary format
+ * 
+ * Only the values passed to the constructors of the mapping model are stored, so the format does not depend on the
+ * serialized form of the Hibersap version in use. Classes are stored by name.
+ * 
+ */
+public final class BapiMappingCodec {
+
+	/** The primitive types by name, which can not be loaded with Class.forName **/
+	private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+
+	static {
+		for (final Class<?> type : new Class<?>[] { boolean.class, byte.class, char.class, short.class, int.class,
+				long.class, float.class, double.class }) {
+			BapiMappingCodec.PRIMITIVE_TYPES.put(type.getName(), type);
+		}
+	}
+
+	private BapiMappingCodec() {
+	}
+
+	/**
+	 * Writes the given mapping
+	 * 
+	 * @param output - the output to write to
+	 * @param mapping - the mapping
+	 * @throws IOException
+	 */
+	public static void write(final DataOutput output, final BapiMapping mapping) throws IOException {
+		final ErrorHandling errorHandling = mapping.getErrorHandling();
+
+		writeClass(output, mapping.getAssociatedClass());
+		output.writeUTF(mapping.getBapiName());
+		output.writeBoolean(errorHandling != null);
+
+		if (errorHandling != null) {
+			writeString(output, errorHandling.getPathToReturnStructure());
+
+			final String[] errorMessageTypes = errorHandling.getErrorMessageTypes();
+
+			output.writeInt(errorMessageTypes == null ? -1 : errorMessageTypes.length);
+
+			if (errorMessageTypes != null) {
+				for (final String errorMessageType : errorMessageTypes) {
+					output.writeUTF(errorMessageType);
+				}
+			}
+		}
+
+		writeParameters(output, mapping.getImportParameters());
+		writeParameters(output, mapping.getExportParameters());
+		writeParameters(output, mapping.getTableParameters());
+	}
+
+	/**
+	 * Reads a mapping
+	 * 
+	 * @param input - the input to read from
+	 * @return the mapping
+	 * @throws IOException - if the mapping can not be read, e.g. because a class does not exist
+	 */
+	public static BapiMapping read(final DataInput input) throws IOException {
+		final Class<?> associatedClass = readClass(input);
+		final String bapiName = input.readUTF();
+		ErrorHandling errorHandling = null;
+
+		if (input.readBoolean()) {
+			final String pathToReturnStructure = readString(input);
+			final int errorMessageTypeCount = input.readInt();
+			final String[] errorMessageTypes = errorMessageTypeCount < 0 ? null : new String[errorMessageTypeCount];
+
+			for (int i = 0; i < errorMessageTypeCount; i++) {
+				errorMessageTypes[i] = input.readUTF();
+			}
+
+			errorHandling = new ErrorHandling(pathToReturnStructure, errorMessageTypes);
+		}
+
+		final BapiMapping mapping = new BapiMapping(associatedClass, bapiName, errorHandling);
+
+		for (int i = input.readInt(); i > 0; i--) {
+			mapping.addImportParameter(readParameter(input));
+		}
+		for (int i = input.readInt(); i > 0; i--) {
+			mapping.addExportParameter(readParameter(input));
+		}
+		for (int i = input.readInt(); i > 0; i--) {
+			mapping.addTableParameter((TableMapping) readParameter(input));
+		}
+
+		return mapping;
+	}
+
+	/**
+	 * Writes the given parameters
+	 * 
+	 * @param output - the output to write to
+	 * @param parameters - the parameters
+	 * @throws IOException
+	 */
+	private static void writeParameters(final DataOutput output, final Collection<? extends ParameterMapping> parameters)
+			throws IOException {
+		output.writeInt(parameters.size());
+
+		for (final ParameterMapping parameter : parameters) {
+			writeParameter(output, parameter);
+		}
+	}
+
+	/**
+	 * Writes a field, structure or table parameter
+	 * 
+	 * @param output - the output to write to
+	 * @param parameter - the parameter
+	 * @throws IOException
+	 */
+	private static void writeParameter(final DataOutput output, final ParameterMapping parameter) throws IOException {
+		output.writeByte(parameter.getParamType().ordinal());
+		writeClass(output, parameter.getAssociatedType());
+		writeString(output, parameter.getSapName());
+		writeString(output, parameter.getJavaName());
+		writeClass(output, parameter.getConverterClass());
+
+		if (parameter.getParamType() == ParamType.STRUCTURE) {
+			writeParameters(output, ((StructureMapping) parameter).getParameters());
+		} else if (parameter.getParamType() == ParamType.TABLE) {
+			final TableMapping table = (TableMapping) parameter;
+
+			writeClass(output, table.getFieldType());
+			writeParameter(output, table.getComponentParameter());
+		}
+	}
+
+	/**
+	 * Reads a field, structure or table parameter
+	 * 
+	 * @param input - the input to read from
+	 * @return the parameter
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	private static ParameterMapping readParameter(final DataInput input) throws IOException {
+		final int paramType = input.readByte();
+		final Class<?> associatedType = readClass(input);
+		final String sapName = readString(input);
+		final String javaName = readString(input);
+		final Class<? extends Converter<?, ?>> converterClass = (Class<? extends Converter<?, ?>>) readClass(input);
+
+		if (paramType == ParamType.FIELD.ordinal()) {
+			return new FieldMapping(associatedType, sapName, javaName, converterClass);
+		}
+		if (paramType == ParamType.STRUCTURE.ordinal()) {
+			final StructureMapping structure = new StructureMapping(associatedType, sapName, javaName, converterClass);
+
+			for (int i = input.readInt(); i > 0; i--) {
+				structure.addParameter((FieldMapping) readParameter(input));
+			}
+
+			return structure;
+		}
+		if (paramType == ParamType.TABLE.ordinal()) {
+			final Class<?> fieldType = readClass(input);
+			final StructureMapping component = (StructureMapping) readParameter(input);
+
+			return new TableMapping(fieldType, associatedType, sapName, javaName, component, converterClass);
+		}
+
+		throw new IOException("Unknown parameter type " + paramType);
+	}
+
+	/**
+	 * Writes a class name
+	 * 
+	 * @param output - the output to write to
+	 * @param type - the class, may be null
+	 * @throws IOException
+	 */
+	private static void writeClass(final DataOutput output, final Class<?> type) throws IOException {
+		writeString(output, type == null ? null : type.getName());
+	}
+
+	/**
+	 * Reads a class name and loads the class
+	 * 
+	 * @param input - the input to read from
+	 * @return the class, may be null
+	 * @throws IOException - if the class does not exist
+	 */
+	private static Class<?> readClass(final DataInput input) throws IOException {
+		return loadClass(readString(input));
+	}
+
+	/**
+	 * Loads a class by name
+	 * 
+	 * @param name - the class name, may be null
+	 * @return the class, null if the name is null
+	 * @throws IOException - if the class does not exist
+	 */
+	static Class<?> loadClass(final String name) throws IOException {
+		if (name == null) {
+			return null;
+		}
+		if (BapiMappingCodec.PRIMITIVE_TYPES.containsKey(name)) {
+			return BapiMappingCodec.PRIMITIVE_TYPES.get(name);
+		}
+
+		try {
+			return Class.forName(name, false, BapiMappingCodec.class.getClassLoader());
+		} catch (final ClassNotFoundException e) {
+			throw new IOException("Class [" + name + "] of cached mapping not found", e);
+		}
+	}
+
+	/**
+	 * Writes a string which may be null
+	 * 
+	 * @param output - the output to write to
+	 * @param value - the string
+	 * @throws IOException
+	 */
+	private static void writeString(final DataOutput output, final String value) throws IOException {
+		output.writeBoolean(value != null);
+
+		if (value != null) {
+			output.writeUTF(value);
+		}
+	}
+
+	/**
+	 * Reads a string which may be null
+	 * 
+	 * @param input - the input to read from
+	 * @return the string
+	 * @throws IOException
+	 */
+	private static String readString(final DataInput input) throws IOException {
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.mapping;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.ErrorHandling;
+import org.hibersap.mapping.model.ParameterMapping;
+import org.hibersap.mapping.model.ParameterMapping.ParamType;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+
+/**
+ * Computes the fingerprint of the interface of a SAP function
+ * 
+ * The fingerprint covers everything the generated classes depend on: parameter names, Java names, types and
+ * converters as well as the error handling. It does not depend on the order of the parameters, so two mappings of an
+ * unchanged function have the same fingerprint.
+ * 
+ */
+public final class MappingFingerprint {
+
+	private MappingFingerprint() {
+	}
+
+	/**
+	 * Computes the fingerprint of a function mapping
+	 * 
+	 * @param mapping - the function mapping
+	 * @return the fingerprint as hex string
+	 */
+	public static String of(final BapiMapping mapping) {
+		final StringBuilder description = new StringBuilder();
+		final ErrorHandling errorHandling = mapping.getErrorHandling();
+
+		description.append(mapping.getBapiName()).append('\n');
+		description.append(getName(mapping.getAssociatedClass())).append('\n');
+
+		if (errorHandling != null) {
+			description.append(errorHandling.getPathToReturnStructure()).append(' ');
+			description.append(errorHandling.getErrorMessageTypes() == null ? null : Arrays.asList(errorHandling
+					.getErrorMessageTypes()));
+		}
+
+		description.append("\nimport\n").append(describe(mapping.getImportParameters()));
+		description.append("export\n").append(describe(mapping.getExportParameters()));
+		description.append("table\n").append(describe(mapping.getTableParameters()));
+
+		return toHex(digest(description.toString()));
+	}
+
+	/**
+	 * Describes parameters in a canonical order
+	 * 
+	 * @param parameters - the parameters
+	 * @return the description with one line per parameter
+	 */
+	private static String describe(final Collection<? extends ParameterMapping> parameters) {
+		final List<String> descriptions = new ArrayList<String>(parameters.size());
+
+		for (final ParameterMapping parameter : parameters) {
+			descriptions.add(describe(parameter));
+		}
+
+		Collections.sort(descriptions);
+
+		final StringBuilder description = new StringBuilder();
+
+		for (final String parameterDescription : descriptions) {
+			description.append(parameterDescription).append('\n');
+		}
+
+		return description.toString();
+	}
+
+	/**
+	 * Describes a parameter
+	 * 
+	 * @param parameter - the parameter
+	 * @return the description
+	 */
+	private static String describe(final ParameterMapping parameter) {
+		final StringBuilder description = new StringBuilder();
+
+		description.append(parameter.getParamType()).append(' ');
+		description.append(parameter.getSapName()).append(' ');
+		description.append(parameter.getJavaName()).append(' ');
+		description.append(getName(parameter.getAssociatedType())).append(' ');
+		description.append(getName(parameter.getConverterClass()));
+
+		if (parameter.getParamType() == ParamType.STRUCTURE) {
+			description.append(" {").append(describe(((StructureMapping) parameter).getParameters())).append('}');
+		} else if (parameter.getParamType() == ParamType.TABLE) {
+			final TableMapping table = (TableMapping) parameter;
+
+			description.append(' ').append(getName(table.getFieldType()));
+			description.append(" [").append(describe(table.getComponentParameter())).append(']');
+		}
+
+		return description.toString();
+	}
+
+	/**
+	 * Gets the name of a class
+	 * 
+	 * @param type - the class, may be null
+	 * @return the class name, null if the class is null
+	 */
+	private static String getName(final Class<?> type) {
+		return type == null ? null : type.getName();
+	}
+
+	/**
+	 * Computes the SHA-1 digest of a text
+	 * 
+	 * @param text - the text
+	 * @return the digest
+	 */
+	private static byte[] digest(final String text) {
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(text.getBytes("UTF-8"));
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Converts bytes to a hex string
+	 * 
+	 * @param bytes - the bytes
+	 * @return the hex string
+	 */
+	private static String toHex(final byte[] bytes) {
+		final StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+		for (final byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+
+		return hex.toString();
+	}
+
+}
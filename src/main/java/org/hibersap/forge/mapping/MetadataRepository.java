@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.mapping;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibersap.HibersapException;
+import org.hibersap.conversion.Converter;
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.ErrorHandling;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.ParameterMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+
+/**
+ * Reads SAP function metadata from a repository file written by {@link MetadataRepositoryWriter}
+ * 
+ * The file is memory-mapped and only its header is read when opening it. Strings, structures and tables are decoded
+ * on first use and kept; a function is decoded on every request. Structures and tables are shared between the
+ * returned mappings and must not be modified. The repository is thread-safe.
+ * 
+ */
+public class MetadataRepository implements MetadataSource {
+
+	/** The mapped repository file **/
+	private final ByteBuffer buffer;
+	/** The time the repository was created in milliseconds **/
+	private final long createdAt;
+	/** The string id of the system key **/
+	private final int systemKeyId;
+	/** The position of the string offsets **/
+	private final int stringOffsets;
+	/** The position of the component offsets **/
+	private final int componentOffsets;
+	/** The position of the function name ids **/
+	private final int functionNameIds;
+	/** The position of the function offsets **/
+	private final int functionOffsets;
+	/** The number of functions **/
+	private final int functionCount;
+	/** The decoded strings by id **/
+	private final String[] strings;
+	/** The decoded components by id **/
+	private final ParameterMapping[] components;
+	/** The loaded classes by name **/
+	private final Map<String, Class<?>> classes = new HashMap<String, Class<?>>();
+
+	/**
+	 * Constructor - Instantiates a new MetadataRepository
+	 * 
+	 * @param buffer - the repository data
+	 * @throws IOException - if the data is no repository of a supported version
+	 */
+	MetadataRepository(final ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < 32 || buffer.getInt(0) != MetadataRepositoryWriter.REPOSITORY_MAGIC) {
+			throw new IOException("No metadata repository");
+		}
+
+		final int version = buffer.getInt(4);
+
+		if (version != MetadataRepositoryWriter.REPOSITORY_VERSION) {
+			throw new IOException("Unsupported version " + version + " of metadata repository");
+		}
+
+		final int stringCount = buffer.getInt(20);
+		final int componentCount = buffer.getInt(24);
+
+		this.buffer = buffer;
+		this.createdAt = buffer.getLong(8);
+		this.systemKeyId = buffer.getInt(16);
+		this.functionCount = buffer.getInt(28);
+		this.stringOffsets = 32;
+		this.componentOffsets = this.stringOffsets + 4 * stringCount;
+		this.functionNameIds = this.componentOffsets + 4 * componentCount;
+		this.functionOffsets = this.functionNameIds + 4 * this.functionCount;
+		this.strings = new String[stringCount];
+		this.components = new ParameterMapping[componentCount];
+	}
+
+	/**
+	 * Opens a repository file
+	 * 
+	 * @param file - the repository file
+	 * @return the repository
+	 * @throws IOException - if the file cannot be read or is no repository of a supported version
+	 */
+	public static MetadataRepository open(final File file) throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+		try {
+			final FileChannel channel = randomAccessFile.getChannel();
+
+			//The mapping stays valid after the channel is closed
+			return new MetadataRepository(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (final IOException e) {
+			throw new IOException(file + ": " + e.getMessage(), e);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Checks if a file is a repository file
+	 * 
+	 * @param file - the file
+	 * @return true if the file starts with the magic number of a repository, false otherwise
+	 * @throws IOException
+	 */
+	public static boolean isRepository(final File file) throws IOException {
+		if (file.length() < 4) {
+			return false;
+		}
+
+		final DataInputStream inputStream = new DataInputStream(new FileInputStream(file));
+
+		try {
+			return inputStream.readInt() == MetadataRepositoryWriter.REPOSITORY_MAGIC;
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Gets the mapping of a function
+	 * 
+	 * @param functionName - the function name
+	 * @return the mapping, null if the function is not part of the repository
+	 * @throws IOException - if the mapping can not be decoded, e.g. because a class does not exist
+	 */
+	public synchronized BapiMapping get(final String functionName) throws IOException {
+		int low = 0;
+		int high = this.functionCount - 1;
+
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int comparison = getFunctionName(middle).compareTo(functionName);
+
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return decodeFunction(this.buffer.getInt(this.functionOffsets + 4 * middle));
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets the mapping of a function
+	 * 
+	 * @param functionName - the function name
+	 * @return the mapping
+	 * @throws HibersapException - if the function is not part of the repository or can not be decoded
+	 */
+	public BapiMapping map(final String functionName) {
+		final FlightEvent event = FlightEvents.METADATA_FETCH.begin();
+		final BapiMapping mapping;
+
+		try {
+			mapping = get(functionName);
+		} catch (final IOException e) {
+			throw new HibersapException("Metadata of function " + functionName + " can not be read", e);
+		}
+
+		if (mapping == null) {
+			throw new HibersapException("Function " + functionName + " is not part of the metadata repository");
+		}
+
+		event.set("function", functionName).set("source", "snapshot").commit();
+
+		return mapping;
+	}
+
+	/**
+	 * Gets the names of the functions matching one of the given name patterns
+	 * 
+	 * @param namePatterns - the name patterns with * and ? as wildcards. If empty, all function names are returned.
+	 * @return the sorted function names
+	 */
+	public List<String> getFunctionNames(final Collection<String> namePatterns) {
+		return MetadataSnapshot.filterFunctionNames(new AbstractList<String>() {
+
+			@Override
+			public String get(final int index) {
+				return getFunctionName(index);
+			}
+
+			@Override
+			public int size() {
+				return MetadataRepository.this.functionCount;
+			}
+		}, namePatterns);
+	}
+
+	/**
+	 * Gets the number of functions in the repository
+	 * 
+	 * @return the number of functions
+	 */
+	public int size() {
+		return this.functionCount;
+	}
+
+	/**
+	 * Gets the number of distinct structures and tables in the repository
+	 * 
+	 * @return the number of components
+	 */
+	public int getComponentCount() {
+		return this.components.length;
+	}
+
+	/**
+	 * Gets the key of the SAP system the metadata was read from
+	 * 
+	 * @return the system key
+	 */
+	public synchronized String getSystemKey() {
+		return getString(this.systemKeyId);
+	}
+
+	/**
+	 * Gets the time the repository was created
+	 * 
+	 * @return the creation time in milliseconds
+	 */
+	public long getCreatedAt() {
+		return this.createdAt;
+	}
+
+	/**
+	 * Gets a function name by its position in the ordered function names
+	 * 
+	 * @param index - the position
+	 * @return the function name
+	 */
+	private synchronized String getFunctionName(final int index) {
+		return getString(this.buffer.getInt(this.functionNameIds + 4 * index));
+	}
+
+	/**
+	 * Decodes a function
+	 * 
+	 * @param offset - the position of the function data
+	 * @return the function mapping
+	 * @throws IOException
+	 */
+	private BapiMapping decodeFunction(final int offset) throws IOException {
+		final Cursor cursor = new Cursor(offset);
+		final String bapiName = cursor.readString();
+		final Class<?> associatedClass = cursor.readClass();
+		ErrorHandling errorHandling = null;
+
+		if (cursor.readVarInt() != 0) {
+			final String pathToReturnStructure = cursor.readString();
+			final int errorMessageTypeCount = cursor.readVarInt() - 1;
+			final String[] errorMessageTypes = errorMessageTypeCount < 0 ? null : new String[errorMessageTypeCount];
+
+			for (int i = 0; i < errorMessageTypeCount; i++) {
+				errorMessageTypes[i] = cursor.readString();
+			}
+
+			errorHandling = new ErrorHandling(pathToReturnStructure, errorMessageTypes);
+		}
+
+		final BapiMapping mapping = new BapiMapping(associatedClass, bapiName, errorHandling);
+
+		for (int i = cursor.readVarInt(); i > 0; i--) {
+			mapping.addImportParameter(cursor.readParameter());
+		}
+		for (int i = cursor.readVarInt(); i > 0; i--) {
+			mapping.addExportParameter(cursor.readParameter());
+		}
+		for (int i = cursor.readVarInt(); i > 0; i--) {
+			mapping.addTableParameter((TableMapping) cursor.readParameter());
+		}
+
+		return mapping;
+	}
+
+	/**
+	 * Gets a component, decoding it on first use
+	 * 
+	 * @param componentId - the component id
+	 * @return the structure or table mapping
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	private ParameterMapping getComponent(final int componentId) throws IOException {
+		ParameterMapping component = this.components[componentId];
+
+		if (component != null) {
+			return component;
+		}
+
+		final Cursor cursor = new Cursor(this.buffer.getInt(this.componentOffsets + 4 * componentId));
+		final int tag = cursor.readVarInt();
+		final Class<?> associatedType = cursor.readClass();
+		final String sapName = cursor.readString();
+		final String javaName = cursor.readString();
+		final Class<? extends Converter<?, ?>> converterClass = (Class<? extends Converter<?, ?>>) cursor
+				.readClass();
+
+		if (tag == MetadataRepositoryWriter.STRUCTURE_TAG) {
+			final StructureMapping structure = new StructureMapping(associatedType, sapName, javaName, converterClass);
+
+			for (int i = cursor.readVarInt(); i > 0; i--) {
+				structure.addParameter(cursor.readField());
+			}
+
+			component = structure;
+		} else if (tag == MetadataRepositoryWriter.TABLE_TAG) {
+			final Class<?> fieldType = cursor.readClass();
+			final StructureMapping structure = (StructureMapping) getComponent(cursor.readVarInt());
+
+			component = new TableMapping(fieldType, associatedType, sapName, javaName, structure, converterClass);
+		} else {
+			throw new IOException("Unknown component tag " + tag);
+		}
+
+		this.components[componentId] = component;
+
+		return component;
+	}
+
+	/**
+	 * Gets a string, decoding it on first use
+	 * 
+	 * @param stringId - the string id
+	 * @return the string
+	 */
+	private String getString(final int stringId) {
+		String string = this.strings[stringId];
+
+		if (string == null) {
+			final Cursor cursor = new Cursor(this.buffer.getInt(this.stringOffsets + 4 * stringId));
+			final byte[] bytes = new byte[cursor.readVarInt()];
+
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = this.buffer.get(cursor.position++);
+			}
+
+			try {
+				string = new String(bytes, "UTF-8");
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+
+			this.strings[stringId] = string;
+		}
+
+		return string;
+	}
+
+	/**
+	 * Reads values from a position of the repository without changing the position of the shared buffer
+	 * 
+	 */
+	private class Cursor {
+
+		/** The current position **/
+		private int position;
+
+		/**
+		 * Constructor - Instantiates a new Cursor
+		 * 
+		 * @param position - the start position
+		 */
+		public Cursor(final int position) {
+			this.position = position;
+		}
+
+		/**
+		 * Reads an unsigned varint
+		 * 
+		 * @return the value
+		 */
+		public int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			int b;
+
+			do {
+				b = MetadataRepository.this.buffer.get(this.position++);
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+
+			return value;
+		}
+
+		/**
+		 * Reads an interned string
+		 * 
+		 * @return the string, may be null
+		 */
+		public String readString() {
+			final int reference = readVarInt();
+
+			return reference == 0 ? null : getString(reference - 1);
+		}
+
+		/**
+		 * Reads a class name and loads the class
+		 * 
+		 * @return the class, may be null
+		 * @throws IOException - if the class does not exist
+		 */
+		public Class<?> readClass() throws IOException {
+			final String name = readString();
+
+			if (name == null) {
+				return null;
+			}
+
+			Class<?> type = MetadataRepository.this.classes.get(name);
+
+			if (type == null) {
+				type = BapiMappingCodec.loadClass(name);
+				MetadataRepository.this.classes.put(name, type);
+			}
+
+			return type;
+		}
+
+		/**
+		 * Reads a field descriptor
+		 * 
+		 * @return the field mapping
+		 * @throws IOException
+		 */
+		@SuppressWarnings("unchecked")
+		public FieldMapping readField() throws IOException {
+			final Class<?> associatedType = readClass();
+			final String sapName = readString();
+			final String javaName = readString();
+
+			return new FieldMapping(associatedType, sapName, javaName, (Class<? extends Converter<?, ?>>) readClass());
+		}
+
+		/**
+		 * Reads a parameter of a function, which is a field or a reference to a component
+		 * 
+		 * @return the parameter mapping
+		 * @throws IOException
+		 */
+		public ParameterMapping readParameter() throws IOException {
+			final int reference = readVarInt();
+
+			return reference == 0 ? readField() : getComponent(reference - 1);
+		}
+
+	}
+
+}
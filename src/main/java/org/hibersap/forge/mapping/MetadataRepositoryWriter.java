@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.mapping;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.ErrorHandling;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.ParameterMapping;
+import org.hibersap.mapping.model.ParameterMapping.ParamType;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+
+/**
+ * Writes {@link BapiMapping} trees to a metadata repository file, which is read by {@link MetadataRepository}
+ * 
+ * Names are interned in a string table. Every distinct structure or table parameter is stored once as a component
+ * and referenced by all functions using it; components are identified by their encoded content. All numbers except
+ * the offset tables are varint encoded.
+ * 
+ */
+public class MetadataRepositoryWriter {
+
+	/** The magic number at the start of a repository file ("HFMR") **/
+	final static int REPOSITORY_MAGIC = 0x48464D52;
+	/** The version of the repository file format **/
+	final static int REPOSITORY_VERSION = 1;
+	/** The component tag of a structure **/
+	final static int STRUCTURE_TAG = 1;
+	/** The component tag of a table **/
+	final static int TABLE_TAG = 2;
+
+	/** Orders fields by SAP name, so equal structures get equal content **/
+	private static final Comparator<FieldMapping> FIELD_ORDER = new Comparator<FieldMapping>() {
+
+		public int compare(final FieldMapping field1, final FieldMapping field2) {
+			return field1.getSapName().compareTo(field2.getSapName());
+		}
+	};
+
+	/** The string ids by string **/
+	private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+	/** The interned strings by id **/
+	private final List<String> strings = new ArrayList<String>();
+	/** The component ids by encoded content **/
+	private final Map<Content, Integer> componentIds = new HashMap<Content, Integer>();
+	/** The encoded components by id **/
+	private final List<byte[]> components = new ArrayList<byte[]>();
+	/** The encoded functions by function name **/
+	private final Map<String, byte[]> functions = new TreeMap<String, byte[]>();
+
+	/**
+	 * Adds the mapping of a function, replacing a previous mapping of the same function
+	 * 
+	 * @param mapping - the function mapping
+	 */
+	public void add(final BapiMapping mapping) {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final ErrorHandling errorHandling = mapping.getErrorHandling();
+
+		writeString(output, mapping.getBapiName());
+		writeClass(output, mapping.getAssociatedClass());
+
+		if (errorHandling == null) {
+			writeVarInt(output, 0);
+		} else {
+			final String[] errorMessageTypes = errorHandling.getErrorMessageTypes();
+
+			writeVarInt(output, 1);
+			writeString(output, errorHandling.getPathToReturnStructure());
+			writeVarInt(output, errorMessageTypes == null ? 0 : errorMessageTypes.length + 1);
+
+			if (errorMessageTypes != null) {
+				for (final String errorMessageType : errorMessageTypes) {
+					writeString(output, errorMessageType);
+				}
+			}
+		}
+
+		writeParameters(output, new ArrayList<ParameterMapping>(mapping.getImportParameters()));
+		writeParameters(output, new ArrayList<ParameterMapping>(mapping.getExportParameters()));
+		writeParameters(output, new ArrayList<ParameterMapping>(mapping.getTableParameters()));
+
+		this.functions.put(mapping.getBapiName(), output.toByteArray());
+	}
+
+	/**
+	 * Gets the number of functions
+	 * 
+	 * @return the number of functions
+	 */
+	public int size() {
+		return this.functions.size();
+	}
+
+	/**
+	 * Gets the number of distinct structures and tables
+	 * 
+	 * @return the number of components
+	 */
+	public int getComponentCount() {
+		return this.components.size();
+	}
+
+	/**
+	 * Writes the repository file
+	 * 
+	 * The file starts with a header and the offset tables of strings, components and functions, followed by their
+	 * data. Function names are ordered, so a function is found by binary search.
+	 * 
+	 * @param file - the repository file
+	 * @param systemKey - the key of the SAP system the metadata was read from
+	 * @param createdAt - the time the repository is created in milliseconds
+	 * @throws IOException
+	 */
+	public void write(final File file, final String systemKey, final long createdAt) throws IOException {
+		final int systemKeyId = intern(systemKey);
+		final List<byte[]> encodedStrings = new ArrayList<byte[]>(this.strings.size());
+
+		for (final String string : this.strings) {
+			final byte[] bytes = string.getBytes("UTF-8");
+			final ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length + 5);
+
+			writeVarInt(output, bytes.length);
+			output.write(bytes, 0, bytes.length);
+			encodedStrings.add(output.toByteArray());
+		}
+
+		final File fileDir = file.getAbsoluteFile().getParentFile();
+
+		if (!fileDir.exists()) {
+			fileDir.mkdirs();
+		}
+
+		final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		try {
+			outputStream.writeInt(MetadataRepositoryWriter.REPOSITORY_MAGIC);
+			outputStream.writeInt(MetadataRepositoryWriter.REPOSITORY_VERSION);
+			outputStream.writeLong(createdAt);
+			outputStream.writeInt(systemKeyId);
+			outputStream.writeInt(encodedStrings.size());
+			outputStream.writeInt(this.components.size());
+			outputStream.writeInt(this.functions.size());
+
+			final int headerSize = 32 + 4 * (encodedStrings.size() + this.components.size() + 2 * this.functions.size());
+			int offset = writeOffsets(outputStream, encodedStrings, headerSize);
+
+			offset = writeOffsets(outputStream, this.components, offset);
+
+			for (final String functionName : this.functions.keySet()) {
+				outputStream.writeInt(this.stringIds.get(functionName));
+			}
+
+			writeOffsets(outputStream, this.functions.values(), offset);
+			writeData(outputStream, encodedStrings);
+			writeData(outputStream, this.components);
+			writeData(outputStream, this.functions.values());
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Writes the parameters of a function
+	 * 
+	 * @param output - the output to write to
+	 * @param parameters - the parameters
+	 */
+	private void writeParameters(final ByteArrayOutputStream output, final List<ParameterMapping> parameters) {
+		writeVarInt(output, parameters.size());
+
+		for (final ParameterMapping parameter : parameters) {
+			if (parameter.getParamType() == ParamType.FIELD) {
+				writeVarInt(output, 0);
+				writeParameterHeader(output, parameter);
+			} else {
+				writeVarInt(output, internComponent(parameter) + 1);
+			}
+		}
+	}
+
+	/**
+	 * Interns a structure or table parameter
+	 * 
+	 * @param parameter - the structure or table parameter
+	 * @return the component id
+	 */
+	private int internComponent(final ParameterMapping parameter) {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		if (parameter.getParamType() == ParamType.STRUCTURE) {
+			final List<FieldMapping> fields = new ArrayList<FieldMapping>(((StructureMapping) parameter).getParameters());
+
+			Collections.sort(fields, MetadataRepositoryWriter.FIELD_ORDER);
+			writeVarInt(output, MetadataRepositoryWriter.STRUCTURE_TAG);
+			writeParameterHeader(output, parameter);
+			writeVarInt(output, fields.size());
+
+			for (final FieldMapping field : fields) {
+				writeParameterHeader(output, field);
+			}
+		} else {
+			final TableMapping table = (TableMapping) parameter;
+
+			writeVarInt(output, MetadataRepositoryWriter.TABLE_TAG);
+			writeParameterHeader(output, parameter);
+			writeClass(output, table.getFieldType());
+			writeVarInt(output, internComponent(table.getComponentParameter()));
+		}
+
+		final Content content = new Content(output.toByteArray());
+		final Integer componentId = this.componentIds.get(content);
+
+		if (componentId != null) {
+			return componentId;
+		}
+
+		this.componentIds.put(content, this.components.size());
+		this.components.add(content.bytes);
+
+		return this.components.size() - 1;
+	}
+
+	/**
+	 * Writes the values common to all parameters, which is the whole descriptor of a field
+	 * 
+	 * @param output - the output to write to
+	 * @param parameter - the parameter
+	 */
+	private void writeParameterHeader(final ByteArrayOutputStream output, final ParameterMapping parameter) {
+		writeClass(output, parameter.getAssociatedType());
+		writeString(output, parameter.getSapName());
+		writeString(output, parameter.getJavaName());
+		writeClass(output, parameter.getConverterClass());
+	}
+
+	/**
+	 * Writes a class as interned name
+	 * 
+	 * @param output - the output to write to
+	 * @param type - the class, may be null
+	 */
+	private void writeClass(final ByteArrayOutputStream output, final Class<?> type) {
+		writeString(output, type == null ? null : type.getName());
+	}
+
+	/**
+	 * Writes an interned string as its id + 1, 0 for null
+	 * 
+	 * @param output - the output to write to
+	 * @param value - the string, may be null
+	 */
+	private void writeString(final ByteArrayOutputStream output, final String value) {
+		writeVarInt(output, value == null ? 0 : intern(value) + 1);
+	}
+
+	/**
+	 * Interns a string
+	 * 
+	 * @param value - the string
+	 * @return the string id
+	 */
+	private int intern(final String value) {
+		final Integer stringId = this.stringIds.get(value);
+
+		if (stringId != null) {
+			return stringId;
+		}
+
+		this.stringIds.put(value, this.strings.size());
+		this.strings.add(value);
+
+		return this.strings.size() - 1;
+	}
+
+	/**
+	 * Writes an unsigned varint, 7 bits per byte starting with the lowest bits
+	 * 
+	 * @param output - the output to write to
+	 * @param value - the value, not negative
+	 */
+	static void writeVarInt(final ByteArrayOutputStream output, final int value) {
+		int remaining = value;
+
+		while ((remaining & ~0x7F) != 0) {
+			output.write((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+
+		output.write(remaining);
+	}
+
+	/**
+	 * Writes the offsets of data blocks
+	 * 
+	 * @param outputStream - the output stream
+	 * @param blocks - the data blocks
+	 * @param startOffset - the offset of the first block
+	 * @return the offset behind the last block
+	 * @throws IOException
+	 */
+	private static int writeOffsets(final DataOutputStream outputStream, final Iterable<byte[]> blocks,
+			final int startOffset) throws IOException {
+		int offset = startOffset;
+
+		for (final byte[] block : blocks) {
+			outputStream.writeInt(offset);
+			offset += block.length;
+		}
+
+		return offset;
+	}
+
+	/**
+	 * Writes data blocks
+	 * 
+	 * @param outputStream - the output stream
+	 * @param blocks - the data blocks
+	 * @throws IOException
+	 */
+	private static void writeData(final DataOutputStream outputStream, final Iterable<byte[]> blocks)
+			throws IOException {
+		for (final byte[] block : blocks) {
+			outputStream.write(block);
+		}
+	}
+
+	/**
+	 * The encoded content of a component, usable as hash key
+	 * 
+	 */
+	private static class Content {
+
+		/** The encoded content **/
+		private final byte[] bytes;
+		/** The hash of the content **/
+		private final int hash;
+
+		/**
+		 * Constructor - Instantiates a new Content
+		 * 
+		 * @param bytes - the encoded content
+		 */
+		public Content(final byte[] bytes) {
+			this.bytes = bytes;
+			this.hash = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof Content && Arrays.equals(this.bytes, ((Content) obj).bytes);
+		}
+
+	}
+
+}
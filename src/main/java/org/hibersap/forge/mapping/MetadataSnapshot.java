@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.mapping;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.hibersap.HibersapException;
+import org.hibersap.forge.sap.SAPLikePattern;
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
+import org.hibersap.mapping.model.BapiMapping;
+
+/**
+ * A recorded snapshot of SAP function metadata
+ * 
+ * A snapshot holds the mappings of chosen functions of one SAP system, so entities can be generated without a
+ * connection to the SAP system, e.g. on build agents or in tests. The snapshot file is a gzipped sequence of
+ * {@link BapiMappingCodec} entries behind a versioned header.
+ * 
+ */
+public class MetadataSnapshot implements MetadataSource {
+
+	/** The magic number at the start of a snapshot file ("HFSS") **/
+	private final static int SNAPSHOT_MAGIC = 0x48465353;
+	/** The version of the snapshot file format **/
+	private final static int SNAPSHOT_VERSION = 1;
+
+	/** The key of the SAP system the metadata was read from **/
+	private final String systemKey;
+	/** The time the snapshot was created in milliseconds **/
+	private final long createdAt;
+	/** The function mappings by function name **/
+	private final Map<String, BapiMapping> mappings = new TreeMap<String, BapiMapping>();
+
+	/**
+	 * Constructor - Instantiates a new, empty MetadataSnapshot
+	 * 
+	 * @param systemKey - the key of the SAP system the metadata is read from
+	 * @param createdAt - the time the snapshot is created in milliseconds
+	 */
+	public MetadataSnapshot(final String systemKey, final long createdAt) {
+		this.systemKey = systemKey;
+		this.createdAt = createdAt;
+	}
+
+	/**
+	 * Adds the mapping of a function, replacing a previous mapping of the same function
+	 * 
+	 * @param mapping - the function mapping
+	 */
+	public void put(final BapiMapping mapping) {
+		this.mappings.put(mapping.getBapiName(), mapping);
+	}
+
+	/**
+	 * Gets the mapping of a function
+	 * 
+	 * @param functionName - the function name
+	 * @return the mapping, null if the function is not part of the snapshot
+	 */
+	public BapiMapping get(final String functionName) {
+		return this.mappings.get(functionName);
+	}
+
+	/**
+	 * Gets the mapping of a function
+	 * 
+	 * @param functionName - the function name
+	 * @return the mapping
+	 * @throws HibersapException - if the function is not part of the snapshot
+	 */
+	public BapiMapping map(final String functionName) {
+		final FlightEvent event = FlightEvents.METADATA_FETCH.begin();
+		final BapiMapping mapping = this.mappings.get(functionName);
+
+		if (mapping == null) {
+			throw new HibersapException("Function " + functionName + " is not part of the metadata snapshot");
+		}
+
+		event.set("function", functionName).set("source", "snapshot").commit();
+
+		return mapping;
+	}
+
+	/**
+	 * Gets the names of the functions matching one of the given name patterns
+	 * 
+	 * @param namePatterns - the name patterns with * and ? as wildcards. If empty, all function names are returned.
+	 * @return the sorted function names
+	 */
+	public List<String> getFunctionNames(final Collection<String> namePatterns) {
+		return filterFunctionNames(this.mappings.keySet(), namePatterns);
+	}
+
+	/**
+	 * Gets the number of functions in the snapshot
+	 * 
+	 * @return the number of functions
+	 */
+	public int size() {
+		return this.mappings.size();
+	}
+
+	/**
+	 * Gets the key of the SAP system the metadata was read from
+	 * 
+	 * @return the system key
+	 */
+	public String getSystemKey() {
+		return this.systemKey;
+	}
+
+	/**
+	 * Gets the time the snapshot was created
+	 * 
+	 * @return the creation time in milliseconds
+	 */
+	public long getCreatedAt() {
+		return this.createdAt;
+	}
+
+	/**
+	 * Writes the snapshot to a file
+	 * 
+	 * @param file - the snapshot file
+	 * @throws IOException
+	 */
+	public void write(final File file) throws IOException {
+		final File fileDir = file.getAbsoluteFile().getParentFile();
+
+		if (!fileDir.exists()) {
+			fileDir.mkdirs();
+		}
+
+		final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(file))));
+
+		try {
+			outputStream.writeInt(MetadataSnapshot.SNAPSHOT_MAGIC);
+			outputStream.writeInt(MetadataSnapshot.SNAPSHOT_VERSION);
+			outputStream.writeUTF(this.systemKey);
+			outputStream.writeLong(this.createdAt);
+			outputStream.writeInt(this.mappings.size());
+
+			for (final BapiMapping mapping : this.mappings.values()) {
+				BapiMappingCodec.write(outputStream, mapping);
+			}
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Reads a snapshot from a file
+	 * 
+	 * @param file - the snapshot file
+	 * @return the snapshot
+	 * @throws IOException - if the file cannot be read or is no snapshot of a supported version
+	 */
+	public static MetadataSnapshot read(final File file) throws IOException {
+		final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+				new FileInputStream(file))));
+
+		try {
+			if (inputStream.readInt() != MetadataSnapshot.SNAPSHOT_MAGIC) {
+				throw new IOException(file + " is no metadata snapshot");
+			}
+
+			final int version = inputStream.readInt();
+
+			if (version != MetadataSnapshot.SNAPSHOT_VERSION) {
+				throw new IOException("Unsupported version " + version + " of metadata snapshot " + file);
+			}
+
+			final MetadataSnapshot snapshot = new MetadataSnapshot(inputStream.readUTF(), inputStream.readLong());
+			final int size = inputStream.readInt();
+
+			for (int i = 0; i < size; i++) {
+				snapshot.put(BapiMappingCodec.read(inputStream));
+			}
+
+			return snapshot;
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Filters function names by name patterns
+	 * 
+	 * @param functionNames - the function names
+	 * @param namePatterns - the name patterns with * and ? as wildcards. If empty, all function names are returned.
+	 * @return the matching function names in the order of the given names
+	 */
+	static List<String> filterFunctionNames(final Iterable<String> functionNames, final Collection<String> namePatterns) {
+		final List<SAPLikePattern> patterns = new ArrayList<SAPLikePattern>();
+
+		for (final String namePattern : namePatterns) {
+			patterns.add(new SAPLikePattern(namePattern));
+		}
+
+		final List<String> matchingNames = new ArrayList<String>();
+
+		for (final String functionName : functionNames) {
+			if (patterns.isEmpty() || matchesAny(patterns, functionName)) {
+				matchingNames.add(functionName);
+			}
+		}
+
+		return matchingNames;
+	}
+
+	/**
+	 * Checks if a function name matches one of the given patterns
+	 * 
+	 * @param patterns - the patterns
+	 * @param functionName - the function name
+	 * @return true if a pattern matches, false otherwise
+	 */
+	private static boolean matchesAny(final List<SAPLikePattern> patterns, final String functionName) {
+		for (final SAPLikePattern pattern : patterns) {
+			if (pattern.matches(functionName)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+}
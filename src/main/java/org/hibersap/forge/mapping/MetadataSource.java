@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.mapping;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.hibersap.forge.sap.FunctionMapper;
+import org.hibersap.mapping.model.BapiMapping;
+
+/**
+ * A recorded source of SAP function metadata, which answers without a connection to the SAP system
+ * 
+ */
+public interface MetadataSource extends FunctionMapper {
+
+	/**
+	 * Gets the mapping of a function
+	 * 
+	 * @param functionName - the function name
+	 * @return the mapping
+	 * @throws org.hibersap.HibersapException - if the function is not part of the source
+	 */
+	BapiMapping map(String functionName);
+
+	/**
+	 * Gets the names of the functions matching one of the given name patterns
+	 * 
+	 * @param namePatterns - the name patterns with * and ? as wildcards. If empty, all function names are returned.
+	 * @return the sorted function names
+	 */
+	List<String> getFunctionNames(Collection<String> namePatterns);
+
+	/**
+	 * Gets the number of functions
+	 * 
+	 * @return the number of functions
+	 */
+	int size();
+
+	/**
+	 * Gets the key of the SAP system the metadata was read from
+	 * 
+	 * @return the system key
+	 */
+	String getSystemKey();
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibersap.HibersapException;
+import org.jboss.forge.parser.JavaParser;
+import org.jboss.forge.parser.java.Field;
+import org.jboss.forge.parser.java.JavaClass;
+import org.jboss.forge.parser.java.util.Refactory;
+import org.jboss.forge.parser.java.util.Strings;
+
+/**
+ * Adds the getters, setters and toString() of a class in a single pass over its fields
+ * 
+ * The methods are the same as created by {@link Refactory#createGetterAndSetter(JavaClass, Field)} and
+ * {@link Refactory#createToStringFromFields(JavaClass)}. Refactory adds every method to the syntax tree of the class,
+ * which records each change and looks up the field and all methods again, so building a class with n fields takes
+ * quadratic time. The generator instead writes the methods as source, inserts the accessors of every field after its
+ * declaration and parses the complete class once, which takes linear time.
+ * 
+ */
+public class AccessorGenerator {
+
+	/** The class **/
+	private final JavaClass javaClass;
+	/** The source of the accessors by field name, in the order of the fields **/
+	private final Map<String, String> accessorSources = new LinkedHashMap<String, String>();
+	/** The statements of toString() **/
+	private final StringBuilder toStringBody = new StringBuilder();
+
+	/**
+	 * Constructor - Instantiates a new AccessorGenerator
+	 * 
+	 * @param javaClass - the class
+	 */
+	public AccessorGenerator(final JavaClass javaClass) {
+		this.javaClass = javaClass;
+	}
+
+	/**
+	 * Adds a getter and, if the field is not final, a setter for the given field and adds the field to toString()
+	 * 
+	 * @param field - the field, must belong to the class
+	 */
+	public void addAccessors(final Field<JavaClass> field) {
+		final String name = field.getName();
+		final String capitalizedName = Strings.capitalize(name);
+		final String type = field.getTypeInspector().toString();
+		final boolean first = this.accessorSources.isEmpty();
+		final StringBuilder accessors = new StringBuilder(256);
+
+		accessors.append("\n\n\tpublic ").append(type).append(" get").append(capitalizedName)
+				.append("() {\n\t\treturn this.").append(name).append(";\n\t}");
+
+		if (!field.isFinal()) {
+			accessors.append("\n\n\tpublic void set").append(capitalizedName).append("(final ").append(type)
+					.append(' ').append(name).append(") {\n\t\tthis.").append(name).append(" = ").append(name)
+					.append(";\n\t}");
+		}
+
+		this.accessorSources.put(name, accessors.append('\n').toString());
+
+		//Same statements as Refactory.createToStringFromFields()
+		if (!field.isPrimitive()) {
+			if (field.isType(String.class)) {
+				this.toStringBody.append("\t\tif (").append(name).append(" != null && !").append(name)
+						.append(".trim().isEmpty())\n\t");
+			} else {
+				this.toStringBody.append("\t\tif (").append(name).append(" != null)\n\t");
+			}
+		}
+
+		this.toStringBody.append("\t\tresult += ").append(first ? "" : "\" \" + ")
+				.append(name).append(";\n");
+	}
+
+	/**
+	 * Generates the class with the accessors of all fields passed to {@link #addAccessors(Field)} and toString()
+	 * 
+	 * @return the generated class, replacing the given class
+	 */
+	public JavaClass generate() {
+		final String source = this.javaClass.toString();
+		final StringBuilder generated = new StringBuilder(source.length() + this.accessorSources.size() * 256
+				+ this.toStringBody.length() + 128);
+		int classEnd = source.lastIndexOf('}');
+		int position = 0;
+
+		while (Character.isWhitespace(source.charAt(classEnd - 1))) {
+			classEnd--;
+		}
+
+		for (final Map.Entry<String, String> accessors : this.accessorSources.entrySet()) {
+			final String declaration = " " + accessors.getKey() + ";";
+			final int declarationStart = source.indexOf(declaration, position);
+
+			if (declarationStart < 0) {
+				throw new HibersapException("Field " + accessors.getKey() + " not found in class "
+						+ this.javaClass.getQualifiedName());
+			}
+
+			final int declarationEnd = declarationStart + declaration.length();
+
+			generated.append(source, position, declarationEnd).append(accessors.getValue());
+			position = declarationEnd;
+			//The next member follows on the next line, separated by an empty line like the other methods
+			while (position < classEnd && (source.charAt(position) == '\n' || source.charAt(position) == '\r')) {
+				position++;
+			}
+			generated.append(position < classEnd ? "\n" : "");
+		}
+
+		generated.append(source, position, classEnd);
+		generated.append(generated.charAt(generated.length() - 1) == '\n' ? "\n" : "\n\n");
+		generated.append("\tpublic String toString() {\n\t\tString result = \"\";\n").append(this.toStringBody)
+				.append("\t\treturn result;\n\t} }");
+
+		return JavaParser.parse(JavaClass.class, generated.toString());
+	}
+
+}
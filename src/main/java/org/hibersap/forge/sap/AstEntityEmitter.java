@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import org.hibersap.mapping.model.BapiMapping;
+
+/**
+ * Emits the sources of a SAP entity by building the classes with {@link SAPEntityBuilder}
+ * 
+ */
+public class AstEntityEmitter implements EntityEmitter {
+
+	/** The registry of shared structure classes, null to create the structure classes of every entity **/
+	private final StructureRegistry structureRegistry;
+	/** The max. number of structure classes of an entity built at the same time **/
+	private final int parallelism;
+	/** True to add a mapping descriptor class to the entities **/
+	private final boolean mappingDescriptors;
+
+	/**
+	 * Constructor - Instantiates a new AstEntityEmitter building the structure classes one after the other
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 */
+	public AstEntityEmitter(final StructureRegistry structureRegistry) {
+		this(structureRegistry, 1);
+	}
+
+	/**
+	 * Constructor - Instantiates a new AstEntityEmitter
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 * @param parallelism - the max. number of structure classes of an entity built at the same time
+	 */
+	public AstEntityEmitter(final StructureRegistry structureRegistry, final int parallelism) {
+		this(structureRegistry, parallelism, false);
+	}
+
+	/**
+	 * Constructor - Instantiates a new AstEntityEmitter, optionally adding a mapping descriptor class to the entities
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 * @param parallelism - the max. number of structure classes of an entity built at the same time
+	 * @param mappingDescriptors - true to add a mapping descriptor class to the entities, see
+	 *            {@link MappingDescriptorGenerator}
+	 */
+	public AstEntityEmitter(final StructureRegistry structureRegistry, final int parallelism,
+			final boolean mappingDescriptors) {
+		this.structureRegistry = structureRegistry;
+		this.parallelism = parallelism;
+		this.mappingDescriptors = mappingDescriptors;
+	}
+
+	public SAPEntitySource emit(final String className, final String javaPackage, final BapiMapping functionMapping) {
+		final SAPEntityBuilder sapEntityBuilder = new SAPEntityBuilder(this.structureRegistry, this.parallelism, false,
+				this.mappingDescriptors);
+
+		sapEntityBuilder.createNew(className, javaPackage, functionMapping);
+
+		return SAPEntitySource.of(sapEntityBuilder.getSAPEntity());
+	}
+
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hibersap.HibersapException;
+import org.hibersap.forge.mapping.MappingFingerprint;
+import org.hibersap.forge.util.Utils;
+import org.hibersap.mapping.model.BapiMapping;
+
+/**
+ * Generates the SAP entities of many functions at the same time
+ * 
+ * Every function is mapped and emitted into a {@link SAPEntitySource} on a worker thread. The number of worker threads
+ * is limited by the given pool size, which should not exceed the JCo destination pool capacity. Functions which can
+ * not be mapped are reported as failures without stopping the other functions.
+ * 
+ */
+public class BulkEntityGenerator {
+
+	/** The mapper reading the function metadata **/
+	private final FunctionMapper functionMapper;
+	/** The Java package of the generated classes **/
+	private final String javaPackage;
+	/** The max. number of concurrently generated entities **/
+	private final int poolSize;
+	/** The emitter of the entity sources **/
+	private final EntityEmitter entityEmitter;
+
+	/**
+	 * Constructor - creates an instance of BulkEntityGenerator
+	 * 
+	 * @param functionMapper - The mapper reading the function metadata
+	 * @param javaPackage - The Java package of the generated classes
+	 * @param poolSize - Sets the max. number of concurrently generated entities
+	 */
+	public BulkEntityGenerator(final FunctionMapper functionMapper, final String javaPackage, final int poolSize) {
+		this(functionMapper, javaPackage, poolSize, new AstEntityEmitter(null));
+	}
+
+	/**
+	 * Constructor - creates an instance of BulkEntityGenerator sharing structure classes between the entities
+	 * 
+	 * @param functionMapper - The mapper reading the function metadata
+	 * @param javaPackage - The Java package of the generated classes
+	 * @param poolSize - Sets the max. number of concurrently generated entities
+	 * @param structureRegistry - The registry of shared structure classes. Use null to create the structure classes of
+	 *            every entity.
+	 */
+	public BulkEntityGenerator(final FunctionMapper functionMapper, final String javaPackage, final int poolSize,
+			final StructureRegistry structureRegistry) {
+		this(functionMapper, javaPackage, poolSize, new AstEntityEmitter(structureRegistry));
+	}
+
+	/**
+	 * Constructor - creates an instance of BulkEntityGenerator with the given emitter
+	 * 
+	 * @param functionMapper - The mapper reading the function metadata
+	 * @param javaPackage - The Java package of the generated classes
+	 * @param poolSize - Sets the max. number of concurrently generated entities
+	 * @param entityEmitter - The emitter of the entity sources, see {@link EmitterType}
+	 */
+	public BulkEntityGenerator(final FunctionMapper functionMapper, final String javaPackage, final int poolSize,
+			final EntityEmitter entityEmitter) {
+		this.functionMapper = functionMapper;
+		this.javaPackage = javaPackage;
+		this.poolSize = Math.max(1, poolSize);
+		this.entityEmitter = entityEmitter;
+	}
+
+	/**
+	 * Generates the SAP entities of the given functions
+	 * 
+	 * The class names are derived from the function names without namespace, e.g. BapiPoCreate1 for BAPI_PO_CREATE1
+	 * or /ABC/BAPI_PO_CREATE1. A function whose class name is taken by a function before it (e.g. /ABC/BAPI_READ and
+	 * BAPI_READ) is reported as failure instead of overwriting the class.
+	 * 
+	 * @param functionNames - the function names
+	 * @return the generated entities and the failures
+	 */
+	public Result generate(final List<String> functionNames) {
+		final List<String> taskFunctionNames = new ArrayList<String>();
+		final List<Callable<Generation>> tasks = new ArrayList<Callable<Generation>>();
+		final Map<String, String> classFunctionNames = new HashMap<String, String>();
+		final Result result = new Result();
+
+		for (final String functionName : functionNames) {
+			final String className = Utils.toCamelCase(functionName.substring(functionName.lastIndexOf('/') + 1), '_');
+			final String bapiClassName = this.javaPackage.isEmpty() ? className : this.javaPackage + "." + className;
+			//Class names differing in case only are the same file on some file systems
+			final String classKey = bapiClassName.toUpperCase();
+			final String otherFunctionName = classFunctionNames.get(classKey);
+
+			if (otherFunctionName != null) {
+				//The same function given twice is generated once
+				if (!otherFunctionName.equals(functionName)) {
+					result.failures.put(functionName, new HibersapException("Class " + bapiClassName
+							+ " is already generated for function " + otherFunctionName));
+				}
+				continue;
+			}
+
+			classFunctionNames.put(classKey, functionName);
+			taskFunctionNames.add(functionName);
+			tasks.add(createTask(functionName, bapiClassName, null));
+		}
+
+		return execute(taskFunctionNames, tasks, result);
+	}
+
+	/**
+	 * Regenerates the SAP entities whose function interface changed since they were generated
+	 * 
+	 * Every function is mapped and its fingerprint (see {@link MappingFingerprint}) is compared to the fingerprint
+	 * at generation time. Only entities with a changed fingerprint are built again, keeping their class names.
+	 * 
+	 * @param functionNames - the function names by qualified BAPI class name
+	 * @param fingerprints - the fingerprints at generation time by qualified BAPI class name. Entities without
+	 *            fingerprint are always regenerated.
+	 * @return the regenerated entities, the unchanged entities and the failures
+	 */
+	public Result regenerate(final Map<String, String> functionNames, final Map<String, String> fingerprints) {
+		final List<String> taskFunctionNames = new ArrayList<String>();
+		final List<Callable<Generation>> tasks = new ArrayList<Callable<Generation>>();
+
+		for (final Map.Entry<String, String> functionName : functionNames.entrySet()) {
+			taskFunctionNames.add(functionName.getValue());
+			tasks.add(createTask(functionName.getValue(), functionName.getKey(), fingerprints.get(functionName.getKey())));
+		}
+
+		return execute(taskFunctionNames, tasks, new Result());
+	}
+
+	/**
+	 * Executes generation tasks on the worker threads
+	 * 
+	 * @param functionNames - the function names of the tasks
+	 * @param tasks - the tasks
+	 * @param result - the result to add the outcome of the tasks to
+	 * @return the result
+	 */
+	private Result execute(final List<String> functionNames, final List<Callable<Generation>> tasks,
+			final Result result) {
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.poolSize,
+				Math.max(1, tasks.size())));
+		final List<Future<Generation>> futures = new ArrayList<Future<Generation>>();
+
+		try {
+			for (final Callable<Generation> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					final Generation generation = futures.get(i).get();
+
+					if (generation.entity == null) {
+						result.unchanged.add(generation.bapiClassName);
+					} else {
+						result.entities.add(generation.entity);
+						result.functionNames.put(generation.bapiClassName, functionNames.get(i));
+						result.fingerprints.put(generation.bapiClassName, generation.fingerprint);
+					}
+				} catch (final ExecutionException e) {
+					result.failures.put(functionNames.get(i), e.getCause());
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HibersapException("Bulk generation interrupted", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Creates the task generating the entity of one function
+	 * 
+	 * @param functionName - the function name
+	 * @param bapiClassName - the qualified name of the BAPI class
+	 * @param fingerprint - the fingerprint at generation time, null to generate the entity in any case
+	 * @return the task
+	 */
+	private Callable<Generation> createTask(final String functionName, final String bapiClassName,
+			final String fingerprint) {
+		return new Callable<Generation>() {
+
+			public Generation call() throws Exception {
+				final BapiMapping functionMapping = BulkEntityGenerator.this.functionMapper.map(functionName);
+				final String currentFingerprint = MappingFingerprint.of(functionMapping);
+
+				if (currentFingerprint.equals(fingerprint)) {
+					return new Generation(null, bapiClassName, currentFingerprint);
+				}
+
+				final int packageEnd = bapiClassName.lastIndexOf('.');
+				final SAPEntitySource entity = BulkEntityGenerator.this.entityEmitter.emit(
+						bapiClassName.substring(packageEnd + 1), bapiClassName.substring(0, Math.max(0, packageEnd)),
+						functionMapping);
+
+				return new Generation(entity, entity.getBapiClassName(), currentFingerprint);
+			}
+		};
+	}
+
+	/**
+	 * The outcome of the generation task of one function
+	 * 
+	 */
+	private static class Generation {
+
+		/** The generated entity, null if the entity is unchanged **/
+		private final SAPEntitySource entity;
+		/** The qualified name of the BAPI class **/
+		private final String bapiClassName;
+		/** The fingerprint of the function mapping **/
+		private final String fingerprint;
+
+		/**
+		 * Constructor - Instantiates a new Generation
+		 * 
+		 * @param entity - the generated entity, null if the entity is unchanged
+		 * @param bapiClassName - the qualified name of the BAPI class
+		 * @param fingerprint - the fingerprint of the function mapping
+		 */
+		public Generation(final SAPEntitySource entity, final String bapiClassName, final String fingerprint) {
+			this.entity = entity;
+			this.bapiClassName = bapiClassName;
+			this.fingerprint = fingerprint;
+		}
+
+	}
+
+	/**
+	 * The result of a bulk generation
+	 * 
+	 */
+	public static class Result {
+
+		/** The generated entities in the order of the function names **/
+		private final List<SAPEntitySource> entities = new ArrayList<SAPEntitySource>();
+		/** The failures by function name **/
+		private final Map<String, Throwable> failures = new LinkedHashMap<String, Throwable>();
+		/** The function names of the generated entities by qualified BAPI class name **/
+		private final Map<String, String> functionNames = new LinkedHashMap<String, String>();
+		/** The fingerprints of the generated entities by qualified BAPI class name **/
+		private final Map<String, String> fingerprints = new LinkedHashMap<String, String>();
+		/** The qualified BAPI class names of the unchanged entities **/
+		private final List<String> unchanged = new ArrayList<String>();
+
+		/**
+		 * Gets the generated entities
+		 * 
+		 * @return the entities in the order of the function names
+		 */
+		public List<SAPEntitySource> getEntities() {
+			return this.entities;
+		}
+
+		/**
+		 * Gets the functions which could not be generated
+		 * 
+		 * @return the failures by function name
+		 */
+		public Map<String, Throwable> getFailures() {
+			return this.failures;
+		}
+
+		/**
+		 * Gets the function names of the generated entities
+		 * 
+		 * @return the function names by qualified BAPI class name
+		 */
+		public Map<String, String> getFunctionNames() {
+			return this.functionNames;
+		}
+
+		/**
+		 * Gets the fingerprints of the generated entities
+		 * 
+		 * @return the fingerprints by qualified BAPI class name
+		 */
+		public Map<String, String> getFingerprints() {
+			return this.fingerprints;
+		}
+
+		/**
+		 * Gets the entities which were not regenerated, because the interface of their function did not change
+		 * 
+		 * @return the qualified BAPI class names
+		 */
+		public List<String> getUnchanged() {
+			return this.unchanged;
+		}
+
+	}
+
+}
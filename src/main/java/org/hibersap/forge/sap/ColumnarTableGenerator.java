@@ -0,0 +1,466 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.ParameterMapping;
+
+/**
+ * Generates the sources of a columnar table class for a table parameter
+ * 
+ * The table class keeps the rows in one array per column instead of one object per row, so a table of n rows needs
+ * one array per column instead of n row objects. Rows are read by index or with a reusable cursor class. A Hibersap
+ * converter class converts between the table class and the list of row maps the Hibersap JCo adapter passes for a
+ * table, so the table parameter is annotated with <code>@Convert(converter = ClassNameConverter.class)</code>. With a
+ * compact type mapping the columns are primitive arrays, converted with the converters of their compact types.
+ * 
+ * The three classes are top-level classes of the same package, as the Forge Java parser does not support nested
+ * classes. The cursor and the converter access the columns directly.
+ * 
+ */
+public class ColumnarTableGenerator {
+
+	/** The Java package **/
+	private final String javaPackage;
+	/** The class name of the table class **/
+	private final String className;
+	/** The table parameter **/
+	private final ParameterMapping tableMapping;
+	/** The compact type mapping of the function, null for the standard type mapping **/
+	private final CompactTypeMapping compactTypes;
+	/** The columns, ordered by SAP name **/
+	private final List<Column> columns = new ArrayList<Column>();
+
+	/**
+	 * Constructor - Instantiates a new ColumnarTableGenerator
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param className - the class name of the table class
+	 * @param tableMapping - the table parameter
+	 * @param compactTypes - the compact type mapping of the function, null for the standard type mapping
+	 */
+	public ColumnarTableGenerator(final String javaPackage, final String className, final ParameterMapping tableMapping,
+			final CompactTypeMapping compactTypes) {
+		this.javaPackage = javaPackage;
+		this.className = className;
+		this.tableMapping = tableMapping;
+		this.compactTypes = compactTypes;
+	}
+
+	/**
+	 * Gets the class name of the cursor of a table class
+	 * 
+	 * @param className - the simple class name of the table class
+	 * @return the simple class name of the cursor, e.g. EtItemsTableCursor
+	 */
+	public static String getCursorClassName(final String className) {
+		return className + "Cursor";
+	}
+
+	/**
+	 * Gets the class name of the converter of a table class
+	 * 
+	 * @param className - the simple class name of the table class
+	 * @return the simple class name of the converter, e.g. EtItemsTableConverter
+	 */
+	public static String getConverterClassName(final String className) {
+		return className + "Converter";
+	}
+
+	/**
+	 * Generates the sources of the table, cursor and converter class
+	 * 
+	 * @return the sources by simple class name, the table class first
+	 */
+	public Map<String, String> createSources() {
+		this.columns.clear();
+
+		for (final FieldMapping fieldMapping : SAPEntityBuilder.sortBySapName(SAPEntityBuilder
+				.getFieldMappings(this.tableMapping))) {
+			this.columns.add(createColumn(fieldMapping));
+		}
+
+		final Map<String, String> sources = new LinkedHashMap<String, String>();
+
+		sources.put(this.className, createTableSource());
+		sources.put(getCursorClassName(this.className), createCursorSource());
+		sources.put(getConverterClassName(this.className), createConverterSource());
+
+		return sources;
+	}
+
+	/**
+	 * Creates the column of a field
+	 * 
+	 * @param fieldMapping - the field
+	 * @return the column
+	 */
+	private Column createColumn(final FieldMapping fieldMapping) {
+		final String sapName = fieldMapping.getSapName();
+		final CompactType compactType = this.compactTypes == null ? null : this.compactTypes.getCompactType(
+				this.tableMapping.getSapName(), sapName);
+
+		if (compactType == null) {
+			return new Column(sapName, fieldMapping.getJavaName(), fieldMapping.getAssociatedType(), null, null, null);
+		}
+
+		final int decimals = this.compactTypes.getFieldType(this.tableMapping.getSapName(), sapName).getDecimals();
+
+		return new Column(sapName, fieldMapping.getJavaName(), null, compactType.getJavaType(),
+				compactType.getConverterClassName(decimals), compactType == CompactType.SCALED_LONG ? BigDecimal.class
+						: String.class);
+	}
+
+	/**
+	 * Creates the source of the table class
+	 * 
+	 * @return the source
+	 */
+	private String createTableSource() {
+		final Set<String> imports = new TreeSet<String>();
+		final StringBuilder body = new StringBuilder(2048 + this.columns.size() * 512);
+
+		imports.add(Arrays.class.getName());
+		body.append("\n/**\n * The rows of table parameter ").append(this.tableMapping.getSapName())
+				.append(", stored column by column\n */\n");
+		body.append("public class ").append(this.className).append(" {\n\n");
+		body.append("\tprivate int size;\n\n");
+		body.append("\tprivate int capacity;\n");
+
+		for (final Column column : this.columns) {
+			body.append("\n\t").append(column.getTypeName(imports)).append("[] ").append(column.name).append(";\n");
+		}
+
+		body.append("\n\tpublic ").append(this.className).append("() {\n\t\tthis(16);\n\t}\n");
+		body.append("\n\tpublic ").append(this.className).append("(final int capacity) {\n");
+		body.append("\t\tthis.capacity = Math.max(1, capacity);\n");
+
+		for (final Column column : this.columns) {
+			body.append("\t\tthis.").append(column.name).append(" = ")
+					.append(newArray(column.getTypeName(imports), "this.capacity")).append(";\n");
+		}
+
+		body.append("\t}\n");
+		body.append("\n\tpublic int size() {\n\t\treturn this.size;\n\t}\n");
+		body.append("\n\tpublic int addRow() {\n");
+		body.append("\t\tif (this.size == this.capacity) {\n");
+		body.append("\t\t\tthis.capacity *= 2;\n");
+
+		for (final Column column : this.columns) {
+			body.append("\t\t\tthis.").append(column.name).append(" = Arrays.copyOf(this.").append(column.name)
+					.append(", this.capacity);\n");
+		}
+
+		body.append("\t\t}\n\t\treturn this.size++;\n\t}\n");
+		body.append("\n\tpublic ").append(getCursorClassName(this.className)).append(" cursor() {\n\t\treturn new ")
+				.append(getCursorClassName(this.className)).append("(this);\n\t}\n");
+
+		for (final Column column : this.columns) {
+			final String type = column.getTypeName(imports);
+
+			body.append("\n\tpublic ").append(type).append(" get").append(column.getCapitalizedName())
+					.append("(final int row) {\n\t\treturn this.").append(column.name).append("[checkRow(row)];\n\t}\n");
+			body.append("\n\tpublic void set").append(column.getCapitalizedName()).append("(final int row, final ")
+					.append(type).append(' ').append(column.name).append(") {\n\t\tthis.").append(column.name)
+					.append("[checkRow(row)] = ").append(column.name).append(";\n\t}\n");
+		}
+
+		body.append("\n\tint checkRow(final int row) {\n");
+		body.append("\t\tif (row < 0 || row >= this.size) {\n");
+		body.append("\t\t\tthrow new IndexOutOfBoundsException(\"Row \" + row + \", size \" + this.size);\n");
+		body.append("\t\t}\n\t\treturn row;\n\t}\n");
+		body.append("\n\tpublic String toString() {\n\t\treturn \"").append(this.className)
+				.append("[\" + this.size + \" rows]\";\n\t}\n\n}\n");
+
+		return createHeader(imports) + body;
+	}
+
+	/**
+	 * Creates the source of the cursor class
+	 * 
+	 * @return the source
+	 */
+	private String createCursorSource() {
+		final String cursorClassName = getCursorClassName(this.className);
+		final Set<String> imports = new TreeSet<String>();
+		final StringBuilder body = new StringBuilder(1024 + this.columns.size() * 128);
+
+		body.append("\n/**\n * A cursor over the rows of table class ").append(this.className)
+				.append(", reusable with reset() or moveTo()\n */\n");
+		body.append("public class ").append(cursorClassName).append(" {\n\n");
+		body.append("\tprivate final ").append(this.className).append(" table;\n\n");
+		body.append("\tprivate int row = -1;\n\n");
+		body.append("\tpublic ").append(cursorClassName).append("(final ").append(this.className)
+				.append(" table) {\n\t\tthis.table = table;\n\t}\n\n");
+		body.append("\tpublic boolean next() {\n");
+		body.append("\t\tif (this.row + 1 < this.table.size()) {\n\t\t\tthis.row++;\n\t\t\treturn true;\n\t\t}\n");
+		body.append("\t\treturn false;\n\t}\n\n");
+		body.append("\tpublic void moveTo(final int row) {\n\t\tthis.row = this.table.checkRow(row);\n\t}\n\n");
+		body.append("\tpublic void reset() {\n\t\tthis.row = -1;\n\t}\n\n");
+		body.append("\tpublic int getRow() {\n\t\treturn this.row;\n\t}\n");
+
+		for (final Column column : this.columns) {
+			body.append("\n\tpublic ").append(column.getTypeName(imports)).append(" get")
+					.append(column.getCapitalizedName()).append("() {\n\t\treturn this.table.").append(column.name)
+					.append("[this.row];\n\t}\n");
+		}
+
+		body.append("\n}\n");
+
+		return createHeader(imports) + body;
+	}
+
+	/**
+	 * Creates the source of the Hibersap converter between the table class and the row maps of the table
+	 * 
+	 * @return the source
+	 */
+	private String createConverterSource() {
+		final Set<String> imports = new TreeSet<String>();
+		final StringBuilder body = new StringBuilder(2048 + this.columns.size() * 256);
+
+		imports.add(ArrayList.class.getName());
+		imports.add("java.util.HashMap");
+		imports.add(List.class.getName());
+		imports.add(Map.class.getName());
+		imports.add("org.hibersap.conversion.ConversionException");
+		imports.add("org.hibersap.conversion.Converter");
+
+		body.append("\n/**\n * Converts the row maps of table parameter ").append(this.tableMapping.getSapName())
+				.append(" to ").append(this.className).append(" and back\n */\n");
+		body.append("public class ").append(getConverterClassName(this.className)).append(" implements Converter<")
+				.append(this.className).append(", List<Map<String, Object>>> {\n\n");
+		body.append("\tprivate static final long serialVersionUID = 1L;\n");
+
+		for (final Column column : this.columns) {
+			if (column.converterClassName != null) {
+				final String converterType = column.getConverterTypeName(imports);
+
+				body.append("\n\tprivate final ").append(converterType).append(' ').append(column.getConverterName())
+						.append(" = new ").append(converterType).append("();\n");
+			}
+		}
+
+		body.append("\n\tpublic ").append(this.className)
+				.append(" convertToJava(final List<Map<String, Object>> sapValue) throws ConversionException {\n");
+		body.append("\t\tfinal ").append(this.className).append(" table = new ").append(this.className)
+				.append("(sapValue == null ? 0 : sapValue.size());\n\n");
+		body.append("\t\tif (sapValue != null) {\n");
+		body.append("\t\t\tfor (final Map<String, Object> sapRow : sapValue) {\n");
+		body.append("\t\t\t\tfinal int row = table.addRow();\n\n");
+
+		for (final Column column : this.columns) {
+			body.append("\t\t\t\ttable.").append(column.name).append("[row] = ");
+
+			if (column.converterClassName != null) {
+				body.append("this.").append(column.getConverterName()).append(".convertToJava((")
+						.append(column.sapType.getSimpleName()).append(") sapRow.get(\"").append(column.sapName)
+						.append("\"));\n");
+				column.addImport(imports, column.sapType);
+			} else {
+				body.append('(').append(column.getTypeName(imports)).append(") sapRow.get(\"").append(column.sapName)
+						.append("\");\n");
+			}
+		}
+
+		body.append("\t\t\t}\n\t\t}\n\t\treturn table;\n\t}\n\n");
+		body.append("\tpublic List<Map<String, Object>> convertToSap(final ").append(this.className)
+				.append(" javaValue) throws ConversionException {\n");
+		body.append("\t\tfinal int size = javaValue == null ? 0 : javaValue.size();\n");
+		body.append("\t\tfinal List<Map<String, Object>> sapValue = new ArrayList<Map<String, Object>>(size);\n\n");
+		body.append("\t\tfor (int row = 0; row < size; row++) {\n");
+		body.append("\t\t\tfinal Map<String, Object> sapRow = new HashMap<String, Object>();\n\n");
+
+		for (final Column column : this.columns) {
+			body.append("\t\t\tsapRow.put(\"").append(column.sapName).append("\", ");
+
+			if (column.converterClassName != null) {
+				body.append("this.").append(column.getConverterName()).append(".convertToSap(javaValue.")
+						.append(column.name).append("[row]));\n");
+			} else {
+				body.append("javaValue.").append(column.name).append("[row]);\n");
+			}
+		}
+
+		body.append("\t\t\tsapValue.add(sapRow);\n\t\t}\n\t\treturn sapValue;\n\t}\n\n}\n");
+
+		return createHeader(imports) + body;
+	}
+
+	/**
+	 * Creates the package declaration and the imports of a class
+	 * 
+	 * @param imports - the qualified names of the imports
+	 * @return the header
+	 */
+	private String createHeader(final Set<String> imports) {
+		final StringBuilder header = new StringBuilder(512);
+
+		header.append("package ").append(this.javaPackage).append(";\n");
+		header.append(imports.isEmpty() ? "" : "\n");
+
+		for (final String qualifiedName : imports) {
+			header.append("import ").append(qualifiedName).append(";\n");
+		}
+
+		return header.toString();
+	}
+
+	/**
+	 * Gets the expression creating a column array
+	 * 
+	 * @param type - the element type, e.g. int or byte[]
+	 * @param capacity - the expression of the capacity
+	 * @return the expression, e.g. new byte[capacity][]
+	 */
+	private static String newArray(final String type, final String capacity) {
+		final int dimension = type.indexOf('[');
+
+		if (dimension < 0) {
+			return "new " + type + "[" + capacity + "]";
+		}
+
+		return "new " + type.substring(0, dimension) + "[" + capacity + "]" + type.substring(dimension);
+	}
+
+	/**
+	 * A column of the table
+	 * 
+	 */
+	private static class Column {
+
+		/** The SAP name **/
+		private final String sapName;
+		/** The Java name of the array **/
+		private final String name;
+		/** The standard element type, null for a compact type **/
+		private final Class<?> type;
+		/** The primitive element type of a compact type, null for the standard type **/
+		private final String compactType;
+		/** The class name of the converter of the compact type, null for the standard type **/
+		private final String converterClassName;
+		/** The type of the SAP values passed to the converter, null for the standard type **/
+		private final Class<?> sapType;
+
+		/**
+		 * Constructor - Instantiates a new Column
+		 * 
+		 * @param sapName - the SAP name
+		 * @param name - the Java name of the array
+		 * @param type - the standard element type, null for a compact type
+		 * @param compactType - the primitive element type of a compact type, null for the standard type
+		 * @param converterClassName - the class name of the converter, see
+		 *            {@link CompactType#getConverterClassName(int)}, null for the standard type
+		 * @param sapType - the type of the SAP values passed to the converter, null for the standard type
+		 */
+		public Column(final String sapName, final String name, final Class<?> type, final String compactType,
+				final String converterClassName, final Class<?> sapType) {
+			this.sapName = sapName;
+			this.name = name;
+			this.type = type;
+			this.compactType = compactType;
+			this.converterClassName = converterClassName;
+			this.sapType = sapType;
+		}
+
+		/**
+		 * Gets the element type as written in the source, importing it if necessary
+		 * 
+		 * @param imports - the imports of the class
+		 * @return the simple type name
+		 */
+		public String getTypeName(final Set<String> imports) {
+			if (this.compactType != null) {
+				return this.compactType;
+			}
+
+			Class<?> componentType = this.type;
+			String dimensions = "";
+
+			while (componentType.isArray()) {
+				componentType = componentType.getComponentType();
+				dimensions += "[]";
+			}
+
+			addImport(imports, componentType);
+
+			return componentType.getSimpleName() + dimensions;
+		}
+
+		/**
+		 * Gets the converter class as written in the source, importing it if it is a Hibersap converter
+		 * 
+		 * @param imports - the imports of the class
+		 * @return the simple class name
+		 */
+		public String getConverterTypeName(final Set<String> imports) {
+			final int packageEnd = this.converterClassName.lastIndexOf('.');
+
+			if (packageEnd < 0) {
+				return this.converterClassName;
+			}
+
+			imports.add(this.converterClassName);
+
+			return this.converterClassName.substring(packageEnd + 1);
+		}
+
+		/**
+		 * Imports a type unless it is primitive or in java.lang
+		 * 
+		 * @param imports - the imports of the class
+		 * @param importedType - the type
+		 */
+		public void addImport(final Set<String> imports, final Class<?> importedType) {
+			if (!importedType.isPrimitive() && !importedType.getName().equals("java.lang." + importedType.getSimpleName())) {
+				imports.add(importedType.getName());
+			}
+		}
+
+		/**
+		 * Gets the capitalized Java name used in the accessor names
+		 * 
+		 * @return the capitalized name
+		 */
+		public String getCapitalizedName() {
+			return Character.toUpperCase(this.name.charAt(0)) + this.name.substring(1);
+		}
+
+		/**
+		 * Gets the name of the converter field of the column
+		 * 
+		 * @return the converter field name
+		 */
+		public String getConverterName() {
+			return this.name + "Converter";
+		}
+
+	}
+
+}
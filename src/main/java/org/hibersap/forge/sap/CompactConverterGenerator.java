@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+/**
+ * Generates the sources of the Hibersap converters of the compact type mapping which Hibersap does not provide
+ * 
+ * The converters map NUMC values, which JCo returns as String, to Integer or Long, and packed numbers, which JCo
+ * returns as BigDecimal, to a Long of the value scaled by its decimals. Hibersap unboxes them into the primitive
+ * fields. Values which do not fit are rejected with a ConversionException instead of being truncated.
+ * 
+ */
+public class CompactConverterGenerator {
+
+	/**
+	 * Generates the source of the converter of a compact type
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param compactType - the compact type, its converter must be generated
+	 * @param decimals - the decimals of the field
+	 * @return the source
+	 * @throws IllegalArgumentException - if the converter of the compact type is not generated
+	 */
+	public static String createSource(final String javaPackage, final CompactType compactType, final int decimals) {
+		final String className = compactType.getConverterClassName(decimals);
+		final StringBuilder source = new StringBuilder(2048);
+
+		source.append("package ").append(javaPackage).append(";\n\n");
+
+		switch (compactType) {
+		case INT:
+			appendNumcConverter(source, className, "Integer");
+			break;
+		case LONG:
+			appendNumcConverter(source, className, "Long");
+			break;
+		case SCALED_LONG:
+			appendScaledLongConverter(source, className, decimals);
+			break;
+		default:
+			throw new IllegalArgumentException("Converter of " + compactType + " is not generated");
+		}
+
+		return source.toString();
+	}
+
+	/**
+	 * Appends a converter of NUMC values
+	 * 
+	 * @param source - the source to append to
+	 * @param className - the class name
+	 * @param javaType - the Java type, Integer or Long
+	 */
+	private static void appendNumcConverter(final StringBuilder source, final String className, final String javaType) {
+		source.append("import org.hibersap.conversion.ConversionException;\n");
+		source.append("import org.hibersap.conversion.Converter;\n\n");
+		source.append("/**\n * Converts SAP NUMC values to ").append(javaType).append(", an initial value is 0\n */\n");
+		source.append("public class ").append(className).append(" implements Converter<").append(javaType)
+				.append(", String> {\n\n");
+		source.append("\tprivate static final long serialVersionUID = 1L;\n\n");
+		source.append("\tpublic ").append(javaType).append(" convertToJava(final String sapValue) throws ConversionException {\n");
+		source.append("\t\tif (sapValue == null || sapValue.trim().length() == 0) {\n");
+		source.append("\t\t\treturn ").append(javaType).append(".valueOf(0);\n");
+		source.append("\t\t}\n");
+		source.append("\t\ttry {\n");
+		source.append("\t\t\treturn ").append(javaType).append(".valueOf(sapValue.trim());\n");
+		source.append("\t\t} catch (final NumberFormatException e) {\n");
+		source.append("\t\t\tthrow new ConversionException(\"Expected digits, but SAP returned '\" + sapValue + \"'\");\n");
+		source.append("\t\t}\n");
+		source.append("\t}\n\n");
+		source.append("\tpublic String convertToSap(final ").append(javaType).append(" javaValue) throws ConversionException {\n");
+		source.append("\t\treturn javaValue == null ? \"0\" : javaValue.toString();\n");
+		source.append("\t}\n\n");
+		source.append("}\n");
+	}
+
+	/**
+	 * Appends a converter of packed numbers to scaled long values
+	 * 
+	 * @param source - the source to append to
+	 * @param className - the class name
+	 * @param decimals - the decimals of the packed numbers
+	 */
+	private static void appendScaledLongConverter(final StringBuilder source, final String className,
+			final int decimals) {
+		source.append("import java.math.BigDecimal;\n\n");
+		source.append("import org.hibersap.conversion.ConversionException;\n");
+		source.append("import org.hibersap.conversion.Converter;\n\n");
+		source.append("/**\n * Converts SAP packed numbers with ").append(decimals)
+				.append(" decimals to Long, the value multiplied by 10 to the power of ").append(decimals)
+				.append("\n */\n");
+		source.append("public class ").append(className).append(" implements Converter<Long, BigDecimal> {\n\n");
+		source.append("\tprivate static final long serialVersionUID = 1L;\n\n");
+		source.append("\tpublic static final int DECIMALS = ").append(decimals).append(";\n\n");
+		source.append("\tpublic Long convertToJava(final BigDecimal sapValue) throws ConversionException {\n");
+		source.append("\t\tif (sapValue == null) {\n");
+		source.append("\t\t\treturn Long.valueOf(0L);\n");
+		source.append("\t\t}\n");
+		source.append("\t\ttry {\n");
+		source.append("\t\t\treturn Long.valueOf(sapValue.movePointRight(DECIMALS).longValueExact());\n");
+		source.append("\t\t} catch (final ArithmeticException e) {\n");
+		source.append("\t\t\tthrow new ConversionException(\"Expected \" + DECIMALS + \" decimals, but SAP returned '\" + sapValue + \"'\");\n");
+		source.append("\t\t}\n");
+		source.append("\t}\n\n");
+		source.append("\tpublic BigDecimal convertToSap(final Long javaValue) throws ConversionException {\n");
+		source.append("\t\treturn BigDecimal.valueOf(javaValue == null ? 0L : javaValue.longValue(), DECIMALS);\n");
+		source.append("\t}\n\n");
+		source.append("}\n");
+	}
+
+}
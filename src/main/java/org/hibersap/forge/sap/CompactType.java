@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+/**
+ * The primitive Java types of the compact type mapping and the Hibersap converters between them and the SAP values
+ * 
+ * The converters of the types {@link #INT}, {@link #LONG} and {@link #SCALED_LONG} are generated with the entities,
+ * see {@link CompactConverterGenerator}. The other types use the converters of Hibersap.
+ * 
+ */
+public enum CompactType {
+
+	/** A CHAR(1) flag as boolean, X is true and space is false **/
+	BOOLEAN("boolean", 1, "org.hibersap.conversion.BooleanConverter"),
+	/** A CHAR(1) field as char **/
+	CHAR("char", 2, "org.hibersap.conversion.CharConverter"),
+	/** A NUMC field with up to 9 digits as int **/
+	INT("int", 4, "NumcIntConverter"),
+	/** A NUMC field with up to 18 digits as long **/
+	LONG("long", 8, "NumcLongConverter"),
+	/** A packed number, e.g. CURR, with up to 18 digits as long, scaled by 10 to the power of its decimals **/
+	SCALED_LONG("long", 8, "ScaledLong%dConverter");
+
+	/** The primitive Java type **/
+	private final String javaType;
+	/** The size of the primitive Java type in bytes **/
+	private final int size;
+	/** The class name of the converter, qualified if it is a Hibersap converter **/
+	private final String converterClassName;
+
+	/**
+	 * Constructor - Instantiates a new CompactType
+	 * 
+	 * @param javaType - the primitive Java type
+	 * @param size - the size of the primitive Java type in bytes
+	 * @param converterClassName - the class name of the converter, qualified if it is a Hibersap converter
+	 */
+	private CompactType(final String javaType, final int size, final String converterClassName) {
+		this.javaType = javaType;
+		this.size = size;
+		this.converterClassName = converterClassName;
+	}
+
+	/**
+	 * Gets the primitive Java type
+	 * 
+	 * @return the Java type, e.g. int
+	 */
+	public String getJavaType() {
+		return this.javaType;
+	}
+
+	/**
+	 * Gets the size of the primitive Java type
+	 * 
+	 * @return the size in bytes
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Checks if the converter of this type is generated with the entities
+	 * 
+	 * @return true if the converter is generated, false if it is a Hibersap converter
+	 */
+	public boolean isConverterGenerated() {
+		return this.converterClassName.indexOf('.') < 0;
+	}
+
+	/**
+	 * Gets the class name of the converter of a field of this type
+	 * 
+	 * @param decimals - the decimals of the field
+	 * @return the simple class name of a generated converter, e.g. ScaledLong2Converter, or the qualified class name
+	 *         of a Hibersap converter
+	 */
+	public String getConverterClassName(final int decimals) {
+		return this == CompactType.SCALED_LONG ? String.format(this.converterClassName, decimals)
+				: this.converterClassName;
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibersap.HibersapException;
+
+import com.sap.conn.jco.JCoDestination;
+import com.sap.conn.jco.JCoException;
+import com.sap.conn.jco.JCoFunction;
+import com.sap.conn.jco.JCoMetaData;
+import com.sap.conn.jco.JCoParameterList;
+
+/**
+ * The compact type mapping of a SAP function, mapping its fields to primitive Java types where possible
+ * 
+ * The function mapping of Hibersap only knows the Java types of the fields, so the SAP types are read from the JCo
+ * metadata of the function. Fields are addressed by the SAP name of their parameter and, for structure and table
+ * parameters, their own SAP name.
+ * 
+ */
+public class CompactTypeMapping {
+
+	/** The SAP types by parameter name and field name, e.g. "RETURN-TYPE" **/
+	private final Map<String, SAPFieldType> fieldTypes = new HashMap<String, SAPFieldType>();
+	/** True to map CHAR(1) fields to boolean, false to map them to char **/
+	private final boolean flagsAsBoolean;
+
+	/**
+	 * Constructor - Instantiates a new CompactTypeMapping without fields
+	 * 
+	 * @param flagsAsBoolean - true to map CHAR(1) fields to boolean, false to map them to char
+	 */
+	public CompactTypeMapping(final boolean flagsAsBoolean) {
+		this.flagsAsBoolean = flagsAsBoolean;
+	}
+
+	/**
+	 * Reads the compact type mapping of a SAP function from the JCo repository of a destination
+	 * 
+	 * @param destination - the destination
+	 * @param functionName - the function name
+	 * @param flagsAsBoolean - true to map CHAR(1) fields to boolean, false to map them to char, see
+	 *            {@link SAPFieldType#getCompactType(boolean)}
+	 * @return the compact type mapping
+	 */
+	public static CompactTypeMapping read(final JCoDestination destination, final String functionName,
+			final boolean flagsAsBoolean) {
+		final JCoFunction function;
+
+		try {
+			function = destination.getRepository().getFunction(functionName);
+		} catch (final JCoException e) {
+			throw new HibersapException("Reading the metadata of function " + functionName + " failed", e);
+		}
+		if (function == null) {
+			throw new HibersapException("Function " + functionName + " not found");
+		}
+
+		return CompactTypeMapping.read(function, flagsAsBoolean);
+	}
+
+	/**
+	 * Reads the compact type mapping of a SAP function from its JCo metadata
+	 * 
+	 * @param function - the function
+	 * @param flagsAsBoolean - true to map CHAR(1) fields to boolean, false to map them to char, see
+	 *            {@link SAPFieldType#getCompactType(boolean)}
+	 * @return the compact type mapping
+	 */
+	public static CompactTypeMapping read(final JCoFunction function, final boolean flagsAsBoolean) {
+		final CompactTypeMapping mapping = new CompactTypeMapping(flagsAsBoolean);
+
+		mapping.putParameters(function.getImportParameterList());
+		mapping.putParameters(function.getExportParameterList());
+		mapping.putParameters(function.getTableParameterList());
+
+		return mapping;
+	}
+
+	/**
+	 * Adds the SAP types of the parameters of a parameter list and of the fields of its structure and table parameters
+	 * 
+	 * @param parameterList - the parameter list, null if the function has no parameters of its kind
+	 */
+	private void putParameters(final JCoParameterList parameterList) {
+		if (parameterList == null) {
+			return;
+		}
+
+		final JCoMetaData metaData = parameterList.getMetaData();
+
+		for (int i = 0; i < metaData.getFieldCount(); i++) {
+			final String parameterName = metaData.getName(i);
+
+			if (metaData.isStructure(i) || metaData.isTable(i)) {
+				final JCoMetaData recordMetaData = metaData.getRecordMetaData(i);
+
+				for (int j = 0; j < recordMetaData.getFieldCount(); j++) {
+					put(parameterName, recordMetaData.getName(j), new SAPFieldType(recordMetaData.getTypeAsString(j),
+							recordMetaData.getLength(j), recordMetaData.getDecimals(j)));
+				}
+			} else {
+				put(parameterName, null, new SAPFieldType(metaData.getTypeAsString(i), metaData.getLength(i),
+						metaData.getDecimals(i)));
+			}
+		}
+	}
+
+	/**
+	 * Adds the SAP type of a field
+	 * 
+	 * @param parameterName - the SAP name of the parameter
+	 * @param fieldName - the SAP name of the field of a structure or table parameter, null for a simple parameter
+	 * @param fieldType - the SAP type
+	 */
+	public void put(final String parameterName, final String fieldName, final SAPFieldType fieldType) {
+		this.fieldTypes.put(CompactTypeMapping.getKey(parameterName, fieldName), fieldType);
+	}
+
+	/**
+	 * Gets the SAP type of a field
+	 * 
+	 * @param parameterName - the SAP name of the parameter
+	 * @param fieldName - the SAP name of the field of a structure or table parameter, null for a simple parameter
+	 * @return the SAP type, null if it is unknown
+	 */
+	public SAPFieldType getFieldType(final String parameterName, final String fieldName) {
+		return this.fieldTypes.get(CompactTypeMapping.getKey(parameterName, fieldName));
+	}
+
+	/**
+	 * Gets the primitive type of a field
+	 * 
+	 * @param parameterName - the SAP name of the parameter
+	 * @param fieldName - the SAP name of the field of a structure or table parameter, null for a simple parameter
+	 * @return the compact type, null if the field keeps its standard type
+	 */
+	public CompactType getCompactType(final String parameterName, final String fieldName) {
+		final SAPFieldType fieldType = getFieldType(parameterName, fieldName);
+
+		return fieldType == null ? null : fieldType.getCompactType(this.flagsAsBoolean);
+	}
+
+	/**
+	 * Gets the key of a field
+	 * 
+	 * @param parameterName - the SAP name of the parameter
+	 * @param fieldName - the SAP name of the field, null for a simple parameter
+	 * @return the key
+	 */
+	private static String getKey(final String parameterName, final String fieldName) {
+		return fieldName == null ? parameterName : parameterName + '-' + fieldName;
+	}
+
+}
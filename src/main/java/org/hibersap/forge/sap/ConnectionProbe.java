@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hibersap.HibersapException;
+
+/**
+ * Measures the round-trip latency and throughput of echo calls at a given concurrency
+ * 
+ * A probe of one concurrency level executes the configured number of calls on as many threads as the concurrency.
+ * The results of increasing concurrency levels are used to recommend the JCo destination pool capacity and peak limit.
+ * 
+ */
+public class ConnectionProbe {
+
+	/** The share of the best throughput which is considered as good as the best throughput **/
+	private static final double THROUGHPUT_TOLERANCE = 0.9;
+	/** The factor of the single call latency up to which a concurrency level is not saturated **/
+	private static final double LATENCY_TOLERANCE = 2.0;
+
+	/** The destination of the calls **/
+	private final ProbeTarget target;
+	/** The number of calls per concurrency level **/
+	private final int calls;
+	/** The payload sent with every call **/
+	private final String payload;
+
+	/**
+	 * Constructor - creates an instance of ConnectionProbe
+	 * 
+	 * @param target - The destination of the calls
+	 * @param calls - The number of calls per concurrency level
+	 * @param payloadSize - The number of characters sent with every call
+	 */
+	public ConnectionProbe(final ProbeTarget target, final int calls, final int payloadSize) {
+		final char[] payload = new char[Math.max(1, payloadSize)];
+
+		Arrays.fill(payload, 'X');
+		this.target = target;
+		this.calls = Math.max(1, calls);
+		this.payload = new String(payload);
+	}
+
+	/**
+	 * Gets the concurrency levels up to a max. concurrency, i.e. the powers of two and the max. concurrency
+	 * 
+	 * @param maxConcurrency - the max. concurrency
+	 * @return the concurrency levels in ascending order
+	 */
+	public static List<Integer> getConcurrencyLevels(final int maxConcurrency) {
+		final List<Integer> levels = new ArrayList<Integer>();
+
+		for (int level = 1; level < maxConcurrency; level *= 2) {
+			levels.add(level);
+		}
+
+		levels.add(Math.max(1, maxConcurrency));
+
+		return levels;
+	}
+
+	/**
+	 * Probes one concurrency level
+	 * 
+	 * @param concurrency - the number of concurrent calls
+	 * @return the result
+	 */
+	public Result probe(final int concurrency) {
+		final int threads = Math.max(1, concurrency);
+		final int calls = Math.max(this.calls, threads);
+		final long[] latencies = new long[calls];
+		final AtomicInteger nextCall = new AtomicInteger();
+		final AtomicInteger errors = new AtomicInteger();
+		final AtomicReference<String> firstError = new AtomicReference<String>();
+		final List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+
+		for (int i = 0; i < threads; i++) {
+			workers.add(new Callable<Void>() {
+
+				public Void call() {
+					for (int call = nextCall.getAndIncrement(); call < calls; call = nextCall.getAndIncrement()) {
+						final long start = System.nanoTime();
+
+						try {
+							final String echo = ConnectionProbe.this.target.echo(ConnectionProbe.this.payload);
+
+							if (!ConnectionProbe.this.payload.equals(echo)) {
+								throw new IllegalStateException("Echo does not match the payload");
+							}
+						} catch (final Exception e) {
+							errors.incrementAndGet();
+							firstError.compareAndSet(null, e.getMessage());
+						}
+
+						latencies[call] = System.nanoTime() - start;
+					}
+
+					return null;
+				}
+			});
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final long start = System.nanoTime();
+
+		try {
+			executor.invokeAll(workers);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HibersapException("Connection probe interrupted", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Arrays.sort(latencies);
+
+		return new Result(threads, latencies, System.nanoTime() - start, errors.get(), firstError.get(),
+				this.payload.length());
+	}
+
+	/**
+	 * Recommends the JCo destination pool capacity, the smallest concurrency reaching nearly the best throughput
+	 * 
+	 * @param results - the results of increasing concurrency levels
+	 * @return the pool capacity, 1 if no level was free of errors
+	 */
+	public static int recommendPoolCapacity(final List<Result> results) {
+		double bestThroughput = 0;
+
+		for (final Result result : results) {
+			if (result.getErrors() == 0) {
+				bestThroughput = Math.max(bestThroughput, result.getCallsPerSecond());
+			}
+		}
+
+		for (final Result result : results) {
+			if (result.getErrors() == 0
+					&& result.getCallsPerSecond() >= ConnectionProbe.THROUGHPUT_TOLERANCE * bestThroughput) {
+				return result.getConcurrency();
+			}
+		}
+
+		return 1;
+	}
+
+	/**
+	 * Recommends the JCo destination peak limit, the highest concurrency whose median latency is at most twice the
+	 * single call latency, but at least the recommended pool capacity
+	 * 
+	 * @param results - the results of increasing concurrency levels, starting with concurrency 1
+	 * @return the peak limit
+	 */
+	public static int recommendPeakLimit(final List<Result> results) {
+		int peakLimit = recommendPoolCapacity(results);
+
+		if (results.isEmpty()) {
+			return peakLimit;
+		}
+
+		final double singleCallLatency = results.get(0).getMedianMillis();
+
+		for (final Result result : results) {
+			if (result.getErrors() == 0
+					&& result.getMedianMillis() <= ConnectionProbe.LATENCY_TOLERANCE * singleCallLatency) {
+				peakLimit = Math.max(peakLimit, result.getConcurrency());
+			}
+		}
+
+		return peakLimit;
+	}
+
+	/**
+	 * The result of probing one concurrency level
+	 * 
+	 */
+	public static class Result {
+
+		/** The number of concurrent calls **/
+		private final int concurrency;
+		/** The sorted latencies of all calls in nanoseconds **/
+		private final long[] latencies;
+		/** The elapsed time of all calls in nanoseconds **/
+		private final long elapsed;
+		/** The number of failed calls **/
+		private final int errors;
+		/** The message of the first failed call, may be null **/
+		private final String firstError;
+		/** The number of characters sent with every call **/
+		private final int payloadSize;
+
+		/**
+		 * Constructor - creates an instance of Result
+		 * 
+		 * @param concurrency - The number of concurrent calls
+		 * @param latencies - The sorted latencies of all calls in nanoseconds
+		 * @param elapsed - The elapsed time of all calls in nanoseconds
+		 * @param errors - The number of failed calls
+		 * @param firstError - The message of the first failed call, may be null
+		 * @param payloadSize - The number of characters sent with every call
+		 */
+		public Result(final int concurrency, final long[] latencies, final long elapsed, final int errors,
+				final String firstError, final int payloadSize) {
+			this.concurrency = concurrency;
+			this.latencies = latencies;
+			this.elapsed = Math.max(1, elapsed);
+			this.errors = errors;
+			this.firstError = firstError;
+			this.payloadSize = payloadSize;
+		}
+
+		/**
+		 * Gets the number of concurrent calls
+		 * 
+		 * @return the concurrency
+		 */
+		public int getConcurrency() {
+			return this.concurrency;
+		}
+
+		/**
+		 * Gets the number of calls
+		 * 
+		 * @return the number of calls
+		 */
+		public int getCalls() {
+			return this.latencies.length;
+		}
+
+		/**
+		 * Gets the number of failed calls
+		 * 
+		 * @return the number of errors
+		 */
+		public int getErrors() {
+			return this.errors;
+		}
+
+		/**
+		 * Gets the message of the first failed call
+		 * 
+		 * @return the message, null if no call failed
+		 */
+		public String getFirstError() {
+			return this.firstError;
+		}
+
+		/**
+		 * Gets the median latency
+		 * 
+		 * @return the median latency in milliseconds
+		 */
+		public double getMedianMillis() {
+			return getPercentileMillis(50);
+		}
+
+		/**
+		 * Gets a latency percentile
+		 * 
+		 * @param percentile - the percentile, e.g. 95
+		 * @return the latency in milliseconds, which the given percentage of calls did not exceed
+		 */
+		public double getPercentileMillis(final int percentile) {
+			final int index = (int) Math.ceil(percentile / 100.0 * this.latencies.length) - 1;
+
+			return this.latencies[Math.min(this.latencies.length - 1, Math.max(0, index))] / 1000000.0;
+		}
+
+		/**
+		 * Gets the throughput of successful calls
+		 * 
+		 * @return the calls per second
+		 */
+		public double getCallsPerSecond() {
+			return (this.latencies.length - this.errors) * 1000000000.0 / this.elapsed;
+		}
+
+		/**
+		 * Gets the payload throughput of successful calls, counting the payload and its echo
+		 * 
+		 * @return the characters per second
+		 */
+		public double getCharactersPerSecond() {
+			return getCallsPerSecond() * 2 * this.payloadSize;
+		}
+
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+/**
+ * The backends emitting the sources of SAP entities
+ * 
+ */
+public enum EmitterType {
+
+	/** Builds the classes with the Forge Java parser, see {@link AstEntityEmitter} **/
+	AST,
+	/** Writes the sources straight from the function mapping, see {@link TemplateEntityEmitter} **/
+	TEMPLATE;
+
+	/**
+	 * Creates an emitter of this type building the classes of an entity one after the other
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 * @return the emitter
+	 */
+	public EntityEmitter createEmitter(final StructureRegistry structureRegistry) {
+		return createEmitter(structureRegistry, 1);
+	}
+
+	/**
+	 * Creates an emitter of this type
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 * @param parallelism - the max. number of structure classes of an entity built at the same time. Only the AST
+	 *            emitter builds them in parallel, the template emitter is fast enough on one thread.
+	 * @return the emitter
+	 */
+	public EntityEmitter createEmitter(final StructureRegistry structureRegistry, final int parallelism) {
+		return this == EmitterType.TEMPLATE ? new TemplateEntityEmitter(structureRegistry) : new AstEntityEmitter(
+				structureRegistry, parallelism);
+	}
+
+	/**
+	 * Gets the emitter type with the given name, ignoring case
+	 * 
+	 * @param name - the name, e.g. template
+	 * @return the emitter type
+	 * @throws IllegalArgumentException - if there is no emitter type with the given name
+	 */
+	public static EmitterType forName(final String name) {
+		for (final EmitterType type : EmitterType.values()) {
+			if (type.name().equalsIgnoreCase(name.trim())) {
+				return type;
+			}
+		}
+
+		throw new IllegalArgumentException("Unknown emitter " + name + ", expected ast or template");
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import org.hibersap.mapping.model.BapiMapping;
+
+/**
+ * Emits the Java sources of a SAP entity from the mapping of a SAP function
+ * 
+ * Implementations are used by several threads at the same time.
+ * 
+ */
+public interface EntityEmitter {
+
+	/**
+	 * Emits the sources of the SAP entity of the given function mapping
+	 * 
+	 * @param className - the class name of the BAPI class
+	 * @param javaPackage - the Java package
+	 * @param functionMapping - the BAPI function mapping
+	 * @return the sources of the entity
+	 */
+	SAPEntitySource emit(String className, String javaPackage, BapiMapping functionMapping);
+
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hibersap.forge.sap;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.hibersap.session.Session;
+
+/**
+ * Reads the last change of SAP functions
+ * 
+ * The interface of a function is defined in its include of the function group, e.g. LZMMU01 for the first function
+ * of the group ZMM. The include is looked up in TFDIR, its last change date and generation time in TRDIR.
+ * 
+ * Dictionary types used by the interface are changed without touching the include, so the stamp also covers the
+ * change dates of the types referenced by the parameters (FUPARAREF) and of all types they are built of: components
+ * and includes of structures (DD02L, DD03L), row types of table types (DD40L) and the domains of data elements (DD04L,
+ * DD01L). Types nested deeper than {@link #MAX_TYPE_DEPTH} levels are not covered.
+ * 
+ * The stamps of many functions are read together: every table is read once per level of types for all functions, with
+ * the names in lists (IN), so the number of calls does not grow with the number of functions.
+ * 
+ */
+public final class FunctionChangeStamp {
+
+	/** The prefix of the main program of a function group **/
+	private static final String PROGRAM_PREFIX = "SAPL";
+	/** The max. number of names read per call **/
+	private static final int NAMES_PER_READ = 50;
+	/** The max. number of levels of dictionary types read below the parameters **/
+	public static final int MAX_TYPE_DEPTH = 8;
+
+	private FunctionChangeStamp() {
+	}
+
+	/**
+	 * Reads the change stamp of the given function
+	 * 
+	 * @param session - the session to the SAP system
+	 * @param functionName - the function name
+	 * @return the change stamp, empty if the function or its include does not exist
+	 */
+	public static String read(final Session session, final String functionName) {
+		return read(session, Collections.singleton(functionName)).get(functionName);
+	}
+
+	/**
+	 * Reads the change stamps of the given functions
+	 * 
+	 * @param session - the session to the SAP system
+	 * @param functionNames - the function names
+	 * @return the change stamps by function name, empty if the function or its include does not exist
+	 */
+	public static Map<String, String> read(final Session session, final Collection<String> functionNames) {
+		final Map<String, String> stamps = new LinkedHashMap<String, String>();
+		final Map<String, String> includeNames = new HashMap<String, String>();
+
+		for (final String[] row : readRows(session, "TFDIR", "FUNCNAME", Arrays.asList("FUNCNAME", "PNAME", "INCLUDE"),
+				null, functionNames)) {
+			final String includeName = row.length < 3 ? null : toIncludeName(row[1], row[2]);
+
+			if (includeName != null) {
+				includeNames.put(row[0], includeName);
+			}
+		}
+
+		final Map<String, String> includeChanges = new HashMap<String, String>();
+
+		for (final String[] row : readRows(session, "TRDIR", "NAME", Arrays.asList("NAME", "UDAT", "SDATE", "STIME"),
+				null, new HashSet<String>(includeNames.values()))) {
+			final StringBuilder change = new StringBuilder(row[0]);
+
+			for (int i = 1; i < row.length; i++) {
+				change.append('/').append(row[i]);
+			}
+
+			includeChanges.put(row[0], change.toString());
+		}
+
+		final TypeGraph types = readTypes(session, functionNames);
+
+		for (final String functionName : functionNames) {
+			final String includeChange = includeChanges.get(includeNames.get(functionName));
+
+			if (includeChange == null) {
+				stamps.put(functionName, "");
+				continue;
+			}
+
+			final SortedSet<String> typeChanges = types.getChanges(functionName);
+
+			//Hundreds of types would make the stamp too long to store
+			stamps.put(functionName, typeChanges.isEmpty() ? includeChange : includeChange + "/"
+					+ digest(typeChanges.toString()));
+		}
+
+		return stamps;
+	}
+
+	/**
+	 * Reads the dictionary types used by the interfaces of the given functions
+	 * 
+	 * @param session - the session to the SAP system
+	 * @param functionNames - the function names
+	 * @return the types
+	 */
+	private static TypeGraph readTypes(final Session session, final Collection<String> functionNames) {
+		final TypeGraph types = new TypeGraph();
+		Set<String> typeNames = new TreeSet<String>();
+
+		for (final String[] row : readRows(session, "FUPARAREF", "FUNCNAME", Arrays.asList("FUNCNAME", "STRUCTURE"),
+				"R3STATE EQ 'A'", functionNames)) {
+			if (row.length > 1) {
+				types.addParameterType(row[0], row[1]);
+				addTypeName(typeNames, row[1]);
+			}
+		}
+
+		//Every round reads the types referenced by the types of the previous round
+		for (int depth = 0; depth < FunctionChangeStamp.MAX_TYPE_DEPTH && !typeNames.isEmpty(); depth++) {
+			final List<String> structureNames = readChanges(session, "DD02L", "TABNAME", null, typeNames, types);
+
+			types.addReadNames(typeNames);
+			readChanges(session, "DD40L", "TYPENAME", "ROWTYPE", typeNames, types);
+			readChanges(session, "DD04L", "ROLLNAME", "DOMNAME", typeNames, types);
+			readChanges(session, "DD01L", "DOMNAME", null, typeNames, types);
+
+			//Includes are named in PRECFIELD, the types of components in ROLLNAME
+			for (final String[] row : readRows(session, "DD03L", "TABNAME", Arrays.asList("TABNAME", "ROLLNAME",
+					"PRECFIELD"), "AS4LOCAL EQ 'A'", structureNames)) {
+				for (int i = 1; i < row.length; i++) {
+					types.addReference(row[0], row[i]);
+				}
+			}
+
+			typeNames = types.getUnreadNames();
+		}
+
+		return types;
+	}
+
+	/**
+	 * Reads the change dates of the given types from a dictionary table
+	 * 
+	 * @param session - the session to the SAP system
+	 * @param tableName - the dictionary table, e.g. DD02L
+	 * @param keyField - the field containing the type name
+	 * @param referenceField - a field naming another type, null if there is none
+	 * @param typeNames - the type names
+	 * @param types - the types the read changes and references are added to
+	 * @return the names of the types found in the table
+	 */
+	private static List<String> readChanges(final Session session, final String tableName, final String keyField,
+			final String referenceField, final Collection<String> typeNames, final TypeGraph types) {
+		final List<String> fieldNames = new ArrayList<String>(Arrays.asList(keyField, "AS4DATE", "AS4TIME"));
+		final List<String> foundNames = new ArrayList<String>();
+
+		if (referenceField != null) {
+			fieldNames.add(referenceField);
+		}
+
+		for (final String[] row : readRows(session, tableName, keyField, fieldNames, "AS4LOCAL EQ 'A'", typeNames)) {
+			if (row.length < fieldNames.size()) {
+				continue;
+			}
+
+			types.addChange(row[0], tableName + ":" + row[0] + "/" + row[1] + "/" + row[2]);
+			foundNames.add(row[0]);
+
+			if (referenceField != null) {
+				types.addReference(row[0], row[3]);
+			}
+		}
+
+		return foundNames;
+	}
+
+	/**
+	 * Reads the rows whose key is one of the given names, at most {@link #NAMES_PER_READ} names per call
+	 * 
+	 * @param session - the session to the SAP system
+	 * @param tableName - the table name
+	 * @param keyField - the field containing the names
+	 * @param fieldNames - the fields to read
+	 * @param condition - a further condition of the WHERE clause, null if there is none
+	 * @param names - the names
+	 * @return the read rows
+	 */
+	private static List<String[]> readRows(final Session session, final String tableName, final String keyField,
+			final List<String> fieldNames, final String condition, final Collection<String> names) {
+		final List<String[]> rows = new ArrayList<String[]>();
+		final List<String> nameList = new ArrayList<String>(names);
+
+		for (int start = 0; start < nameList.size(); start += FunctionChangeStamp.NAMES_PER_READ) {
+			final StringBuilder where = new StringBuilder();
+			final int end = Math.min(nameList.size(), start + FunctionChangeStamp.NAMES_PER_READ);
+
+			if (condition != null) {
+				where.append(condition).append(" AND ");
+			}
+
+			where.append(keyField).append(" IN (");
+
+			for (int i = start; i < end; i++) {
+				where.append(i > start ? " , '" : " '").append(nameList.get(i).replace("'", "''")).append('\'');
+			}
+
+			rows.addAll(readRows(session, tableName, fieldNames, where.append(" )").toString(), 0));
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Adds the type name of a type reference
+	 * 
+	 * @param typeNames - the type names
+	 * @param reference - the reference, e.g. BAPIRET2 or BAPIRET2-TYPE for the type of a component. May be empty.
+	 */
+	private static void addTypeName(final Set<String> typeNames, final String reference) {
+		final int componentStart = reference.indexOf('-');
+		final String typeName = componentStart < 0 ? reference : reference.substring(0, componentStart);
+
+		if (!typeName.isEmpty()) {
+			typeNames.add(typeName);
+		}
+	}
+
+	/**
+	 * Computes the SHA-1 digest of a text
+	 * 
+	 * @param text - the text
+	 * @return the digest as hex string
+	 */
+	private static String digest(final String text) {
+		try {
+			return new BigInteger(1, MessageDigest.getInstance("SHA-1").digest(text.getBytes("UTF-8"))).toString(16);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Gets the name of the include defining a function
+	 * 
+	 * @param programName - the main program of the function group, e.g. SAPLZMM or /ABC/SAPLGROUP
+	 * @param include - the number of the include, e.g. 01
+	 * @return the include name, e.g. LZMMU01 or /ABC/LGROUPU01, null if the program is no function group
+	 */
+	static String toIncludeName(final String programName, final String include) {
+		final int namespaceEnd = programName.startsWith("/") ? programName.indexOf('/', 1) + 1 : 0;
+
+		if (!programName.startsWith(FunctionChangeStamp.PROGRAM_PREFIX, namespaceEnd)) {
+			return null;
+		}
+
+		return programName.substring(0, namespaceEnd) + "L"
+				+ programName.substring(namespaceEnd + FunctionChangeStamp.PROGRAM_PREFIX.length()) + "U" + include;
+	}
+
+	/**
+	 * Reads the rows matching the given WHERE clause
+	 * 
+	 * @param session - the session to the SAP system
+	 * @param tableName - the table name
+	 * @param fieldNames - the fields to read
+	 * @param where - the WHERE clause
+	 * @param maxResults - the max. number of rows, 0 for no limitation
+	 * @return the read rows
+	 */
+	private static List<String[]> readRows(final Session session, final String tableName,
+			final List<String> fieldNames, final String where, final int maxResults) {
+		final SAPTableRead tableRead = new SAPTableRead(tableName, fieldNames, where, maxResults, 0);
+
+		tableRead.execute(session);
+
+		return tableRead.getRows();
+	}
+
+	/**
+	 * The dictionary types used by the interfaces of functions, with their changes and the types they are built of
+	 * 
+	 */
+	private static class TypeGraph {
+
+		/** The types referenced by the parameters by function name **/
+		private final Map<String, Set<String>> parameterTypes = new HashMap<String, Set<String>>();
+		/** The changes by type name **/
+		private final Map<String, Set<String>> changes = new HashMap<String, Set<String>>();
+		/** The types a type is built of by type name **/
+		private final Map<String, Set<String>> references = new HashMap<String, Set<String>>();
+		/** The names of the types already read **/
+		private final Set<String> readNames = new HashSet<String>();
+
+		/**
+		 * Adds a type referenced by a parameter of a function
+		 * 
+		 * @param functionName - the function name
+		 * @param reference - the type reference, see {@link FunctionChangeStamp#addTypeName(Set, String)}
+		 */
+		public void addParameterType(final String functionName, final String reference) {
+			addTypeName(getSet(this.parameterTypes, functionName), reference);
+		}
+
+		/**
+		 * Adds a change of a type
+		 * 
+		 * @param typeName - the type name
+		 * @param change - the change
+		 */
+		public void addChange(final String typeName, final String change) {
+			getSet(this.changes, typeName).add(change);
+		}
+
+		/**
+		 * Adds a type another type is built of
+		 * 
+		 * @param typeName - the type name
+		 * @param reference - the type reference, see {@link FunctionChangeStamp#addTypeName(Set, String)}
+		 */
+		public void addReference(final String typeName, final String reference) {
+			addTypeName(getSet(this.references, typeName), reference);
+		}
+
+		/**
+		 * Marks the given types as read
+		 * 
+		 * @param typeNames - the type names
+		 */
+		public void addReadNames(final Collection<String> typeNames) {
+			this.readNames.addAll(typeNames);
+		}
+
+		/**
+		 * Gets the referenced types not read yet
+		 * 
+		 * @return the type names
+		 */
+		public Set<String> getUnreadNames() {
+			final Set<String> unreadNames = new TreeSet<String>();
+
+			for (final Set<String> typeNames : this.references.values()) {
+				unreadNames.addAll(typeNames);
+			}
+
+			unreadNames.removeAll(this.readNames);
+
+			return unreadNames;
+		}
+
+		/**
+		 * Gets the changes of all types used by the interface of a function
+		 * 
+		 * @param functionName - the function name
+		 * @return the changes in ascending order
+		 */
+		public SortedSet<String> getChanges(final String functionName) {
+			final SortedSet<String> functionChanges = new TreeSet<String>();
+			final Set<String> visitedNames = new HashSet<String>();
+			final List<String> typeNames = new ArrayList<String>();
+
+			if (this.parameterTypes.containsKey(functionName)) {
+				typeNames.addAll(this.parameterTypes.get(functionName));
+			}
+
+			while (!typeNames.isEmpty()) {
+				final String typeName = typeNames.remove(typeNames.size() - 1);
+
+				if (!visitedNames.add(typeName)) {
+					continue;
+				}
+				if (this.changes.containsKey(typeName)) {
+					functionChanges.addAll(this.changes.get(typeName));
+				}
+				if (this.references.containsKey(typeName)) {
+					typeNames.addAll(this.references.get(typeName));
+				}
+			}
+
+			return functionChanges;
+		}
+
+		/**
+		 * Gets the set of the given key, created if missing
+		 * 
+		 * @param sets - the sets by key
+		 * @param key - the key
+		 * @return the set
+		 */
+		private static Set<String> getSet(final Map<String, Set<String>> sets, final String key) {
+			Set<String> set = sets.get(key);
+
+			if (set == null) {
+				set = new HashSet<String>();
+				sets.put(key, set);
+			}
+
+			return set;
+		}
+
+	}
+
+}
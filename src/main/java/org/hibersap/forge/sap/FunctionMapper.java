@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import org.hibersap.mapping.model.BapiMapping;
+
+/**
+ * Maps the metadata of SAP functions, e.g. with the ReverseBapiMapper of Hibersap
+ * 
+ * Implementations are called from several threads at the same time.
+ * 
+ */
+public interface FunctionMapper {
+
+	/**
+	 * Maps the metadata of the given function
+	 * 
+	 * @param functionName - the function name
+	 * @return the function mapping
+	 * @throws Exception - if the metadata can not be read
+	 */
+	BapiMapping map(String functionName) throws Exception;
+
+}
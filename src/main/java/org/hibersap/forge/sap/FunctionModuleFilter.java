@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibersap.session.Session;
+
+/**
+ * Restricts a function module search to a function group, a development package or a namespace
+ * 
+ * The restrictions are added to the WHERE clause of the search, so only matching functions are read from the SAP
+ * system. Function groups are identified by their main program in TFDIR (SAPL followed by the group name). The
+ * function groups of a package are looked up in TADIR first (see {@link #resolve(Session)}). A package with more than
+ * {@link #MAX_PROGRAMS_PER_CONDITION} function groups needs several conditions, every one listing a part of the
+ * groups (see {@link #getConditions()}), so the WHERE clause of a page does not grow with the size of the package.
+ * 
+ */
+public class FunctionModuleFilter {
+
+	/** A filter without restrictions **/
+	public static final FunctionModuleFilter NONE = new FunctionModuleFilter(null, null, null);
+	/** The namespace value selecting the customer namespace (names starting with Y or Z) **/
+	public static final String CUSTOMER_NAMESPACE = "customer";
+	/** The max. number of function groups listed in one condition **/
+	public static final int MAX_PROGRAMS_PER_CONDITION = 100;
+
+	/** The table of repository objects **/
+	private static final String OBJECT_TABLE = "TADIR";
+	/** The number of function groups read per call **/
+	private static final int LOOKUP_PAGE_SIZE = 1000;
+	/** The prefix of the main program of a function group **/
+	private static final String PROGRAM_PREFIX = "SAPL";
+
+	/** The function group pattern, null for all groups **/
+	private final String functionGroup;
+	/** The package pattern, null for all packages **/
+	private final String packageName;
+	/** The namespace, null for all namespaces **/
+	private final String namespace;
+	/** The main programs of the function groups in the package, null until resolved **/
+	private final List<String> packagePrograms;
+
+	/**
+	 * Constructor - creates an instance of FunctionModuleFilter
+	 * 
+	 * @param functionGroup - The function group pattern. May contain wildcards (* or ?). Empty or null for all groups.
+	 * @param packageName - The development package pattern. May contain wildcards (* or ?). Empty or null for all
+	 *            packages.
+	 * @param namespace - The namespace, e.g. /ABC/, or customer for names starting with Y or Z. Empty or null for all
+	 *            namespaces.
+	 */
+	public FunctionModuleFilter(final String functionGroup, final String packageName, final String namespace) {
+		this(toUpperCase(functionGroup), toUpperCase(packageName), checkNamespace(namespace), null);
+	}
+
+	/**
+	 * Constructor - creates an instance of FunctionModuleFilter
+	 * 
+	 * @param functionGroup - the function group pattern
+	 * @param packageName - the package pattern
+	 * @param namespace - the checked namespace
+	 * @param packagePrograms - the main programs of the function groups in the package
+	 */
+	private FunctionModuleFilter(final String functionGroup, final String packageName, final String namespace,
+			final List<String> packagePrograms) {
+		this.functionGroup = functionGroup;
+		this.packageName = packageName;
+		this.namespace = namespace;
+		this.packagePrograms = packagePrograms;
+	}
+
+	/**
+	 * Checks if the filter has no restrictions
+	 * 
+	 * @return true if all functions pass the filter
+	 */
+	public boolean isEmpty() {
+		return this.functionGroup == null && this.packageName == null && this.namespace == null;
+	}
+
+	/**
+	 * Checks if the function groups of the package were looked up or there is no package to look up
+	 * 
+	 * @return true if the filter needs no lookup
+	 */
+	public boolean isResolved() {
+		return this.packageName == null || this.packagePrograms != null;
+	}
+
+	/**
+	 * Looks up the function groups of the package in the SAP system
+	 * 
+	 * @param session - the session to the SAP system
+	 * @return a filter with the looked up function groups, this filter if there is nothing to look up
+	 */
+	public FunctionModuleFilter resolve(final Session session) {
+		if (isResolved()) {
+			return this;
+		}
+
+		final List<String> programs = new ArrayList<String>();
+		final String where = "PGMID EQ 'R3TR' AND OBJECT EQ 'FUGR' AND DEVCLASS LIKE '"
+				+ new SAPLikePattern(this.packageName).getSapPattern() + "'";
+		int skipResults = 0;
+
+		while (true) {
+			final SAPTableRead tableRead = new SAPTableRead(FunctionModuleFilter.OBJECT_TABLE,
+					Arrays.asList("OBJ_NAME"), where, FunctionModuleFilter.LOOKUP_PAGE_SIZE, skipResults);
+
+			tableRead.execute(session);
+
+			final List<String[]> rows = tableRead.getRows();
+
+			for (final String[] row : rows) {
+				programs.add(toProgramName(row[0]));
+			}
+
+			if (rows.size() < FunctionModuleFilter.LOOKUP_PAGE_SIZE) {
+				break;
+			}
+			skipResults += rows.size();
+		}
+
+		return new FunctionModuleFilter(this.functionGroup, this.packageName, this.namespace, programs);
+	}
+
+	/**
+	 * Checks if no function can pass the filter, because the package contains no function group
+	 * 
+	 * @return true if no function can pass the filter
+	 */
+	public boolean isUnsatisfiable() {
+		return this.packagePrograms != null && this.packagePrograms.isEmpty();
+	}
+
+	/**
+	 * Gets the condition to add to the WHERE clause of TFDIR
+	 * 
+	 * @return the condition, empty if the filter has no restrictions
+	 * @throws IllegalStateException - if the function groups of the package were not looked up yet or do not fit into
+	 *             one condition
+	 */
+	public String getCondition() {
+		final List<String> conditions = getConditions();
+
+		if (conditions.size() != 1) {
+			throw new IllegalStateException("Function groups of package [" + this.packageName + "] need "
+					+ conditions.size() + " conditions");
+		}
+
+		return conditions.get(0);
+	}
+
+	/**
+	 * Gets the conditions to add to the WHERE clause of TFDIR, one search per condition
+	 * 
+	 * The function groups of a package are split into conditions of at most {@link #MAX_PROGRAMS_PER_CONDITION}
+	 * groups. A function passes the filter if it matches one of the conditions.
+	 * 
+	 * @return the conditions; a single empty condition if the filter has no restrictions, none if the filter is
+	 *         unsatisfiable
+	 * @throws IllegalStateException - if the function groups of the package were not looked up yet
+	 */
+	public List<String> getConditions() {
+		if (this.packageName == null) {
+			return Collections.singletonList(getCondition(null));
+		}
+		if (this.packagePrograms == null) {
+			throw new IllegalStateException("Function groups of package [" + this.packageName + "] were not looked up");
+		}
+
+		final List<String> conditions = new ArrayList<String>();
+
+		for (int start = 0; start < this.packagePrograms.size(); start += FunctionModuleFilter.MAX_PROGRAMS_PER_CONDITION) {
+			conditions.add(getCondition(this.packagePrograms.subList(start,
+					Math.min(this.packagePrograms.size(), start + FunctionModuleFilter.MAX_PROGRAMS_PER_CONDITION))));
+		}
+
+		return conditions;
+	}
+
+	/**
+	 * Gets the condition for the given main programs of the function groups of the package
+	 * 
+	 * @param programs - the main programs, null if there is no package
+	 * @return the condition, empty if the filter has no restrictions
+	 */
+	private String getCondition(final List<String> programs) {
+		final List<String> conditions = new ArrayList<String>();
+
+		if (this.functionGroup != null) {
+			conditions.add("PNAME LIKE '" + toProgramName(new SAPLikePattern(this.functionGroup).getSapPattern())
+					+ "'");
+		}
+		if (programs != null) {
+			conditions.add(toInCondition("PNAME", programs));
+		}
+		if (FunctionModuleFilter.CUSTOMER_NAMESPACE.equals(this.namespace)) {
+			conditions.add("( FUNCNAME LIKE 'Y%' OR FUNCNAME LIKE 'Z%' )");
+		} else if (this.namespace != null) {
+			conditions.add("FUNCNAME LIKE '" + this.namespace + "%'");
+		}
+
+		final StringBuilder condition = new StringBuilder();
+
+		for (final String part : conditions) {
+			condition.append(condition.length() > 0 ? " AND " : "").append(part);
+		}
+
+		return condition.toString();
+	}
+
+	/**
+	 * Creates an IN condition; the values are separated by spaces, so the condition can be split into lines
+	 * 
+	 * @param fieldName - the field name
+	 * @param values - the values
+	 * @return the condition
+	 */
+	private static String toInCondition(final String fieldName, final List<String> values) {
+		final StringBuilder condition = new StringBuilder(fieldName).append(" IN (");
+
+		for (int i = 0; i < values.size(); i++) {
+			condition.append(i > 0 ? " , '" : " '").append(values.get(i)).append('\'');
+		}
+
+		return condition.append(" )").toString();
+	}
+
+	/**
+	 * Gets the main program of a function group; the program of a group in a namespace is in the same namespace,
+	 * e.g. /ABC/SAPLGROUP for /ABC/GROUP
+	 * 
+	 * @param functionGroup - the function group
+	 * @return the main program
+	 */
+	private static String toProgramName(final String functionGroup) {
+		final int namespaceEnd = functionGroup.startsWith("/") ? functionGroup.indexOf('/', 1) + 1 : 0;
+
+		return functionGroup.substring(0, namespaceEnd) + FunctionModuleFilter.PROGRAM_PREFIX
+				+ functionGroup.substring(namespaceEnd);
+	}
+
+	/**
+	 * Checks the given namespace
+	 * 
+	 * @param namespace - the namespace
+	 * @return the namespace in upper case, customer or null
+	 * @throws IllegalArgumentException - if the namespace is neither customer nor enclosed in slashes
+	 */
+	private static String checkNamespace(final String namespace) {
+		if (namespace == null || namespace.trim().isEmpty()) {
+			return null;
+		}
+		if (namespace.trim().equalsIgnoreCase(FunctionModuleFilter.CUSTOMER_NAMESPACE)) {
+			return FunctionModuleFilter.CUSTOMER_NAMESPACE;
+		}
+		if (!namespace.trim().matches("/[^/*?%_' ]+/")) {
+			throw new IllegalArgumentException("Expected namespace like /ABC/ or " + FunctionModuleFilter.CUSTOMER_NAMESPACE
+					+ ", but was " + namespace);
+		}
+
+		return namespace.trim().toUpperCase();
+	}
+
+	/**
+	 * Converts the given value to upper case
+	 * 
+	 * @param value - the value
+	 * @return the value in upper case, null if the value is null or empty
+	 */
+	private static String toUpperCase(final String value) {
+		return value == null || value.trim().isEmpty() ? null : value.trim().toUpperCase();
+	}
+
+}
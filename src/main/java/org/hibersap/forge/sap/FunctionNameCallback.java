@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.List;
+
+/**
+ * Receives the function names of a search batch by batch
+ * 
+ */
+public interface FunctionNameCallback {
+
+	/**
+	 * Handles the next batch of found function names
+	 * 
+	 * @param functionNames - the function names of the batch
+	 * @return true to continue the search, false to stop it
+	 */
+	boolean handle(List<String> functionNames);
+
+}
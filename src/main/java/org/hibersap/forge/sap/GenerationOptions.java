@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.hibersap.forge.util.Utils;
+
+/**
+ * The options a SAP entity was generated with, beside the emitter
+ * 
+ * They are recorded with the fingerprint of the entity (see
+ * {@link org.hibersap.forge.manager.FingerprintManager}), so regenerating the entity creates the same classes. The
+ * options are written as their command option names separated by spaces, e.g.
+ * "compact columnar-tables streaming-tables=ET_ITEMS,ET_LOG".
+ * 
+ */
+public class GenerationOptions {
+
+	/** The options of an entity generated without options **/
+	public static final GenerationOptions NONE = new GenerationOptions(false, false, false,
+			Collections.<String> emptySet(), false);
+
+	/** The name of the compact option **/
+	private static final String COMPACT = "compact";
+	/** The name of the flags as boolean option **/
+	private static final String FLAGS_AS_BOOLEAN = "flags-as-boolean";
+	/** The name of the columnar tables option **/
+	private static final String COLUMNAR_TABLES = "columnar-tables";
+	/** The name of the streaming tables option, followed by '=' and the table names **/
+	private static final String STREAMING_TABLES = "streaming-tables";
+	/** The name of the mapping descriptors option **/
+	private static final String MAPPING_DESCRIPTORS = "mapping-descriptors";
+
+	/** True to map fields to compact types **/
+	private final boolean compact;
+	/** True to map CHAR(1) fields to boolean with compact types **/
+	private final boolean flagsAsBoolean;
+	/** True to map table parameters to columnar table classes **/
+	private final boolean columnarTables;
+	/** The SAP names of the table parameters mapped to row stream classes **/
+	private final Set<String> streamingTables;
+	/** True to add a mapping descriptor class **/
+	private final boolean mappingDescriptors;
+
+	/**
+	 * Constructor - Instantiates new GenerationOptions
+	 * 
+	 * @param compact - true to map fields to compact types
+	 * @param flagsAsBoolean - true to map CHAR(1) fields to boolean with compact types
+	 * @param columnarTables - true to map table parameters to columnar table classes
+	 * @param streamingTables - the SAP names of the table parameters mapped to row stream classes
+	 * @param mappingDescriptors - true to add a mapping descriptor class
+	 */
+	public GenerationOptions(final boolean compact, final boolean flagsAsBoolean, final boolean columnarTables,
+			final Set<String> streamingTables, final boolean mappingDescriptors) {
+		this.compact = compact;
+		this.flagsAsBoolean = flagsAsBoolean;
+		this.columnarTables = columnarTables;
+		this.streamingTables = Collections.unmodifiableSet(new TreeSet<String>(streamingTables));
+		this.mappingDescriptors = mappingDescriptors;
+	}
+
+	/**
+	 * Parses recorded options
+	 * 
+	 * @param options - the options as written by {@link #toString()}, null or empty for no options
+	 * @return the options
+	 * @throws IllegalArgumentException if an option is unknown
+	 */
+	public static GenerationOptions parse(final String options) {
+		boolean compact = false;
+		boolean flagsAsBoolean = false;
+		boolean columnarTables = false;
+		final Set<String> streamingTables = new TreeSet<String>();
+		boolean mappingDescriptors = false;
+
+		for (final String option : Utils.split(options, ' ')) {
+			if (option.equals(GenerationOptions.COMPACT)) {
+				compact = true;
+			} else if (option.equals(GenerationOptions.FLAGS_AS_BOOLEAN)) {
+				flagsAsBoolean = true;
+			} else if (option.equals(GenerationOptions.COLUMNAR_TABLES)) {
+				columnarTables = true;
+			} else if (option.startsWith(GenerationOptions.STREAMING_TABLES + '=')) {
+				streamingTables.addAll(Utils.split(option.substring(GenerationOptions.STREAMING_TABLES.length() + 1),
+						','));
+			} else if (option.equals(GenerationOptions.MAPPING_DESCRIPTORS)) {
+				mappingDescriptors = true;
+			} else {
+				throw new IllegalArgumentException("Unknown generation option " + option);
+			}
+		}
+
+		return new GenerationOptions(compact, flagsAsBoolean, columnarTables, streamingTables, mappingDescriptors);
+	}
+
+	/**
+	 * Checks if the entity is built by {@link SAPEntityBuilder} with other than the default settings
+	 * 
+	 * @return true if any option is set beside flags as boolean, which needs compact types
+	 */
+	public boolean isSet() {
+		return this.compact || this.columnarTables || !this.streamingTables.isEmpty() || this.mappingDescriptors;
+	}
+
+	/**
+	 * Checks if fields are mapped to compact types
+	 * 
+	 * @return true to map fields to compact types
+	 */
+	public boolean isCompact() {
+		return this.compact;
+	}
+
+	/**
+	 * Checks if CHAR(1) fields are mapped to boolean with compact types
+	 * 
+	 * @return true to map CHAR(1) fields to boolean
+	 */
+	public boolean isFlagsAsBoolean() {
+		return this.flagsAsBoolean;
+	}
+
+	/**
+	 * Checks if table parameters are mapped to columnar table classes
+	 * 
+	 * @return true to map table parameters to columnar table classes
+	 */
+	public boolean isColumnarTables() {
+		return this.columnarTables;
+	}
+
+	/**
+	 * Gets the table parameters mapped to row stream classes
+	 * 
+	 * @return the SAP names of the table parameters
+	 */
+	public Set<String> getStreamingTables() {
+		return this.streamingTables;
+	}
+
+	/**
+	 * Checks if a mapping descriptor class is added
+	 * 
+	 * @return true to add a mapping descriptor class
+	 */
+	public boolean isMappingDescriptors() {
+		return this.mappingDescriptors;
+	}
+
+	/**
+	 * Gets the options as their command option names separated by spaces
+	 * 
+	 * @return the options, empty for no options
+	 */
+	@Override
+	public String toString() {
+		final List<String> options = new ArrayList<String>();
+
+		if (this.compact) {
+			options.add(GenerationOptions.COMPACT);
+		}
+		if (this.flagsAsBoolean) {
+			options.add(GenerationOptions.FLAGS_AS_BOOLEAN);
+		}
+		if (this.columnarTables) {
+			options.add(GenerationOptions.COLUMNAR_TABLES);
+		}
+		if (!this.streamingTables.isEmpty()) {
+			final StringBuilder tableNames = new StringBuilder();
+
+			for (final String tableName : this.streamingTables) {
+				tableNames.append(tableNames.length() > 0 ? "," : "").append(tableName);
+			}
+
+			options.add(GenerationOptions.STREAMING_TABLES + '=' + tableNames);
+		}
+		if (this.mappingDescriptors) {
+			options.add(GenerationOptions.MAPPING_DESCRIPTORS);
+		}
+
+		final StringBuilder builder = new StringBuilder();
+
+		for (final String option : options) {
+			builder.append(builder.length() > 0 ? " " : "").append(option);
+		}
+
+		return builder.toString();
+	}
+
+}
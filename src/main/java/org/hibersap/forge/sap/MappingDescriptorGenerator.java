@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.ParameterMapping;
+import org.hibersap.mapping.model.ParameterMapping.ParamType;
+
+/**
+ * Generates the source of a mapping descriptor class for a BAPI class, and of the Hibersap configuration using the
+ * descriptors
+ * 
+ * The descriptor creates the BAPI mapping of the BAPI class directly, equal to the mapping Hibersap reads from the
+ * annotations of the BAPI and structure classes, so building a session manager does not need to inspect the classes.
+ * The configuration creates the mappings of the annotated classes of a session manager with their descriptors and
+ * falls back to the annotations for classes without a descriptor.
+ * 
+ */
+public class MappingDescriptorGenerator {
+
+	/** The simple class name of the configuration using the descriptors **/
+	public static final String CONFIGURATION_CLASS_NAME = "DescriptorConfiguration";
+
+	/** The Java package **/
+	private final String javaPackage;
+	/** The class name of the BAPI class **/
+	private final String bapiClassName;
+	/** The BAPI function mapping **/
+	private final BapiMapping functionMapping;
+	/** The compact type mapping of the function, null for the standard type mapping **/
+	private final CompactTypeMapping compactTypes;
+	/** The class names of the structure and table parameters by SAP name **/
+	private final Map<String, String> parameterClassNames = new HashMap<String, String>();
+	/** The class names of the converters of table parameters mapped to a table class by SAP name **/
+	private final Map<String, String> tableConverterClassNames = new HashMap<String, String>();
+
+	/**
+	 * Constructor - Instantiates a new MappingDescriptorGenerator
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param bapiClassName - the class name of the BAPI class
+	 * @param functionMapping - the BAPI function mapping
+	 * @param compactTypes - the compact type mapping of the function, null for the standard type mapping
+	 */
+	public MappingDescriptorGenerator(final String javaPackage, final String bapiClassName,
+			final BapiMapping functionMapping, final CompactTypeMapping compactTypes) {
+		this.javaPackage = javaPackage;
+		this.bapiClassName = bapiClassName;
+		this.functionMapping = functionMapping;
+		this.compactTypes = compactTypes;
+	}
+
+	/**
+	 * Gets the class name of the descriptor of a BAPI class
+	 * 
+	 * @param bapiClassName - the simple class name of the BAPI class
+	 * @return the simple class name of the descriptor, e.g. BapiFlightGetlistDescriptor
+	 */
+	public static String getDescriptorClassName(final String bapiClassName) {
+		return bapiClassName + "Descriptor";
+	}
+
+	/**
+	 * Sets the structure class of a structure parameter or of the rows of a table parameter
+	 * 
+	 * @param parameterName - the SAP name of the parameter
+	 * @param className - the simple class name of the structure class
+	 */
+	public void putStructureClass(final String parameterName, final String className) {
+		this.parameterClassNames.put(parameterName, className);
+	}
+
+	/**
+	 * Sets the table class of a table parameter mapped with a converter instead of a list of structure objects
+	 * 
+	 * @param parameterName - the SAP name of the table parameter
+	 * @param className - the simple class name of the table class
+	 * @param converterClassName - the simple class name of the converter of the table class
+	 */
+	public void putTableClass(final String parameterName, final String className, final String converterClassName) {
+		this.parameterClassNames.put(parameterName, className);
+		this.tableConverterClassNames.put(parameterName, converterClassName);
+	}
+
+	/**
+	 * Generates the source of the descriptor class
+	 * 
+	 * @return the source
+	 */
+	public String createSource() {
+		final Set<String> imports = new TreeSet<String>();
+		final StringBuilder body = new StringBuilder(2048);
+		final String descriptorClassName = getDescriptorClassName(this.bapiClassName);
+
+		imports.add("org.hibersap.mapping.model.BapiMapping");
+		imports.add("org.hibersap.mapping.model.ErrorHandling");
+
+		body.append("\n/**\n * Creates the Hibersap mapping of ").append(this.bapiClassName)
+				.append(" without reading its annotations\n */\n");
+		body.append("public final class ").append(descriptorClassName).append(" {\n\n");
+		body.append("\tprivate ").append(descriptorClassName).append("() {\n\t}\n\n");
+		body.append("\tpublic static BapiMapping create() {\n");
+		body.append("\t\tfinal BapiMapping mapping = new BapiMapping(").append(this.bapiClassName).append(".class, \"")
+				.append(this.functionMapping.getBapiName()).append("\", new ErrorHandling(null, null));\n");
+
+		boolean blockEnded = true;
+
+		blockEnded = appendParameters(body, imports, this.functionMapping.getImportParameters(),
+				"addImportParameter", blockEnded);
+		blockEnded = appendParameters(body, imports, this.functionMapping.getExportParameters(),
+				"addExportParameter", blockEnded);
+		appendParameters(body, imports, this.functionMapping.getTableParameters(), "addTableParameter", blockEnded);
+
+		body.append("\n\t\treturn mapping;\n\t}\n\n}\n");
+
+		return createHeader(this.javaPackage, imports) + body;
+	}
+
+	/**
+	 * Appends the statements adding parameters to the mapping
+	 * 
+	 * Simple parameters are added one per line, every structure or table parameter is a block separated by blank lines.
+	 * 
+	 * @param body - the body of the class
+	 * @param imports - the imports of the class
+	 * @param params - the parameters
+	 * @param addMethodName - the method of BapiMapping adding a parameter
+	 * @param blockEnded - true if the body ends with a block or the creation of the mapping
+	 * @return true if the body ends with a block
+	 */
+	private boolean appendParameters(final StringBuilder body, final Set<String> imports,
+			final Set<? extends ParameterMapping> params, final String addMethodName, final boolean blockEnded) {
+		boolean lastBlockEnded = blockEnded;
+
+		for (final ParameterMapping param : params) {
+			final String sapName = param.getSapName();
+			final ParamType paramType = param.getParamType();
+
+			if (paramType == ParamType.FIELD) {
+				imports.add(FieldMapping.class.getName());
+				body.append(lastBlockEnded ? "\n" : "").append("\t\tmapping.").append(addMethodName).append('(')
+						.append(getFieldMapping(imports, sapName, null, param)).append(");\n");
+				lastBlockEnded = false;
+				continue;
+			}
+
+			body.append('\n');
+			lastBlockEnded = true;
+
+			final String variableName = "_" + sapName.toLowerCase().replaceAll("[^a-z0-9_]", "_");
+			final String className = this.parameterClassNames.get(sapName);
+			final String converterClassName = this.tableConverterClassNames.get(sapName);
+			final String converterLiteral = converterClassName == null ? "null" : converterClassName + ".class";
+
+			imports.add("org.hibersap.mapping.model.StructureMapping");
+			body.append("\t\tfinal StructureMapping ").append(variableName).append(" = new StructureMapping(")
+					.append(className).append(".class, \"").append(sapName).append("\", \"")
+					.append(param.getJavaName()).append("\", ").append(converterLiteral).append(");\n");
+
+			//A table class has no fields annotated as parameters, its converter maps the rows
+			if (converterClassName == null) {
+				imports.add(FieldMapping.class.getName());
+
+				for (final FieldMapping fieldMapping : SAPEntityBuilder.getFieldMappings(param)) {
+					body.append("\t\t").append(variableName).append(".addParameter(")
+							.append(getFieldMapping(imports, sapName, fieldMapping.getSapName(), fieldMapping))
+							.append(");\n");
+				}
+			}
+
+			body.append("\t\tmapping.").append(addMethodName).append('(');
+
+			if (paramType == ParamType.TABLE) {
+				imports.add("org.hibersap.mapping.model.TableMapping");
+
+				if (converterClassName == null) {
+					imports.add(List.class.getName());
+					body.append("new TableMapping(List.class, ");
+				} else {
+					body.append("new TableMapping(").append(className).append(".class, ");
+				}
+
+				body.append(className).append(".class, \"").append(sapName).append("\", \"")
+						.append(param.getJavaName()).append("\", ").append(variableName).append(", ")
+						.append(converterLiteral).append(')');
+			} else {
+				body.append(variableName);
+			}
+
+			body.append(");\n");
+		}
+
+		return lastBlockEnded;
+	}
+
+	/**
+	 * Gets the expression creating the mapping of a simple parameter or a field of a structure or table parameter
+	 * 
+	 * @param imports - the imports of the class
+	 * @param parameterName - the SAP name of the parameter
+	 * @param fieldName - the SAP name of the field of a structure or table parameter, null for a simple parameter
+	 * @param fieldMapping - the mapping of the field
+	 * @return the expression
+	 */
+	private String getFieldMapping(final Set<String> imports, final String parameterName, final String fieldName,
+			final ParameterMapping fieldMapping) {
+		final CompactType compactType = this.compactTypes == null ? null : this.compactTypes.getCompactType(
+				parameterName, fieldName);
+		final String typeLiteral;
+		String converterLiteral = "null";
+
+		if (compactType == null) {
+			typeLiteral = getClassLiteral(imports, fieldMapping.getAssociatedType());
+		} else {
+			final String converterClassName = compactType.getConverterClassName(this.compactTypes.getFieldType(
+					parameterName, fieldName).getDecimals());
+			final int packageEnd = converterClassName.lastIndexOf('.');
+
+			if (packageEnd >= 0) {
+				imports.add(converterClassName);
+			}
+
+			typeLiteral = compactType.getJavaType() + ".class";
+			converterLiteral = converterClassName.substring(packageEnd + 1) + ".class";
+		}
+
+		return "new FieldMapping(" + typeLiteral + ", \"" + fieldMapping.getSapName() + "\", \""
+				+ fieldMapping.getJavaName() + "\", " + converterLiteral + ")";
+	}
+
+	/**
+	 * Gets the class literal of a type, importing the type if necessary
+	 * 
+	 * @param imports - the imports of the class
+	 * @param type - the type
+	 * @return the class literal, e.g. BigDecimal.class or byte[].class
+	 */
+	private static String getClassLiteral(final Set<String> imports, final Class<?> type) {
+		Class<?> componentType = type;
+		String dimensions = "";
+
+		while (componentType.isArray()) {
+			componentType = componentType.getComponentType();
+			dimensions += "[]";
+		}
+
+		if (!componentType.isPrimitive() && !componentType.getName().equals("java.lang." + componentType.getSimpleName())) {
+			imports.add(componentType.getName());
+		}
+
+		return componentType.getSimpleName() + dimensions + ".class";
+	}
+
+	/**
+	 * Generates the source of the Hibersap configuration creating the mappings of the annotated classes of a session
+	 * manager with their descriptors
+	 * 
+	 * @param javaPackage - the Java package
+	 * @return the source
+	 */
+	public static String createConfigurationSource(final String javaPackage) {
+		final Set<String> imports = new TreeSet<String>();
+		final StringBuilder body = new StringBuilder(4096);
+		final String className = MappingDescriptorGenerator.CONFIGURATION_CLASS_NAME;
+
+		imports.add("java.util.HashMap");
+		imports.add("java.util.Map");
+		imports.add("org.hibersap.ConfigurationException");
+		imports.add("org.hibersap.configuration.Configuration");
+		imports.add("org.hibersap.configuration.xml.SessionManagerConfig");
+		imports.add("org.hibersap.mapping.AnnotationBapiMapper");
+		imports.add("org.hibersap.mapping.model.BapiMapping");
+		imports.add("org.hibersap.session.Context");
+		imports.add("org.hibersap.session.SessionManager");
+
+		body.append("\n/**\n * A Hibersap configuration creating the mappings of the annotated classes of the session manager");
+		body.append(" with their\n * generated descriptor classes instead of reading their annotations. Classes without");
+		body.append(" a descriptor are\n * mapped from their annotations.\n */\n");
+		body.append("public class ").append(className).append(" extends Configuration {\n\n");
+		body.append("\tpublic ").append(className).append("(final String sessionManagerName) {\n");
+		body.append("\t\tsuper(sessionManagerName);\n\t}\n\n");
+		body.append("\tpublic ").append(className).append("(final SessionManagerConfig sessionManagerConfig) {\n");
+		body.append("\t\tsuper(sessionManagerConfig);\n\t}\n\n");
+		body.append("\tpublic SessionManager buildSessionManager(final Context context) {\n");
+		body.append("\t\tfinal Map<Class<?>, BapiMapping> mappings = new HashMap<Class<?>, BapiMapping>();\n");
+		body.append("\t\tAnnotationBapiMapper annotationMapper = null;\n\n");
+		body.append("\t\tfor (final String className : getSessionManagerConfig().getAnnotatedClasses()) {\n");
+		body.append("\t\t\tBapiMapping mapping;\n\n");
+		body.append("\t\t\ttry {\n");
+		body.append("\t\t\t\tmapping = createMapping(className + \"Descriptor\");\n");
+		body.append("\t\t\t} catch (final ClassNotFoundException e) {\n");
+		body.append("\t\t\t\tif (annotationMapper == null) {\n");
+		body.append("\t\t\t\t\tannotationMapper = new AnnotationBapiMapper();\n\t\t\t\t}\n");
+		body.append("\t\t\t\tmapping = annotationMapper.mapBapi(loadClass(className));\n");
+		body.append("\t\t\t}\n");
+		body.append("\t\t\tmappings.put(mapping.getAssociatedClass(), mapping);\n");
+		body.append("\t\t}\n\n");
+		body.append("\t\taddBapiMappings(mappings);\n\n");
+		body.append("\t\treturn super.buildSessionManager(context);\n\t}\n\n");
+		body.append("\tprivate static BapiMapping createMapping(final String descriptorClassName)");
+		body.append(" throws ClassNotFoundException {\n");
+		body.append("\t\tfinal Class<?> descriptorClass = Class.forName(descriptorClassName);\n\n");
+		body.append("\t\ttry {\n");
+		body.append("\t\t\treturn (BapiMapping) descriptorClass.getMethod(\"create\").invoke(null);\n");
+		body.append("\t\t} catch (final Exception e) {\n");
+		body.append("\t\t\tthrow new ConfigurationException(\"Cannot create the mapping with \" + descriptorClassName, e);\n");
+		body.append("\t\t}\n\t}\n\n");
+		body.append("\tprivate static Class<?> loadClass(final String className) {\n");
+		body.append("\t\ttry {\n\t\t\treturn Class.forName(className);\n");
+		body.append("\t\t} catch (final ClassNotFoundException e) {\n");
+		body.append("\t\t\tthrow new ConfigurationException(\"Cannot find annotated class \" + className, e);\n");
+		body.append("\t\t}\n\t}\n\n}\n");
+
+		return createHeader(javaPackage, imports) + body;
+	}
+
+	/**
+	 * Creates the package declaration and the imports of a class
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param imports - the qualified names of the imports
+	 * @return the header
+	 */
+	private static String createHeader(final String javaPackage, final Set<String> imports) {
+		final StringBuilder header = new StringBuilder(512);
+
+		header.append("package ").append(javaPackage).append(";\n\n");
+
+		for (final String qualifiedName : imports) {
+			header.append("import ").append(qualifiedName).append(";\n");
+		}
+
+		return header.toString();
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.Map;
+
+import org.hibersap.HibersapException;
+import org.hibersap.mapping.model.BapiMapping;
+
+import com.sap.conn.jco.JCoDestination;
+
+/**
+ * Emits the sources of SAP entities with the options they were generated with, see {@link GenerationOptions}
+ * 
+ * Entities generated without options are emitted by the default emitter. The others are built by
+ * {@link SAPEntityBuilder} with their options, whatever the default emitter is. Compact types are not part of the
+ * function mapping, they are read from the JCo repository, so entities generated with compact types can only be
+ * emitted with a SAP connection.
+ * 
+ */
+public class OptionsEntityEmitter implements EntityEmitter {
+
+	/** The emitter of the entities generated without options **/
+	private final EntityEmitter defaultEmitter;
+	/** The registry of shared structure classes, null to create the structure classes of every entity **/
+	private final StructureRegistry structureRegistry;
+	/** The generation options by qualified BAPI class name **/
+	private final Map<String, GenerationOptions> options;
+	/** The destination to read compact types from, null without SAP connection **/
+	private final JCoDestination destination;
+
+	/**
+	 * Constructor - Instantiates a new OptionsEntityEmitter
+	 * 
+	 * @param defaultEmitter - the emitter of the entities generated without options
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 * @param options - the generation options by qualified BAPI class name; entities without options are missing
+	 * @param destination - the destination to read compact types from, null without SAP connection
+	 */
+	public OptionsEntityEmitter(final EntityEmitter defaultEmitter, final StructureRegistry structureRegistry,
+			final Map<String, GenerationOptions> options, final JCoDestination destination) {
+		this.defaultEmitter = defaultEmitter;
+		this.structureRegistry = structureRegistry;
+		this.options = options;
+		this.destination = destination;
+	}
+
+	public SAPEntitySource emit(final String className, final String javaPackage, final BapiMapping functionMapping) {
+		final String bapiClassName = javaPackage.isEmpty() ? className : javaPackage + '.' + className;
+		final GenerationOptions entityOptions = this.options.get(bapiClassName);
+
+		if (entityOptions == null || !entityOptions.isSet()) {
+			return this.defaultEmitter.emit(className, javaPackage, functionMapping);
+		}
+
+		CompactTypeMapping compactTypes = null;
+
+		if (entityOptions.isCompact()) {
+			if (this.destination == null) {
+				throw new HibersapException(bapiClassName + " was generated with --compact, which needs a SAP connection");
+			}
+
+			compactTypes = CompactTypeMapping.read(this.destination, functionMapping.getBapiName(),
+					entityOptions.isFlagsAsBoolean());
+		}
+
+		final SAPEntityBuilder sapEntityBuilder = new SAPEntityBuilder(this.structureRegistry, 1,
+				entityOptions.isColumnarTables(), entityOptions.isMappingDescriptors());
+
+		sapEntityBuilder.createNew(className, javaPackage, functionMapping, compactTypes,
+				entityOptions.getStreamingTables());
+
+		return SAPEntitySource.of(sapEntityBuilder.getSAPEntity());
+	}
+
+}
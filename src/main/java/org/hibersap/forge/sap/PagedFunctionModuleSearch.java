@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
+import org.hibersap.session.Session;
+
+/**
+ * Searches for functions in a SAP system page by page
+ * 
+ * Every page is read with its own call of {@link SAPFunctionModuleSearch}, so only one page of the result is held in
+ * memory at once and the found names can be handled before the search has finished.
+ * 
+ * The pages are read by key range: every page starts after the greatest function name of the previous page, so the
+ * server reads every row once, and no name is returned twice even though RFC_READ_TABLE does not sort. The names of
+ * a page are passed on sorted. A page only misses names if the database does not return the rows of TFDIR in the
+ * order of their key FUNCNAME, which it reads them by.
+ * 
+ * A filter with several conditions (see {@link FunctionModuleFilter#getConditions()}) is searched condition by
+ * condition; the names are sorted within the pages of every condition.
+ * 
+ */
+public class PagedFunctionModuleSearch {
+
+	/** The default number of function names read per page **/
+	public static final int DEFAULT_PAGE_SIZE = 1000;
+
+	/** The function name pattern **/
+	private final String functionNamePattern;
+	/** The maximum number of results, 0 for no limitation **/
+	private final int maxResults;
+	/** The number of function names read per page **/
+	private final int pageSize;
+	/** The filter restricting the searched functions **/
+	private final FunctionModuleFilter filter;
+
+	/**
+	 * Constructor - creates an instance of PagedFunctionModuleSearch
+	 * 
+	 * @param functionNamePattern - The function name pattern. May contain wildcards (* or ?).
+	 * @param maxResults - Sets the maximum number of results. Set 0 for no limitation.
+	 * @param pageSize - Sets the number of function names read per page
+	 */
+	public PagedFunctionModuleSearch(final String functionNamePattern, final int maxResults, final int pageSize) {
+		this(functionNamePattern, maxResults, pageSize, FunctionModuleFilter.NONE);
+	}
+
+	/**
+	 * Constructor - creates an instance of PagedFunctionModuleSearch restricted by the given filter
+	 * 
+	 * @param functionNamePattern - The function name pattern. May contain wildcards (* or ?).
+	 * @param maxResults - Sets the maximum number of results. Set 0 for no limitation.
+	 * @param pageSize - Sets the number of function names read per page
+	 * @param filter - Sets the filter restricting the searched functions
+	 */
+	public PagedFunctionModuleSearch(final String functionNamePattern, final int maxResults, final int pageSize,
+			final FunctionModuleFilter filter) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("Expected page size greater than 0, but was " + pageSize);
+		}
+
+		this.functionNamePattern = functionNamePattern;
+		this.maxResults = maxResults;
+		this.pageSize = pageSize;
+		this.filter = filter;
+	}
+
+	/**
+	 * Executes the search and passes every page to the given callback
+	 * 
+	 * The search stops when all function names were read, the maximum number of results is reached or the callback
+	 * returns false. The function groups of a package filter are looked up before the first page is read.
+	 * 
+	 * @param session - the session to the SAP system
+	 * @param callback - the callback receiving the pages
+	 * @return the number of found function names
+	 */
+	public int execute(final Session session, final FunctionNameCallback callback) {
+		final FunctionModuleFilter resolvedFilter = this.filter.resolve(session);
+		int found = 0;
+
+		if (resolvedFilter.isUnsatisfiable()) {
+			return found;
+		}
+
+		for (final String condition : resolvedFilter.getConditions()) {
+			String startAfter = null;
+
+			while (true) {
+				if (this.maxResults > 0 && found >= this.maxResults) {
+					return found;
+				}
+
+				final int rowCount = this.maxResults > 0 ? Math.min(this.pageSize, this.maxResults - found) : this.pageSize;
+				final SAPFunctionModuleSearch page = new SAPFunctionModuleSearch(this.functionNamePattern, rowCount,
+						startAfter, condition);
+
+				final FlightEvent event = FlightEvents.RFC_CALL.begin();
+
+				session.execute(page);
+
+				final List<String> functionNames = new ArrayList<String>(page.getFunctionNames());
+
+				Collections.sort(functionNames);
+
+				event.set("function", "RFC_READ_TABLE").set("detail", "TFDIR " + this.functionNamePattern)
+						.set("rows", functionNames.size()).commit();
+
+				if (functionNames.isEmpty()) {
+					break;
+				}
+
+				found += functionNames.size();
+				startAfter = functionNames.get(functionNames.size() - 1);
+
+				if (!callback.handle(functionNames)) {
+					return found;
+				}
+				if (functionNames.size() < rowCount) {
+					break;
+				}
+			}
+		}
+
+		return found;
+	}
+
+}
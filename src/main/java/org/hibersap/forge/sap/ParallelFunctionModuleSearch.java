@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hibersap.HibersapException;
+import org.hibersap.session.Session;
+import org.hibersap.session.SessionManager;
+
+/**
+ * Searches for functions matching several name patterns at the same time
+ * 
+ * Every pattern is searched with its own {@link PagedFunctionModuleSearch} in its own session. The number of
+ * concurrent sessions is limited by the given pool size, which should not exceed the JCo destination pool capacity.
+ * 
+ */
+public class ParallelFunctionModuleSearch {
+
+	/** The function name patterns **/
+	private final List<String> functionNamePatterns;
+	/** The maximum number of results per pattern, 0 for no limitation **/
+	private final int maxResults;
+	/** The number of function names read per call **/
+	private final int pageSize;
+	/** The max. number of concurrent searches **/
+	private final int poolSize;
+	/** The filter restricting the searched functions **/
+	private final FunctionModuleFilter filter;
+
+	/**
+	 * Constructor - creates an instance of ParallelFunctionModuleSearch
+	 * 
+	 * @param functionNamePatterns - The function name patterns. May contain wildcards (* or ?).
+	 * @param maxResults - Sets the maximum number of results per pattern. Set 0 for no limitation.
+	 * @param pageSize - Sets the number of function names read per call
+	 * @param poolSize - Sets the max. number of concurrent searches
+	 */
+	public ParallelFunctionModuleSearch(final List<String> functionNamePatterns, final int maxResults,
+			final int pageSize, final int poolSize) {
+		this(functionNamePatterns, maxResults, pageSize, poolSize, FunctionModuleFilter.NONE);
+	}
+
+	/**
+	 * Constructor - creates an instance of ParallelFunctionModuleSearch restricted by the given filter
+	 * 
+	 * @param functionNamePatterns - The function name patterns. May contain wildcards (* or ?).
+	 * @param maxResults - Sets the maximum number of results per pattern. Set 0 for no limitation.
+	 * @param pageSize - Sets the number of function names read per call
+	 * @param poolSize - Sets the max. number of concurrent searches
+	 * @param filter - Sets the filter restricting the searched functions of all patterns
+	 */
+	public ParallelFunctionModuleSearch(final List<String> functionNamePatterns, final int maxResults,
+			final int pageSize, final int poolSize, final FunctionModuleFilter filter) {
+		this.functionNamePatterns = functionNamePatterns;
+		this.maxResults = maxResults;
+		this.pageSize = pageSize;
+		this.poolSize = Math.max(1, Math.min(poolSize, functionNamePatterns.size()));
+		this.filter = filter;
+	}
+
+	/**
+	 * Executes the searches and merges their results
+	 * 
+	 * The pages of all searches are passed to the given callback as they arrive, one page at a time. Returning false
+	 * from the callback stops the search of the pattern the page belongs to. The function groups of a package filter
+	 * are looked up once for all patterns.
+	 * 
+	 * @param sessionManager - the session manager to open the sessions with
+	 * @param callback - the callback receiving the pages
+	 * @return the found function names without duplicates, in the order of the patterns
+	 */
+	public List<String> execute(final SessionManager sessionManager, final FunctionNameCallback callback) {
+		final FunctionModuleFilter resolvedFilter = resolveFilter(sessionManager);
+		final ExecutorService executor = Executors.newFixedThreadPool(this.poolSize);
+		final List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+
+		try {
+			for (final String functionNamePattern : this.functionNamePatterns) {
+				futures.add(executor.submit(createSearch(sessionManager, functionNamePattern, resolvedFilter,
+						callback)));
+			}
+
+			final Set<String> functionNames = new LinkedHashSet<String>();
+
+			for (final Future<List<String>> future : futures) {
+				functionNames.addAll(getResult(future));
+			}
+
+			return new ArrayList<String>(functionNames);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Looks up the function groups of a package filter
+	 * 
+	 * @param sessionManager - the session manager to open the session with
+	 * @return the resolved filter
+	 */
+	private FunctionModuleFilter resolveFilter(final SessionManager sessionManager) {
+		if (this.filter.isResolved()) {
+			return this.filter;
+		}
+
+		final Session session = sessionManager.openSession();
+
+		try {
+			return this.filter.resolve(session);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Creates the search task for one pattern
+	 * 
+	 * @param sessionManager - the session manager to open the session with
+	 * @param functionNamePattern - the function name pattern
+	 * @param filter - the resolved filter
+	 * @param callback - the callback receiving the pages
+	 * @return the search task
+	 */
+	private Callable<List<String>> createSearch(final SessionManager sessionManager,
+			final String functionNamePattern, final FunctionModuleFilter filter, final FunctionNameCallback callback) {
+		return new Callable<List<String>>() {
+
+			public List<String> call() {
+				final PagedFunctionModuleSearch search = new PagedFunctionModuleSearch(functionNamePattern,
+						ParallelFunctionModuleSearch.this.maxResults, ParallelFunctionModuleSearch.this.pageSize, filter);
+				final List<String> functionNames = new ArrayList<String>();
+				final Session session = sessionManager.openSession();
+
+				try {
+					search.execute(session, new FunctionNameCallback() {
+
+						public boolean handle(final List<String> pageNames) {
+							functionNames.addAll(pageNames);
+
+							synchronized (callback) {
+								return callback.handle(pageNames);
+							}
+						}
+					});
+				} finally {
+					session.close();
+				}
+
+				return functionNames;
+			}
+		};
+	}
+
+	/**
+	 * Gets the result of a search task
+	 * 
+	 * @param future - the future of the search task
+	 * @return the found function names
+	 */
+	private static List<String> getResult(final Future<List<String>> future) {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HibersapException("Function module search interrupted", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new HibersapException("Function module search failed", e.getCause());
+		}
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+/**
+ * The destination of the calls of a {@link ConnectionProbe}
+ * 
+ */
+public interface ProbeTarget {
+
+	/**
+	 * Sends a payload and waits for its echo
+	 * 
+	 * @param payload - the payload
+	 * @return the echoed payload
+	 * @throws Exception - if the call fails
+	 */
+	String echo(String payload) throws Exception;
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.ParameterMapping;
+import org.hibersap.mapping.model.ParameterMapping.ParamType;
+
+/**
+ * The estimated heap size of one row of a structure or table parameter with the standard and the compact type
+ * mapping
+ * 
+ * The estimate assumes a 64-bit JVM with compressed references and strings backed by a char array. Character fields
+ * are counted with their full SAP length, which is the upper bound of the strings returned by JCo. Table rows include
+ * their reference in the list.
+ * 
+ */
+public class RowHeapEstimate {
+
+	/** The size of an object header in bytes **/
+	private static final int HEADER_SIZE = 12;
+	/** The size of a reference in bytes **/
+	private static final int REFERENCE_SIZE = 4;
+	/** The size of a String without its char array in bytes **/
+	private static final int STRING_SIZE = 24;
+	/** The size of an array header in bytes **/
+	private static final int ARRAY_HEADER_SIZE = 16;
+	/** The size of a BigDecimal with up to 18 digits in bytes **/
+	private static final int BIG_DECIMAL_SIZE = 40;
+	/** The size of a Date, Long or Double in bytes **/
+	private static final int LARGE_BOX_SIZE = 24;
+	/** The size of a small boxed value or of an unknown object in bytes **/
+	private static final int SMALL_BOX_SIZE = 16;
+
+	/** The SAP name of the parameter **/
+	private final String parameterName;
+	/** The bytes per row with the standard type mapping **/
+	private final long standardBytes;
+	/** The bytes per row with the compact type mapping **/
+	private final long compactBytes;
+
+	/**
+	 * Constructor - Instantiates a new RowHeapEstimate
+	 * 
+	 * @param parameterName - the SAP name of the parameter
+	 * @param standardBytes - the bytes per row with the standard type mapping
+	 * @param compactBytes - the bytes per row with the compact type mapping
+	 */
+	public RowHeapEstimate(final String parameterName, final long standardBytes, final long compactBytes) {
+		this.parameterName = parameterName;
+		this.standardBytes = standardBytes;
+		this.compactBytes = compactBytes;
+	}
+
+	/**
+	 * Estimates the heap per row of all structure and table parameters of a function
+	 * 
+	 * @param functionMapping - the function mapping
+	 * @param compactTypes - the compact type mapping of the function
+	 * @return the estimates of the import, export and table parameters, each ordered by SAP name
+	 */
+	public static List<RowHeapEstimate> of(final BapiMapping functionMapping, final CompactTypeMapping compactTypes) {
+		final List<RowHeapEstimate> estimates = new ArrayList<RowHeapEstimate>();
+
+		addEstimates(estimates, functionMapping.getImportParameters(), compactTypes);
+		addEstimates(estimates, functionMapping.getExportParameters(), compactTypes);
+		addEstimates(estimates, functionMapping.getTableParameters(), compactTypes);
+
+		return estimates;
+	}
+
+	/**
+	 * Adds the estimates of the structure and table parameters of a parameter set
+	 * 
+	 * @param estimates - the estimates to add to
+	 * @param params - the parameters
+	 * @param compactTypes - the compact type mapping of the function
+	 */
+	private static void addEstimates(final List<RowHeapEstimate> estimates,
+			final Collection<? extends ParameterMapping> params, final CompactTypeMapping compactTypes) {
+		final List<ParameterMapping> sortedParams = new ArrayList<ParameterMapping>(params);
+
+		Collections.sort(sortedParams, new Comparator<ParameterMapping>() {
+
+			public int compare(final ParameterMapping param1, final ParameterMapping param2) {
+				return param1.getSapName().compareTo(param2.getSapName());
+			}
+
+		});
+
+		for (final ParameterMapping param : sortedParams) {
+			if (param.getParamType() != ParamType.FIELD) {
+				estimates.add(new RowHeapEstimate(param.getSapName(), estimateRow(param, compactTypes, false),
+						estimateRow(param, compactTypes, true)));
+			}
+		}
+	}
+
+	/**
+	 * Estimates the heap of one row of a structure or table parameter
+	 * 
+	 * @param param - the structure or table parameter
+	 * @param compactTypes - the compact type mapping of the function
+	 * @param compact - true for the compact type mapping, false for the standard type mapping
+	 * @return the bytes per row
+	 */
+	static long estimateRow(final ParameterMapping param, final CompactTypeMapping compactTypes,
+			final boolean compact) {
+		final Set<FieldMapping> fieldMappings = SAPEntityBuilder.getFieldMappings(param);
+		long objectSize = RowHeapEstimate.HEADER_SIZE;
+		long valueSize = param.getParamType() == ParamType.TABLE ? RowHeapEstimate.REFERENCE_SIZE : 0;
+
+		for (final FieldMapping fieldMapping : fieldMappings) {
+			final CompactType compactType = compact ? compactTypes.getCompactType(param.getSapName(),
+					fieldMapping.getSapName()) : null;
+
+			if (compactType != null) {
+				objectSize += compactType.getSize();
+			} else {
+				objectSize += RowHeapEstimate.REFERENCE_SIZE;
+				valueSize += estimateValue(fieldMapping.getAssociatedType(),
+						compactTypes.getFieldType(param.getSapName(), fieldMapping.getSapName()));
+			}
+		}
+
+		return align(objectSize) + valueSize;
+	}
+
+	/**
+	 * Estimates the heap of the object a field with the standard type mapping refers to
+	 * 
+	 * @param type - the Java type of the field
+	 * @param fieldType - the SAP type of the field, null if it is unknown
+	 * @return the bytes
+	 */
+	static long estimateValue(final Class<?> type, final SAPFieldType fieldType) {
+		final int length = fieldType == null ? 0 : fieldType.getLength();
+
+		if (type == String.class) {
+			return RowHeapEstimate.STRING_SIZE + align(RowHeapEstimate.ARRAY_HEADER_SIZE + 2L * length);
+		}
+		if (type == byte[].class) {
+			return align(RowHeapEstimate.ARRAY_HEADER_SIZE + (long) length);
+		}
+		if (type == BigDecimal.class) {
+			return RowHeapEstimate.BIG_DECIMAL_SIZE;
+		}
+		if (type == Date.class || type == Long.class || type == Double.class) {
+			return RowHeapEstimate.LARGE_BOX_SIZE;
+		}
+
+		return RowHeapEstimate.SMALL_BOX_SIZE;
+	}
+
+	/**
+	 * Aligns a size to the 8 bytes of a heap object
+	 * 
+	 * @param size - the size in bytes
+	 * @return the aligned size in bytes
+	 */
+	private static long align(final long size) {
+		return (size + 7) & ~7L;
+	}
+
+	/**
+	 * Gets the SAP name of the parameter
+	 * 
+	 * @return the parameter name
+	 */
+	public String getParameterName() {
+		return this.parameterName;
+	}
+
+	/**
+	 * Gets the bytes per row with the standard type mapping
+	 * 
+	 * @return the bytes
+	 */
+	public long getStandardBytes() {
+		return this.standardBytes;
+	}
+
+	/**
+	 * Gets the bytes per row with the compact type mapping
+	 * 
+	 * @return the bytes
+	 */
+	public long getCompactBytes() {
+		return this.compactBytes;
+	}
+
+	/**
+	 * Gets the share of the heap saved by the compact type mapping
+	 * 
+	 * @return the saved share in percent
+	 */
+	public double getSavedPercent() {
+		return this.standardBytes == 0 ? 0 : (this.standardBytes - this.compactBytes) * 100.0 / this.standardBytes;
+	}
+
+}
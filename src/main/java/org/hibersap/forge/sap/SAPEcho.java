@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import org.hibersap.annotations.Bapi;
+import org.hibersap.annotations.Export;
+import org.hibersap.annotations.Import;
+import org.hibersap.annotations.Parameter;
+
+/**
+ * Sends a text to the SAP system and receives it back with STFC_CONNECTION, which is available in every SAP system.
+ * 
+ * The text is limited to 255 characters.
+ * 
+ */
+@Bapi(value = "STFC_CONNECTION")
+public class SAPEcho {
+
+	/** The max. length of the text **/
+	public static final int MAX_TEXT_LENGTH = 255;
+
+	@Import
+	@Parameter(value = "REQUTEXT")
+	private final String requestText;
+
+	@Export
+	@Parameter(value = "ECHOTEXT")
+	private String echoText;
+
+	/**
+	 * Constructor - creates an instance of SAPEcho
+	 * 
+	 * @param requestText - The text to send, at most 255 characters
+	 */
+	public SAPEcho(final String requestText) {
+		this.requestText = requestText;
+	}
+
+	/**
+	 * Gets the text received back from the SAP system
+	 * 
+	 * @return the echoed text
+	 */
+	public String getEchoText() {
+		return this.echoText;
+	}
+
+}
@@ -19,7 +19,7 @@
 
 package org.hibersap.forge.sap;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.jboss.forge.parser.java.JavaClass;
@@ -27,7 +27,8 @@ import org.jboss.forge.parser.java.JavaClass;
 /**
  * Represents a SAP entity in the hibersap-forge-plugin context
  * 
- * Contains a BAPI class an a Set of structure classes if custom types are needed
+ * Contains a BAPI class an a Set of structure classes if custom types are needed, the converter classes of a
+ * compact type mapping and optionally a mapping descriptor class
  * 
  * @author Max Schwaab
  *
@@ -36,8 +37,12 @@ public class SAPEntity {
 
 	/** The BAPI class **/
 	private final JavaClass bapiClass;
-	/** The structure classes set **/
-	private final Set<JavaClass> structureClasses = new HashSet<JavaClass>();
+	/** The structure classes set, in the order of the parameters **/
+	private final Set<JavaClass> structureClasses = new LinkedHashSet<JavaClass>();
+	/** The converter classes set, ordered by class name **/
+	private final Set<JavaClass> converterClasses = new LinkedHashSet<JavaClass>();
+	/** The mapping descriptor class, null if none is generated **/
+	private JavaClass descriptorClass;
 
 	/**
 	 * Constructor - Instantiates a new SAPEntity
@@ -60,12 +65,39 @@ public class SAPEntity {
 	/**
 	 * Gets the structure classes set
 	 * 
-	 * @return the structure classes set
+	 * @return the structure classes set, in the order of the parameters
 	 */
 	public Set<JavaClass> getStructureClasses() {
 		return this.structureClasses;
 	}
 
+	/**
+	 * Gets the converter classes set
+	 * 
+	 * @return the converter classes set, empty for the standard type mapping
+	 */
+	public Set<JavaClass> getConverterClasses() {
+		return this.converterClasses;
+	}
+
+	/**
+	 * Gets the mapping descriptor class
+	 * 
+	 * @return the mapping descriptor class, null if none is generated
+	 */
+	public JavaClass getDescriptorClass() {
+		return this.descriptorClass;
+	}
+
+	/**
+	 * Sets the mapping descriptor class
+	 * 
+	 * @param descriptorClass - the mapping descriptor class
+	 */
+	public void setDescriptorClass(final JavaClass descriptorClass) {
+		this.descriptorClass = descriptorClass;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
@@ -76,6 +108,8 @@ public class SAPEntity {
 		int result = 1;
 		result = prime * result + ((this.bapiClass == null) ? 0 : this.bapiClass.hashCode());
 		result = prime * result + ((this.structureClasses == null) ? 0 : this.structureClasses.hashCode());
+		result = prime * result + ((this.converterClasses == null) ? 0 : this.converterClasses.hashCode());
+		result = prime * result + ((this.descriptorClass == null) ? 0 : this.descriptorClass.hashCode());
 		return result;
 	}
 
@@ -90,7 +124,10 @@ public class SAPEntity {
 			final JavaClass toCompareBapiClass = toCompare.getBapiClass();
 			final Set<JavaClass> toCompareStructureClasses = toCompare.getStructureClasses();
 
-			return this.bapiClass.equals(toCompareBapiClass) && this.structureClasses.equals(toCompareStructureClasses);
+			return this.bapiClass.equals(toCompareBapiClass) && this.structureClasses.equals(toCompareStructureClasses)
+					&& this.converterClasses.equals(toCompare.getConverterClasses())
+					&& (this.descriptorClass == null ? toCompare.getDescriptorClass() == null : this.descriptorClass
+							.equals(toCompare.getDescriptorClass()));
 		}
 
 		return false;
@@ -109,6 +146,14 @@ public class SAPEntity {
 			builder.append("Structure Class \"" + structureClass.getName() + "\":\n");
 			builder.append(structureClass.toString() + "\n\n");
 		}
+		for (final JavaClass converterClass : this.converterClasses) {
+			builder.append("Converter Class \"" + converterClass.getName() + "\":\n");
+			builder.append(converterClass.toString() + "\n\n");
+		}
+		if (this.descriptorClass != null) {
+			builder.append("Descriptor Class \"" + this.descriptorClass.getName() + "\":\n");
+			builder.append(this.descriptorClass.toString() + "\n\n");
+		}
 
 		return builder.toString();
 	}
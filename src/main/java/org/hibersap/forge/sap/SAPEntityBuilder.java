@@ -19,17 +19,33 @@
 
 package org.hibersap.forge.sap;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.hibersap.HibersapException;
 import org.hibersap.annotations.Bapi;
 import org.hibersap.annotations.BapiStructure;
+import org.hibersap.annotations.Convert;
 import org.hibersap.annotations.Export;
 import org.hibersap.annotations.Import;
 import org.hibersap.annotations.Parameter;
 import org.hibersap.annotations.ParameterType;
 import org.hibersap.annotations.Table;
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
 import org.hibersap.mapping.model.BapiMapping;
 import org.hibersap.mapping.model.FieldMapping;
 import org.hibersap.mapping.model.ParameterMapping;
@@ -41,18 +57,131 @@ import org.jboss.forge.parser.java.Annotation;
 import org.jboss.forge.parser.java.Field;
 import org.jboss.forge.parser.java.JavaClass;
 import org.jboss.forge.parser.java.Method;
-import org.jboss.forge.parser.java.util.Refactory;
 
 /**
  * Builds a SAPEntity
  * 
+ * Parameters and structure fields are added in the order of their SAP names, so the order of the constructor
+ * parameters does not depend on the hash order of the mapping and is the same with every {@link EntityEmitter}.
+ * 
+ * The structure classes do not depend on each other. With a parallelism greater than one they are built on worker
+ * threads after all parameters are resolved, and added to the entity in the order of the parameters, so the result is
+ * the same as when building them one after the other.
+ * 
+ * With a compact type mapping, fields are mapped to primitive types where possible and annotated with the converter
+ * of their type. The converters which Hibersap does not provide are added to the entity. The structure classes of a
+ * compact entity are registered with the compact types and converters of their fields, so they are shared with other
+ * compact entities but never replace a standard structure class of the same name.
+ * 
+ * With columnar tables, table parameters are mapped to a class keeping the rows column by column, see
+ * {@link ColumnarTableGenerator}, instead of a list of structure objects.
+ * 
+ * Table parameters chosen for streaming are mapped to a class converting the rows to structure objects one by one
+ * while iterating, see {@link StreamingTableGenerator}. The choice takes precedence over columnar tables.
+ * 
+ * With mapping descriptors, a descriptor class creating the Hibersap mapping of the BAPI class is added to the entity,
+ * see {@link MappingDescriptorGenerator}.
+ * 
  * @author Max Schwaab
  *
  */
 public class SAPEntityBuilder {
 
+	/** Orders parameters and fields by SAP name **/
+	private static final Comparator<ParameterMapping> SAP_NAME_ORDER = new Comparator<ParameterMapping>() {
+
+		public int compare(final ParameterMapping param1, final ParameterMapping param2) {
+			return param1.getSapName().compareTo(param2.getSapName());
+		}
+	};
+
 	/** The SAPEntity **/
 	private SAPEntity entity;
+	/** The registry of shared structure classes, null to create the structure classes of every entity **/
+	private final StructureRegistry structureRegistry;
+	/** The max. number of structure classes built at the same time **/
+	private final int parallelism;
+	/** True to map table parameters to columnar table classes **/
+	private final boolean columnarTables;
+	/** True to add a mapping descriptor class to the entities **/
+	private final boolean mappingDescriptors;
+	/** The structure classes of the current entity to build, in the order of the parameters **/
+	private final List<StructureClassTask> structureClassTasks = new ArrayList<StructureClassTask>();
+	/** The simple structure class names of the current entity by parameter **/
+	private final Map<ParameterMapping, String> structureClassNames = new IdentityHashMap<ParameterMapping, String>();
+	/** The compact type mapping of the current entity, null for the standard type mapping **/
+	private CompactTypeMapping compactTypes;
+	/** The SAP names of the table parameters of the current entity mapped to row stream classes **/
+	private Set<String> streamingTables = Collections.emptySet();
+	/** The generator of the mapping descriptor of the current entity, null without mapping descriptors **/
+	private MappingDescriptorGenerator descriptorGenerator;
+	/** The sources of the generated converters of the current entity by simple class name **/
+	private final Map<String, String> converterSources = new TreeMap<String, String>();
+
+	/**
+	 * Constructor - Instantiates a new SAPEntityBuilder creating the structure classes of every entity
+	 */
+	public SAPEntityBuilder() {
+		this(null);
+	}
+
+	/**
+	 * Constructor - Instantiates a new SAPEntityBuilder sharing structure classes
+	 * 
+	 * Only structure classes which are not registered yet are added to the created entities, all other structures
+	 * reuse the registered classes.
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes
+	 */
+	public SAPEntityBuilder(final StructureRegistry structureRegistry) {
+		this(structureRegistry, 1);
+	}
+
+	/**
+	 * Constructor - Instantiates a new SAPEntityBuilder building the structure classes of an entity in parallel
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 * @param parallelism - the max. number of structure classes built at the same time, 1 to build them on the
+	 *            calling thread
+	 */
+	public SAPEntityBuilder(final StructureRegistry structureRegistry, final int parallelism) {
+		this(structureRegistry, parallelism, false);
+	}
+
+	/**
+	 * Constructor - Instantiates a new SAPEntityBuilder, optionally mapping table parameters to columnar table classes
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 * @param parallelism - the max. number of structure classes built at the same time, 1 to build them on the
+	 *            calling thread
+	 * @param columnarTables - true to map table parameters to columnar table classes, false to map them to lists of
+	 *            structure objects
+	 */
+	public SAPEntityBuilder(final StructureRegistry structureRegistry, final int parallelism,
+			final boolean columnarTables) {
+		this(structureRegistry, parallelism, columnarTables, false);
+	}
+
+	/**
+	 * Constructor - Instantiates a new SAPEntityBuilder, optionally adding a mapping descriptor class to the entities
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 * @param parallelism - the max. number of structure classes built at the same time, 1 to build them on the
+	 *            calling thread
+	 * @param columnarTables - true to map table parameters to columnar table classes, false to map them to lists of
+	 *            structure objects
+	 * @param mappingDescriptors - true to add a mapping descriptor class to the entities
+	 */
+	public SAPEntityBuilder(final StructureRegistry structureRegistry, final int parallelism,
+			final boolean columnarTables, final boolean mappingDescriptors) {
+		this.structureRegistry = structureRegistry;
+		this.parallelism = Math.max(1, parallelism);
+		this.columnarTables = columnarTables;
+		this.mappingDescriptors = mappingDescriptors;
+	}
 
 	/**
 	 * Creates a new SAP entity from the given BAPI function mapping  with the given class name and Java package
@@ -62,26 +191,83 @@ public class SAPEntityBuilder {
 	 * @param functionMapping - the BAPI function mapping
 	 */
 	public void createNew(final String className, final String javaPackage, final BapiMapping functionMapping) {
+		createNew(className, javaPackage, functionMapping, null);
+	}
+
+	/**
+	 * Creates a new SAP entity from the given BAPI function mapping with the given class name and Java package,
+	 * mapping its fields to primitive types where possible
+	 * 
+	 * @param className - the class name
+	 * @param javaPackage - the Java package
+	 * @param functionMapping - the BAPI function mapping
+	 * @param compactTypes - the compact type mapping of the function, null for the standard type mapping
+	 */
+	public void createNew(final String className, final String javaPackage, final BapiMapping functionMapping,
+			final CompactTypeMapping compactTypes) {
+		createNew(className, javaPackage, functionMapping, compactTypes, Collections.<String> emptySet());
+	}
+
+	/**
+	 * Creates a new SAP entity from the given BAPI function mapping with the given class name and Java package,
+	 * mapping the chosen table parameters to row stream classes
+	 * 
+	 * @param className - the class name
+	 * @param javaPackage - the Java package
+	 * @param functionMapping - the BAPI function mapping
+	 * @param compactTypes - the compact type mapping of the function, null for the standard type mapping
+	 * @param streamingTables - the SAP names of the table parameters to map to row stream classes
+	 */
+	public void createNew(final String className, final String javaPackage, final BapiMapping functionMapping,
+			final CompactTypeMapping compactTypes, final Set<String> streamingTables) {
+		final FlightEvent event = FlightEvents.ENTITY_BUILD.begin();
 		final String bapiName = functionMapping.getBapiName();
 
-		final Set<ParameterMapping> importParams = functionMapping.getImportParameters();
-		final Set<ParameterMapping> exportParams = functionMapping.getExportParameters();
-		final Set<TableMapping> tableParams = functionMapping.getTableParameters();
+		final List<ParameterMapping> importParams = sortBySapName(functionMapping.getImportParameters());
+		final List<ParameterMapping> exportParams = sortBySapName(functionMapping.getExportParameters());
+		final List<TableMapping> tableParams = sortBySapName(functionMapping.getTableParameters());
 
 		final JavaClass bapiClass = createJavaClass(className, javaPackage);
+		final AccessorGenerator bapiAccessors = new AccessorGenerator(bapiClass);
 
 		// Adding BAPI Annotation
 		final Annotation<JavaClass> bapiAnno = bapiClass.addAnnotation(Bapi.class);
 		bapiAnno.setStringValue(bapiName);
 
-		this.entity = new SAPEntity(bapiClass);
+		this.structureClassTasks.clear();
+		this.structureClassNames.clear();
+		this.compactTypes = compactTypes;
+		this.streamingTables = streamingTables;
+		this.converterSources.clear();
+		this.descriptorGenerator = this.mappingDescriptors ? new MappingDescriptorGenerator(javaPackage, className,
+				functionMapping, compactTypes) : null;
+
+		createConstructor(bapiClass, importParams, javaPackage);
+		createParameters(bapiClass, bapiAccessors, importParams, javaPackage, Import.class);
+		createParameters(bapiClass, bapiAccessors, exportParams, javaPackage, Export.class);
+		createParameters(bapiClass, bapiAccessors, tableParams, javaPackage, Table.class);
 
-		createConstructor(bapiClass, importParams);
-		createParameters(bapiClass, importParams, javaPackage, Import.class);
-		createParameters(bapiClass, exportParams, javaPackage, Export.class);
-		createParameters(bapiClass, tableParams, javaPackage, Table.class);
+		this.entity = new SAPEntity(bapiAccessors.generate());
+		this.entity.getStructureClasses().addAll(createStructureClasses());
 
-		Refactory.createToStringFromFields(bapiClass);
+		for (final String converterSource : this.converterSources.values()) {
+			this.entity.getConverterClasses().add(JavaParser.parse(JavaClass.class, converterSource));
+		}
+		if (this.descriptorGenerator != null) {
+			this.entity.setDescriptorClass(JavaParser.parse(JavaClass.class, this.descriptorGenerator.createSource()));
+		}
+
+		if (event.isRecorded()) {
+			final Set<JavaClass> structureClasses = this.entity.getStructureClasses();
+			int fields = this.entity.getBapiClass().getFields().size();
+
+			for (final JavaClass structureClass : structureClasses) {
+				fields += structureClass.getFields().size();
+			}
+
+			event.set("function", bapiName).set("className", this.entity.getBapiClass().getQualifiedName())
+					.set("fields", fields).set("structures", structureClasses.size()).commit();
+		}
 	}
 
 	/**
@@ -107,20 +293,25 @@ public class SAPEntityBuilder {
 	 * 
 	 * @param bapiClass - the BAPI class
 	 * @param importParams - the import parameters
+	 * @param javaPackage - the Java package
 	 */
-	private void createConstructor(final JavaClass bapiClass, final Set<ParameterMapping> importParams) {
+	private void createConstructor(final JavaClass bapiClass, final List<ParameterMapping> importParams,
+			final String javaPackage) {
 		final StringBuilder parameterBuilder = new StringBuilder();
 		final StringBuilder bodyBuilder = new StringBuilder();
 
 		for (final ParameterMapping parameterMapping : importParams) {
 			final String parameterFieldName = parameterMapping.getJavaName().substring(1);
 			final Class<?> clazz = parameterMapping.getAssociatedType();
+			final CompactType compactType = getCompactType(parameterMapping.getSapName(), null);
 			final String parameterType;
 
-			if (clazz != null) {
+			if (compactType != null) {
+				parameterType = compactType.getJavaType();
+			} else if (clazz != null) {
 				parameterType = clazz.getSimpleName();
 			} else {
-				parameterType = SAPEntityBuilder.convertFieldNameToClassName(parameterMapping.getJavaName());
+				parameterType = getStructureClassName(javaPackage, parameterMapping);
 			}
 
 			parameterBuilder.append("final ");
@@ -154,25 +345,56 @@ public class SAPEntityBuilder {
 	 * Creates the field, structure and table parameters for a given BAPI class with the given annotation
 	 * 
 	 * @param bapiClass - the BAPI class
-	 * @param params - the parameter list set
+	 * @param bapiAccessors - the generator of the accessors and toString() of the BAPI class
+	 * @param params - the parameters in the order of their SAP names
 	 * @param javaPackage - the Java package
 	 * @param annotationClass - the annotation needed for given parameter type
 	 */
-	private void createParameters(final JavaClass bapiClass, final Set<? extends ParameterMapping> params,
-			final String javaPackage, final Class<? extends java.lang.annotation.Annotation> annotationClass) {
+	private void createParameters(final JavaClass bapiClass, final AccessorGenerator bapiAccessors,
+			final List<? extends ParameterMapping> params, final String javaPackage,
+			final Class<? extends java.lang.annotation.Annotation> annotationClass) {
 		for (final ParameterMapping param : params) {
 			final String paramName = param.getJavaName();
 			final ParamType paramType = param.getParamType();
 			final Class<?> associatedType = param.getAssociatedType();
+			final CompactType compactType = getCompactType(param.getSapName(), null);
 			final Field<JavaClass> field;
+			String tableConverterClassName = null;
 
 			if (paramType == ParamType.FIELD) {
-				field = createSimpleField(paramName, associatedType.getName(), bapiClass);
+				field = createSimpleField(paramName, compactType != null ? compactType.getJavaType()
+						: associatedType.getName(), bapiClass);
+			} else if (paramType == ParamType.TABLE && this.streamingTables.contains(param.getSapName())) {
+				final String rowClassName = getStructureClassName(javaPackage, param);
+				final StructureRegistry.Registration registration = registerTableClass(javaPackage,
+						SAPEntityBuilder.convertFieldNameToClassName(paramName) + "Rows", "rows " + rowClassName,
+						param);
+				final String rowsClassName = registration.getClassName();
+
+				if (registration.isCreated()) {
+					this.structureClassTasks.add(new StructureClassTask(javaPackage, rowsClassName, param,
+							rowClassName));
+				}
+				tableConverterClassName = StreamingTableGenerator.getConverterClassName(rowsClassName);
+				field = createSimpleField(paramName, rowsClassName, bapiClass);
+				putDescriptorTableClass(param, rowsClassName, tableConverterClassName);
+			} else if (paramType == ParamType.TABLE && this.columnarTables) {
+				final StructureRegistry.Registration registration = registerTableClass(javaPackage,
+						SAPEntityBuilder.convertFieldNameToClassName(paramName) + "Table", "columnar", param);
+				final String tableClassName = registration.getClassName();
+
+				if (registration.isCreated()) {
+					this.structureClassTasks.add(new StructureClassTask(javaPackage, tableClassName, param, true));
+				}
+				tableConverterClassName = ColumnarTableGenerator.getConverterClassName(tableClassName);
+				field = createSimpleField(paramName, tableClassName, bapiClass);
+				putDescriptorTableClass(param, tableClassName, tableConverterClassName);
 			} else {
-				final JavaClass structureClass = createStructureClass(javaPackage, param);
-				final String structureClassName = structureClass.getName();
+				final String structureClassName = getStructureClassName(javaPackage, param);
 
-				this.entity.getStructureClasses().add(structureClass);
+				if (this.descriptorGenerator != null) {
+					this.descriptorGenerator.putStructureClass(param.getSapName(), structureClassName);
+				}
 
 				switch (paramType) {
 				case STRUCTURE:
@@ -196,13 +418,33 @@ public class SAPEntityBuilder {
 			if (paramType != ParamType.TABLE && associatedType == null) {
 				paramterAnno.setEnumValue("type", ParameterType.STRUCTURE);
 			}
+			if (paramType == ParamType.FIELD && compactType != null) {
+				addConverter(bapiClass, field, javaPackage, param.getSapName(), null, compactType);
+			}
+			if (tableConverterClassName != null) {
+				field.addAnnotation(Convert.class).setLiteralValue("converter", tableConverterClassName + ".class");
+			}
 
 			field.setPrivate();
 			if (annotationClass == Import.class) {
 				field.setFinal(true);
 			}
 
-			Refactory.createGetterAndSetter(bapiClass, field);
+			bapiAccessors.addAccessors(field);
+		}
+	}
+
+	/**
+	 * Sets the table class of a table parameter mapped with a converter at the mapping descriptor of the current entity
+	 * 
+	 * @param tableMapping - the table parameter
+	 * @param className - the class name of the table class
+	 * @param converterClassName - the class name of the converter of the table class
+	 */
+	private void putDescriptorTableClass(final ParameterMapping tableMapping, final String className,
+			final String converterClassName) {
+		if (this.descriptorGenerator != null) {
+			this.descriptorGenerator.putTableClass(tableMapping.getSapName(), className, converterClassName);
 		}
 	}
 
@@ -224,45 +466,318 @@ public class SAPEntityBuilder {
 	}
 
 	/**
-	 * Creates a structure class for a given parameter mapping with the given Java package
+	 * Gets the structure class name for a given parameter mapping and creates the structure class if necessary
+	 * 
+	 * The name is resolved once per parameter, so the constructor and the field of an import parameter get the same
+	 * type, which may be a shared class of another name.
 	 * 
 	 * @param javaPackage - the Java package
-	 * @param parameterMapping - the parameter mapping 
-	 * @return the created Java class
+	 * @param parameterMapping - the parameter mapping
+	 * @return the simple name of the structure class
 	 */
-	private JavaClass createStructureClass(final String javaPackage, final ParameterMapping parameterMapping) {
+	private String getStructureClassName(final String javaPackage, final ParameterMapping parameterMapping) {
+		final String resolvedClassName = this.structureClassNames.get(parameterMapping);
+
+		if (resolvedClassName != null) {
+			return resolvedClassName;
+		}
+
 		final String className = SAPEntityBuilder.convertFieldNameToClassName(parameterMapping.getJavaName());
-		final JavaClass structureClass = createJavaClass(className, javaPackage);
-		final Set<FieldMapping> fieldMappings;
 
-		structureClass.addAnnotation(BapiStructure.class);
+		if (this.structureRegistry == null) {
+			this.structureClassTasks.add(new StructureClassTask(javaPackage, className, parameterMapping, false));
+			this.structureClassNames.put(parameterMapping, className);
+
+			return className;
+		}
+
+		final StructureRegistry.Registration registration = this.structureRegistry.register(javaPackage, className,
+				getLayout(parameterMapping));
+
+		if (registration.isCreated()) {
+			this.structureClassTasks.add(new StructureClassTask(javaPackage, registration.getClassName(),
+					parameterMapping, false));
+		}
+		this.structureClassNames.put(parameterMapping, registration.getClassName());
+
+		return registration.getClassName();
+	}
+
+	/**
+	 * Registers the class a table parameter is mapped to instead of a list of structure objects
+	 * 
+	 * The table class is registered with the mode of the mapping and the layout of the rows, so it is shared by the
+	 * entities of the package with the same table, and never replaces a structure class or a table class of another
+	 * mode with the same name. The names of the classes generated along with it are derived from its name.
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param className - the proposed class name of the table class
+	 * @param mode - the mode of the mapping, e.g. "columnar" or "rows " with the class name of the row objects
+	 * @param tableMapping - the table parameter
+	 * @return the registration, always a created class without registry
+	 */
+	private StructureRegistry.Registration registerTableClass(final String javaPackage, final String className,
+			final String mode, final ParameterMapping tableMapping) {
+		if (this.structureRegistry == null) {
+			return new StructureRegistry.Registration(className, true);
+		}
+
+		return this.structureRegistry.register(javaPackage, className, mode + ';' + getLayout(tableMapping));
+	}
+
+	/**
+	 * Gets the layout of the structure class of a structure or table parameter of the current entity
+	 * 
+	 * The compact type and converter of a field are part of its layout, so a compact structure class gets another
+	 * name than the standard structure class with the same fields.
+	 * 
+	 * @param parameterMapping - the parameter mapping
+	 * @return the layout, see {@link StructureRegistry#getLayout(Collection)}
+	 */
+	private String getLayout(final ParameterMapping parameterMapping) {
+		final Set<FieldMapping> fieldMappings = getFieldMappings(parameterMapping);
+
+		if (this.compactTypes == null) {
+			return StructureRegistry.getLayout(fieldMappings);
+		}
+
+		final List<String> fields = new ArrayList<String>();
 
+		for (final FieldMapping fieldMapping : fieldMappings) {
+			final CompactType compactType = getCompactType(parameterMapping.getSapName(), fieldMapping.getSapName());
+			final Class<?> type = fieldMapping.getAssociatedType();
+			final StringBuilder field = new StringBuilder(fieldMapping.getSapName()).append(':');
+
+			if (compactType != null) {
+				field.append(compactType.getJavaType()).append('@').append(compactType.getConverterClassName(
+						this.compactTypes.getFieldType(parameterMapping.getSapName(), fieldMapping.getSapName())
+								.getDecimals()));
+			} else if (type != null) {
+				field.append(type.getName());
+			}
+
+			fields.add(field.toString());
+		}
+
+		return StructureRegistry.joinFields(fields);
+	}
+
+	/**
+	 * Gets the fields of a structure or table parameter
+	 * 
+	 * @param parameterMapping - the parameter mapping
+	 * @return the field mappings
+	 */
+	static Set<FieldMapping> getFieldMappings(final ParameterMapping parameterMapping) {
 		switch (parameterMapping.getParamType()) {
 		case STRUCTURE:
 			final StructureMapping structureMapping = (StructureMapping) parameterMapping;
-			fieldMappings = structureMapping.getParameters();
-			break;
+			return structureMapping.getParameters();
 		case TABLE:
 			final TableMapping tableMapping = (TableMapping) parameterMapping;
-			fieldMappings = tableMapping.getComponentParameter().getParameters();
-			break;
+			return tableMapping.getComponentParameter().getParameters();
 		default:
 			throw new HibersapException("Parameter type not expected: " + parameterMapping.getParamType());
 		}
+	}
+
+	/**
+	 * Sorts parameters or fields by SAP name, the order of the members of the generated classes
+	 * 
+	 * @param params - the parameters or fields
+	 * @return the sorted list
+	 */
+	static <T extends ParameterMapping> List<T> sortBySapName(final Collection<? extends T> params) {
+		final List<T> sorted = new ArrayList<T>(params);
+
+		Collections.sort(sorted, SAPEntityBuilder.SAP_NAME_ORDER);
+
+		return sorted;
+	}
+
+	/**
+	 * Creates the structure classes of the current entity, on worker threads if the parallelism allows it
+	 * 
+	 * @return the structure classes in the order of the parameters
+	 */
+	private List<JavaClass> createStructureClasses() {
+		final List<JavaClass> structureClasses = new ArrayList<JavaClass>(this.structureClassTasks.size());
+
+		if (this.parallelism == 1 || this.structureClassTasks.size() < 2) {
+			for (final StructureClassTask task : this.structureClassTasks) {
+				structureClasses.addAll(task.call());
+			}
+
+			return structureClasses;
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.parallelism,
+				this.structureClassTasks.size()));
+
+		try {
+			for (final Future<List<JavaClass>> future : executor.invokeAll(this.structureClassTasks)) {
+				structureClasses.addAll(future.get());
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HibersapException("Creating structure classes interrupted", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new HibersapException("Creating structure classes failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return structureClasses;
+	}
+
+	/**
+	 * Creates a structure class for a given parameter mapping with the given class name and Java package
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param className - the class name
+	 * @param parameterMapping - the parameter mapping 
+	 * @return the created Java class
+	 */
+	private JavaClass createStructureClass(final String javaPackage, final String className,
+			final ParameterMapping parameterMapping) {
+		final JavaClass structureClass = createJavaClass(className, javaPackage);
+		final AccessorGenerator structureAccessors = new AccessorGenerator(structureClass);
+		final List<FieldMapping> fieldMappings = sortBySapName(getFieldMappings(parameterMapping));
+
+		structureClass.addAnnotation(BapiStructure.class);
 
 		for (final FieldMapping fieldMapping : fieldMappings) {
+			final CompactType compactType = getCompactType(parameterMapping.getSapName(), fieldMapping.getSapName());
 			final Field<JavaClass> field = structureClass.addField();
 			field.setName(fieldMapping.getJavaName());
-			field.setType(fieldMapping.getAssociatedType());
+			if (compactType != null) {
+				field.setType(compactType.getJavaType());
+			} else {
+				field.setType(fieldMapping.getAssociatedType());
+			}
 			final Annotation<JavaClass> annotation = field.addAnnotation(Parameter.class);
 			annotation.setStringValue(fieldMapping.getSapName());
+			if (compactType != null) {
+				addConverter(structureClass, field, javaPackage, parameterMapping.getSapName(),
+						fieldMapping.getSapName(), compactType);
+			}
+
+			structureAccessors.addAccessors(field);
+		}
+
+		return structureAccessors.generate();
+	}
 
-			Refactory.createGetterAndSetter(structureClass, field);
+	/**
+	 * Creates a columnar table class with its cursor and converter class for a given table parameter with the given
+	 * class name and Java package
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param className - the class name of the table class
+	 * @param tableMapping - the table parameter
+	 * @return the created Java classes, the table class first
+	 */
+	private List<JavaClass> createColumnarTableClasses(final String javaPackage, final String className,
+			final ParameterMapping tableMapping) {
+		for (final FieldMapping fieldMapping : getFieldMappings(tableMapping)) {
+			final CompactType compactType = getCompactType(tableMapping.getSapName(), fieldMapping.getSapName());
+
+			if (compactType != null) {
+				registerConverter(javaPackage, compactType,
+						this.compactTypes.getFieldType(tableMapping.getSapName(), fieldMapping.getSapName())
+								.getDecimals());
+			}
 		}
 
-		Refactory.createToStringFromFields(structureClass);
+		final List<JavaClass> tableClasses = new ArrayList<JavaClass>(3);
+
+		for (final String source : new ColumnarTableGenerator(javaPackage, className, tableMapping, this.compactTypes)
+				.createSources().values()) {
+			tableClasses.add(JavaParser.parse(JavaClass.class, source));
+		}
+
+		return tableClasses;
+	}
+
+	/**
+	 * Creates a row stream class with its converter class for a given table parameter with the given class name and
+	 * Java package
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param className - the class name of the row stream class
+	 * @param rowClassName - the class name of the structure class of the rows
+	 * @param tableMapping - the table parameter
+	 * @return the created Java classes, the row stream class first
+	 */
+	private List<JavaClass> createStreamingTableClasses(final String javaPackage, final String className,
+			final String rowClassName, final ParameterMapping tableMapping) {
+		final StreamingTableGenerator generator = new StreamingTableGenerator(javaPackage, className, rowClassName,
+				tableMapping, this.compactTypes);
+
+		return Arrays.asList(JavaParser.parse(JavaClass.class, generator.createRowsSource()),
+				JavaParser.parse(JavaClass.class, generator.createConverterSource()));
+	}
 
-		return structureClass;
+	/**
+	 * Gets the primitive type of a field of the current entity
+	 * 
+	 * @param parameterName - the SAP name of the parameter
+	 * @param fieldName - the SAP name of the field of a structure or table parameter, null for a simple parameter
+	 * @return the compact type, null if the field keeps its standard type
+	 */
+	private CompactType getCompactType(final String parameterName, final String fieldName) {
+		return this.compactTypes == null ? null : this.compactTypes.getCompactType(parameterName, fieldName);
+	}
+
+	/**
+	 * Annotates a field with the converter of its compact type and generates the converter if Hibersap does not
+	 * provide it
+	 * 
+	 * @param javaClass - the class of the field
+	 * @param field - the field
+	 * @param javaPackage - the Java package
+	 * @param parameterName - the SAP name of the parameter
+	 * @param fieldName - the SAP name of the field of a structure or table parameter, null for a simple parameter
+	 * @param compactType - the compact type of the field
+	 */
+	private void addConverter(final JavaClass javaClass, final Field<JavaClass> field, final String javaPackage,
+			final String parameterName, final String fieldName, final CompactType compactType) {
+		String converterClassName = registerConverter(javaPackage, compactType,
+				this.compactTypes.getFieldType(parameterName, fieldName).getDecimals());
+
+		if (!compactType.isConverterGenerated()) {
+			javaClass.addImport(converterClassName);
+			converterClassName = converterClassName.substring(converterClassName.lastIndexOf('.') + 1);
+		}
+
+		field.addAnnotation(Convert.class).setLiteralValue("converter", converterClassName + ".class");
+	}
+
+	/**
+	 * Generates the converter of a compact type for the current entity if Hibersap does not provide it
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param compactType - the compact type
+	 * @param decimals - the decimals of the field
+	 * @return the class name of the converter, see {@link CompactType#getConverterClassName(int)}
+	 */
+	private String registerConverter(final String javaPackage, final CompactType compactType, final int decimals) {
+		final String converterClassName = compactType.getConverterClassName(decimals);
+
+		if (compactType.isConverterGenerated()) {
+			//Structure classes are built on several threads
+			synchronized (this.converterSources) {
+				if (!this.converterSources.containsKey(converterClassName)) {
+					this.converterSources.put(converterClassName,
+							CompactConverterGenerator.createSource(javaPackage, compactType, decimals));
+				}
+			}
+		}
+
+		return converterClassName;
 	}
 
 	/**
@@ -271,7 +786,7 @@ public class SAPEntityBuilder {
 	 * @param fieldName - the field name
 	 * @return the class name
 	 */
-	private static String convertFieldNameToClassName(final String fieldName) {
+	static String convertFieldNameToClassName(final String fieldName) {
 		if (fieldName.length() > 2) {
 			final String newFieldName = fieldName.substring(1, 2).toUpperCase() + fieldName.substring(2);
 
@@ -290,4 +805,70 @@ public class SAPEntityBuilder {
 		return this.entity;
 	}
 
+	/**
+	 * Creates one structure, columnar table or row stream class of the current entity
+	 * 
+	 */
+	private class StructureClassTask implements Callable<List<JavaClass>> {
+
+		/** The Java package **/
+		private final String javaPackage;
+		/** The class name **/
+		private final String className;
+		/** The structure or table parameter **/
+		private final ParameterMapping parameterMapping;
+		/** True to create a columnar table class **/
+		private final boolean columnar;
+		/** The class name of the structure class of the rows to create a row stream class, null otherwise **/
+		private final String rowClassName;
+
+		/**
+		 * Constructor - Instantiates a new StructureClassTask
+		 * 
+		 * @param javaPackage - the Java package
+		 * @param className - the class name
+		 * @param parameterMapping - the structure or table parameter
+		 * @param columnar - true to create a columnar table class
+		 */
+		public StructureClassTask(final String javaPackage, final String className,
+				final ParameterMapping parameterMapping, final boolean columnar) {
+			this.javaPackage = javaPackage;
+			this.className = className;
+			this.parameterMapping = parameterMapping;
+			this.columnar = columnar;
+			this.rowClassName = null;
+		}
+
+		/**
+		 * Constructor - Instantiates a new StructureClassTask creating a row stream class
+		 * 
+		 * @param javaPackage - the Java package
+		 * @param className - the class name of the row stream class
+		 * @param tableMapping - the table parameter
+		 * @param rowClassName - the class name of the structure class of the rows
+		 */
+		public StructureClassTask(final String javaPackage, final String className, final ParameterMapping tableMapping,
+				final String rowClassName) {
+			this.javaPackage = javaPackage;
+			this.className = className;
+			this.parameterMapping = tableMapping;
+			this.columnar = false;
+			this.rowClassName = rowClassName;
+		}
+
+		public List<JavaClass> call() {
+			if (this.columnar) {
+				return createColumnarTableClasses(this.javaPackage, this.className, this.parameterMapping);
+			}
+			if (this.rowClassName != null) {
+				return createStreamingTableClasses(this.javaPackage, this.className, this.rowClassName,
+						this.parameterMapping);
+			}
+
+			return Collections.singletonList(createStructureClass(this.javaPackage, this.className,
+					this.parameterMapping));
+		}
+
+	}
+
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.forge.parser.java.JavaClass;
+
+/**
+ * The Java sources of a SAP entity, ready to be saved
+ * 
+ * Contains the source of the BAPI class and the sources of the structure, converter and descriptor classes created
+ * for it.
+ * 
+ */
+public class SAPEntitySource {
+
+	/** The qualified name of the BAPI class **/
+	private final String bapiClassName;
+	/** The source of the BAPI class **/
+	private final String bapiClassSource;
+	/** The sources of the structure, converter and descriptor classes by qualified class name **/
+	private final Map<String, String> structureClassSources;
+
+	/**
+	 * Constructor - Instantiates a new SAPEntitySource
+	 * 
+	 * @param bapiClassName - the qualified name of the BAPI class
+	 * @param bapiClassSource - the source of the BAPI class
+	 * @param structureClassSources - the sources of the structure, converter and descriptor classes by qualified class
+	 *            name
+	 */
+	public SAPEntitySource(final String bapiClassName, final String bapiClassSource,
+			final Map<String, String> structureClassSources) {
+		this.bapiClassName = bapiClassName;
+		this.bapiClassSource = bapiClassSource;
+		this.structureClassSources = structureClassSources;
+	}
+
+	/**
+	 * Creates the sources of a SAP entity built by {@link SAPEntityBuilder}
+	 * 
+	 * @param entity - the SAP entity
+	 * @return the sources
+	 */
+	public static SAPEntitySource of(final SAPEntity entity) {
+		final Map<String, String> structureClassSources = new LinkedHashMap<String, String>();
+
+		for (final JavaClass structureClass : entity.getStructureClasses()) {
+			structureClassSources.put(structureClass.getQualifiedName(), structureClass.toString());
+		}
+		for (final JavaClass converterClass : entity.getConverterClasses()) {
+			structureClassSources.put(converterClass.getQualifiedName(), converterClass.toString());
+		}
+		if (entity.getDescriptorClass() != null) {
+			structureClassSources.put(entity.getDescriptorClass().getQualifiedName(), entity.getDescriptorClass()
+					.toString());
+		}
+
+		return new SAPEntitySource(entity.getBapiClass().getQualifiedName(), entity.getBapiClass().toString(),
+				structureClassSources);
+	}
+
+	/**
+	 * Gets the qualified name of the BAPI class
+	 * 
+	 * @return the qualified class name
+	 */
+	public String getBapiClassName() {
+		return this.bapiClassName;
+	}
+
+	/**
+	 * Gets the source of the BAPI class
+	 * 
+	 * @return the source
+	 */
+	public String getBapiClassSource() {
+		return this.bapiClassSource;
+	}
+
+	/**
+	 * Gets the qualified names of the structure and converter classes
+	 * 
+	 * @return the qualified class names
+	 */
+	public List<String> getStructureClassNames() {
+		return new ArrayList<String>(this.structureClassSources.keySet());
+	}
+
+	/**
+	 * Gets the sources of all classes of the entity
+	 * 
+	 * @return the sources by qualified class name, the structure and converter classes first and the BAPI class last
+	 */
+	public Map<String, String> getSources() {
+		final Map<String, String> sources = new LinkedHashMap<String, String>(this.structureClassSources);
+
+		sources.put(this.bapiClassName, this.bapiClassSource);
+
+		return sources;
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+/**
+ * The SAP type of a parameter or structure field as described by the JCo metadata
+ * 
+ */
+public class SAPFieldType {
+
+	/** The max. number of digits of an int **/
+	private static final int MAX_INT_DIGITS = 9;
+	/** The max. number of digits of a long **/
+	private static final int MAX_LONG_DIGITS = 18;
+
+	/** The JCo type name, e.g. CHAR, NUM or BCD **/
+	private final String typeName;
+	/** The length, in characters for CHAR and NUM, in bytes for BCD **/
+	private final int length;
+	/** The number of decimals **/
+	private final int decimals;
+
+	/**
+	 * Constructor - Instantiates a new SAPFieldType
+	 * 
+	 * @param typeName - the JCo type name, e.g. CHAR, NUM or BCD
+	 * @param length - the length, in characters for CHAR and NUM, in bytes for BCD
+	 * @param decimals - the number of decimals
+	 */
+	public SAPFieldType(final String typeName, final int length, final int decimals) {
+		this.typeName = typeName;
+		this.length = length;
+		this.decimals = decimals;
+	}
+
+	/**
+	 * Gets the JCo type name
+	 * 
+	 * @return the type name, e.g. CHAR, NUM or BCD
+	 */
+	public String getTypeName() {
+		return this.typeName;
+	}
+
+	/**
+	 * Gets the length
+	 * 
+	 * @return the length, in characters for CHAR and NUM, in bytes for BCD
+	 */
+	public int getLength() {
+		return this.length;
+	}
+
+	/**
+	 * Gets the number of decimals
+	 * 
+	 * @return the decimals
+	 */
+	public int getDecimals() {
+		return this.decimals;
+	}
+
+	/**
+	 * Gets the primitive type of this field in the compact type mapping
+	 * 
+	 * CHAR(1) fields become boolean or char, NUMC fields with up to 18 digits int or long and packed numbers with up
+	 * to 18 digits a long scaled by their decimals. Longer fields keep their standard type, as they do not fit into a
+	 * primitive.
+	 * 
+	 * @param flagsAsBoolean - true to map CHAR(1) fields to boolean, false to map them to char. Hibersap rejects all
+	 *            values but X and space for a boolean, so only functions whose CHAR(1) fields are all flags should be
+	 *            mapped with true.
+	 * @return the compact type, null if the field keeps its standard type
+	 */
+	public CompactType getCompactType(final boolean flagsAsBoolean) {
+		if ("CHAR".equals(this.typeName) && this.length == 1) {
+			return flagsAsBoolean ? CompactType.BOOLEAN : CompactType.CHAR;
+		}
+		if ("NUM".equals(this.typeName) && this.length <= SAPFieldType.MAX_LONG_DIGITS) {
+			return this.length <= SAPFieldType.MAX_INT_DIGITS ? CompactType.INT : CompactType.LONG;
+		}
+		//A packed number of n bytes holds 2n - 1 digits and the sign
+		if ("BCD".equals(this.typeName) && this.length * 2 - 1 <= SAPFieldType.MAX_LONG_DIGITS) {
+			return CompactType.SCALED_LONG;
+		}
+
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.typeName + "(" + this.length + (this.decimals > 0 ? "," + this.decimals : "") + ")";
+	}
+
+}
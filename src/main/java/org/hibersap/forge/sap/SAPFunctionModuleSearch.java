@@ -32,6 +32,9 @@ import org.hibersap.annotations.Table;
 /**
  * Searches for functions in a SAP system.
  * 
+ * A page of the search is read either with ROWSKIPS, which has the limits described in {@link SAPTableRead}, or by
+ * key range, starting after the last function name of the previous page.
+ * 
  * @author Max Schwaab
  *
  */
@@ -43,15 +46,18 @@ public class SAPFunctionModuleSearch {
 	@Parameter(value = "QUERY_TABLE")
 	private final String tableName = "TFDIR";
 
-	@SuppressWarnings("unused")
 	@Import
 	@Parameter(value = "ROWCOUNT")
 	private final int rowCount;
 
+	@Import
+	@Parameter(value = "ROWSKIPS")
+	private final int rowSkips;
+
 	@SuppressWarnings("unused")
 	@Table
 	@Parameter(value = "OPTIONS")
-	private final List<Option> functionNamePattern;
+	private final List<Option> options;
 
 	@SuppressWarnings("unused")
 	@Table
@@ -62,6 +68,11 @@ public class SAPFunctionModuleSearch {
 	@Parameter(value = "DATA")
 	private List<FunctionModule> functionModules;
 
+	/** The searched pattern; not mapped to SAP **/
+	private final SAPLikePattern pattern;
+	/** The function name the page starts after, null for the first page; not mapped to SAP **/
+	private final String startAfter;
+
 	/**
 	 * Constructor - creates an instance of FunctionModuleSearch
 	 * 
@@ -69,10 +80,139 @@ public class SAPFunctionModuleSearch {
 	 * @param maxResults - Sets the maximum number of results. Set 0 for no limitation.
 	 */
 	public SAPFunctionModuleSearch(final String functionNamePattern, final int maxResults) {
-		final String sapPattern = functionNamePattern.replaceAll("\\*", "%").replaceAll("\\?", "_");
+		this(functionNamePattern, maxResults, 0);
+	}
+
+	/**
+	 * Constructor - creates an instance of FunctionModuleSearch reading one page of results
+	 * 
+	 * @param functionNamePattern - The function name pattern. May contain wildcards (* or ?).
+	 * @param maxResults - Sets the maximum number of results. Set 0 for no limitation.
+	 * @param skipResults - Sets the number of results to skip
+	 */
+	public SAPFunctionModuleSearch(final String functionNamePattern, final int maxResults, final int skipResults) {
+		this(functionNamePattern, maxResults, skipResults, "");
+	}
+
+	/**
+	 * Constructor - creates an instance of FunctionModuleSearch reading one page of results with an additional
+	 * condition
+	 * 
+	 * @param functionNamePattern - The function name pattern. May contain wildcards (* or ?).
+	 * @param maxResults - Sets the maximum number of results. Set 0 for no limitation.
+	 * @param skipResults - Sets the number of results to skip
+	 * @param condition - The condition on TFDIR fields added to the WHERE clause (see
+	 *            {@link FunctionModuleFilter#getCondition()}). May be empty.
+	 */
+	public SAPFunctionModuleSearch(final String functionNamePattern, final int maxResults, final int skipResults,
+			final String condition) {
+		this(functionNamePattern, maxResults, skipResults, null, condition);
+	}
+
+	/**
+	 * Constructor - creates an instance of FunctionModuleSearch reading one page of results by key range
+	 * 
+	 * @param functionNamePattern - The function name pattern. May contain wildcards (* or ?).
+	 * @param maxResults - Sets the maximum number of results. Set 0 for no limitation.
+	 * @param startAfter - The function name the page starts after, i.e. the last name of the previous page. Use null
+	 *            for the first page.
+	 * @param condition - The condition on TFDIR fields added to the WHERE clause (see
+	 *            {@link FunctionModuleFilter#getCondition()}). May be empty.
+	 */
+	public SAPFunctionModuleSearch(final String functionNamePattern, final int maxResults, final String startAfter,
+			final String condition) {
+		this(functionNamePattern, maxResults, 0, startAfter, condition);
+	}
 
-		this.functionNamePattern = Collections.singletonList(new Option(sapPattern));
+	/**
+	 * Constructor - creates an instance of FunctionModuleSearch
+	 * 
+	 * @param functionNamePattern - The function name pattern. May contain wildcards (* or ?).
+	 * @param maxResults - Sets the maximum number of results. Set 0 for no limitation.
+	 * @param skipResults - Sets the number of results to skip
+	 * @param startAfter - The function name the page starts after, null for the first page
+	 * @param condition - The condition on TFDIR fields added to the WHERE clause. May be empty.
+	 */
+	private SAPFunctionModuleSearch(final String functionNamePattern, final int maxResults, final int skipResults,
+			final String startAfter, final String condition) {
+		this.pattern = new SAPLikePattern(functionNamePattern);
+		this.startAfter = startAfter;
+		this.options = new ArrayList<Option>();
 		this.rowCount = maxResults;
+		this.rowSkips = skipResults;
+
+		String where = createWhereClause(this.pattern, condition);
+
+		if (startAfter != null) {
+			where += " AND FUNCNAME GT '" + startAfter.replace("'", "''") + "'";
+		}
+		for (final String line : SAPTableRead.splitWhereClause(where)) {
+			this.options.add(new Option(line));
+		}
+	}
+
+	/**
+	 * Creates the WHERE clause on TFDIR selecting the remote-enabled functions matching the given pattern
+	 * 
+	 * @param pattern - the function name pattern
+	 * @param condition - an additional condition (see {@link FunctionModuleFilter#getCondition()}). May be empty.
+	 * @return the WHERE clause
+	 */
+	public static String createWhereClause(final SAPLikePattern pattern, final String condition) {
+		final String where = String.format("FMODE EQ 'R' AND FUNCNAME LIKE '%s'", pattern.getSapPattern());
+
+		return condition.isEmpty() ? where : where + " AND " + condition;
+	}
+
+	/**
+	 * Gets the searched pattern
+	 * 
+	 * @return the pattern
+	 */
+	public SAPLikePattern getPattern() {
+		return this.pattern;
+	}
+
+	/**
+	 * Gets the maximum number of results
+	 * 
+	 * @return the maximum number of results, 0 for no limitation
+	 */
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * Gets the number of skipped results
+	 * 
+	 * @return the number of skipped results
+	 */
+	public int getRowSkips() {
+		return this.rowSkips;
+	}
+
+	/**
+	 * Gets the function name the page starts after
+	 * 
+	 * @return the function name, null for the first page
+	 */
+	public String getStartAfter() {
+		return this.startAfter;
+	}
+
+	/**
+	 * Gets the WHERE clause sent to the SAP system
+	 * 
+	 * @return the WHERE clause
+	 */
+	public String getWhereClause() {
+		final StringBuilder where = new StringBuilder();
+
+		for (final Option option : this.options) {
+			where.append(where.length() > 0 ? " " : "").append(option.optionsQueryString);
+		}
+
+		return where.toString();
 	}
 
 	/**
@@ -95,7 +235,6 @@ public class SAPFunctionModuleSearch {
 	@BapiStructure
 	private static class Option {
 
-		@SuppressWarnings("unused")
 		@Parameter(value = "TEXT")
 		private final String optionsQueryString;
 
@@ -104,8 +243,8 @@ public class SAPFunctionModuleSearch {
 			this.optionsQueryString = "";
 		}
 
-		public Option(final String functionNamePattern) {
-			this.optionsQueryString = String.format("FMODE EQ 'R' AND FUNCNAME LIKE '%s'", functionNamePattern);
+		public Option(final String optionsQueryString) {
+			this.optionsQueryString = optionsQueryString;
 		}
 
 	}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+/**
+ * A function name pattern as understood by the SAP system
+ * 
+ * The wildcards * and ? of the given pattern are translated into the SQL LIKE wildcards % and _, just as they are sent
+ * to the SAP system. Matching follows the LIKE semantics, so local results equal the results of the SAP system.
+ * 
+ */
+public class SAPLikePattern {
+
+	/** The LIKE wildcard for any character sequence **/
+	public static final char ANY_SEQUENCE = '%';
+	/** The LIKE wildcard for a single character **/
+	public static final char ANY_CHARACTER = '_';
+
+	/** The pattern as given by the user **/
+	private final String namePattern;
+	/** The pattern in SAP LIKE syntax **/
+	private final String sapPattern;
+	/** The literal part of the pattern in front of the first wildcard **/
+	private final String literalPrefix;
+
+	/**
+	 * Constructor - Instantiates a new SAPLikePattern
+	 * 
+	 * @param namePattern - the name pattern. May contain wildcards (* or ?).
+	 */
+	public SAPLikePattern(final String namePattern) {
+		this.namePattern = namePattern;
+		this.sapPattern = namePattern.replaceAll("\\*", "%").replaceAll("\\?", "_");
+
+		int prefixLength = 0;
+
+		while (prefixLength < this.sapPattern.length() && !isWildcard(this.sapPattern.charAt(prefixLength))) {
+			prefixLength++;
+		}
+
+		this.literalPrefix = this.sapPattern.substring(0, prefixLength);
+	}
+
+	/**
+	 * Checks if the given name matches the pattern
+	 * 
+	 * @param name - the name to check
+	 * @return true if the name matches the pattern, false otherwise
+	 */
+	public boolean matches(final CharSequence name) {
+		final String pattern = this.sapPattern;
+		int namePosition = 0;
+		int patternPosition = 0;
+		int lastSequencePosition = -1;
+		int lastSequenceNamePosition = 0;
+
+		while (namePosition < name.length()) {
+			if (patternPosition < pattern.length()) {
+				final char patternChar = pattern.charAt(patternPosition);
+
+				if (patternChar == SAPLikePattern.ANY_SEQUENCE) {
+					lastSequencePosition = patternPosition++;
+					lastSequenceNamePosition = namePosition;
+					continue;
+				}
+				if (patternChar == SAPLikePattern.ANY_CHARACTER || patternChar == name.charAt(namePosition)) {
+					patternPosition++;
+					namePosition++;
+					continue;
+				}
+			}
+			if (lastSequencePosition < 0) {
+				return false;
+			}
+
+			//Let the last % wildcard consume one more character and retry
+			patternPosition = lastSequencePosition + 1;
+			namePosition = ++lastSequenceNamePosition;
+		}
+
+		while (patternPosition < pattern.length() && pattern.charAt(patternPosition) == SAPLikePattern.ANY_SEQUENCE) {
+			patternPosition++;
+		}
+
+		return patternPosition == pattern.length();
+	}
+
+	/**
+	 * Gets the pattern as given by the user
+	 * 
+	 * @return the name pattern
+	 */
+	public String getNamePattern() {
+		return this.namePattern;
+	}
+
+	/**
+	 * Gets the pattern in SAP LIKE syntax
+	 * 
+	 * @return the SAP pattern
+	 */
+	public String getSapPattern() {
+		return this.sapPattern;
+	}
+
+	/**
+	 * Gets the literal part of the pattern in front of the first wildcard
+	 * 
+	 * Every matching name starts with this prefix.
+	 * 
+	 * @return the literal prefix
+	 */
+	public String getLiteralPrefix() {
+		return this.literalPrefix;
+	}
+
+	/**
+	 * Checks if the given character is a LIKE wildcard
+	 * 
+	 * @param character - the character
+	 * @return true if the character is a wildcard
+	 */
+	private static boolean isWildcard(final char character) {
+		return character == SAPLikePattern.ANY_SEQUENCE || character == SAPLikePattern.ANY_CHARACTER;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.sapPattern;
+	}
+
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibersap.annotations.Bapi;
+import org.hibersap.annotations.BapiStructure;
+import org.hibersap.annotations.Import;
+import org.hibersap.annotations.Parameter;
+import org.hibersap.annotations.Table;
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
+import org.hibersap.session.Session;
+
+/**
+ * Reads selected fields of a SAP table.
+ * 
+ * The rows are returned with their field values split at the delimiter and trimmed.
+ * 
+ * RFC_READ_TABLE does not sort the rows. Reading a table page by page with ROWSKIPS relies on the database returning
+ * the rows in the same order on every call; otherwise rows may be skipped or read twice. Every page also reads all
+ * skipped rows again on the server, so reading n rows in pages costs O(n^2) there.
+ * 
+ */
+@Bapi(value = "RFC_READ_TABLE")
+public class SAPTableRead {
+
+	/** The delimiter between the field values of a row **/
+	private static final String DELIMITER = "|";
+	/** The max. length of a line of the WHERE clause **/
+	private static final int OPTION_LINE_LENGTH = 72;
+
+	@Import
+	@Parameter(value = "QUERY_TABLE")
+	private final String tableName;
+
+	@SuppressWarnings("unused")
+	@Import
+	@Parameter(value = "DELIMITER")
+	private final String delimiter = SAPTableRead.DELIMITER;
+
+	@Import
+	@Parameter(value = "ROWCOUNT")
+	private final int rowCount;
+
+	@Import
+	@Parameter(value = "ROWSKIPS")
+	private final int rowSkips;
+
+	@Table
+	@Parameter(value = "OPTIONS")
+	private final List<Option> options;
+
+	@SuppressWarnings("unused")
+	@Table
+	@Parameter(value = "FIELDS")
+	private final List<Field> fields;
+
+	@Table
+	@Parameter(value = "DATA")
+	private List<Row> rows;
+
+	/**
+	 * Constructor - creates an instance of SAPTableRead
+	 * 
+	 * @param tableName - The name of the table to read
+	 * @param fieldNames - The names of the fields to read
+	 * @param where - The WHERE clause in Open SQL syntax, e.g. "SPRAS EQ 'E'". May be empty.
+	 * @param maxResults - Sets the maximum number of rows. Set 0 for no limitation.
+	 * @param skipResults - Sets the number of rows to skip, see the class comment for the limits of paging
+	 */
+	public SAPTableRead(final String tableName, final List<String> fieldNames, final String where,
+			final int maxResults, final int skipResults) {
+		this.tableName = tableName;
+		this.fields = new ArrayList<Field>();
+		this.options = new ArrayList<Option>();
+		this.rowCount = maxResults;
+		this.rowSkips = skipResults;
+
+		for (final String fieldName : fieldNames) {
+			this.fields.add(new Field(fieldName));
+		}
+		for (final String line : splitWhereClause(where)) {
+			this.options.add(new Option(line));
+		}
+	}
+
+	/**
+	 * Reads the rows with the given session, recording an RFC call event
+	 * 
+	 * @param session - the session to the SAP system
+	 */
+	public void execute(final Session session) {
+		final FlightEvent event = FlightEvents.RFC_CALL.begin();
+
+		session.execute(this);
+		event.set("function", "RFC_READ_TABLE").set("detail", this.tableName)
+				.set("rows", this.rows == null ? 0 : this.rows.size()).commit();
+	}
+
+	/**
+	 * Gets the name of the table to read
+	 * 
+	 * @return the table name
+	 */
+	public String getTableName() {
+		return this.tableName;
+	}
+
+	/**
+	 * Gets the maximum number of rows
+	 * 
+	 * @return the maximum number of rows, 0 for no limitation
+	 */
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * Gets the number of skipped rows
+	 * 
+	 * @return the number of skipped rows
+	 */
+	public int getRowSkips() {
+		return this.rowSkips;
+	}
+
+	/**
+	 * Gets the WHERE clause sent to the SAP system
+	 * 
+	 * @return the WHERE clause
+	 */
+	public String getWhereClause() {
+		final StringBuilder where = new StringBuilder();
+
+		for (final Option option : this.options) {
+			where.append(where.length() > 0 ? " " : "").append(option.text);
+		}
+
+		return where.toString();
+	}
+
+	/**
+	 * Returns the read rows
+	 * 
+	 * @return - The rows, every row containing the values of the read fields in the requested order
+	 */
+	public List<String[]> getRows() {
+		final List<String[]> result = new ArrayList<String[]>();
+
+		if (this.rows == null) {
+			return result;
+		}
+
+		for (final Row row : this.rows) {
+			final String[] values = row.data.split("\\" + SAPTableRead.DELIMITER, -1);
+
+			for (int i = 0; i < values.length; i++) {
+				values[i] = values[i].trim();
+			}
+			result.add(values);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Splits the given WHERE clause into lines which fit into the OPTIONS table.
+	 * Lines are only split between words, so literals must not contain spaces.
+	 * 
+	 * @param where - the WHERE clause
+	 * @return - the lines
+	 */
+	static List<String> splitWhereClause(final String where) {
+		final List<String> lines = new ArrayList<String>();
+		final StringBuilder line = new StringBuilder();
+
+		for (final String word : where.trim().split("\\s+")) {
+			if (word.isEmpty()) {
+				continue;
+			}
+			if (line.length() > 0 && line.length() + 1 + word.length() > SAPTableRead.OPTION_LINE_LENGTH) {
+				lines.add(line.toString());
+				line.setLength(0);
+			}
+			if (line.length() > 0) {
+				line.append(' ');
+			}
+			line.append(word);
+		}
+
+		if (line.length() > 0) {
+			lines.add(line.toString());
+		}
+
+		return lines;
+	}
+
+	/*
+	 * A class mapping the option data type of SAP
+	 */
+	@BapiStructure
+	private static class Option {
+
+		@Parameter(value = "TEXT")
+		private final String text;
+
+		@SuppressWarnings("unused")
+		private Option() {
+			this.text = "";
+		}
+
+		public Option(final String text) {
+			this.text = text;
+		}
+
+	}
+
+	/*
+	 * A class mapping the field data type of SAP
+	 */
+	@BapiStructure
+	private static class Field {
+
+		@SuppressWarnings("unused")
+		@Parameter(value = "FIELDNAME")
+		private final String name;
+
+		@SuppressWarnings("unused")
+		private Field() {
+			this.name = "";
+		}
+
+		public Field(final String name) {
+			this.name = name;
+		}
+
+	}
+
+	/*
+	 * A class mapping the data row type of SAP
+	 */
+	@BapiStructure
+	private static class Row {
+
+		@Parameter(value = "WA")
+		private final String data;
+
+		private Row() {
+			this.data = "";
+		}
+
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Singleton;
+
+import org.hibersap.configuration.AnnotationConfiguration;
+import org.hibersap.configuration.xml.Property;
+import org.hibersap.configuration.xml.SessionManagerConfig;
+import org.hibersap.session.SessionManager;
+import org.jboss.forge.shell.events.PreShutdown;
+
+/**
+ * Keeps warm session managers for the life of the Forge shell
+ * 
+ * Building a session manager scans the annotated classes and registers a JCo destination, which takes seconds. The
+ * registry builds one session manager per session manager name and reuses it as long as the fingerprint of its
+ * configuration, i.e. the connection properties and annotated classes, is unchanged. A changed configuration closes
+ * the old session manager first, so its JCo destination is released. All session managers are closed when the shell
+ * shuts down.
+ * 
+ */
+@Singleton
+public class SessionManagerRegistry {
+
+	/** The session managers by session manager name **/
+	private final Map<String, SessionManager> sessionManagers = new HashMap<String, SessionManager>();
+	/** The configuration fingerprints of the session managers by session manager name **/
+	private final Map<String, String> fingerprints = new HashMap<String, String>();
+
+	/**
+	 * Gets a session manager for the given configuration, building it only if no open session manager with the same
+	 * configuration exists
+	 * 
+	 * @param sessionManagerConfig - the session manager configuration
+	 * @return the session manager
+	 */
+	public synchronized SessionManager getSessionManager(final SessionManagerConfig sessionManagerConfig) {
+		final String name = sessionManagerConfig.getName();
+		final String fingerprint = getFingerprint(sessionManagerConfig);
+		final SessionManager sessionManager = this.sessionManagers.get(name);
+
+		if (sessionManager != null && !sessionManager.isClosed() && fingerprint.equals(this.fingerprints.get(name))) {
+			return sessionManager;
+		}
+
+		close(name);
+
+		final SessionManager newSessionManager = buildSessionManager(sessionManagerConfig);
+
+		this.sessionManagers.put(name, newSessionManager);
+		this.fingerprints.put(name, fingerprint);
+
+		return newSessionManager;
+	}
+
+	/**
+	 * Closes all session managers, e.g. because the connection properties changed
+	 */
+	public synchronized void invalidate() {
+		for (final String name : new ArrayList<String>(this.sessionManagers.keySet())) {
+			close(name);
+		}
+	}
+
+	/**
+	 * Closes all session managers before the shell shuts down
+	 * 
+	 * @param event - the shutdown event
+	 */
+	public void shutdown(@Observes final PreShutdown event) {
+		invalidate();
+	}
+
+	/**
+	 * Builds a new session manager
+	 * 
+	 * @param sessionManagerConfig - the session manager configuration
+	 * @return the session manager
+	 */
+	protected SessionManager buildSessionManager(final SessionManagerConfig sessionManagerConfig) {
+		return new AnnotationConfiguration(sessionManagerConfig).buildSessionManager();
+	}
+
+	/**
+	 * Closes and removes a session manager
+	 * 
+	 * @param name - the session manager name
+	 */
+	private void close(final String name) {
+		final SessionManager sessionManager = this.sessionManagers.remove(name);
+
+		this.fingerprints.remove(name);
+
+		if (sessionManager != null && !sessionManager.isClosed()) {
+			sessionManager.close();
+		}
+	}
+
+	/**
+	 * Gets the fingerprint of a configuration
+	 * 
+	 * @param sessionManagerConfig - the session manager configuration
+	 * @return the fingerprint, independent of the order of properties and classes
+	 */
+	static String getFingerprint(final SessionManagerConfig sessionManagerConfig) {
+		final Map<String, String> properties = new TreeMap<String, String>();
+		final List<String> annotatedClasses = new ArrayList<String>(sessionManagerConfig.getAnnotatedClasses());
+
+		for (final Property property : sessionManagerConfig.getProperties()) {
+			properties.put(property.getName(), property.getValue());
+		}
+
+		Collections.sort(annotatedClasses);
+
+		return sessionManagerConfig.getContext() + properties + annotatedClasses;
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
+import org.hibersap.session.Session;
+import org.hibersap.session.SessionManager;
+
+/**
+ * Probes a SAP system with {@link SAPEcho} calls. The session manager must have SAPEcho as annotated class.
+ * 
+ */
+public class SessionProbeTarget implements ProbeTarget {
+
+	/** The session manager to call the SAP system with **/
+	private final SessionManager sessionManager;
+
+	/**
+	 * Constructor - creates an instance of SessionProbeTarget
+	 * 
+	 * @param sessionManager - The session manager to call the SAP system with
+	 */
+	public SessionProbeTarget(final SessionManager sessionManager) {
+		this.sessionManager = sessionManager;
+	}
+
+	public String echo(final String payload) {
+		final Session session = this.sessionManager.openSession();
+
+		try {
+			final SAPEcho echo = new SAPEcho(payload);
+			final FlightEvent event = FlightEvents.RFC_CALL.begin();
+
+			session.execute(echo);
+			event.set("function", "STFC_CONNECTION").set("detail", payload.length() + " characters").commit();
+
+			return echo.getEchoText();
+		} finally {
+			session.close();
+		}
+	}
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.ParameterMapping;
+
+/**
+ * Generates the sources of a row stream class for a table parameter
+ * 
+ * The row stream class keeps the row maps the Hibersap JCo adapter passes for a table and converts them to the
+ * structure class of the table one by one while iterating, with the same field mappings and converters Hibersap uses
+ * for a list of structure objects. The consuming iterator releases every row map once it is converted, so the rows
+ * already processed can be garbage collected. A Hibersap converter class wraps the row maps, so the table parameter is
+ * annotated with <code>@Convert(converter = ClassNameConverter.class)</code>.
+ * 
+ */
+public class StreamingTableGenerator {
+
+	/** The Java package **/
+	private final String javaPackage;
+	/** The class name of the row stream class **/
+	private final String className;
+	/** The class name of the structure class of the rows **/
+	private final String rowClassName;
+	/** The table parameter **/
+	private final ParameterMapping tableMapping;
+	/** The compact type mapping of the function, null for the standard type mapping **/
+	private final CompactTypeMapping compactTypes;
+
+	/**
+	 * Constructor - Instantiates a new StreamingTableGenerator
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param className - the class name of the row stream class
+	 * @param rowClassName - the class name of the structure class of the rows
+	 * @param tableMapping - the table parameter
+	 * @param compactTypes - the compact type mapping of the function, null for the standard type mapping
+	 */
+	public StreamingTableGenerator(final String javaPackage, final String className, final String rowClassName,
+			final ParameterMapping tableMapping, final CompactTypeMapping compactTypes) {
+		this.javaPackage = javaPackage;
+		this.className = className;
+		this.rowClassName = rowClassName;
+		this.tableMapping = tableMapping;
+		this.compactTypes = compactTypes;
+	}
+
+	/**
+	 * Gets the class name of the converter of a row stream class
+	 * 
+	 * @param className - the simple class name of the row stream class
+	 * @return the simple class name of the converter, e.g. EtItemsRowsConverter
+	 */
+	public static String getConverterClassName(final String className) {
+		return className + "Converter";
+	}
+
+	/**
+	 * Generates the source of the row stream class
+	 * 
+	 * @return the source
+	 */
+	public String createRowsSource() {
+		final Set<String> imports = new TreeSet<String>();
+		final StringBuilder body = new StringBuilder(4096);
+		final String row = this.rowClassName;
+
+		imports.add("java.util.ArrayList");
+		imports.add("java.util.Iterator");
+		imports.add("java.util.List");
+		imports.add("java.util.Map");
+		imports.add("java.util.NoSuchElementException");
+		imports.add("org.hibersap.conversion.ConverterCache");
+		imports.add("org.hibersap.mapping.model.FieldMapping");
+		imports.add("org.hibersap.mapping.model.StructureMapping");
+
+		body.append("\n/**\n * The rows of table parameter ").append(this.tableMapping.getSapName())
+				.append(", converted to ").append(row).append(" one by one while iterating\n */\n");
+		body.append("public class ").append(this.className).append(" implements Iterable<").append(row)
+				.append("> {\n\n");
+		body.append("\tprivate static final StructureMapping ROW_MAPPING = createRowMapping();\n\n");
+		body.append("\tprivate final ConverterCache converters = new ConverterCache();\n\n");
+		body.append("\tprivate final List<Map<String, Object>> sapRows;\n\n");
+		body.append("\tpublic ").append(this.className)
+				.append("() {\n\t\tthis(new ArrayList<Map<String, Object>>());\n\t}\n\n");
+		body.append("\tpublic ").append(this.className)
+				.append("(final List<Map<String, Object>> sapRows) {\n\t\tthis.sapRows = sapRows;\n\t}\n\n");
+		body.append("\tpublic int size() {\n\t\treturn this.sapRows.size();\n\t}\n\n");
+		body.append("\t@SuppressWarnings(\"unchecked\")\n");
+		body.append("\tpublic void add(final ").append(row).append(" row) {\n");
+		body.append("\t\tthis.sapRows.add((Map<String, Object>) ").append(this.className)
+				.append(".ROW_MAPPING.mapToSap(row, this.converters));\n\t}\n\n");
+		body.append("\tpublic Iterator<").append(row).append("> iterator() {\n\t\treturn iterator(false);\n\t}\n\n");
+		body.append("\tpublic Iterator<").append(row).append("> consume() {\n\t\treturn iterator(true);\n\t}\n\n");
+		body.append("\tList<Map<String, Object>> getSapRows() {\n\t\treturn this.sapRows;\n\t}\n\n");
+		body.append("\tprivate Iterator<").append(row).append("> iterator(final boolean consuming) {\n");
+		body.append("\t\treturn new Iterator<").append(row).append(">() {\n\n");
+		body.append("\t\t\tprivate int row;\n\n");
+		body.append("\t\t\tpublic boolean hasNext() {\n");
+		body.append("\t\t\t\treturn this.row < ").append(this.className).append(".this.sapRows.size();\n\t\t\t}\n\n");
+		body.append("\t\t\tpublic ").append(row).append(" next() {\n");
+		body.append("\t\t\t\tif (!hasNext()) {\n\t\t\t\t\tthrow new NoSuchElementException();\n\t\t\t\t}\n\n");
+		body.append("\t\t\t\tfinal Map<String, Object> sapRow = ").append(this.className)
+				.append(".this.sapRows.get(this.row);\n\n");
+		body.append("\t\t\t\tif (sapRow == null) {\n");
+		body.append("\t\t\t\t\tthrow new IllegalStateException(\"Row \" + this.row + \" is already consumed\");\n");
+		body.append("\t\t\t\t}\n");
+		body.append("\t\t\t\tif (consuming) {\n\t\t\t\t\t").append(this.className)
+				.append(".this.sapRows.set(this.row, null);\n\t\t\t\t}\n");
+		body.append("\t\t\t\tthis.row++;\n");
+		body.append("\t\t\t\treturn (").append(row).append(") ").append(this.className)
+				.append(".ROW_MAPPING.mapToJava(sapRow, ").append(this.className).append(".this.converters);\n");
+		body.append("\t\t\t}\n\n");
+		body.append("\t\t\tpublic void remove() {\n\t\t\t\tthrow new UnsupportedOperationException();\n\t\t\t}\n\n");
+		body.append("\t\t};\n\t}\n\n");
+		body.append("\tprivate static StructureMapping createRowMapping() {\n");
+		body.append("\t\tfinal StructureMapping rowMapping = new StructureMapping(").append(row).append(".class, \"")
+				.append(this.tableMapping.getSapName()).append("\", \"").append(this.tableMapping.getJavaName())
+				.append("\", null);\n\n");
+
+		for (final FieldMapping fieldMapping : SAPEntityBuilder.sortBySapName(SAPEntityBuilder
+				.getFieldMappings(this.tableMapping))) {
+			body.append("\t\trowMapping.addParameter(new FieldMapping(")
+					.append(getFieldTypeLiteral(fieldMapping, imports)).append(", \"")
+					.append(fieldMapping.getSapName()).append("\", \"").append(fieldMapping.getJavaName())
+					.append("\", ").append(getConverterLiteral(fieldMapping, imports)).append("));\n");
+		}
+
+		body.append("\t\treturn rowMapping;\n\t}\n\n}\n");
+
+		return createHeader(imports) + body;
+	}
+
+	/**
+	 * Generates the source of the Hibersap converter between the row stream class and the row maps of the table
+	 * 
+	 * @return the source
+	 */
+	public String createConverterSource() {
+		final Set<String> imports = new TreeSet<String>();
+		final StringBuilder body = new StringBuilder(1024);
+
+		imports.add("java.util.ArrayList");
+		imports.add("java.util.List");
+		imports.add("java.util.Map");
+		imports.add("org.hibersap.conversion.ConversionException");
+		imports.add("org.hibersap.conversion.Converter");
+
+		body.append("\n/**\n * Wraps the row maps of table parameter ").append(this.tableMapping.getSapName())
+				.append(" in ").append(this.className).append(" and back\n */\n");
+		body.append("public class ").append(getConverterClassName(this.className)).append(" implements Converter<")
+				.append(this.className).append(", List<Map<String, Object>>> {\n\n");
+		body.append("\tprivate static final long serialVersionUID = 1L;\n\n");
+		body.append("\tpublic ").append(this.className)
+				.append(" convertToJava(final List<Map<String, Object>> sapValue) throws ConversionException {\n");
+		body.append("\t\treturn new ").append(this.className)
+				.append("(sapValue == null ? new ArrayList<Map<String, Object>>() : sapValue);\n\t}\n\n");
+		body.append("\tpublic List<Map<String, Object>> convertToSap(final ").append(this.className)
+				.append(" javaValue) throws ConversionException {\n");
+		body.append("\t\treturn javaValue == null ? new ArrayList<Map<String, Object>>() : javaValue.getSapRows();\n");
+		body.append("\t}\n\n}\n");
+
+		return createHeader(imports) + body;
+	}
+
+	/**
+	 * Gets the class literal of the type of a field, importing the type if necessary
+	 * 
+	 * @param fieldMapping - the field
+	 * @param imports - the imports of the class
+	 * @return the class literal, e.g. BigDecimal.class or long.class
+	 */
+	private String getFieldTypeLiteral(final FieldMapping fieldMapping, final Set<String> imports) {
+		final CompactType compactType = getCompactType(fieldMapping);
+
+		if (compactType != null) {
+			return compactType.getJavaType() + ".class";
+		}
+
+		Class<?> componentType = fieldMapping.getAssociatedType();
+		String dimensions = "";
+
+		while (componentType.isArray()) {
+			componentType = componentType.getComponentType();
+			dimensions += "[]";
+		}
+
+		if (!componentType.isPrimitive() && !componentType.getName().equals("java.lang." + componentType.getSimpleName())) {
+			imports.add(componentType.getName());
+		}
+
+		return componentType.getSimpleName() + dimensions + ".class";
+	}
+
+	/**
+	 * Gets the class literal of the converter of a field, importing the converter if Hibersap provides it
+	 * 
+	 * @param fieldMapping - the field
+	 * @param imports - the imports of the class
+	 * @return the class literal, null if the field has no converter
+	 */
+	private String getConverterLiteral(final FieldMapping fieldMapping, final Set<String> imports) {
+		final CompactType compactType = getCompactType(fieldMapping);
+
+		if (compactType == null) {
+			return "null";
+		}
+
+		final String converterClassName = compactType.getConverterClassName(this.compactTypes.getFieldType(
+				this.tableMapping.getSapName(), fieldMapping.getSapName()).getDecimals());
+		final int packageEnd = converterClassName.lastIndexOf('.');
+
+		if (packageEnd < 0) {
+			return converterClassName + ".class";
+		}
+
+		imports.add(converterClassName);
+
+		return converterClassName.substring(packageEnd + 1) + ".class";
+	}
+
+	/**
+	 * Gets the compact type of a field of the table
+	 * 
+	 * @param fieldMapping - the field
+	 * @return the compact type, null if the field keeps its standard type
+	 */
+	private CompactType getCompactType(final FieldMapping fieldMapping) {
+		return this.compactTypes == null ? null : this.compactTypes.getCompactType(this.tableMapping.getSapName(),
+				fieldMapping.getSapName());
+	}
+
+	/**
+	 * Creates the package declaration and the imports of a class
+	 * 
+	 * @param imports - the qualified names of the imports
+	 * @return the header
+	 */
+	private String createHeader(final Set<String> imports) {
+		final StringBuilder header = new StringBuilder(512);
+
+		header.append("package ").append(this.javaPackage).append(";\n\n");
+
+		for (final String qualifiedName : imports) {
+			header.append("import ").append(qualifiedName).append(";\n");
+		}
+
+		return header.toString();
+	}
+
+}
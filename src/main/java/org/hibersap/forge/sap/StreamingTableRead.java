@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.List;
+
+import org.hibersap.HibersapException;
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
+
+import com.sap.conn.jco.JCoDestination;
+import com.sap.conn.jco.JCoException;
+import com.sap.conn.jco.JCoFunction;
+import com.sap.conn.jco.JCoParameterList;
+import com.sap.conn.jco.JCoTable;
+
+/**
+ * Reads selected fields of a SAP table page by page and streams the rows to a callback
+ * 
+ * Unlike {@link SAPTableRead}, RFC_READ_TABLE is called with JCo directly and without a delimiter. The fixed-width
+ * DATA rows are decoded by a {@link TableRowDecoder}, so no objects are mapped or copied per row.
+ * 
+ * The pages are read with ROWSKIPS, which has the limits described in {@link SAPTableRead}, unless a key field is
+ * given. Then every page starts after the greatest key of the previous page, so the server reads every row once.
+ * 
+ */
+public class StreamingTableRead {
+
+	/** The name of the called function **/
+	private static final String FUNCTION_NAME = "RFC_READ_TABLE";
+
+	/** The name of the table to read **/
+	private final String tableName;
+	/** The names of the fields to read **/
+	private final List<String> fieldNames;
+	/** The WHERE clause **/
+	private final String where;
+	/** The single key field of the table to page by, the first of the read fields; null to page with ROWSKIPS **/
+	private final String keyField;
+	/** The maximum number of rows, 0 for no limitation **/
+	private final int maxResults;
+	/** The number of rows read per call **/
+	private final int pageSize;
+
+	/**
+	 * Constructor - creates an instance of StreamingTableRead
+	 * 
+	 * @param tableName - The name of the table to read
+	 * @param fieldNames - The names of the fields to read
+	 * @param where - The WHERE clause in Open SQL syntax, e.g. "SPRAS EQ 'E'". May be empty.
+	 * @param maxResults - Sets the maximum number of rows. Set 0 for no limitation.
+	 * @param pageSize - Sets the number of rows read per call
+	 */
+	public StreamingTableRead(final String tableName, final List<String> fieldNames, final String where,
+			final int maxResults, final int pageSize) {
+		this(tableName, fieldNames, where, maxResults, pageSize, null);
+	}
+
+	/**
+	 * Constructor - creates an instance of StreamingTableRead paging by key range
+	 * 
+	 * @param tableName - The name of the table to read
+	 * @param fieldNames - The names of the fields to read
+	 * @param where - The WHERE clause in Open SQL syntax, e.g. "SPRAS EQ 'E'". May be empty.
+	 * @param maxResults - Sets the maximum number of rows. Set 0 for no limitation.
+	 * @param pageSize - Sets the number of rows read per call
+	 * @param keyField - The single key field of the table to page by, which has to be the first of the read fields.
+	 *            Use null to page with ROWSKIPS.
+	 */
+	public StreamingTableRead(final String tableName, final List<String> fieldNames, final String where,
+			final int maxResults, final int pageSize, final String keyField) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("Expected page size greater than 0, but was " + pageSize);
+		}
+		if (keyField != null && (fieldNames.isEmpty() || !fieldNames.get(0).equals(keyField))) {
+			throw new IllegalArgumentException("Expected key field " + keyField + " as first field, but was "
+					+ fieldNames);
+		}
+
+		this.tableName = tableName;
+		this.fieldNames = fieldNames;
+		this.where = where;
+		this.keyField = keyField;
+		this.maxResults = maxResults;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Reads the rows and passes them to the given callback one at a time
+	 * 
+	 * Reading stops when all rows were read, the maximum number of rows is reached or the callback returns false.
+	 * 
+	 * @param destination - the JCo destination of the SAP system
+	 * @param callback - the callback receiving the rows
+	 * @return the number of read rows
+	 * @throws HibersapException - if the SAP system can not be called
+	 */
+	public int execute(final JCoDestination destination, final TableRowCallback callback) {
+		TableRowDecoder decoder = null;
+		String lastKey = null;
+		int found = 0;
+
+		try {
+			while (true) {
+				final int rowCount = this.maxResults > 0 ? Math.min(this.pageSize, this.maxResults - found)
+						: this.pageSize;
+				final JCoFunction function = createFunction(destination, rowCount, found, lastKey);
+
+				final FlightEvent event = FlightEvents.RFC_CALL.begin();
+
+				function.execute(destination);
+
+				final JCoParameterList tables = function.getTableParameterList();
+				final JCoTable data = tables.getTable("DATA");
+				final int rows = data.getNumRows();
+
+				event.set("function", StreamingTableRead.FUNCTION_NAME).set("detail", this.tableName).set("rows", rows)
+						.commit();
+
+				if (decoder == null) {
+					decoder = createDecoder(tables.getTable("FIELDS"));
+				}
+
+				for (int i = 0; i < rows; i++) {
+					data.setRow(i);
+					decoder.decode(data.getString("WA"));
+					found++;
+
+					if (this.keyField != null) {
+						final String key = decoder.get(0).toString().trim();
+
+						if (lastKey == null || key.compareTo(lastKey) > 0) {
+							lastKey = key;
+						}
+					}
+
+					if (!callback.handle(decoder)) {
+						return found;
+					}
+				}
+
+				if (rows < rowCount || (this.maxResults > 0 && found >= this.maxResults)) {
+					return found;
+				}
+			}
+		} catch (final JCoException e) {
+			throw new HibersapException("Reading table " + this.tableName + " failed", e);
+		}
+	}
+
+	/**
+	 * Creates the function reading one page
+	 * 
+	 * @param destination - the JCo destination of the SAP system
+	 * @param rowCount - the number of rows to read
+	 * @param rowSkips - the number of rows to skip without key field
+	 * @param lastKey - the greatest key read so far with key field, null for the first page
+	 * @return the function
+	 * @throws JCoException
+	 */
+	private JCoFunction createFunction(final JCoDestination destination, final int rowCount, final int rowSkips,
+			final String lastKey) throws JCoException {
+		final JCoFunction function = destination.getRepository().getFunction(StreamingTableRead.FUNCTION_NAME);
+
+		if (function == null) {
+			throw new HibersapException("Function " + StreamingTableRead.FUNCTION_NAME + " not found");
+		}
+
+		final JCoParameterList imports = function.getImportParameterList();
+		final JCoTable options = function.getTableParameterList().getTable("OPTIONS");
+		final JCoTable fields = function.getTableParameterList().getTable("FIELDS");
+
+		imports.setValue("QUERY_TABLE", this.tableName);
+		imports.setValue("ROWCOUNT", rowCount);
+		imports.setValue("ROWSKIPS", this.keyField != null ? 0 : rowSkips);
+
+		for (final String line : SAPTableRead.splitWhereClause(getWhereClause(lastKey))) {
+			options.appendRow();
+			options.setValue("TEXT", line);
+		}
+		for (final String fieldName : this.fieldNames) {
+			fields.appendRow();
+			fields.setValue("FIELDNAME", fieldName);
+		}
+
+		return function;
+	}
+
+	/**
+	 * Gets the WHERE clause of a page
+	 * 
+	 * @param lastKey - the greatest key read so far, null for the first page or without key field
+	 * @return the WHERE clause
+	 */
+	private String getWhereClause(final String lastKey) {
+		if (lastKey == null) {
+			return this.where;
+		}
+
+		final String keyRange = this.keyField + " GT '" + lastKey.replace("'", "''") + "'";
+
+		return this.where.isEmpty() ? keyRange : this.where + " AND " + keyRange;
+	}
+
+	/**
+	 * Creates the decoder from the field layout returned in the FIELDS table
+	 * 
+	 * @param fields - the FIELDS table
+	 * @return the decoder
+	 */
+	private static TableRowDecoder createDecoder(final JCoTable fields) {
+		final int[] offsets = new int[fields.getNumRows()];
+		final int[] lengths = new int[fields.getNumRows()];
+
+		for (int i = 0; i < offsets.length; i++) {
+			fields.setRow(i);
+			offsets[i] = fields.getInt("OFFSET");
+			lengths[i] = fields.getInt("LENGTH");
+		}
+
+		return new TableRowDecoder(offsets, lengths);
+	}
+
+}
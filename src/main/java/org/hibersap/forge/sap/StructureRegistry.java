@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import org.hibersap.mapping.model.FieldMapping;
+
+/**
+ * Registers the generated structure classes by Java package and field layout
+ * 
+ * Structures with the same fields, e.g. BAPIRET2 used as RETURN parameter of most BAPIs, are generated only once per
+ * Java package and reused by all SAP entities of the package. The DDIC type of a structure is not part of the
+ * function mapping, so structures are identified by their field layout: the SAP names and Java types of their
+ * fields. The registry is thread-safe.
+ * 
+ */
+public class StructureRegistry {
+
+	/** The simple class names by Java package and field layout **/
+	private final Map<String, String> classNames = new HashMap<String, String>();
+	/** The field layouts by qualified class name **/
+	private final Map<String, String> layouts = new HashMap<String, String>();
+
+	/**
+	 * Registers a structure class
+	 * 
+	 * If a class with the same field layout is registered in the Java package, its name is returned. Otherwise the
+	 * proposed class name is registered; a number is appended if the name is used for another layout.
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param proposedClassName - the class name for a new class
+	 * @param fieldMappings - the fields of the structure
+	 * @return the registration
+	 */
+	public Registration register(final String javaPackage, final String proposedClassName,
+			final Collection<FieldMapping> fieldMappings) {
+		return register(javaPackage, proposedClassName, getLayout(fieldMappings));
+	}
+
+	/**
+	 * Registers a class generated for a layout other than the standard field layout of a structure, e.g. a structure
+	 * with compact field types or a table class
+	 * 
+	 * The layout has to identify the generated class, i.e. contain everything the class depends on beside the names.
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param proposedClassName - the class name for a new class
+	 * @param layout - the layout of the class
+	 * @return the registration
+	 * @see #register(String, String, Collection)
+	 */
+	public synchronized Registration register(final String javaPackage, final String proposedClassName,
+			final String layout) {
+		final String layoutKey = javaPackage + '|' + layout;
+		final String registeredClassName = this.classNames.get(layoutKey);
+
+		if (registeredClassName != null) {
+			return new Registration(registeredClassName, false);
+		}
+
+		String className = proposedClassName;
+
+		for (int i = 2; this.layouts.containsKey(javaPackage + '.' + className); i++) {
+			className = proposedClassName + i;
+		}
+
+		this.classNames.put(layoutKey, className);
+		this.layouts.put(javaPackage + '.' + className, layout);
+
+		return new Registration(className, true);
+	}
+
+	/**
+	 * Removes a structure class
+	 * 
+	 * @param qualifiedClassName - the qualified class name
+	 */
+	public synchronized void remove(final String qualifiedClassName) {
+		final String layout = this.layouts.remove(qualifiedClassName);
+
+		if (layout != null) {
+			this.classNames.remove(getPackage(qualifiedClassName) + '|' + layout);
+		}
+	}
+
+	/**
+	 * Gets the qualified names of all registered classes
+	 * 
+	 * @return the qualified class names
+	 */
+	public synchronized List<String> getClassNames() {
+		final List<String> qualifiedClassNames = new ArrayList<String>(this.layouts.keySet());
+
+		Collections.sort(qualifiedClassNames);
+
+		return qualifiedClassNames;
+	}
+
+	/**
+	 * Adds the registrations of the given properties
+	 * 
+	 * @param properties - the properties with qualified class names as keys and field layouts as values
+	 */
+	public synchronized void load(final Properties properties) {
+		for (final String qualifiedClassName : properties.stringPropertyNames()) {
+			final String layout = properties.getProperty(qualifiedClassName);
+
+			this.layouts.put(qualifiedClassName, layout);
+			this.classNames.put(getPackage(qualifiedClassName) + '|' + layout,
+					qualifiedClassName.substring(qualifiedClassName.lastIndexOf('.') + 1));
+		}
+	}
+
+	/**
+	 * Gets the registrations as properties
+	 * 
+	 * @return the properties with qualified class names as keys and field layouts as values
+	 */
+	public synchronized Properties toProperties() {
+		final Properties properties = new Properties();
+
+		for (final Entry<String, String> entry : this.layouts.entrySet()) {
+			properties.setProperty(entry.getKey(), entry.getValue());
+		}
+
+		return properties;
+	}
+
+	/**
+	 * Gets the field layout of a structure, i.e. its SAP field names and Java types ordered by SAP name
+	 * 
+	 * @param fieldMappings - the fields of the structure
+	 * @return the field layout, e.g. "MESSAGE:java.lang.String,NUMBER:java.lang.String"
+	 */
+	static String getLayout(final Collection<FieldMapping> fieldMappings) {
+		final List<String> fields = new ArrayList<String>();
+
+		for (final FieldMapping fieldMapping : fieldMappings) {
+			final Class<?> type = fieldMapping.getAssociatedType();
+
+			fields.add(fieldMapping.getSapName() + ':' + (type == null ? "" : type.getName()));
+		}
+
+		return joinFields(fields);
+	}
+
+	/**
+	 * Joins the fields of a layout in the order of their SAP names
+	 * 
+	 * @param fields - the fields, each starting with its SAP name and a colon
+	 * @return the layout
+	 */
+	static String joinFields(final List<String> fields) {
+		Collections.sort(fields);
+
+		final StringBuilder layout = new StringBuilder();
+
+		for (final String field : fields) {
+			layout.append(layout.length() > 0 ? "," : "").append(field);
+		}
+
+		return layout.toString();
+	}
+
+	/**
+	 * Gets the package of a qualified class name
+	 * 
+	 * @param qualifiedClassName - the qualified class name
+	 * @return the package, empty for the default package
+	 */
+	private static String getPackage(final String qualifiedClassName) {
+		final int separator = qualifiedClassName.lastIndexOf('.');
+
+		return separator < 0 ? "" : qualifiedClassName.substring(0, separator);
+	}
+
+	/**
+	 * The result of registering a structure class
+	 * 
+	 */
+	public static class Registration {
+
+		/** The simple class name **/
+		private final String className;
+		/** True if the class has to be generated **/
+		private final boolean created;
+
+		/**
+		 * Constructor - Instantiates a new Registration
+		 * 
+		 * @param className - the simple class name
+		 * @param created - true if the class has to be generated
+		 */
+		public Registration(final String className, final boolean created) {
+			this.className = className;
+			this.created = created;
+		}
+
+		/**
+		 * Gets the simple class name
+		 * 
+		 * @return the class name
+		 */
+		public String getClassName() {
+			return this.className;
+		}
+
+		/**
+		 * Checks if the class was newly registered and has to be generated
+		 * 
+		 * @return true if the class has to be generated, false if an existing class is reused
+		 */
+		public boolean isCreated() {
+			return this.created;
+		}
+
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+/**
+ * Decodes fixed-width rows of RFC_READ_TABLE without creating objects per row
+ * 
+ * Every row is copied into a reusable buffer. The field values are handed out as views on the buffer, which are
+ * trimmed and only valid until the next row is decoded. Use {@link CharSequence#toString()} to keep a value.
+ * 
+ */
+public class TableRowDecoder {
+
+	/** The offsets of the fields in a row **/
+	private final int[] offsets;
+	/** The lengths of the fields in a row **/
+	private final int[] lengths;
+	/** The views on the field values **/
+	private final FieldView[] views;
+	/** The buffer holding the current row **/
+	private char[] buffer = new char[0];
+	/** The number of rows decoded so far **/
+	private int rowNumber;
+
+	/**
+	 * Constructor - creates an instance of TableRowDecoder
+	 * 
+	 * @param offsets - the offsets of the fields in a row, as returned in the FIELDS table
+	 * @param lengths - the lengths of the fields in a row, as returned in the FIELDS table
+	 */
+	public TableRowDecoder(final int[] offsets, final int[] lengths) {
+		if (offsets.length != lengths.length) {
+			throw new IllegalArgumentException("Expected as many offsets as lengths, but was " + offsets.length
+					+ " offsets and " + lengths.length + " lengths");
+		}
+
+		this.offsets = offsets.clone();
+		this.lengths = lengths.clone();
+		this.views = new FieldView[offsets.length];
+
+		for (int i = 0; i < offsets.length; i++) {
+			this.views[i] = new FieldView();
+		}
+	}
+
+	/**
+	 * Decodes the given row
+	 * 
+	 * @param row - the row, i.e. the WA field of a DATA row
+	 */
+	public void decode(final String row) {
+		final int rowLength = row.length();
+
+		if (this.buffer.length < rowLength) {
+			this.buffer = new char[Math.max(rowLength, this.buffer.length * 2)];
+		}
+
+		row.getChars(0, rowLength, this.buffer, 0);
+
+		for (int i = 0; i < this.views.length; i++) {
+			int start = Math.min(this.offsets[i], rowLength);
+			int end = Math.min(this.offsets[i] + this.lengths[i], rowLength);
+
+			while (start < end && this.buffer[start] == ' ') {
+				start++;
+			}
+			while (end > start && this.buffer[end - 1] == ' ') {
+				end--;
+			}
+
+			this.views[i].start = start;
+			this.views[i].end = end;
+		}
+
+		this.rowNumber++;
+	}
+
+	/**
+	 * Gets the number of fields of a row
+	 * 
+	 * @return the number of fields
+	 */
+	public int getFieldCount() {
+		return this.views.length;
+	}
+
+	/**
+	 * Gets the number of rows decoded so far
+	 * 
+	 * @return the number of rows
+	 */
+	public int getRowNumber() {
+		return this.rowNumber;
+	}
+
+	/**
+	 * Gets a view on a field value of the current row
+	 * 
+	 * The view is reused for every row, so it changes when the next row is decoded.
+	 * 
+	 * @param field - the index of the field
+	 * @return the trimmed field value
+	 */
+	public CharSequence get(final int field) {
+		return this.views[field];
+	}
+
+	/**
+	 * A view on a field value in the row buffer
+	 * 
+	 */
+	private class FieldView implements CharSequence {
+
+		/** The start of the value in the buffer **/
+		private int start;
+		/** The end of the value in the buffer **/
+		private int end;
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.CharSequence#length()
+		 */
+		public int length() {
+			return this.end - this.start;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.CharSequence#charAt(int)
+		 */
+		public char charAt(final int index) {
+			if (index < 0 || index >= length()) {
+				throw new IndexOutOfBoundsException("Index " + index + " out of field length " + length());
+			}
+
+			return TableRowDecoder.this.buffer[this.start + index];
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.CharSequence#subSequence(int, int)
+		 */
+		public CharSequence subSequence(final int subStart, final int subEnd) {
+			return toString().substring(subStart, subEnd);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return new String(TableRowDecoder.this.buffer, this.start, length());
+		}
+
+	}
+
+}
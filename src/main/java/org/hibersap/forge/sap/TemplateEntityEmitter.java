@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.hibersap.HibersapException;
+import org.hibersap.annotations.Bapi;
+import org.hibersap.annotations.BapiStructure;
+import org.hibersap.annotations.Export;
+import org.hibersap.annotations.Import;
+import org.hibersap.annotations.Parameter;
+import org.hibersap.annotations.ParameterType;
+import org.hibersap.annotations.Table;
+import org.hibersap.forge.util.FlightEvent;
+import org.hibersap.forge.util.FlightEvents;
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.ParameterMapping;
+import org.hibersap.mapping.model.ParameterMapping.ParamType;
+
+/**
+ * Emits the sources of a SAP entity by writing them straight from the function mapping
+ * 
+ * The classes have the same fields, annotations, constructor, accessors and toString() as the classes built by
+ * {@link SAPEntityBuilder}, but no Java syntax tree is built and formatted. Imports are sorted by name. Parameters and
+ * structure fields are sorted by SAP name like in SAPEntityBuilder, so switching the emitter does not change the order
+ * of constructor parameters.
+ * 
+ */
+public class TemplateEntityEmitter implements EntityEmitter {
+
+	/** The registry of shared structure classes, null to create the structure classes of every entity **/
+	private final StructureRegistry structureRegistry;
+
+	/**
+	 * Constructor - Instantiates a new TemplateEntityEmitter creating the structure classes of every entity
+	 */
+	public TemplateEntityEmitter() {
+		this(null);
+	}
+
+	/**
+	 * Constructor - Instantiates a new TemplateEntityEmitter
+	 * 
+	 * @param structureRegistry - the registry of shared structure classes, null to create the structure classes of
+	 *            every entity
+	 */
+	public TemplateEntityEmitter(final StructureRegistry structureRegistry) {
+		this.structureRegistry = structureRegistry;
+	}
+
+	public SAPEntitySource emit(final String className, final String javaPackage, final BapiMapping functionMapping) {
+		final FlightEvent event = FlightEvents.ENTITY_BUILD.begin();
+		final List<ParameterMapping> importParams = SAPEntityBuilder.sortBySapName(functionMapping.getImportParameters());
+		final List<ParameterMapping> exportParams = SAPEntityBuilder.sortBySapName(functionMapping.getExportParameters());
+		final List<ParameterMapping> tableParams = SAPEntityBuilder.sortBySapName(functionMapping.getTableParameters());
+		final Map<String, String> structureClassSources = new LinkedHashMap<String, String>();
+		final Map<ParameterMapping, String> structureClassNames = new IdentityHashMap<ParameterMapping, String>();
+		final SourceWriter bapiClass = new SourceWriter(javaPackage, className);
+
+		//Structure classes are resolved in the order of SAPEntityBuilder, so shared classes get the same names
+		resolveStructureClasses(javaPackage, importParams, structureClassNames, structureClassSources);
+		resolveStructureClasses(javaPackage, exportParams, structureClassNames, structureClassSources);
+		resolveStructureClasses(javaPackage, tableParams, structureClassNames, structureClassSources);
+
+		writeConstructor(bapiClass, importParams, structureClassNames);
+		writeParameters(bapiClass, importParams, structureClassNames, Import.class);
+		writeParameters(bapiClass, exportParams, structureClassNames, Export.class);
+		writeParameters(bapiClass, tableParams, structureClassNames, Table.class);
+
+		bapiClass.addImport(Bapi.class);
+
+		final String bapiClassSource = bapiClass.toSource("@Bapi(" + quote(functionMapping.getBapiName()) + ")");
+
+		event.set("function", functionMapping.getBapiName()).set("className", bapiClass.getQualifiedName())
+				.set("fields", bapiClass.fieldCount).set("structures", structureClassSources.size()).commit();
+
+		return new SAPEntitySource(bapiClass.getQualifiedName(), bapiClassSource, structureClassSources);
+	}
+
+	/**
+	 * Resolves the structure class names of the given parameters and writes the structure classes to create
+	 * 
+	 * @param javaPackage - the Java package
+	 * @param params - the parameters
+	 * @param structureClassNames - the simple structure class names by parameter
+	 * @param structureClassSources - the sources of the created structure classes by qualified class name
+	 */
+	private void resolveStructureClasses(final String javaPackage, final List<ParameterMapping> params,
+			final Map<ParameterMapping, String> structureClassNames, final Map<String, String> structureClassSources) {
+		for (final ParameterMapping param : params) {
+			if (param.getParamType() == ParamType.FIELD) {
+				continue;
+			}
+
+			final String proposedClassName = SAPEntityBuilder.convertFieldNameToClassName(param.getJavaName());
+			final String structureClassName;
+			final boolean created;
+
+			if (this.structureRegistry == null) {
+				structureClassName = proposedClassName;
+				created = true;
+			} else {
+				final StructureRegistry.Registration registration = this.structureRegistry.register(javaPackage,
+						proposedClassName, SAPEntityBuilder.getFieldMappings(param));
+
+				structureClassName = registration.getClassName();
+				created = registration.isCreated();
+			}
+
+			structureClassNames.put(param, structureClassName);
+
+			if (created) {
+				final SourceWriter structureClass = new SourceWriter(javaPackage, structureClassName);
+
+				for (final FieldMapping fieldMapping : SAPEntityBuilder.sortBySapName(SAPEntityBuilder.getFieldMappings(param))) {
+					final Class<?> type = fieldMapping.getAssociatedType();
+
+					structureClass.addImport(Parameter.class);
+					structureClass.writeField("\t@Parameter(" + quote(fieldMapping.getSapName()) + ")\n", "",
+							structureClass.getTypeName(type), fieldMapping.getJavaName(), type.isPrimitive(),
+							type == String.class, true);
+				}
+
+				structureClass.addImport(BapiStructure.class);
+				structureClassSources.put(structureClass.getQualifiedName(), structureClass.toSource("@BapiStructure"));
+			}
+		}
+	}
+
+	/**
+	 * Writes the constructor of the BAPI class setting the import parameters
+	 * 
+	 * @param bapiClass - the BAPI class
+	 * @param importParams - the import parameters
+	 * @param structureClassNames - the simple structure class names by parameter
+	 */
+	private static void writeConstructor(final SourceWriter bapiClass, final List<ParameterMapping> importParams,
+			final Map<ParameterMapping, String> structureClassNames) {
+		final StringBuilder constructor = bapiClass.members;
+		final StringBuilder body = new StringBuilder();
+		String separator = "";
+
+		constructor.append("\n\tpublic ").append(bapiClass.className).append('(');
+
+		for (final ParameterMapping param : importParams) {
+			final String parameterName = param.getJavaName().substring(1);
+
+			constructor.append(separator).append("final ").append(getParameterType(bapiClass, param, structureClassNames))
+					.append(' ').append(parameterName);
+			body.append("\t\tthis.").append(param.getJavaName()).append(" = ").append(parameterName).append(";\n");
+			separator = ", ";
+		}
+
+		constructor.append(") {\n").append(body).append("\t}\n");
+	}
+
+	/**
+	 * Writes the fields and accessors of the given parameters to the BAPI class
+	 * 
+	 * @param bapiClass - the BAPI class
+	 * @param params - the parameters
+	 * @param structureClassNames - the simple structure class names by parameter
+	 * @param annotationClass - the annotation of the parameter type
+	 */
+	private static void writeParameters(final SourceWriter bapiClass, final List<ParameterMapping> params,
+			final Map<ParameterMapping, String> structureClassNames,
+			final Class<? extends java.lang.annotation.Annotation> annotationClass) {
+		for (final ParameterMapping param : params) {
+			final ParamType paramType = param.getParamType();
+			final Class<?> associatedType = param.getAssociatedType();
+			final boolean importParam = annotationClass == Import.class;
+			final StringBuilder annotations = new StringBuilder();
+
+			bapiClass.addImport(annotationClass);
+			bapiClass.addImport(Parameter.class);
+			annotations.append("\t@").append(annotationClass.getSimpleName()).append('\n');
+
+			if (paramType != ParamType.TABLE && associatedType == null) {
+				bapiClass.addImport(ParameterType.class);
+				annotations.append("\t@Parameter(value = ").append(quote(param.getSapName()))
+						.append(", type = ParameterType.STRUCTURE)\n");
+			} else {
+				annotations.append("\t@Parameter(").append(quote(param.getSapName())).append(")\n");
+			}
+
+			bapiClass.writeField(annotations.toString(), importParam ? "private final " : "private ",
+					getParameterType(bapiClass, param, structureClassNames), param.getJavaName(),
+					paramType == ParamType.FIELD && associatedType.isPrimitive(), associatedType == String.class,
+					!importParam);
+		}
+	}
+
+	/**
+	 * Gets the Java type of a parameter of the BAPI class
+	 * 
+	 * @param bapiClass - the BAPI class
+	 * @param param - the parameter
+	 * @param structureClassNames - the simple structure class names by parameter
+	 * @return the type as written in the source
+	 */
+	private static String getParameterType(final SourceWriter bapiClass, final ParameterMapping param,
+			final Map<ParameterMapping, String> structureClassNames) {
+		switch (param.getParamType()) {
+		case FIELD:
+			return bapiClass.getTypeName(param.getAssociatedType());
+		case STRUCTURE:
+			return structureClassNames.get(param);
+		case TABLE:
+			bapiClass.addImport(List.class);
+			return "List<" + structureClassNames.get(param) + ">";
+		default:
+			throw new HibersapException("Parameter type not expected: " + param.getParamType());
+		}
+	}
+
+	/**
+	 * Quotes a String value of an annotation
+	 * 
+	 * @param value - the value
+	 * @return the quoted value
+	 */
+	private static String quote(final String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	/**
+	 * Collects the imports and members of a class and writes its source
+	 * 
+	 */
+	private static class SourceWriter {
+
+		/** The Java package, may be empty **/
+		private final String javaPackage;
+		/** The simple class name **/
+		private final String className;
+		/** The imported classes, sorted by name **/
+		private final Set<String> imports = new TreeSet<String>();
+		/** The constructor, fields and accessors **/
+		private final StringBuilder members = new StringBuilder(4096);
+		/** The statements of toString() **/
+		private final StringBuilder toStringBody = new StringBuilder(1024);
+		/** The number of fields **/
+		private int fieldCount;
+
+		/**
+		 * Constructor - Instantiates a new SourceWriter
+		 * 
+		 * @param javaPackage - the Java package, may be empty
+		 * @param className - the simple class name
+		 */
+		public SourceWriter(final String javaPackage, final String className) {
+			this.javaPackage = javaPackage;
+			this.className = className;
+		}
+
+		/**
+		 * Gets the qualified class name
+		 * 
+		 * @return the qualified class name
+		 */
+		public String getQualifiedName() {
+			return this.javaPackage.length() == 0 ? this.className : this.javaPackage + "." + this.className;
+		}
+
+		/**
+		 * Adds an import
+		 * 
+		 * @param type - the imported class
+		 */
+		public void addImport(final Class<?> type) {
+			this.imports.add(type.getCanonicalName());
+		}
+
+		/**
+		 * Gets the name of a type as written in the source, importing it if necessary
+		 * 
+		 * @param type - the type
+		 * @return the simple type name
+		 */
+		public String getTypeName(final Class<?> type) {
+			if (type.isArray()) {
+				return getTypeName(type.getComponentType()) + "[]";
+			}
+
+			if (!type.isPrimitive() && !type.getName().equals("java.lang." + type.getSimpleName())) {
+				addImport(type);
+			}
+
+			return type.getSimpleName();
+		}
+
+		/**
+		 * Writes a field with getter and optional setter and adds it to toString()
+		 * 
+		 * @param annotations - the annotation lines of the field
+		 * @param modifiers - the modifiers of the field, e.g. "private final "
+		 * @param type - the field type
+		 * @param name - the field name
+		 * @param primitive - true if the type is primitive
+		 * @param string - true if the type is String
+		 * @param setter - true to write a setter
+		 */
+		public void writeField(final String annotations, final String modifiers, final String type,
+				final String name, final boolean primitive, final boolean string, final boolean setter) {
+			final String capitalizedName = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+			this.members.append('\n').append(annotations).append('\t').append(modifiers).append(type).append(' ')
+					.append(name).append(";\n");
+			this.members.append("\n\tpublic ").append(type).append(" get").append(capitalizedName)
+					.append("() {\n\t\treturn this.").append(name).append(";\n\t}\n");
+
+			if (setter) {
+				this.members.append("\n\tpublic void set").append(capitalizedName).append("(final ").append(type)
+						.append(' ').append(name).append(") {\n\t\tthis.").append(name).append(" = ").append(name)
+						.append(";\n\t}\n");
+			}
+
+			//Same statements as Refactory.createToStringFromFields()
+			if (string) {
+				this.toStringBody.append("\t\tif (").append(name).append(" != null && !").append(name)
+						.append(".trim().isEmpty())\n\t");
+			} else if (!primitive) {
+				this.toStringBody.append("\t\tif (").append(name).append(" != null)\n\t");
+			}
+
+			this.toStringBody.append("\t\tresult += ").append(this.fieldCount == 0 ? "" : "\" \" + ").append(name)
+					.append(";\n");
+			this.fieldCount++;
+		}
+
+		/**
+		 * Writes the source of the class
+		 * 
+		 * @param classAnnotation - the annotation of the class
+		 * @return the source
+		 */
+		public String toSource(final String classAnnotation) {
+			final StringBuilder source = new StringBuilder(this.members.length() + this.toStringBody.length() + 1024);
+
+			if (this.javaPackage.length() > 0) {
+				source.append("package ").append(this.javaPackage).append(";\n\n");
+			}
+
+			for (final String importName : this.imports) {
+				source.append("import ").append(importName).append(";\n");
+			}
+
+			source.append('\n').append(classAnnotation).append("\npublic class ").append(this.className)
+					.append(" {\n");
+			source.append(this.members);
+			source.append("\n\tpublic String toString() {\n\t\tString result = \"\";\n").append(this.toStringBody)
+					.append("\t\treturn result;\n\t}\n}\n");
+
+			return source.toString();
+		}
+
+	}
+
+}
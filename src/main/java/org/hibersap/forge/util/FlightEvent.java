@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.util;
+
+/**
+ * A Java Flight Recorder event in progress
+ * 
+ * A disabled event ignores all calls, so the calling code does not need to check whether it is recorded.
+ * 
+ */
+public class FlightEvent {
+
+	/** The event returned if the event type is not recorded **/
+	static final FlightEvent DISABLED = new FlightEvent(null, null);
+
+	/** The event type **/
+	private final FlightEventType type;
+	/** The JFR event, null if disabled **/
+	private final Object event;
+
+	/**
+	 * Constructor - Instantiates a new FlightEvent
+	 * 
+	 * @param type - the event type
+	 * @param event - the JFR event, null if disabled
+	 */
+	FlightEvent(final FlightEventType type, final Object event) {
+		this.type = type;
+		this.event = event;
+	}
+
+	/**
+	 * Sets a String field
+	 * 
+	 * @param fieldName - the field name
+	 * @param value - the value
+	 * @return this event
+	 */
+	public FlightEvent set(final String fieldName, final String value) {
+		if (this.event != null) {
+			this.type.set(this.event, fieldName, value);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Sets a long field
+	 * 
+	 * @param fieldName - the field name
+	 * @param value - the value
+	 * @return this event
+	 */
+	public FlightEvent set(final String fieldName, final long value) {
+		if (this.event != null) {
+			this.type.set(this.event, fieldName, Long.valueOf(value));
+		}
+
+		return this;
+	}
+
+	/**
+	 * Ends and commits the event
+	 */
+	public void commit() {
+		if (this.event != null) {
+			this.type.commit(this.event);
+		}
+	}
+
+	/**
+	 * Checks whether the event is recorded
+	 * 
+	 * @return true if the event is recorded, false if it is disabled
+	 */
+	public boolean isRecorded() {
+		return this.event != null;
+	}
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A custom event type of Java Flight Recorder (JFR)
+ * 
+ * The event type is defined at runtime with the EventFactory of JFR, which is accessed by reflection, because the
+ * plugin is compiled for Java versions without JFR. On JVMs without JFR, and while the event type is not enabled in a
+ * recording, begin() returns a disabled event and costs a single check.
+ * 
+ */
+public class FlightEventType {
+
+	/** The category of all events of the plugin **/
+	private final static String CATEGORY = "Hibersap Forge Plugin";
+
+	/** The method creating an event of an event factory, null without JFR **/
+	private static final Method NEW_EVENT;
+	/** The method checking whether an event is enabled **/
+	private static final Method IS_ENABLED;
+	/** The method starting the timing of an event **/
+	private static final Method BEGIN;
+	/** The method setting a field of an event by index **/
+	private static final Method SET;
+	/** The method committing an event **/
+	private static final Method COMMIT;
+
+	static {
+		Method newEvent = null;
+		Method isEnabled = null;
+		Method begin = null;
+		Method set = null;
+		Method commit = null;
+
+		try {
+			final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+
+			newEvent = Class.forName("jdk.jfr.EventFactory").getMethod("newEvent");
+			isEnabled = eventClass.getMethod("isEnabled");
+			begin = eventClass.getMethod("begin");
+			set = eventClass.getMethod("set", int.class, Object.class);
+			commit = eventClass.getMethod("commit");
+		} catch (final Exception e) {
+			//No JFR, all event types are disabled
+			newEvent = null;
+		}
+
+		NEW_EVENT = newEvent;
+		IS_ENABLED = isEnabled;
+		BEGIN = begin;
+		SET = set;
+		COMMIT = commit;
+	}
+
+	/** The event name **/
+	private final String name;
+	/** The field indexes by field name **/
+	private final Map<String, Integer> fieldIndexes = new HashMap<String, Integer>();
+	/** The event factory of JFR, null if not available **/
+	private final Object eventFactory;
+
+	/**
+	 * Constructor - Instantiates a new FlightEventType
+	 * 
+	 * @param name - the event name, e.g. org.hibersap.forge.RfcCall
+	 * @param label - the human readable event name
+	 * @param fieldNames - the field names
+	 * @param fieldTypes - the field types, String.class or long.class
+	 */
+	public FlightEventType(final String name, final String label, final String[] fieldNames,
+			final Class<?>[] fieldTypes) {
+		if (fieldNames.length != fieldTypes.length) {
+			throw new IllegalArgumentException("Every field of event " + name + " needs a type");
+		}
+
+		this.name = name;
+
+		for (int i = 0; i < fieldNames.length; i++) {
+			this.fieldIndexes.put(fieldNames[i], i);
+		}
+
+		this.eventFactory = FlightEventType.NEW_EVENT == null ? null : createEventFactory(name, label, fieldNames,
+				fieldTypes);
+	}
+
+	/**
+	 * Begins an event; the duration is measured until the event is committed
+	 * 
+	 * @return the event, disabled if the event type is not recorded
+	 */
+	public FlightEvent begin() {
+		if (this.eventFactory != null) {
+			try {
+				final Object event = FlightEventType.NEW_EVENT.invoke(this.eventFactory);
+
+				if ((Boolean) FlightEventType.IS_ENABLED.invoke(event)) {
+					FlightEventType.BEGIN.invoke(event);
+
+					return new FlightEvent(this, event);
+				}
+			} catch (final Exception e) {
+				//Recording must not break the plugin
+			}
+		}
+
+		return FlightEvent.DISABLED;
+	}
+
+	/**
+	 * Gets the event name
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Checks whether the event type is defined in JFR
+	 * 
+	 * @return true if the JVM has JFR
+	 */
+	public boolean isAvailable() {
+		return this.eventFactory != null;
+	}
+
+	/**
+	 * Sets a field of an event of this type
+	 * 
+	 * @param event - the JFR event
+	 * @param fieldName - the field name
+	 * @param value - the value matching the field type
+	 */
+	void set(final Object event, final String fieldName, final Object value) {
+		final Integer index = this.fieldIndexes.get(fieldName);
+
+		if (index == null) {
+			throw new IllegalArgumentException("Event " + this.name + " has no field " + fieldName);
+		}
+
+		try {
+			FlightEventType.SET.invoke(event, index, value);
+		} catch (final Exception e) {
+			//Recording must not break the plugin
+		}
+	}
+
+	/**
+	 * Commits an event of this type
+	 * 
+	 * @param event - the JFR event
+	 */
+	void commit(final Object event) {
+		try {
+			FlightEventType.COMMIT.invoke(event);
+		} catch (final Exception e) {
+			//Recording must not break the plugin
+		}
+	}
+
+	/**
+	 * Creates the event factory of JFR
+	 * 
+	 * @param name - the event name
+	 * @param label - the human readable event name
+	 * @param fieldNames - the field names
+	 * @param fieldTypes - the field types
+	 * @return the event factory, null if it can not be created
+	 */
+	private static Object createEventFactory(final String name, final String label, final String[] fieldNames,
+			final Class<?>[] fieldTypes) {
+		try {
+			final Constructor<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement").getConstructor(
+					Class.class, Object.class);
+			final Constructor<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(
+					Class.class, String.class);
+			final List<Object> annotations = Arrays.asList(
+					annotationElement.newInstance(Class.forName("jdk.jfr.Name"), name),
+					annotationElement.newInstance(Class.forName("jdk.jfr.Label"), label),
+					annotationElement.newInstance(Class.forName("jdk.jfr.Category"),
+							new String[] { FlightEventType.CATEGORY }));
+			final List<Object> fields = new ArrayList<Object>();
+
+			for (int i = 0; i < fieldNames.length; i++) {
+				fields.add(valueDescriptor.newInstance(fieldTypes[i], fieldNames[i]));
+			}
+
+			return Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class)
+					.invoke(null, annotations, fields);
+		} catch (final Exception e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.util;
+
+/**
+ * The Java Flight Recorder events of the plugin
+ * 
+ * The events are enabled in a recording by name, e.g. jcmd &lt;pid&gt; JFR.start settings=profile, or all events of the
+ * category "Hibersap Forge Plugin" in JDK Mission Control.
+ * 
+ */
+public final class FlightEvents {
+
+	/** A remote function call; detail is e.g. the read table, rows the number of returned rows **/
+	public static final FlightEventType RFC_CALL = new FlightEventType("org.hibersap.forge.RfcCall", "RFC Call",
+			new String[] { "function", "detail", "rows" }, new Class<?>[] { String.class, String.class, long.class });
+
+	/** A fetch of the BAPI mapping of a function; source is sap, cache or snapshot **/
+	public static final FlightEventType METADATA_FETCH = new FlightEventType("org.hibersap.forge.MetadataFetch",
+			"Function Metadata Fetch", new String[] { "function", "source" }, new Class<?>[] { String.class,
+					String.class });
+
+	/** The creation of a SAP entity from a BAPI mapping **/
+	public static final FlightEventType ENTITY_BUILD = new FlightEventType("org.hibersap.forge.EntityBuild",
+			"SAP Entity Build", new String[] { "function", "className", "fields", "structures" }, new Class<?>[] {
+					String.class, String.class, long.class, long.class });
+
+	/** The write of a generated file, e.g. a Java source or hibersap.xml **/
+	public static final FlightEventType FILE_WRITE = new FlightEventType("org.hibersap.forge.FileWrite",
+			"Generated File Write", new String[] { "path" }, new Class<?>[] { String.class });
+
+	/**
+	 * Constructor - Not to be instantiated
+	 */
+	private FlightEvents() {
+	}
+
+}
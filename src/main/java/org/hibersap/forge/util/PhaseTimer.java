@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the wall time and the allocated bytes of the phases of a command
+ * 
+ * Only one phase runs at a time; starting a phase stops the running one. Time between phases, e.g. waiting for user
+ * input, is not measured. A phase started several times accumulates its measurements. Allocated bytes are measured
+ * for the current thread with com.sun.management.ThreadMXBean and are -1 if they are not measured or the JVM does not
+ * support it.
+ * 
+ */
+public class PhaseTimer {
+
+	/** The thread bean of the JVM **/
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	/** The method reading the allocated bytes of a thread, null if they are not measured **/
+	private final Method allocatedBytesMethod;
+	/** The measured phases by name in start order **/
+	private final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+	/** The running phase, null if no phase is running **/
+	private Phase runningPhase;
+	/** The start time of the running phase in nanoseconds **/
+	private long startTime;
+	/** The allocated bytes of the thread at the start of the running phase **/
+	private long startBytes;
+
+	/**
+	 * Constructor - Instantiates a new PhaseTimer measuring wall time and allocated bytes
+	 */
+	public PhaseTimer() {
+		this(true);
+	}
+
+	/**
+	 * Constructor - Instantiates a new PhaseTimer
+	 * 
+	 * Measuring allocated bytes enables the allocation accounting of all threads of the JVM, if it is disabled.
+	 * 
+	 * @param measureAllocations - true to measure the allocated bytes besides the wall time
+	 */
+	public PhaseTimer(final boolean measureAllocations) {
+		this.allocatedBytesMethod = measureAllocations ? getAllocatedBytesMethod(this.threadBean) : null;
+	}
+
+	/**
+	 * Starts a phase, stopping the running phase
+	 * 
+	 * @param name - the phase name
+	 */
+	public void start(final String name) {
+		stop();
+
+		Phase phase = this.phases.get(name);
+
+		if (phase == null) {
+			phase = new Phase(name);
+			this.phases.put(name, phase);
+		}
+
+		this.runningPhase = phase;
+		this.startBytes = getAllocatedBytes();
+		this.startTime = System.nanoTime();
+	}
+
+	/**
+	 * Stops the running phase, if any
+	 */
+	public void stop() {
+		if (this.runningPhase != null) {
+			final long elapsed = System.nanoTime() - this.startTime;
+			final long allocatedBytes = getAllocatedBytes();
+
+			this.runningPhase.nanos += elapsed;
+
+			if (allocatedBytes < 0 || this.runningPhase.allocatedBytes < 0) {
+				this.runningPhase.allocatedBytes = -1;
+			} else {
+				this.runningPhase.allocatedBytes += allocatedBytes - this.startBytes;
+			}
+
+			this.runningPhase = null;
+		}
+	}
+
+	/**
+	 * Gets the measured phases
+	 * 
+	 * @return the phases in start order
+	 */
+	public List<Phase> getPhases() {
+		return new ArrayList<Phase>(this.phases.values());
+	}
+
+	/**
+	 * Gets the wall time of all phases
+	 * 
+	 * @return the time in nanoseconds
+	 */
+	public long getTotalNanos() {
+		long total = 0;
+
+		for (final Phase phase : this.phases.values()) {
+			total += phase.nanos;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Gets the bytes allocated by the current thread so far
+	 * 
+	 * @return the allocated bytes, -1 if not measured
+	 */
+	private long getAllocatedBytes() {
+		if (this.allocatedBytesMethod == null) {
+			return -1;
+		}
+
+		try {
+			return (Long) this.allocatedBytesMethod.invoke(this.threadBean, Thread.currentThread().getId());
+		} catch (final Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Gets the method reading the allocated bytes of a thread and enables the allocation accounting
+	 * 
+	 * The method is looked up by reflection, since com.sun.management is not available on every JVM.
+	 * 
+	 * @param threadBean - the thread bean of the JVM
+	 * @return the method, null if the JVM does not support it
+	 */
+	private static Method getAllocatedBytesMethod(final ThreadMXBean threadBean) {
+		try {
+			final Class<?> allocationBeanClass = Class.forName("com.sun.management.ThreadMXBean");
+
+			if (!allocationBeanClass.isInstance(threadBean)
+					|| !(Boolean) allocationBeanClass.getMethod("isThreadAllocatedMemorySupported").invoke(threadBean)) {
+				return null;
+			}
+			if (!(Boolean) allocationBeanClass.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadBean)) {
+				allocationBeanClass.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(threadBean,
+						true);
+			}
+
+			return allocationBeanClass.getMethod("getThreadAllocatedBytes", long.class);
+		} catch (final Exception e) {
+			//Not supported by the JVM
+			return null;
+		}
+	}
+
+	/**
+	 * The measurements of a phase
+	 * 
+	 */
+	public static class Phase {
+
+		/** The phase name **/
+		private final String name;
+		/** The wall time in nanoseconds **/
+		private long nanos;
+		/** The allocated bytes, -1 if not supported **/
+		private long allocatedBytes;
+
+		/**
+		 * Constructor - Instantiates a new Phase
+		 * 
+		 * @param name - the phase name
+		 */
+		public Phase(final String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Gets the phase name
+		 * 
+		 * @return the name
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Gets the wall time
+		 * 
+		 * @return the time in nanoseconds
+		 */
+		public long getNanos() {
+			return this.nanos;
+		}
+
+		/**
+		 * Gets the allocated bytes
+		 * 
+		 * @return the allocated bytes, -1 if not supported
+		 */
+		public long getAllocatedBytes() {
+			return this.allocatedBytes;
+		}
+
+	}
+
+}
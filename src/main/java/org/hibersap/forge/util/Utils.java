@@ -19,6 +19,10 @@
 
 package org.hibersap.forge.util;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
 /**
  * Utilities for the hibersap-plugin project
  * 
@@ -68,4 +72,32 @@ public class Utils {
 		return stringBuilder.toString();
 	}
 
+	/**
+	 * Splits a given String at the given separator character
+	 * 
+	 * The parts are trimmed, empty parts are omitted.
+	 * Example: "A, B,,C" with separator "," results in [A, B, C]
+	 * 
+	 * @param input - the input String
+	 * @param separator - the separator character (e.g. ",")
+	 * @return the parts of the input String
+	 */
+	public static List<String> split(final String input, final char separator) {
+		final List<String> parts = new ArrayList<String>();
+
+		if (input == null) {
+			return parts;
+		}
+
+		for (final String part : input.split(Pattern.quote(Character.toString(separator)))) {
+			final String trimmedPart = part.trim();
+
+			if (!trimmedPart.isEmpty()) {
+				parts.add(trimmedPart);
+			}
+		}
+
+		return parts;
+	}
+
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibersap.forge.sap.SAPLikePattern;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the memory-mapped function name index
+ *
+ */
+public class FunctionNameIndexTest {
+
+	private static final List<String> NAMES = Arrays.asList("Z_MM_READ", "BAPI_PO_CREATE1", "BAPI_PR_CREATE",
+			"BAPI_PO_GETDETAIL", "/ABC/BAPI_READ", "ZXMMYREAD", "RFC_READ_TABLE");
+
+	private FunctionNameIndex index;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void init() throws Exception {
+		final File file = this.folder.newFile("names.idx");
+		final FileOutputStream outputStream = new FileOutputStream(file);
+
+		outputStream.write(new byte[] { 1, 2, 3 });
+		FunctionNameIndex.write(outputStream, NAMES);
+		outputStream.close();
+
+		this.index = FunctionNameIndex.map(file, 3);
+	}
+
+	@Test
+	public void storesNamesInAscendingOrder() {
+		Assert.assertEquals(NAMES.size(), this.index.size());
+		Assert.assertEquals("/ABC/BAPI_READ", this.index.get(0));
+		Assert.assertEquals("Z_MM_READ", this.index.get(NAMES.size() - 1));
+	}
+
+	@Test
+	public void searchPrefix() {
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL"), search("BAPI_PO*", 0));
+		Assert.assertEquals(Arrays.asList("RFC_READ_TABLE"), search("RFC_READ_TABLE", 0));
+		Assert.assertTrue(search("BAPI_PO", 0).isEmpty());
+		Assert.assertTrue(search("ZZ*", 0).isEmpty());
+	}
+
+	@Test
+	public void searchWildcards() {
+		Assert.assertEquals(Arrays.asList("/ABC/BAPI_READ", "RFC_READ_TABLE", "ZXMMYREAD", "Z_MM_READ"), search("*READ*", 0));
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PR_CREATE"), search("BAPI_P?_CREATE*", 0));
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1"), search("*CREATE?", 0));
+		Assert.assertEquals(Arrays.asList("/ABC/BAPI_READ"), search("*READ*", 1));
+	}
+
+	@Test
+	public void searchLikeSAP() {
+		//The underscore is a LIKE wildcard for the SAP system, too
+		Assert.assertEquals(Arrays.asList("ZXMMYREAD", "Z_MM_READ"), search("Z_MM_READ", 0));
+	}
+
+	private List<String> search(final String namePattern, final int maxResults) {
+		return this.index.search(new SAPLikePattern(namePattern), maxResults);
+	}
+
+}
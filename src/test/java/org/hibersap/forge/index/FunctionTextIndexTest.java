@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibersap.forge.index.FunctionTextIndex.Hit;
+import org.hibersap.forge.sap.SAPLikePattern;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the fuzzy search over function names and short texts
+ *
+ */
+public class FunctionTextIndexTest {
+
+	private FunctionTextIndex index;
+
+	@Before
+	public void init() {
+		this.index = new FunctionTextIndex();
+		this.index.put("BAPI_PO_CREATE1", "Create Purchase Order");
+		this.index.put("BAPI_PO_GETDETAIL", "Purchase Order Details");
+		this.index.put("BAPI_PR_CREATE", "Create Purchase Requisition");
+		this.index.put("BAPI_CUSTOMER_GETLIST", "Customer List");
+		this.index.put("RFC_READ_TABLE", "External access to R/3 tables via RFC");
+		this.index.put("Z_MM_READ", "");
+	}
+
+	@Test
+	public void gramsOfWords() {
+		//" AB", "AB ", " C "
+		Assert.assertEquals(3, FunctionTextIndex.grams("ab-C").length);
+		Assert.assertEquals(FunctionTextIndex.grams("READ_TABLE").length, FunctionTextIndex.grams("read  table").length);
+		Assert.assertEquals(0, FunctionTextIndex.grams(" _ ").length);
+	}
+
+	@Test
+	public void ranksTextMatches() {
+		final List<String> names = names(this.index.search("create purchase order", 3));
+
+		Assert.assertEquals("BAPI_PO_CREATE1", names.get(0));
+		Assert.assertTrue(names.contains("BAPI_PR_CREATE"));
+		Assert.assertTrue(names.contains("BAPI_PO_GETDETAIL"));
+	}
+
+	@Test
+	public void ranksNameMatches() {
+		Assert.assertEquals("RFC_READ_TABLE", names(this.index.search("read table", 1)).get(0));
+		Assert.assertEquals("BAPI_CUSTOMER_GETLIST", names(this.index.search("customer", 1)).get(0));
+	}
+
+	@Test
+	public void toleratesTypos() {
+		Assert.assertEquals("BAPI_PR_CREATE", names(this.index.search("purchse requisiton", 1)).get(0));
+	}
+
+	@Test
+	public void limitsResults() {
+		Assert.assertEquals(2, this.index.search("bapi", 2).size());
+		Assert.assertTrue(this.index.search("xyz", 10).isEmpty());
+	}
+
+	@Test
+	public void replacesPatternSlice() {
+		Assert.assertEquals(2, this.index.removeMatching(new SAPLikePattern("BAPI_P?_CREATE*")));
+		Assert.assertEquals(4, this.index.size());
+		Assert.assertFalse(names(this.index.search("create", 10)).contains("BAPI_PO_CREATE1"));
+
+		this.index.put("BAPI_PO_CREATE1", "Create Purchase Order");
+		Assert.assertEquals("BAPI_PO_CREATE1", names(this.index.search("create", 1)).get(0));
+	}
+
+	@Test
+	public void writeAndRead() throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream outputStream = new DataOutputStream(bytes);
+
+		this.index.write(outputStream);
+		outputStream.close();
+
+		final FunctionTextIndex readIndex = new FunctionTextIndex();
+
+		readIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		Assert.assertEquals(this.index.size(), readIndex.size());
+		Assert.assertEquals("Customer List", readIndex.getText("BAPI_CUSTOMER_GETLIST"));
+		Assert.assertEquals("", readIndex.getText("Z_MM_READ"));
+		Assert.assertEquals(names(this.index.search("create purchase order", 10)),
+				names(readIndex.search("create purchase order", 10)));
+	}
+
+	@Test
+	public void writesCompactedPostings() throws Exception {
+		this.index.removeMatching(new SAPLikePattern("BAPI_P*"));
+		this.index.put("BAPI_PO_CREATE1", "Create Purchase Order");
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream outputStream = new DataOutputStream(bytes);
+
+		this.index.write(outputStream);
+		outputStream.close();
+
+		final FunctionTextIndex readIndex = new FunctionTextIndex();
+
+		readIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		Assert.assertEquals(4, readIndex.size());
+		Assert.assertEquals("BAPI_PO_CREATE1", names(readIndex.search("purchase", 10)).get(0));
+		Assert.assertEquals(1, readIndex.search("purchase", 10).size());
+	}
+
+	@Test
+	public void readsTextsWithoutPostings() throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream outputStream = new DataOutputStream(bytes);
+
+		outputStream.writeInt(2);
+		outputStream.writeUTF("BAPI_PO_CREATE1");
+		outputStream.writeUTF("Create Purchase Order");
+		outputStream.writeUTF("BAPI_CUSTOMER_GETLIST");
+		outputStream.writeUTF("Customer List");
+		outputStream.close();
+
+		final FunctionTextIndex readIndex = new FunctionTextIndex();
+
+		readIndex.readTexts(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		Assert.assertEquals(2, readIndex.size());
+		Assert.assertEquals("BAPI_CUSTOMER_GETLIST", names(readIndex.search("customer", 1)).get(0));
+	}
+
+	@Test
+	public void replacesTextIncrementally() {
+		this.index.put("Z_MM_READ", "Read Material Master");
+		Assert.assertEquals("Z_MM_READ", names(this.index.search("material master", 1)).get(0));
+
+		this.index.put("Z_MM_READ", "");
+		Assert.assertFalse(names(this.index.search("material master", 10)).contains("Z_MM_READ"));
+		Assert.assertEquals(6, this.index.size());
+	}
+
+	@Test
+	public void skipsRemovedFunctions() {
+		//Removing and adding again leaves removed functions in the postings until more than half are removed
+		for (int i = 0; i < 5; i++) {
+			this.index.removeMatching(new SAPLikePattern("BAPI_CUSTOMER_GETLIST"));
+			this.index.put("BAPI_CUSTOMER_GETLIST", "Customer List " + i);
+			final List<String> names = names(this.index.search("customer", 10));
+
+			Assert.assertEquals(names.indexOf("BAPI_CUSTOMER_GETLIST"), names.lastIndexOf("BAPI_CUSTOMER_GETLIST"));
+			Assert.assertEquals("BAPI_CUSTOMER_GETLIST", names.get(0));
+		}
+
+		Assert.assertEquals("Customer List 4", this.index.getText("BAPI_CUSTOMER_GETLIST"));
+		Assert.assertEquals(6, this.index.size());
+	}
+
+	private static List<String> names(final List<Hit> hits) {
+		final List<String> names = new ArrayList<String>();
+
+		for (final Hit hit : hits) {
+			names.add(hit.getName());
+		}
+
+		return names;
+	}
+
+}
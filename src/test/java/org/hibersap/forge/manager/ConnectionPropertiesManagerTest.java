@@ -84,6 +84,21 @@ public class ConnectionPropertiesManagerTest {
 		Assert.assertEquals(propertyValue, this.manager.getSAPProperty(propertyKey));
 	}
 
+	@Test
+	public void getLanguageKey() {
+		this.manager.setSAPProperty("jco.client.lang", "de");
+		Assert.assertEquals("D", this.manager.getLanguageKey());
+
+		this.manager.setSAPProperty("jco.client.lang", "ZH");
+		Assert.assertEquals("1", this.manager.getLanguageKey());
+
+		this.manager.setSAPProperty("jco.client.lang", "S=");
+		Assert.assertEquals("E", this.manager.getLanguageKey());
+
+		this.manager.setSAPProperty("jco.client.lang", "f");
+		Assert.assertEquals("F", this.manager.getLanguageKey());
+	}
+
 	@Test
 	public void getAllSAPProperties() {
 		final Set<Entry<Object, Object>> allSAPProperties = this.manager.getAllSAPProperties();
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.manager;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hibersap.forge.sap.GenerationOptions;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests storing the fingerprints of generated BAPI classes
+ *
+ */
+public class FingerprintManagerTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTrip() throws Exception {
+		final String tempPath = this.folder.getRoot().getAbsolutePath() + System.getProperty("file.separator");
+		final FingerprintManager manager = new FingerprintManager(tempPath);
+
+		manager.put("org.example.hibersap.BapiRead", "/ABC/BAPI_READ", "0a1b");
+		manager.put("org.example.hibersap.BapiPoCreate1", "BAPI_PO_CREATE1", "2c3d");
+		manager.put("org.example.hibersap.Obsolete", "Z_OBSOLETE", "4e5f");
+		manager.remove("org.example.hibersap.Obsolete");
+		manager.writeFingerprints();
+
+		final FingerprintManager readManager = new FingerprintManager(tempPath);
+
+		Assert.assertEquals(Arrays.asList("org.example.hibersap.BapiPoCreate1", "org.example.hibersap.BapiRead"),
+				readManager.getBapiClassNames());
+		Assert.assertEquals("/ABC/BAPI_READ", readManager.getFunctionName("org.example.hibersap.BapiRead"));
+		Assert.assertEquals("2c3d", readManager.getFingerprint("org.example.hibersap.BapiPoCreate1"));
+		Assert.assertNull(readManager.getFingerprint("org.example.hibersap.Obsolete"));
+	}
+
+	@Test
+	public void recordsOptions() throws Exception {
+		final String tempPath = this.folder.getRoot().getAbsolutePath() + System.getProperty("file.separator");
+		final FingerprintManager manager = new FingerprintManager(tempPath);
+
+		manager.put("org.example.hibersap.BapiRead", "BAPI_READ", "0a1b");
+		manager.putOptions("org.example.hibersap.BapiRead", GenerationOptions.parse("compact streaming-tables=ET_ITEMS"));
+		manager.put("org.example.hibersap.BapiPoCreate1", "BAPI_PO_CREATE1", "2c3d");
+		manager.putOptions("org.example.hibersap.BapiPoCreate1", GenerationOptions.parse("columnar-tables"));
+		manager.putOptions("org.example.hibersap.BapiPoCreate1", GenerationOptions.NONE);
+		manager.writeFingerprints();
+
+		final FingerprintManager readManager = new FingerprintManager(tempPath);
+		final GenerationOptions options = readManager.getOptions("org.example.hibersap.BapiRead");
+
+		Assert.assertTrue(options.isCompact());
+		Assert.assertEquals(Collections.singleton("ET_ITEMS"), options.getStreamingTables());
+		Assert.assertFalse(readManager.getOptions("org.example.hibersap.BapiPoCreate1").isSet());
+
+		readManager.remove("org.example.hibersap.BapiRead");
+		Assert.assertFalse(readManager.getOptions("org.example.hibersap.BapiRead").isSet());
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.manager;
+
+import java.util.Arrays;
+
+import org.hibersap.forge.sap.StubSession;
+import org.hibersap.session.Session;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the function catalog with a stub session instead of a SAP system
+ *
+ */
+public class FunctionCatalogManagerTest {
+
+	private static final String SYSTEM_KEY = "some.sap-system.com/00/001";
+
+	private FunctionCatalogManager manager;
+	private String tempPath;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void init() throws Exception {
+		this.tempPath = this.folder.getRoot().getAbsolutePath() + System.getProperty("file.separator");
+		this.manager = new FunctionCatalogManager(this.tempPath);
+	}
+
+	@Test
+	public void refreshFromSession() {
+		final Session session = createStubSession("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL", "BAPI_PR_CREATE", "Z_MM_READ");
+
+		Assert.assertFalse(this.manager.isUsable(SYSTEM_KEY, FunctionCatalogManager.DEFAULT_MAX_AGE));
+		Assert.assertEquals(4, this.manager.refresh(session, SYSTEM_KEY, "*"));
+		Assert.assertTrue(this.manager.isUsable(SYSTEM_KEY, FunctionCatalogManager.DEFAULT_MAX_AGE));
+		Assert.assertFalse(this.manager.isUsable("other.sap-system.com/00/001", FunctionCatalogManager.DEFAULT_MAX_AGE));
+	}
+
+	@Test
+	public void searchWithWildcards() {
+		this.manager.refresh(createStubSession("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL", "BAPI_PR_CREATE", "Z_MM_READ"),
+				SYSTEM_KEY, "*");
+
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL"), this.manager.search("BAPI_PO*", 0));
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PR_CREATE"), this.manager.search("BAPI_P?_CREATE*", 0));
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1"), this.manager.search("BAPI*", 1));
+		Assert.assertTrue(this.manager.search("bapi*", 0).isEmpty());
+	}
+
+	@Test
+	public void refreshIncrementally() {
+		this.manager.refresh(createStubSession("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL", "Z_MM_READ"), SYSTEM_KEY, "*");
+		final long builtAt = this.manager.getBuiltAt();
+
+		this.manager.refresh(createStubSession("Z_MM_READ", "Z_MM_WRITE"), SYSTEM_KEY, "Z_MM*");
+
+		Assert.assertEquals(builtAt, this.manager.getBuiltAt());
+		Assert.assertEquals(4, this.manager.size());
+		Assert.assertEquals(Arrays.asList("Z_MM_READ", "Z_MM_WRITE"), this.manager.search("Z*", 0));
+	}
+
+	@Test
+	public void writeAndReadCatalog() throws Exception {
+		this.manager.refresh(createStubSession("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL", "BAPI_PR_CREATE"), SYSTEM_KEY,
+				"*");
+		this.manager.writeCatalog();
+
+		final FunctionCatalogManager readManager = new FunctionCatalogManager(this.tempPath);
+
+		Assert.assertTrue(readManager.isUsable(SYSTEM_KEY, FunctionCatalogManager.DEFAULT_MAX_AGE));
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL", "BAPI_PR_CREATE"),
+				readManager.search("*", 0));
+	}
+
+	@Test
+	public void rewriteMappedCatalog() throws Exception {
+		this.manager.refresh(createStubSession("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL"), SYSTEM_KEY, "*");
+		this.manager.writeCatalog();
+
+		final FunctionCatalogManager mappedManager = new FunctionCatalogManager(this.tempPath);
+
+		mappedManager.refresh(createStubSession("Z_MM_READ"), SYSTEM_KEY, "Z*");
+		mappedManager.writeCatalog();
+
+		Assert.assertEquals(Arrays.asList("function-catalog.dat"), Arrays.asList(this.folder.getRoot().list()));
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL", "Z_MM_READ"),
+				new FunctionCatalogManager(this.tempPath).search("*", 0));
+	}
+
+	private static Session createStubSession(final String... functionNames) {
+		return new StubSession(functionNames).createSession();
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.manager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.hibersap.forge.sap.FunctionChangeStamp;
+import org.hibersap.forge.sap.StubSession;
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.ErrorHandling;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the metadata cache seeded with mappings and change stamps from a stub session
+ *
+ */
+public class MetadataCacheManagerTest {
+
+	private static final String SYSTEM_KEY = "some.sap-system.com/00/001";
+	private static final String FUNCTION_NAME = "/ABC/BAPI_PO_CREATE";
+
+	private MetadataCacheManager manager;
+	private String tempPath;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void init() {
+		this.tempPath = this.folder.getRoot().getAbsolutePath() + System.getProperty("file.separator");
+		this.manager = new MetadataCacheManager(this.tempPath);
+	}
+
+	@Test
+	public void hitWithSameChangeStamp() throws Exception {
+		final String changeStamp = readChangeStamp("20240102");
+		final BapiMapping mapping = createMapping();
+
+		Assert.assertNull(this.manager.get(SYSTEM_KEY, FUNCTION_NAME, changeStamp));
+
+		this.manager.put(SYSTEM_KEY, FUNCTION_NAME, changeStamp, mapping);
+
+		final BapiMapping cachedMapping = new MetadataCacheManager(this.tempPath).get(SYSTEM_KEY, FUNCTION_NAME,
+				changeStamp);
+
+		Assert.assertEquals(mapping, cachedMapping);
+		Assert.assertEquals(mapping.getImportParameters(), cachedMapping.getImportParameters());
+		Assert.assertEquals(mapping.getTableParameters(), cachedMapping.getTableParameters());
+		Assert.assertEquals(int.class, cachedMapping.getExportParameters().iterator().next().getAssociatedType());
+		Assert.assertEquals("RETURN", cachedMapping.getErrorHandling().getPathToReturnStructure());
+	}
+
+	@Test
+	public void missWithChangedStampOrSystem() throws Exception {
+		this.manager.put(SYSTEM_KEY, FUNCTION_NAME, readChangeStamp("20240102"), createMapping());
+
+		Assert.assertNull(this.manager.get(SYSTEM_KEY, FUNCTION_NAME, readChangeStamp("20240103")));
+		Assert.assertNull(this.manager.get("other.sap-system.com/00/001", FUNCTION_NAME, readChangeStamp("20240102")));
+	}
+
+	@Test
+	public void missWithCorruptEntry() throws Exception {
+		this.manager.put(SYSTEM_KEY, FUNCTION_NAME, "stamp", createMapping());
+
+		final File cacheDir = new File(this.tempPath, "metadata-cache");
+		final File file = cacheDir.listFiles()[0].listFiles()[0];
+		final FileOutputStream outputStream = new FileOutputStream(file);
+
+		//Truncated entry
+		outputStream.write(new byte[] { 0x48, 0x46 });
+		outputStream.close();
+
+		Assert.assertNull(this.manager.get(SYSTEM_KEY, FUNCTION_NAME, "stamp"));
+	}
+
+	@Test
+	public void changeStampOfUnknownFunction() {
+		Assert.assertEquals("", FunctionChangeStamp.read(new StubSession().createSession(), FUNCTION_NAME));
+	}
+
+	@Test
+	public void changeStampCoversDictionaryTypes() {
+		final String changeStamp = readChangeStamp("20240102", "20240105");
+
+		Assert.assertTrue(changeStamp.startsWith("/ABC/LPOU03/20240102/20240101/101500/"));
+		Assert.assertEquals(changeStamp, readChangeStamp("20240102", "20240105"));
+		Assert.assertFalse(changeStamp.equals(readChangeStamp("20240102", "20240106")));
+	}
+
+	@Test
+	public void changeStampsOfManyFunctionsInFewCalls() {
+		final StubSession stub = new StubSession();
+		final List<String> functionNames = new ArrayList<String>();
+
+		for (int i = 0; i < 40; i++) {
+			final String functionName = "Z_PO_" + i;
+
+			functionNames.add(functionName);
+			stub.addTableRows("TFDIR", functionName + "|SAPLZPO|" + (i < 10 ? "0" + i : "" + i));
+			stub.addTableRows("TRDIR", "LZPOU" + (i < 10 ? "0" + i : "" + i) + "|20240102|20240101|101500");
+			stub.addTableRows("FUPARAREF", functionName + "|" + (i % 2 == 0 ? "BAPIRET2" : "ZPO_ITEM"));
+		}
+
+		stub.addTableRows("DD02L", "BAPIRET2|20240101|120000", "ZPO_ITEM|20240101|120000");
+		stub.addTableRows("DD03L", "BAPIRET2|BAPI_MTYPE|", "ZPO_ITEM|ZPO_QUANTITY|");
+		stub.addTableRows("DD04L", "BAPI_MTYPE|20240101|120000|SYMSGTY", "ZPO_QUANTITY|20240101|120000|ZQUAN");
+		stub.addTableRows("DD01L", "SYMSGTY|20240105|120000", "ZQUAN|20240105|120000");
+
+		final Map<String, String> changeStamps = FunctionChangeStamp.read(stub.createSession(), functionNames);
+
+		//TFDIR, TRDIR, FUPARAREF and four tables per level of types plus DD03L for structures, whatever the number of
+		//functions
+		Assert.assertEquals(3 + 5 + 4 + 4, stub.getCalls());
+		Assert.assertEquals(readChangeStamp("Z_PO_0", stub), changeStamps.get("Z_PO_0"));
+		Assert.assertFalse(changeStamps.get("Z_PO_0").equals(changeStamps.get("Z_PO_1")));
+		Assert.assertTrue(changeStamps.get("Z_PO_1").startsWith("LZPOU01/20240102/20240101/101500/"));
+	}
+
+	@Test
+	public void changeStampReadsLimitedTypeDepth() {
+		final StubSession stub = new StubSession();
+
+		stub.addTableRows("TFDIR", FUNCTION_NAME + "|/ABC/SAPLPO|03");
+		stub.addTableRows("TRDIR", "/ABC/LPOU03|20240102|20240101|101500");
+		stub.addTableRows("FUPARAREF", FUNCTION_NAME + "|TT0");
+
+		//A chain of table types much deeper than read
+		for (int i = 0; i < FunctionChangeStamp.MAX_TYPE_DEPTH * 2; i++) {
+			stub.addTableRows("DD40L", "TT" + i + "|20240101|120000|TT" + (i + 1));
+		}
+
+		FunctionChangeStamp.read(stub.createSession(), FUNCTION_NAME);
+
+		Assert.assertEquals(3 + 4 * FunctionChangeStamp.MAX_TYPE_DEPTH, stub.getCalls());
+	}
+
+	private static String readChangeStamp(final String functionName, final StubSession stub) {
+		return FunctionChangeStamp.read(stub.createSession(), functionName);
+	}
+
+	private static String readChangeStamp(final String changeDate, final String domainChangeDate) {
+		final StubSession stub = new StubSession();
+
+		stub.addTableRows("TFDIR", FUNCTION_NAME + "|/ABC/SAPLPO|03");
+		stub.addTableRows("TRDIR", "/ABC/LPOU03|" + changeDate + "|20240101|101500");
+		stub.addTableRows("FUPARAREF", FUNCTION_NAME + "|BAPIRET2-TYPE", FUNCTION_NAME + "|");
+		stub.addTableRows("DD02L", "BAPIRET2|20240101|120000");
+		stub.addTableRows("DD03L", "BAPIRET2|BAPI_MTYPE|", "BAPIRET2||", "BAPIRET2||BAPIINC");
+		stub.addTableRows("DD04L", "BAPI_MTYPE|20240101|120000|SYMSGTY");
+		stub.addTableRows("DD01L", "SYMSGTY|" + domainChangeDate + "|120000");
+
+		return FunctionChangeStamp.read(stub.createSession(), FUNCTION_NAME);
+	}
+
+	private static String readChangeStamp(final String changeDate) {
+		final StubSession stub = new StubSession();
+
+		stub.addTableRows("TFDIR", FUNCTION_NAME + "|/ABC/SAPLPO|03");
+		stub.addTableRows("TRDIR", "/ABC/LPOU03|" + changeDate + "|20240101|101500");
+
+		final String changeStamp = FunctionChangeStamp.read(stub.createSession(), FUNCTION_NAME);
+
+		Assert.assertEquals("/ABC/LPOU03/" + changeDate + "/20240101/101500", changeStamp);
+
+		return changeStamp;
+	}
+
+	private static BapiMapping createMapping() {
+		final BapiMapping mapping = new BapiMapping(null, FUNCTION_NAME, new ErrorHandling("RETURN", new String[] {
+				"E", "A" }));
+		final StructureMapping header = new StructureMapping(null, "POHEADER", "poheader", null);
+		final StructureMapping item = new StructureMapping(null, "POITEM", "poitem", null);
+
+		header.addParameter(new FieldMapping(String.class, "VENDOR", "vendor", null));
+		header.addParameter(new FieldMapping(Date.class, "DOC_DATE", "docDate", null));
+		item.addParameter(new FieldMapping(BigDecimal.class, "QUANTITY", "quantity", null));
+		item.addParameter(new FieldMapping(byte[].class, "GUID", "guid", null));
+
+		mapping.addImportParameter(header);
+		mapping.addImportParameter(new FieldMapping(String.class, "TESTRUN", "testrun", null));
+		mapping.addExportParameter(new FieldMapping(int.class, "ITEM_COUNT", "itemCount", null));
+		mapping.addTableParameter(new TableMapping(List.class, null, "POITEM", "poitem", item, null));
+
+		return mapping;
+	}
+
+}
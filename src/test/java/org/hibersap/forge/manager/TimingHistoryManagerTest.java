@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.manager;
+
+import java.util.Map;
+
+import org.hibersap.forge.util.PhaseTimer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests storing the history of phase timings
+ *
+ */
+public class TimingHistoryManagerTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void averagesLastRuns() throws Exception {
+		final String tempPath = this.folder.getRoot().getAbsolutePath() + System.getProperty("file.separator");
+		final TimingHistoryManager manager = new TimingHistoryManager(tempPath);
+
+		Assert.assertTrue(manager.getAverageNanos("generate", 10).isEmpty());
+
+		for (int run = 0; run < 3; run++) {
+			final PhaseTimer timer = new PhaseTimer();
+
+			timer.start("search");
+			Thread.sleep(2);
+			timer.stop();
+			manager.append(run == 1 ? "generate-bulk" : "generate", run, timer);
+		}
+
+		final Map<String, Long> averageNanos = new TimingHistoryManager(tempPath).getAverageNanos("generate", 1);
+
+		Assert.assertEquals(1, averageNanos.size());
+		Assert.assertTrue(averageNanos.get("search") >= 2000000L);
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.mapping;
+
+import java.math.BigDecimal;
+
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.ErrorHandling;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the fingerprints of function mappings
+ *
+ */
+public class MappingFingerprintTest {
+
+	@Test
+	public void ignoresParameterOrder() {
+		final BapiMapping mapping = new BapiMapping(null, "BAPI_PO_CREATE1", null);
+		final BapiMapping reorderedMapping = new BapiMapping(null, "BAPI_PO_CREATE1", null);
+
+		mapping.addImportParameter(new FieldMapping(String.class, "TESTRUN", "_testrun", null));
+		mapping.addImportParameter(new FieldMapping(String.class, "MEMORY", "_memory", null));
+		mapping.addExportParameter(createReturn("TYPE", "MESSAGE"));
+		reorderedMapping.addExportParameter(createReturn("MESSAGE", "TYPE"));
+		reorderedMapping.addImportParameter(new FieldMapping(String.class, "MEMORY", "_memory", null));
+		reorderedMapping.addImportParameter(new FieldMapping(String.class, "TESTRUN", "_testrun", null));
+
+		Assert.assertEquals(40, MappingFingerprint.of(mapping).length());
+		Assert.assertEquals(MappingFingerprint.of(mapping), MappingFingerprint.of(reorderedMapping));
+	}
+
+	@Test
+	public void detectsChanges() {
+		final String fingerprint = MappingFingerprint.of(createMapping(String.class, "MESSAGE"));
+
+		Assert.assertEquals(fingerprint, MappingFingerprint.of(createMapping(String.class, "MESSAGE")));
+		Assert.assertFalse(fingerprint.equals(MappingFingerprint.of(createMapping(BigDecimal.class, "MESSAGE"))));
+		Assert.assertFalse(fingerprint.equals(MappingFingerprint.of(createMapping(String.class, "MESSAGE_V1"))));
+
+		final BapiMapping mappingWithErrorHandling = new BapiMapping(null, "BAPI_PO_CREATE1", new ErrorHandling(
+				"RETURN", new String[] { "E" }));
+
+		mappingWithErrorHandling.addImportParameter(new FieldMapping(String.class, "TESTRUN", "_testrun", null));
+		mappingWithErrorHandling.addExportParameter(createReturn("MESSAGE"));
+
+		Assert.assertFalse(fingerprint.equals(MappingFingerprint.of(mappingWithErrorHandling)));
+	}
+
+	private static BapiMapping createMapping(final Class<?> testrunType, final String returnField) {
+		final BapiMapping mapping = new BapiMapping(null, "BAPI_PO_CREATE1", null);
+
+		mapping.addImportParameter(new FieldMapping(testrunType, "TESTRUN", "_testrun", null));
+		mapping.addExportParameter(createReturn(returnField));
+
+		return mapping;
+	}
+
+	private static StructureMapping createReturn(final String... fields) {
+		final StructureMapping structure = new StructureMapping(null, "RETURN", "_return", null);
+
+		for (final String field : fields) {
+			structure.addParameter(new FieldMapping(String.class, field, "_" + field.toLowerCase(), null));
+		}
+
+		return structure;
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.mapping;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibersap.HibersapException;
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.ErrorHandling;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the metadata repository format with shared structures and tables
+ *
+ */
+public class MetadataRepositoryTest {
+
+	private static final String SYSTEM_KEY = "some.sap-system.com/00/001";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTrip() throws Exception {
+		final BapiMapping mapping = createMapping("/ABC/BAPI_PO_CREATE");
+		final MetadataRepository repository = writeRepository(mapping);
+		final BapiMapping readMapping = repository.get("/ABC/BAPI_PO_CREATE");
+
+		Assert.assertEquals(SYSTEM_KEY, repository.getSystemKey());
+		Assert.assertEquals(1234L, repository.getCreatedAt());
+		Assert.assertEquals(mapping, readMapping);
+		Assert.assertEquals(mapping.getImportParameters(), readMapping.getImportParameters());
+		Assert.assertEquals(mapping.getExportParameters(), readMapping.getExportParameters());
+		Assert.assertEquals(mapping.getTableParameters(), readMapping.getTableParameters());
+		Assert.assertEquals(BigDecimal.class, readMapping.getTableParameters().iterator().next().getComponentParameter()
+				.getParameters().iterator().next().getAssociatedType());
+		Assert.assertEquals("RETURN", readMapping.getErrorHandling().getPathToReturnStructure());
+		Assert.assertEquals(Arrays.asList("E", "A"),
+				Arrays.asList(readMapping.getErrorHandling().getErrorMessageTypes()));
+	}
+
+	@Test
+	public void storesStructuresOnce() throws Exception {
+		final MetadataRepositoryWriter writer = new MetadataRepositoryWriter();
+
+		for (int i = 0; i < 1000; i++) {
+			writer.add(createMapping("Z_FUNCTION_" + i));
+		}
+
+		final File file = this.folder.newFile("erp.repository");
+
+		writer.write(file, SYSTEM_KEY, 0L);
+
+		final MetadataRepository repository = MetadataRepository.open(file);
+
+		//RETURN, the ITEMS structure and the ITEMS table
+		Assert.assertEquals(3, writer.getComponentCount());
+		Assert.assertEquals(3, repository.getComponentCount());
+		Assert.assertEquals(1000, repository.size());
+		final ByteArrayOutputStream codecOutput = new ByteArrayOutputStream();
+
+		BapiMappingCodec.write(new DataOutputStream(codecOutput), createMapping("Z_FUNCTION_1"));
+		//Far smaller than storing every function on its own
+		Assert.assertTrue(file.length() < 1000 * codecOutput.size() / 4);
+		Assert.assertSame(repository.get("Z_FUNCTION_1").getExportParameters().iterator().next(), repository
+				.get("Z_FUNCTION_999").getExportParameters().iterator().next());
+	}
+
+	@Test
+	public void findsFunctions() throws Exception {
+		final MetadataRepository repository = writeRepository(createMapping("BAPI_PR_CREATE"),
+				createMapping("BAPI_PO_CREATE1"), createMapping("Z_READ"));
+
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PR_CREATE", "Z_READ"),
+				repository.getFunctionNames(Collections.<String> emptyList()));
+		Assert.assertEquals(Arrays.asList("BAPI_PR_CREATE", "Z_READ"),
+				repository.getFunctionNames(Arrays.asList("BAPI_PR*", "Z_*")));
+		Assert.assertEquals("Z_READ", repository.map("Z_READ").getBapiName());
+		Assert.assertNull(repository.get("BAPI_ZZ"));
+		Assert.assertNull(repository.get("AAA"));
+	}
+
+	@Test(expected = HibersapException.class)
+	public void failsForUnknownFunction() throws Exception {
+		writeRepository(createMapping("Z_READ")).map("Z_WRITE");
+	}
+
+	@Test
+	public void detectsRepositories() throws Exception {
+		final File snapshotFile = this.folder.newFile("erp.snapshot");
+		final File repositoryFile = this.folder.newFile("erp.repository");
+
+		new MetadataSnapshot(SYSTEM_KEY, 0L).write(snapshotFile);
+		new MetadataRepositoryWriter().write(repositoryFile, SYSTEM_KEY, 0L);
+
+		Assert.assertFalse(MetadataRepository.isRepository(snapshotFile));
+		Assert.assertTrue(MetadataRepository.isRepository(repositoryFile));
+		Assert.assertEquals(0, MetadataRepository.open(repositoryFile).size());
+	}
+
+	private MetadataRepository writeRepository(final BapiMapping... mappings) throws Exception {
+		final MetadataRepositoryWriter writer = new MetadataRepositoryWriter();
+		final File file = new File(this.folder.getRoot(), "repository/erp.repository");
+
+		for (final BapiMapping mapping : mappings) {
+			writer.add(mapping);
+		}
+
+		writer.write(file, SYSTEM_KEY, 1234L);
+
+		return MetadataRepository.open(file);
+	}
+
+	private static BapiMapping createMapping(final String functionName) {
+		final BapiMapping mapping = new BapiMapping(null, functionName, new ErrorHandling("RETURN", new String[] { "E",
+				"A" }));
+		final StructureMapping returnStructure = new StructureMapping(null, "RETURN", "_return", null);
+		final StructureMapping itemStructure = new StructureMapping(null, "ITEMS", "_items", null);
+		final List<FieldMapping> returnFields = Arrays.asList(new FieldMapping(String.class, "TYPE", "_type", null),
+				new FieldMapping(String.class, "MESSAGE", "_message", null));
+
+		for (final FieldMapping field : returnFields) {
+			returnStructure.addParameter(field);
+		}
+
+		itemStructure.addParameter(new FieldMapping(BigDecimal.class, "NET_PRICE", "_netPrice", null));
+		mapping.addImportParameter(new FieldMapping(String.class, "TESTRUN", "_testrun", null));
+		mapping.addExportParameter(returnStructure);
+		mapping.addTableParameter(new TableMapping(List.class, null, "ITEMS", "_items", itemStructure, null));
+
+		return mapping;
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.mapping;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hibersap.HibersapException;
+import org.hibersap.forge.sap.SAPEntity;
+import org.hibersap.forge.sap.SAPEntityBuilder;
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests writing metadata snapshots and generating entities from them without a SAP system
+ *
+ */
+public class MetadataSnapshotTest {
+
+	private static final String SYSTEM_KEY = "some.sap-system.com/00/001";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTrip() throws Exception {
+		final File file = new File(this.folder.getRoot(), "snapshots/erp.snapshot");
+		final MetadataSnapshot snapshot = new MetadataSnapshot(SYSTEM_KEY, 1234L);
+
+		snapshot.put(createMapping("BAPI_PO_CREATE1"));
+		snapshot.put(createMapping("/ABC/BAPI_READ"));
+		snapshot.write(file);
+
+		final MetadataSnapshot readSnapshot = MetadataSnapshot.read(file);
+
+		Assert.assertEquals(SYSTEM_KEY, readSnapshot.getSystemKey());
+		Assert.assertEquals(1234L, readSnapshot.getCreatedAt());
+		Assert.assertEquals(2, readSnapshot.size());
+		Assert.assertEquals(snapshot.get("BAPI_PO_CREATE1"), readSnapshot.get("BAPI_PO_CREATE1"));
+		Assert.assertEquals(snapshot.get("/ABC/BAPI_READ").getExportParameters(), readSnapshot.map("/ABC/BAPI_READ")
+				.getExportParameters());
+	}
+
+	@Test
+	public void filtersFunctionNames() {
+		final MetadataSnapshot snapshot = new MetadataSnapshot(SYSTEM_KEY, 0L);
+
+		snapshot.put(createMapping("BAPI_PO_CREATE1"));
+		snapshot.put(createMapping("BAPI_PR_CREATE"));
+		snapshot.put(createMapping("Z_READ"));
+
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PR_CREATE", "Z_READ"),
+				snapshot.getFunctionNames(Collections.<String> emptyList()));
+		Assert.assertEquals(Arrays.asList("BAPI_PR_CREATE", "Z_READ"),
+				snapshot.getFunctionNames(Arrays.asList("BAPI_PR*", "Z_*")));
+	}
+
+	@Test(expected = HibersapException.class)
+	public void failsForUnknownFunction() {
+		new MetadataSnapshot(SYSTEM_KEY, 0L).map("BAPI_PO_CREATE1");
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws Exception {
+		final File file = this.folder.newFile("other.snapshot");
+		final FileOutputStream outputStream = new FileOutputStream(file);
+
+		try {
+			outputStream.write(new byte[] { 1, 2, 3, 4 });
+		} finally {
+			outputStream.close();
+		}
+
+		MetadataSnapshot.read(file);
+	}
+
+	@Test
+	public void generatesOffline() throws Exception {
+		final File file = this.folder.newFile("erp.snapshot");
+		final MetadataSnapshot snapshot = new MetadataSnapshot(SYSTEM_KEY, 0L);
+
+		snapshot.put(createMapping("BAPI_PO_CREATE1"));
+		snapshot.write(file);
+
+		final SAPEntityBuilder builder = new SAPEntityBuilder();
+
+		builder.createNew("BapiPoCreate1", "org.example.hibersap", MetadataSnapshot.read(file).map("BAPI_PO_CREATE1"));
+
+		final SAPEntity entity = builder.getSAPEntity();
+
+		Assert.assertEquals("org.example.hibersap.BapiPoCreate1", entity.getBapiClass().getQualifiedName());
+		Assert.assertEquals(1, entity.getStructureClasses().size());
+	}
+
+	private static BapiMapping createMapping(final String functionName) {
+		final BapiMapping mapping = new BapiMapping(null, functionName, null);
+		final StructureMapping structure = new StructureMapping(null, "RETURN", "_return", null);
+
+		structure.addParameter(new FieldMapping(String.class, "MESSAGE", "_message", null));
+		mapping.addImportParameter(new FieldMapping(String.class, "TESTRUN", "_testrun", null));
+		mapping.addExportParameter(structure);
+
+		return mapping;
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import org.hibersap.annotations.Bapi;
+import org.hibersap.annotations.Parameter;
+import org.jboss.forge.parser.JavaParser;
+import org.jboss.forge.parser.java.Field;
+import org.jboss.forge.parser.java.JavaClass;
+import org.jboss.forge.parser.java.util.Refactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the accessors generated in a single pass against Refactory
+ * 
+ */
+public class AccessorGeneratorTest {
+
+	/**
+	 * Creates a class like SAPEntityBuilder, adding the accessors after every field with Refactory or the generator
+	 */
+	private static JavaClass createClass(final int fieldCount, final boolean refactory) {
+		final JavaClass javaClass = JavaParser.create(JavaClass.class);
+
+		javaClass.setPublic();
+		javaClass.setName("WideStructure");
+		javaClass.setPackage("org.example.hibersap");
+		javaClass.addAnnotation(Bapi.class).setStringValue("Z_WIDE");
+		javaClass.addMethod().setConstructor(true).setPublic().setParameters("final String f0").setBody("this._f0 = f0;");
+		final AccessorGenerator generator = new AccessorGenerator(javaClass);
+
+		for (int i = 0; i < fieldCount; i++) {
+			final Field<JavaClass> field;
+
+			switch (i % 4) {
+			case 0:
+				field = javaClass.addField().setName("_f" + i).setType(String.class);
+				break;
+			case 1:
+				field = javaClass.addField().setName("_f" + i).setType("java.math.BigDecimal");
+				break;
+			case 2:
+				field = javaClass.addField().setName("_f" + i).setType(int.class);
+				break;
+			default:
+				field = javaClass.addField("java.util.List<Foo> _f" + i + ";");
+			}
+
+			field.addAnnotation(Parameter.class).setStringValue("F" + i);
+			field.setPrivate();
+
+			if (i % 5 == 0) {
+				field.setFinal(true);
+			}
+
+			if (refactory) {
+				Refactory.createGetterAndSetter(javaClass, field);
+			} else {
+				generator.addAccessors(field);
+			}
+		}
+
+		if (refactory) {
+			Refactory.createToStringFromFields(javaClass);
+
+			return javaClass;
+		}
+
+		return generator.generate();
+	}
+
+	@Test
+	public void generatesSameSourceAsRefactory() {
+		for (final int fieldCount : new int[] { 0, 1, 2, 9 }) {
+			Assert.assertEquals(createClass(fieldCount, true).toString(), createClass(fieldCount, false).toString());
+		}
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibersap.forge.mapping.MappingFingerprint;
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the concurrent generation of many SAP entities with a stub mapper instead of a SAP system
+ *
+ */
+public class BulkEntityGeneratorTest {
+
+	private static final String JAVA_PACKAGE = "org.example.hibersap";
+
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+
+	private final FunctionMapper mapper = new FunctionMapper() {
+
+		public BapiMapping map(final String functionName) throws Exception {
+			final int nowRunning = BulkEntityGeneratorTest.this.running.incrementAndGet();
+
+			try {
+				synchronized (BulkEntityGeneratorTest.this.maxRunning) {
+					BulkEntityGeneratorTest.this.maxRunning.set(Math.max(nowRunning,
+							BulkEntityGeneratorTest.this.maxRunning.get()));
+				}
+
+				if (functionName.startsWith("Z_FAIL")) {
+					throw new IllegalStateException("Function " + functionName + " not found");
+				}
+
+				//Simulates the metadata round trip
+				Thread.sleep(20);
+
+				return createMapping(functionName);
+			} finally {
+				BulkEntityGeneratorTest.this.running.decrementAndGet();
+			}
+		}
+	};
+
+	@Test
+	public void generatesInOrder() {
+		final BulkEntityGenerator.Result result = new BulkEntityGenerator(this.mapper, JAVA_PACKAGE, 3).generate(Arrays
+				.asList("BAPI_PO_CREATE1", "/ABC/BAPI_READ", "BAPI_PR_CREATE"));
+		final List<SAPEntitySource> entities = result.getEntities();
+
+		Assert.assertTrue(result.getFailures().isEmpty());
+		Assert.assertEquals(3, entities.size());
+		Assert.assertEquals(JAVA_PACKAGE + ".BapiPoCreate1", entities.get(0).getBapiClassName());
+		Assert.assertEquals(JAVA_PACKAGE + ".BapiRead", entities.get(1).getBapiClassName());
+		Assert.assertEquals(1, entities.get(2).getStructureClassNames().size());
+	}
+
+	@Test
+	public void reportsFailures() {
+		final BulkEntityGenerator.Result result = new BulkEntityGenerator(this.mapper, JAVA_PACKAGE, 2).generate(Arrays
+				.asList("BAPI_PO_CREATE1", "Z_FAIL", "BAPI_PR_CREATE"));
+
+		Assert.assertEquals(2, result.getEntities().size());
+		Assert.assertEquals(Arrays.asList("Z_FAIL"), Arrays.asList(result.getFailures().keySet().toArray()));
+		Assert.assertTrue(result.getFailures().get("Z_FAIL") instanceof IllegalStateException);
+	}
+
+	@Test
+	public void reportsClassNameCollisions() {
+		final BulkEntityGenerator.Result result = new BulkEntityGenerator(this.mapper, JAVA_PACKAGE, 2).generate(Arrays
+				.asList("/ABC/BAPI_READ", "BAPI_PO_CREATE1", "BAPI_READ", "/XYZ/BAPI_READ", "BAPI_PO_CREATE1"));
+		final List<SAPEntitySource> entities = result.getEntities();
+
+		Assert.assertEquals(2, entities.size());
+		Assert.assertEquals(JAVA_PACKAGE + ".BapiRead", entities.get(0).getBapiClassName());
+		Assert.assertEquals("/ABC/BAPI_READ", result.getFunctionNames().get(JAVA_PACKAGE + ".BapiRead"));
+		Assert.assertEquals(Arrays.asList("BAPI_READ", "/XYZ/BAPI_READ"),
+				Arrays.asList(result.getFailures().keySet().toArray()));
+		Assert.assertTrue(result.getFailures().get("BAPI_READ").getMessage().contains("/ABC/BAPI_READ"));
+	}
+
+	@Test
+	public void sharesStructureClasses() {
+		final BulkEntityGenerator.Result result = new BulkEntityGenerator(this.mapper, JAVA_PACKAGE, 2,
+				new StructureRegistry()).generate(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PR_CREATE"));
+		final List<SAPEntitySource> entities = result.getEntities();
+
+		Assert.assertEquals(1, entities.get(0).getStructureClassNames().size()
+				+ entities.get(1).getStructureClassNames().size());
+	}
+
+	@Test
+	public void regeneratesChangedEntities() {
+		final Map<String, String> functionNames = new LinkedHashMap<String, String>();
+		final Map<String, String> fingerprints = new HashMap<String, String>();
+
+		functionNames.put("org.example.custom.PoCreate", "BAPI_PO_CREATE1");
+		functionNames.put(JAVA_PACKAGE + ".BapiPrCreate", "BAPI_PR_CREATE");
+		functionNames.put(JAVA_PACKAGE + ".BapiRead", "/ABC/BAPI_READ");
+		fingerprints.put("org.example.custom.PoCreate", "changed");
+		fingerprints.put(JAVA_PACKAGE + ".BapiPrCreate", MappingFingerprint.of(createMapping("BAPI_PR_CREATE")));
+
+		final BulkEntityGenerator.Result result = new BulkEntityGenerator(this.mapper, JAVA_PACKAGE, 2).regenerate(
+				functionNames, fingerprints);
+		final List<SAPEntitySource> entities = result.getEntities();
+
+		Assert.assertEquals(2, entities.size());
+		Assert.assertEquals("org.example.custom.PoCreate", entities.get(0).getBapiClassName());
+		Assert.assertEquals(JAVA_PACKAGE + ".BapiRead", entities.get(1).getBapiClassName());
+		Assert.assertEquals(Arrays.asList(JAVA_PACKAGE + ".BapiPrCreate"), result.getUnchanged());
+		Assert.assertEquals("BAPI_PO_CREATE1", result.getFunctionNames().get("org.example.custom.PoCreate"));
+		Assert.assertEquals(MappingFingerprint.of(createMapping("/ABC/BAPI_READ")),
+				result.getFingerprints().get(JAVA_PACKAGE + ".BapiRead"));
+	}
+
+	@Test
+	public void limitsConcurrency() {
+		final List<String> functionNames = Arrays.asList("F_1", "F_2", "F_3", "F_4", "F_5", "F_6", "F_7", "F_8");
+		final BulkEntityGenerator.Result result = new BulkEntityGenerator(this.mapper, JAVA_PACKAGE, 4)
+				.generate(functionNames);
+
+		Assert.assertEquals(functionNames.size(), result.getEntities().size());
+		Assert.assertTrue(this.maxRunning.get() <= 4);
+		Assert.assertTrue(this.maxRunning.get() > 1);
+	}
+
+	private static BapiMapping createMapping(final String functionName) {
+		final BapiMapping mapping = new BapiMapping(null, functionName, null);
+		final StructureMapping structure = new StructureMapping(null, "RETURN", "_return", null);
+
+		structure.addParameter(new FieldMapping(String.class, "MESSAGE", "_message", null));
+		mapping.addImportParameter(new FieldMapping(String.class, "TESTRUN", "_testrun", null));
+		mapping.addExportParameter(structure);
+
+		return mapping;
+	}
+
+}
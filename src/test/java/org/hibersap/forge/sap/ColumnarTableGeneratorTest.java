@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the generation of columnar table classes
+ *
+ */
+public class ColumnarTableGeneratorTest {
+
+	@Test
+	public void createsTableCursorAndConverter() {
+		final Map<String, String> sources = new ColumnarTableGenerator("org.example", "ItemsTable", createTableMapping(),
+				null).createSources();
+
+		Assert.assertEquals(Arrays.asList("ItemsTable", "ItemsTableCursor", "ItemsTableConverter"),
+				Arrays.asList(sources.keySet().toArray()));
+
+		final String table = sources.get("ItemsTable");
+
+		Assert.assertTrue(table.startsWith("package org.example;"));
+		Assert.assertTrue(table.contains("\tBigDecimal[] _amount;\n"));
+		Assert.assertTrue(table.contains("\tbyte[][] _raw;\n"));
+		Assert.assertTrue(table.contains("this._raw = new byte[this.capacity][];"));
+		Assert.assertTrue(table.contains("public BigDecimal get_amount(final int row) {"));
+		Assert.assertTrue(table.indexOf("_amount;") < table.indexOf("_currency;"));
+
+		final String converter = sources.get("ItemsTableConverter");
+
+		Assert.assertTrue(converter
+				.contains("public class ItemsTableConverter implements Converter<ItemsTable, List<Map<String, Object>>>"));
+		Assert.assertTrue(converter.contains("table._amount[row] = (BigDecimal) sapRow.get(\"AMOUNT\");"));
+		Assert.assertTrue(sources.get("ItemsTableCursor").contains("return this.table._amount[this.row];"));
+	}
+
+	@Test
+	public void storesCompactColumnsInPrimitiveArrays() {
+		final CompactTypeMapping compactTypes = new CompactTypeMapping(false);
+
+		compactTypes.put("ITEMS", "AMOUNT", new SAPFieldType("BCD", 8, 2));
+		compactTypes.put("ITEMS", "CURRENCY", new SAPFieldType("CUKY", 5, 0));
+		compactTypes.put("ITEMS", "DELETED", new SAPFieldType("CHAR", 1, 0));
+
+		final Map<String, String> sources = new ColumnarTableGenerator("org.example", "ItemsTable", createTableMapping(),
+				compactTypes).createSources();
+		final String table = sources.get("ItemsTable");
+		final String converter = sources.get("ItemsTableConverter");
+
+		Assert.assertTrue(table.contains("\tlong[] _amount;\n"));
+		Assert.assertTrue(table.contains("\tchar[] _deleted;\n"));
+		Assert.assertTrue(table.contains("\tString[] _currency;\n"));
+		Assert.assertTrue(converter.contains("private final ScaledLong2Converter _amountConverter"));
+		Assert.assertTrue(converter.contains("import org.hibersap.conversion.CharConverter;"));
+		Assert.assertTrue(converter
+				.contains("table._amount[row] = this._amountConverter.convertToJava((BigDecimal) sapRow.get(\"AMOUNT\"));"));
+		Assert.assertTrue(converter
+				.contains("sapRow.put(\"DELETED\", this._deletedConverter.convertToSap(javaValue._deleted[row]));"));
+	}
+
+	private TableMapping createTableMapping() {
+		final StructureMapping itemMapping = new StructureMapping(null, "ITEMS", "_items", null);
+
+		itemMapping.addParameter(new FieldMapping(String.class, "DELETED", "_deleted", null));
+		itemMapping.addParameter(new FieldMapping(BigDecimal.class, "AMOUNT", "_amount", null));
+		itemMapping.addParameter(new FieldMapping(String.class, "CURRENCY", "_currency", null));
+		itemMapping.addParameter(new FieldMapping(byte[].class, "RAW", "_raw", null));
+
+		return new TableMapping(List.class, null, "ITEMS", "_items", itemMapping, null);
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the mapping of SAP types to the primitive types of the compact type mapping
+ *
+ */
+public class CompactTypeMappingTest {
+
+	@Test
+	public void mapsFlagsNumcAndPackedNumbers() {
+		final CompactTypeMapping mapping = createMapping(false);
+
+		Assert.assertEquals(CompactType.CHAR, mapping.getCompactType("FLAG", null));
+		Assert.assertEquals(CompactType.INT, mapping.getCompactType("ITEMS", "ITEM_NO"));
+		Assert.assertEquals(CompactType.LONG, mapping.getCompactType("ITEMS", "DOC_NO"));
+		Assert.assertEquals(CompactType.SCALED_LONG, mapping.getCompactType("ITEMS", "AMOUNT"));
+		Assert.assertEquals(CompactType.BOOLEAN, createMapping(true).getCompactType("FLAG", null));
+	}
+
+	@Test
+	public void keepsFieldsNotFittingIntoPrimitives() {
+		final CompactTypeMapping mapping = createMapping(true);
+
+		Assert.assertNull(mapping.getCompactType("ITEMS", "CURRENCY"));
+		Assert.assertNull(mapping.getCompactType("ITEMS", "SERIAL_NO"));
+		Assert.assertNull(mapping.getCompactType("ITEMS", "TOTAL"));
+		Assert.assertNull(mapping.getCompactType("ITEMS", "UNKNOWN"));
+		Assert.assertNull(mapping.getCompactType("ITEM_NO", null));
+	}
+
+	@Test
+	public void namesConverters() {
+		Assert.assertEquals("ScaledLong3Converter", CompactType.SCALED_LONG.getConverterClassName(3));
+		Assert.assertEquals("NumcIntConverter", CompactType.INT.getConverterClassName(0));
+		Assert.assertTrue(CompactType.LONG.isConverterGenerated());
+		Assert.assertFalse(CompactType.BOOLEAN.isConverterGenerated());
+	}
+
+	@Test
+	public void generatesScaledLongConverter() {
+		final String source = CompactConverterGenerator.createSource("org.example", CompactType.SCALED_LONG, 3);
+
+		Assert.assertTrue(source.startsWith("package org.example;"));
+		Assert.assertTrue(source.contains("public class ScaledLong3Converter implements Converter<Long, BigDecimal>"));
+		Assert.assertTrue(source.contains("public static final int DECIMALS = 3;"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsConverterProvidedByHibersap() {
+		CompactConverterGenerator.createSource("org.example", CompactType.CHAR, 0);
+	}
+
+	private CompactTypeMapping createMapping(final boolean flagsAsBoolean) {
+		final CompactTypeMapping mapping = new CompactTypeMapping(flagsAsBoolean);
+
+		mapping.put("FLAG", null, new SAPFieldType("CHAR", 1, 0));
+		mapping.put("ITEMS", "ITEM_NO", new SAPFieldType("NUM", 6, 0));
+		mapping.put("ITEMS", "DOC_NO", new SAPFieldType("NUM", 18, 0));
+		mapping.put("ITEMS", "SERIAL_NO", new SAPFieldType("NUM", 19, 0));
+		mapping.put("ITEMS", "AMOUNT", new SAPFieldType("BCD", 8, 2));
+		mapping.put("ITEMS", "TOTAL", new SAPFieldType("BCD", 10, 2));
+		mapping.put("ITEMS", "CURRENCY", new SAPFieldType("CHAR", 5, 0));
+
+		return mapping;
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the connection probe against a local stub destination
+ *
+ */
+public class ConnectionProbeTest {
+
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private final ProbeTarget stubTarget = new ProbeTarget() {
+
+		public String echo(final String payload) throws Exception {
+			final int nowRunning = ConnectionProbeTest.this.running.incrementAndGet();
+
+			try {
+				synchronized (ConnectionProbeTest.this.maxRunning) {
+					ConnectionProbeTest.this.maxRunning.set(Math.max(nowRunning,
+							ConnectionProbeTest.this.maxRunning.get()));
+				}
+
+				//Every tenth call fails
+				if (ConnectionProbeTest.this.calls.incrementAndGet() % 10 == 0) {
+					throw new IllegalStateException("Connection reset");
+				}
+
+				Thread.sleep(2);
+
+				return payload;
+			} finally {
+				ConnectionProbeTest.this.running.decrementAndGet();
+			}
+		}
+	};
+
+	@Test
+	public void probesConcurrently() {
+		final ConnectionProbe.Result result = new ConnectionProbe(this.stubTarget, 40, 100).probe(4);
+
+		Assert.assertEquals(4, result.getConcurrency());
+		Assert.assertEquals(40, result.getCalls());
+		Assert.assertEquals(4, result.getErrors());
+		Assert.assertEquals("Connection reset", result.getFirstError());
+		Assert.assertEquals(4, this.maxRunning.get());
+		Assert.assertTrue(result.getMedianMillis() >= 2);
+		Assert.assertTrue(result.getPercentileMillis(95) >= result.getMedianMillis());
+		Assert.assertEquals(result.getCallsPerSecond() * 200, result.getCharactersPerSecond(), 0.001);
+	}
+
+	@Test
+	public void countsWrongEchoAsError() {
+		final ConnectionProbe.Result result = new ConnectionProbe(new ProbeTarget() {
+
+			public String echo(final String payload) {
+				return payload.substring(1);
+			}
+		}, 10, 10).probe(2);
+
+		Assert.assertEquals(10, result.getErrors());
+		Assert.assertEquals(0, result.getCallsPerSecond(), 0);
+	}
+
+	@Test
+	public void createsConcurrencyLevels() {
+		Assert.assertEquals(Arrays.asList(1, 2, 4, 8, 10), ConnectionProbe.getConcurrencyLevels(10));
+		Assert.assertEquals(Arrays.asList(1, 2, 4, 8), ConnectionProbe.getConcurrencyLevels(8));
+		Assert.assertEquals(Arrays.asList(1), ConnectionProbe.getConcurrencyLevels(0));
+	}
+
+	@Test
+	public void recommendsPoolSize() {
+		//A system with 4 work processes: 10 ms per call, calls wait beyond 4 concurrent calls
+		final List<ConnectionProbe.Result> results = Arrays.asList(createResult(1, 10, 0), createResult(2, 10, 0),
+				createResult(4, 11, 0), createResult(8, 19, 0), createResult(16, 40, 0), createResult(32, 80, 3));
+
+		Assert.assertEquals(4, ConnectionProbe.recommendPoolCapacity(results));
+		Assert.assertEquals(8, ConnectionProbe.recommendPeakLimit(results));
+		Assert.assertEquals(1, ConnectionProbe.recommendPoolCapacity(Arrays.asList(createResult(1, 10, 1))));
+	}
+
+	/**
+	 * Creates the result of 100 calls with the same latency, which are executed in waves of the given concurrency,
+	 * at most 4 at the same time
+	 */
+	private static ConnectionProbe.Result createResult(final int concurrency, final long latencyMillis,
+			final int errors) {
+		final long[] latencies = new long[100];
+
+		Arrays.fill(latencies, latencyMillis * 1000000L);
+
+		return new ConnectionProbe.Result(concurrency, latencies, 100 / Math.min(concurrency, 4) * 10 * 1000000L,
+				errors, null, 255);
+	}
+
+}
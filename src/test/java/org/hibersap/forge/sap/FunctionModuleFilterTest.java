@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the restriction of function module searches to function groups, packages and namespaces
+ *
+ */
+public class FunctionModuleFilterTest {
+
+	private static final FunctionNameCallback CALLBACK = new FunctionNameCallback() {
+
+		public boolean handle(final List<String> functionNames) {
+			return true;
+		}
+	};
+
+	@Test
+	public void emptyFilter() {
+		Assert.assertTrue(FunctionModuleFilter.NONE.isEmpty());
+		Assert.assertTrue(new FunctionModuleFilter("", " ", null).isEmpty());
+		Assert.assertEquals("", FunctionModuleFilter.NONE.getCondition());
+	}
+
+	@Test
+	public void functionGroupCondition() {
+		Assert.assertEquals("PNAME LIKE 'SAPLZMM%'", new FunctionModuleFilter("zmm*", null, null).getCondition());
+		Assert.assertEquals("PNAME LIKE '/ABC/SAPLGROUP'",
+				new FunctionModuleFilter("/ABC/GROUP", null, null).getCondition());
+	}
+
+	@Test
+	public void namespaceCondition() {
+		Assert.assertEquals("( FUNCNAME LIKE 'Y%' OR FUNCNAME LIKE 'Z%' )",
+				new FunctionModuleFilter(null, null, "Customer").getCondition());
+		Assert.assertEquals("PNAME LIKE 'SAPLX' AND FUNCNAME LIKE '/ABC/%'",
+				new FunctionModuleFilter("X", null, "/abc/").getCondition());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidNamespace() {
+		new FunctionModuleFilter(null, null, "ABC");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void packageNeedsLookup() {
+		new FunctionModuleFilter(null, "ZPACKAGE", null).getCondition();
+	}
+
+	@Test
+	public void packageLookup() {
+		final StubSession stub = new StubSession();
+
+		stub.addTableRows("TADIR", "ZMM_GROUP", "/ABC/GROUP");
+
+		final FunctionModuleFilter filter = new FunctionModuleFilter(null, "ZPACKAGE", null).resolve(stub.createSession());
+
+		Assert.assertTrue(filter.isResolved());
+		Assert.assertFalse(filter.isUnsatisfiable());
+		Assert.assertEquals("PNAME IN ( 'SAPLZMM_GROUP' , '/ABC/SAPLGROUP' )", filter.getCondition());
+	}
+
+	@Test
+	public void largePackageIsSearchedInParts() {
+		final StubSession stub = new StubSession("Z_MM_READ");
+		final int groupCount = FunctionModuleFilter.MAX_PROGRAMS_PER_CONDITION * 2 + 50;
+
+		for (int i = 0; i < groupCount; i++) {
+			stub.addTableRows("TADIR", "ZG" + (1000 + i));
+		}
+
+		final FunctionModuleFilter filter = new FunctionModuleFilter(null, "ZPACKAGE", "customer").resolve(stub
+				.createSession());
+		final List<String> conditions = filter.getConditions();
+
+		Assert.assertEquals(3, conditions.size());
+		Assert.assertTrue(conditions.get(0).startsWith("PNAME IN ( 'SAPLZG1000' ,"));
+		Assert.assertTrue(conditions.get(2).startsWith("PNAME IN ( 'SAPLZG" + (1000 + groupCount - 50) + "' ,"));
+		Assert.assertTrue(conditions.get(2).endsWith("'SAPLZG" + (1000 + groupCount - 1)
+				+ "' ) AND ( FUNCNAME LIKE 'Y%' OR FUNCNAME LIKE 'Z%' )"));
+
+		new PagedFunctionModuleSearch("*", 0, 10, filter).execute(stub.createSession(), CALLBACK);
+
+		//One package lookup and one search per condition
+		Assert.assertEquals(1 + 3, stub.getCalls());
+		Assert.assertTrue(stub.getLastWhereClause().contains("PNAME IN ( 'SAPLZG" + (1000 + groupCount - 50) + "' ,"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void largePackageNeedsSeveralConditions() {
+		final StubSession stub = new StubSession();
+
+		for (int i = 0; i <= FunctionModuleFilter.MAX_PROGRAMS_PER_CONDITION; i++) {
+			stub.addTableRows("TADIR", "ZG" + i);
+		}
+
+		new FunctionModuleFilter(null, "ZPACKAGE", null).resolve(stub.createSession()).getCondition();
+	}
+
+	@Test
+	public void emptyPackageSkipsSearch() {
+		final StubSession stub = new StubSession("Z_MM_READ");
+		final PagedFunctionModuleSearch search = new PagedFunctionModuleSearch("*", 0, 10, new FunctionModuleFilter(
+				null, "ZEMPTY", null));
+
+		Assert.assertEquals(0, search.execute(stub.createSession(), CALLBACK));
+		//Only the package lookup
+		Assert.assertEquals(1, stub.getCalls());
+	}
+
+	@Test
+	public void conditionIsSentWithSearch() {
+		final StubSession stub = new StubSession("Z_MM_READ");
+		final FunctionModuleFilter filter = new FunctionModuleFilter(null, "ZPACKAGE", "customer");
+
+		stub.addTableRows("TADIR", "ZMM");
+
+		Assert.assertEquals(Arrays.asList("Z_MM_READ"), new ParallelFunctionModuleSearch(Arrays.asList("Z*", "Y*"), 0,
+				10, 2, filter).execute(stub.createSessionManager(), CALLBACK));
+		//One package lookup for both patterns
+		Assert.assertEquals(3, stub.getCalls());
+		Assert.assertTrue(stub.getLastWhereClause().endsWith(
+				"AND PNAME IN ( 'SAPLZMM' ) AND ( FUNCNAME LIKE 'Y%' OR FUNCNAME LIKE 'Z%' )"));
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the generation of mapping descriptor classes
+ *
+ */
+public class MappingDescriptorGeneratorTest {
+
+	@Test
+	public void createsMappingOfAllParameters() {
+		final MappingDescriptorGenerator generator = new MappingDescriptorGenerator("org.example", "ZOrders",
+				createMapping(), null);
+
+		generator.putStructureClass("PRICE", "Price");
+		generator.putStructureClass("ET_ITEMS", "EtItems");
+
+		final String source = generator.createSource();
+
+		Assert.assertTrue(source.startsWith("package org.example;"));
+		Assert.assertTrue(source.contains("public final class ZOrdersDescriptor {"));
+		Assert.assertTrue(source
+				.contains("new BapiMapping(ZOrders.class, \"Z_ORDERS\", new ErrorHandling(null, null));"));
+		Assert.assertTrue(source
+				.contains("mapping.addImportParameter(new FieldMapping(String.class, \"MAX_ROWS\", \"_maxRows\", null));"));
+		Assert.assertTrue(source
+				.contains("final StructureMapping _price = new StructureMapping(Price.class, \"PRICE\", \"_price\", null);"));
+		Assert.assertTrue(source
+				.contains("_price.addParameter(new FieldMapping(BigDecimal.class, \"AMOUNT\", \"_amount\", null));"));
+		Assert.assertTrue(source.contains("mapping.addExportParameter(_price);"));
+		Assert.assertTrue(source.contains("mapping.addTableParameter(new TableMapping(List.class, EtItems.class, "
+				+ "\"ET_ITEMS\", \"_etItems\", _et_items, null));"));
+		Assert.assertTrue(source.contains("import java.util.List;"));
+	}
+
+	@Test
+	public void createsMappingOfConvertedTablesAndCompactFields() {
+		final CompactTypeMapping compactTypes = new CompactTypeMapping(false);
+
+		compactTypes.put("MAX_ROWS", null, new SAPFieldType("NUM", 6, 0));
+
+		final MappingDescriptorGenerator generator = new MappingDescriptorGenerator("org.example", "ZOrders",
+				createMapping(), compactTypes);
+
+		generator.putStructureClass("PRICE", "Price");
+		generator.putTableClass("ET_ITEMS", "EtItemsTable", "EtItemsTableConverter");
+
+		final String source = generator.createSource();
+
+		Assert.assertTrue(source.contains("new FieldMapping(int.class, \"MAX_ROWS\", \"_maxRows\", NumcIntConverter.class)"));
+		Assert.assertTrue(source.contains("new StructureMapping(EtItemsTable.class, \"ET_ITEMS\", \"_etItems\", "
+				+ "EtItemsTableConverter.class);"));
+		Assert.assertTrue(source.contains("new TableMapping(EtItemsTable.class, EtItemsTable.class, \"ET_ITEMS\", "
+				+ "\"_etItems\", _et_items, EtItemsTableConverter.class)"));
+		Assert.assertFalse(source.contains("_et_items.addParameter("));
+		Assert.assertFalse(source.contains("import java.util.List;"));
+	}
+
+	@Test
+	public void createsConfigurationUsingDescriptors() {
+		final String source = MappingDescriptorGenerator.createConfigurationSource("org.example");
+
+		Assert.assertTrue(source.startsWith("package org.example;"));
+		Assert.assertTrue(source.contains("public class DescriptorConfiguration extends Configuration {"));
+		Assert.assertTrue(source.contains("mapping = createMapping(className + \"Descriptor\");"));
+		Assert.assertTrue(source.contains("addBapiMappings(mappings);"));
+		Assert.assertEquals("ZOrdersDescriptor", MappingDescriptorGenerator.getDescriptorClassName("ZOrders"));
+	}
+
+	private BapiMapping createMapping() {
+		final BapiMapping mapping = new BapiMapping(null, "Z_ORDERS", null);
+		final StructureMapping priceMapping = new StructureMapping(null, "PRICE", "_price", null);
+		final StructureMapping itemMapping = new StructureMapping(null, "ET_ITEMS", "_etItems", null);
+
+		mapping.addImportParameter(new FieldMapping(String.class, "MAX_ROWS", "_maxRows", null));
+		priceMapping.addParameter(new FieldMapping(BigDecimal.class, "AMOUNT", "_amount", null));
+		mapping.addExportParameter(priceMapping);
+		itemMapping.addParameter(new FieldMapping(String.class, "ITEM_NO", "_itemNo", null));
+		mapping.addTableParameter(new TableMapping(List.class, null, "ET_ITEMS", "_etItems", itemMapping, null));
+
+		return mapping;
+	}
+
+}
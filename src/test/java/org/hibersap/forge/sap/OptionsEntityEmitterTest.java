@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibersap.HibersapException;
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests emitting SAP entities with the options they were generated with
+ *
+ */
+public class OptionsEntityEmitterTest {
+
+	private static final String JAVA_PACKAGE = "org.example.hibersap";
+
+	private final Map<String, GenerationOptions> options = new HashMap<String, GenerationOptions>();
+
+	private final OptionsEntityEmitter emitter = new OptionsEntityEmitter(new AstEntityEmitter(null), null,
+			this.options, null);
+
+	@Test
+	public void replaysRecordedOptions() {
+		this.options.put(JAVA_PACKAGE + ".ZColumnar", GenerationOptions.parse("columnar-tables mapping-descriptors"));
+		this.options.put(JAVA_PACKAGE + ".ZStreaming", GenerationOptions.parse("streaming-tables=ET_ITEMS"));
+
+		final SAPEntitySource columnar = this.emitter.emit("ZColumnar", JAVA_PACKAGE, createMapping());
+		final SAPEntitySource streaming = this.emitter.emit("ZStreaming", JAVA_PACKAGE, createMapping());
+		final SAPEntitySource standard = this.emitter.emit("ZStandard", JAVA_PACKAGE, createMapping());
+
+		Assert.assertTrue(columnar.getSources().containsKey(JAVA_PACKAGE + ".EtItemsTable"));
+		Assert.assertTrue(columnar.getSources().containsKey(JAVA_PACKAGE + ".ZColumnarDescriptor"));
+		Assert.assertTrue(streaming.getSources().containsKey(JAVA_PACKAGE + ".EtItemsRows"));
+		Assert.assertTrue(standard.getSources().containsKey(JAVA_PACKAGE + ".EtItems"));
+		Assert.assertEquals(2, standard.getSources().size());
+	}
+
+	@Test(expected = HibersapException.class)
+	public void refusesCompactWithoutConnection() {
+		this.options.put(JAVA_PACKAGE + ".ZCompact", GenerationOptions.parse("compact"));
+		this.emitter.emit("ZCompact", JAVA_PACKAGE, createMapping());
+	}
+
+	@Test
+	public void formatsOptions() {
+		final GenerationOptions parsed = GenerationOptions.parse("mapping-descriptors streaming-tables=ET_LOG,ET_ITEMS compact");
+
+		Assert.assertEquals("compact streaming-tables=ET_ITEMS,ET_LOG mapping-descriptors", parsed.toString());
+		Assert.assertEquals(parsed.toString(), GenerationOptions.parse(parsed.toString()).toString());
+		Assert.assertFalse(GenerationOptions.parse("flags-as-boolean").isSet());
+		Assert.assertEquals("", GenerationOptions.NONE.toString());
+	}
+
+	private BapiMapping createMapping() {
+		final BapiMapping mapping = new BapiMapping(null, "Z_ORDERS", null);
+		final StructureMapping itemMapping = new StructureMapping(null, "ET_ITEMS", "_etItems", null);
+
+		itemMapping.addParameter(new FieldMapping(String.class, "AMOUNT", "_amount", null));
+		mapping.addTableParameter(new TableMapping(List.class, null, "ET_ITEMS", "_etItems", itemMapping, null));
+
+		return mapping;
+	}
+
+}
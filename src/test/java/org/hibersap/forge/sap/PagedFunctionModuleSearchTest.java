@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the paged function module search with a stub session
+ *
+ */
+public class PagedFunctionModuleSearchTest {
+
+	private final StubSession stubSession = new StubSession("BAPI_A", "BAPI_B", "BAPI_C", "BAPI_D", "BAPI_E",
+			"Z_OTHER");
+
+	@Test
+	public void readsAllPages() {
+		final List<List<String>> pages = execute(new PagedFunctionModuleSearch("BAPI*", 0, 2), true);
+
+		Assert.assertEquals(3, pages.size());
+		Assert.assertEquals(Arrays.asList("BAPI_A", "BAPI_B"), pages.get(0));
+		Assert.assertEquals(Arrays.asList("BAPI_E"), pages.get(2));
+		Assert.assertEquals(3, this.stubSession.getCalls());
+	}
+
+	@Test
+	public void pagesByKeyRange() {
+		final StubSession unsortedSession = new StubSession("BAPI_D", "BAPI_B", "BAPI_E", "BAPI_A", "BAPI_C");
+		final List<String> names = new ArrayList<String>();
+
+		new PagedFunctionModuleSearch("BAPI*", 0, 2).execute(unsortedSession.createSession(), new FunctionNameCallback() {
+
+			public boolean handle(final List<String> functionNames) {
+				names.addAll(functionNames);
+				return true;
+			}
+		});
+
+		Assert.assertEquals(Arrays.asList("BAPI_A", "BAPI_B", "BAPI_C", "BAPI_D", "BAPI_E"), names);
+		Assert.assertTrue(unsortedSession.getLastWhereClause().endsWith("AND FUNCNAME GT 'BAPI_D'"));
+		Assert.assertEquals(3, unsortedSession.getCalls());
+	}
+
+	@Test
+	public void stopsAtMaxResults() {
+		final List<List<String>> pages = execute(new PagedFunctionModuleSearch("BAPI*", 3, 2), true);
+
+		Assert.assertEquals(2, pages.size());
+		Assert.assertEquals(Arrays.asList("BAPI_C"), pages.get(1));
+		Assert.assertEquals(2, this.stubSession.getCalls());
+	}
+
+	@Test
+	public void stopsWhenCallbackDeclines() {
+		final List<List<String>> pages = execute(new PagedFunctionModuleSearch("BAPI*", 0, 2), false);
+
+		Assert.assertEquals(1, pages.size());
+		Assert.assertEquals(1, this.stubSession.getCalls());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsEmptyPages() {
+		new PagedFunctionModuleSearch("BAPI*", 0, 0);
+	}
+
+	private List<List<String>> execute(final PagedFunctionModuleSearch search, final boolean proceed) {
+		final List<List<String>> pages = new ArrayList<List<String>>();
+
+		search.execute(this.stubSession.createSession(), new FunctionNameCallback() {
+
+			public boolean handle(final List<String> functionNames) {
+				pages.add(functionNames);
+				return proceed;
+			}
+		});
+
+		return pages;
+	}
+
+}
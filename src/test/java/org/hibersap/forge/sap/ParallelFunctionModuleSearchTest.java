@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the parallel function module search with a stub session manager
+ *
+ */
+public class ParallelFunctionModuleSearchTest {
+
+	private final StubSession stubSession = new StubSession("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL", "BAPI_PR_CREATE",
+			"BAPI_PR_GETDETAIL", "Z_MM_READ", "Z_SD_READ");
+
+	@Test
+	public void mergesResultsWithoutDuplicates() {
+		final ParallelFunctionModuleSearch search = new ParallelFunctionModuleSearch(Arrays.asList("BAPI_PO_*",
+				"BAPI_P*", "Z_MM_*"), 0, 10, 3);
+		final List<String> functionNames = search.execute(this.stubSession.createSessionManager(),
+				new CollectingCallback());
+
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "BAPI_PO_GETDETAIL", "BAPI_PR_CREATE",
+				"BAPI_PR_GETDETAIL", "Z_MM_READ"), functionNames);
+	}
+
+	@Test
+	public void passesAllPagesToCallback() {
+		final CollectingCallback callback = new CollectingCallback();
+		final ParallelFunctionModuleSearch search = new ParallelFunctionModuleSearch(Arrays.asList("BAPI*", "Z*"), 0,
+				1, 2);
+
+		search.execute(this.stubSession.createSessionManager(), callback);
+
+		Assert.assertEquals(6, callback.functionNames.size());
+		Assert.assertEquals(8, this.stubSession.getCalls());
+	}
+
+	@Test
+	public void limitsResultsPerPattern() {
+		final ParallelFunctionModuleSearch search = new ParallelFunctionModuleSearch(Arrays.asList("BAPI*", "Z*"), 1,
+				10, 1);
+		final List<String> functionNames = search.execute(this.stubSession.createSessionManager(),
+				new CollectingCallback());
+
+		Assert.assertEquals(Arrays.asList("BAPI_PO_CREATE1", "Z_MM_READ"), functionNames);
+	}
+
+	private static class CollectingCallback implements FunctionNameCallback {
+
+		private final List<String> functionNames = new ArrayList<String>();
+
+		public boolean handle(final List<String> pageNames) {
+			this.functionNames.addAll(pageNames);
+			return true;
+		}
+
+	}
+
+}
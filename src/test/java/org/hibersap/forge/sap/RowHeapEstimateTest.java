@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the estimated heap per row of the standard and the compact type mapping
+ *
+ */
+public class RowHeapEstimateTest {
+
+	@Test
+	public void estimatesStandardAndCompactRow() {
+		final List<RowHeapEstimate> estimates = RowHeapEstimate.of(createMapping(), createCompactTypes());
+
+		Assert.assertEquals(1, estimates.size());
+		Assert.assertEquals("ITEMS", estimates.get(0).getParameterName());
+		//Row 12 + 3 * 4, list reference 4, String of 6 chars 24 + 32, String of 1 char 24 + 24, BigDecimal 40
+		Assert.assertEquals(172, estimates.get(0).getStandardBytes());
+		//Row 12 + 4 + 2 + 8 aligned to 32, list reference 4
+		Assert.assertEquals(36, estimates.get(0).getCompactBytes());
+		Assert.assertEquals(79.1, estimates.get(0).getSavedPercent(), 0.1);
+	}
+
+	@Test
+	public void estimatesUnknownFieldsWithStandardType() {
+		final BapiMapping mapping = createMapping();
+		final List<RowHeapEstimate> estimates = RowHeapEstimate.of(mapping, new CompactTypeMapping(false));
+
+		Assert.assertEquals(estimates.get(0).getStandardBytes(), estimates.get(0).getCompactBytes());
+		Assert.assertEquals(0, estimates.get(0).getSavedPercent(), 0);
+	}
+
+	private BapiMapping createMapping() {
+		final BapiMapping mapping = new BapiMapping(null, "Z_ORDERS", null);
+		final StructureMapping itemMapping = new StructureMapping(null, "ITEMS", "_items", null);
+
+		mapping.addImportParameter(new FieldMapping(String.class, "MAX_ROWS", "_maxRows", null));
+		itemMapping.addParameter(new FieldMapping(String.class, "ITEM_NO", "_itemNo", null));
+		itemMapping.addParameter(new FieldMapping(String.class, "DELETED", "_deleted", null));
+		itemMapping.addParameter(new FieldMapping(BigDecimal.class, "AMOUNT", "_amount", null));
+		mapping.addTableParameter(new TableMapping(List.class, null, "ITEMS", "_items", itemMapping, null));
+
+		return mapping;
+	}
+
+	private CompactTypeMapping createCompactTypes() {
+		final CompactTypeMapping compactTypes = new CompactTypeMapping(false);
+
+		compactTypes.put("MAX_ROWS", null, new SAPFieldType("NUM", 6, 0));
+		compactTypes.put("ITEMS", "ITEM_NO", new SAPFieldType("NUM", 6, 0));
+		compactTypes.put("ITEMS", "DELETED", new SAPFieldType("CHAR", 1, 0));
+		compactTypes.put("ITEMS", "AMOUNT", new SAPFieldType("BCD", 8, 2));
+
+		return compactTypes;
+	}
+
+}
@@ -20,11 +20,13 @@
 package org.hibersap.forge.sap;
 
 import org.hibersap.annotations.Bapi;
+import org.hibersap.annotations.Convert;
 import org.hibersap.annotations.Export;
 import org.hibersap.annotations.Import;
 import org.hibersap.annotations.Parameter;
 import org.hibersap.annotations.ParameterType;
 import org.hibersap.annotations.Table;
+import org.hibersap.conversion.BooleanConverter;
 import org.hibersap.mapping.model.BapiMapping;
 import org.hibersap.mapping.model.FieldMapping;
 import org.hibersap.mapping.model.StructureMapping;
@@ -35,12 +37,19 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 
 /**
  * @author Max Schwaab
@@ -170,4 +179,340 @@ public class SAPEntityBuilderTest {
         Assert.assertThat( field.getAnnotation( Parameter.class ).getStringValue( "value" ),
                            equalTo( "EXTENSION_OUT" ) );
     }
+
+    @Test
+    public void createsSameStructureClassesInParallel() {
+        final BapiMapping mapping = new BapiMapping( null, "BAPI_WIDE", null );
+
+        for ( int i = 0; i < 40; i++ ) {
+            final StructureMapping structureMapping = new StructureMapping( null, "TABLE" + i, "_table" + i, null );
+
+            structureMapping.addParameter( new FieldMapping( String.class, "FIELD" + i, "_field" + i, null ) );
+            structureMapping.addParameter( new FieldMapping( Date.class, "DATE" + i, "_date" + i, null ) );
+            mapping.addTableParameter( new TableMapping( List.class, null, "TABLE" + i, "_table" + i, structureMapping, null ) );
+        }
+
+        final SAPEntityBuilder serialBuilder = new SAPEntityBuilder();
+        final SAPEntityBuilder parallelBuilder = new SAPEntityBuilder( null, 4 );
+
+        serialBuilder.createNew( SAPEntityBuilderTest.CLASS_NAME, SAPEntityBuilderTest.JAVA_PACKAGE, mapping );
+        parallelBuilder.createNew( SAPEntityBuilderTest.CLASS_NAME, SAPEntityBuilderTest.JAVA_PACKAGE, mapping );
+
+        final List<String> expectedClassNames = new ArrayList<String>();
+        final List<String> serialSources = new ArrayList<String>();
+        final List<String> parallelSources = new ArrayList<String>();
+
+        for ( final TableMapping tableMapping : SAPEntityBuilder.sortBySapName( mapping.getTableParameters() ) ) {
+            expectedClassNames.add( SAPEntityBuilder.convertFieldNameToClassName( tableMapping.getJavaName() ) );
+        }
+        for ( final JavaClass structureClass : serialBuilder.getSAPEntity().getStructureClasses() ) {
+            serialSources.add( structureClass.toString() );
+        }
+        for ( final JavaClass structureClass : parallelBuilder.getSAPEntity().getStructureClasses() ) {
+            parallelSources.add( structureClass.toString() );
+            Assert.assertThat( structureClass.getName(), equalTo( expectedClassNames.remove( 0 ) ) );
+        }
+
+        Assert.assertThat( parallelSources.size(), is( 40 ) );
+        Assert.assertThat( parallelSources, equalTo( serialSources ) );
+        Assert.assertThat( parallelBuilder.getSAPEntity().getBapiClass().toString(),
+                           equalTo( serialBuilder.getSAPEntity().getBapiClass().toString() ) );
+    }
+
+    @Test
+    public void createsCompactFieldsWithConverters() {
+        final BapiMapping mapping = new BapiMapping( null, "Z_ORDERS", null );
+        final StructureMapping itemMapping = new StructureMapping( null, "ITEMS", "_items", null );
+
+        mapping.addImportParameter( new FieldMapping( String.class, "MAX_ROWS", "_maxRows", null ) );
+        itemMapping.addParameter( new FieldMapping( String.class, "DELETED", "_deleted", null ) );
+        itemMapping.addParameter( new FieldMapping( BigDecimal.class, "AMOUNT", "_amount", null ) );
+        itemMapping.addParameter( new FieldMapping( String.class, "CURRENCY", "_currency", null ) );
+        mapping.addTableParameter( new TableMapping( List.class, null, "ITEMS", "_items", itemMapping, null ) );
+
+        final CompactTypeMapping compactTypes = new CompactTypeMapping( true );
+
+        compactTypes.put( "MAX_ROWS", null, new SAPFieldType( "NUM", 6, 0 ) );
+        compactTypes.put( "ITEMS", "DELETED", new SAPFieldType( "CHAR", 1, 0 ) );
+        compactTypes.put( "ITEMS", "AMOUNT", new SAPFieldType( "BCD", 8, 2 ) );
+        compactTypes.put( "ITEMS", "CURRENCY", new SAPFieldType( "CHAR", 5, 0 ) );
+
+        final StructureRegistry registry = new StructureRegistry();
+        final SAPEntityBuilder builder = new SAPEntityBuilder( registry );
+
+        builder.createNew( SAPEntityBuilderTest.CLASS_NAME, SAPEntityBuilderTest.JAVA_PACKAGE, mapping, compactTypes );
+
+        final SAPEntity entity = builder.getSAPEntity();
+        final Field<JavaClass> maxRows = entity.getBapiClass().getField( "_maxRows" );
+
+        Assert.assertThat( maxRows.getType(), equalTo( "int" ) );
+        Assert.assertThat( maxRows.getAnnotation( Convert.class ).getLiteralValue( "converter" ),
+                           equalTo( "NumcIntConverter.class" ) );
+        Assert.assertThat( entity.getBapiClass().toString(), containsString( "public mySAPClass(final int maxRows)" ) );
+
+        final JavaClass items = entity.getStructureClasses().iterator().next();
+
+        Assert.assertThat( items.getField( "_deleted" ).getType(), equalTo( "boolean" ) );
+        Assert.assertThat( items.getField( "_deleted" ).getAnnotation( Convert.class ).getLiteralValue( "converter" ),
+                           equalTo( "BooleanConverter.class" ) );
+        Assert.assertTrue( items.hasImport( BooleanConverter.class ) );
+        Assert.assertThat( items.getField( "_amount" ).getType(), equalTo( "long" ) );
+        Assert.assertThat( items.getField( "_currency" ).getType(), equalTo( "String" ) );
+        Assert.assertThat( items.getField( "_currency" ).getAnnotation( Convert.class ), is( nullValue() ) );
+        Assert.assertThat( registry.getClassNames(), equalTo( Collections.singletonList( "myPackage.Items" ) ) );
+
+        final List<String> converterNames = new ArrayList<String>();
+
+        for ( final JavaClass converterClass : entity.getConverterClasses() ) {
+            converterNames.add( converterClass.getQualifiedName() );
+        }
+
+        Assert.assertThat( converterNames, equalTo( Arrays.asList( "myPackage.NumcIntConverter",
+                                                                   "myPackage.ScaledLong2Converter" ) ) );
+    }
+
+    @Test
+    public void registersCompactStructureClassesByCompactLayout() {
+        final StructureRegistry registry = new StructureRegistry();
+        final CompactTypeMapping compactTypes = new CompactTypeMapping( false );
+
+        compactTypes.put( "RETURN", "LOG_NO", new SAPFieldType( "NUM", 6, 0 ) );
+        compactTypes.put( "RETURN", "TYPE", new SAPFieldType( "CHAR", 1, 0 ) );
+
+        final SAPEntityBuilder builder = new SAPEntityBuilder( registry );
+
+        builder.createNew( "StandardBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createReturnMapping() );
+
+        final JavaClass standardReturn = builder.getSAPEntity().getStructureClasses().iterator().next();
+
+        builder.createNew( "CompactBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createReturnMapping(), compactTypes );
+
+        final SAPEntity compactEntity = builder.getSAPEntity();
+        final JavaClass compactReturn = compactEntity.getStructureClasses().iterator().next();
+
+        Assert.assertThat( standardReturn.getName(), equalTo( "Return" ) );
+        Assert.assertThat( standardReturn.getField( "_logNo" ).getType(), equalTo( "String" ) );
+        Assert.assertThat( compactReturn.getName(), equalTo( "Return2" ) );
+        Assert.assertThat( compactReturn.getField( "_logNo" ).getType(), equalTo( "int" ) );
+        Assert.assertThat( compactEntity.getBapiClass().getField( "_return" ).getType(), equalTo( "Return2" ) );
+        Assert.assertThat( registry.getClassNames(), equalTo( Arrays.asList( "myPackage.Return", "myPackage.Return2" ) ) );
+
+        builder.createNew( "OtherCompactBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createReturnMapping(), compactTypes );
+        Assert.assertThat( builder.getSAPEntity().getBapiClass().getField( "_return" ).getType(), equalTo( "Return2" ) );
+        Assert.assertTrue( builder.getSAPEntity().getStructureClasses().isEmpty() );
+    }
+
+    @Test
+    public void typesImportStructureConstructorParameterWithRegisteredClass() {
+        final StructureRegistry registry = new StructureRegistry();
+        final CompactTypeMapping compactTypes = new CompactTypeMapping( false );
+
+        compactTypes.put( "RETURN_DATA", "LOG_NO", new SAPFieldType( "NUM", 6, 0 ) );
+        compactTypes.put( "RETURN_DATA", "TYPE", new SAPFieldType( "CHAR", 1, 0 ) );
+
+        final SAPEntityBuilder builder = new SAPEntityBuilder( registry );
+
+        builder.createNew( "StandardBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createImportReturnMapping() );
+        Assert.assertThat( builder.getSAPEntity().getBapiClass().toString(),
+                           containsString( "public StandardBapi(final ReturnData returnData)" ) );
+
+        builder.createNew( "CompactBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createImportReturnMapping(), compactTypes );
+
+        final SAPEntity compactEntity = builder.getSAPEntity();
+
+        Assert.assertThat( compactEntity.getBapiClass().toString(),
+                           containsString( "public CompactBapi(final ReturnData2 returnData)" ) );
+        Assert.assertThat( compactEntity.getBapiClass().getField( "_returnData" ).getType(), equalTo( "ReturnData2" ) );
+        Assert.assertThat( compactEntity.getStructureClasses().size(), equalTo( 1 ) );
+        Assert.assertThat( compactEntity.getStructureClasses().iterator().next().getName(), equalTo( "ReturnData2" ) );
+    }
+
+    private BapiMapping createImportReturnMapping() {
+        final BapiMapping mapping = new BapiMapping( null, "Z_RETURN", null );
+        final StructureMapping returnMapping = new StructureMapping( null, "RETURN_DATA", "_returnData", null );
+
+        returnMapping.addParameter( new FieldMapping( String.class, "LOG_NO", "_logNo", null ) );
+        returnMapping.addParameter( new FieldMapping( String.class, "TYPE", "_type", null ) );
+        mapping.addImportParameter( returnMapping );
+
+        return mapping;
+    }
+
+    private BapiMapping createReturnMapping() {
+        final BapiMapping mapping = new BapiMapping( null, "Z_RETURN", null );
+        final StructureMapping returnMapping = new StructureMapping( null, "RETURN", "_return", null );
+
+        returnMapping.addParameter( new FieldMapping( String.class, "LOG_NO", "_logNo", null ) );
+        returnMapping.addParameter( new FieldMapping( String.class, "TYPE", "_type", null ) );
+        mapping.addExportParameter( returnMapping );
+
+        return mapping;
+    }
+
+    @Test
+    public void createsColumnarTableClasses() {
+        final BapiMapping mapping = new BapiMapping( null, "Z_ORDERS", null );
+        final StructureMapping itemMapping = new StructureMapping( null, "ET_ITEMS", "_etItems", null );
+
+        itemMapping.addParameter( new FieldMapping( BigDecimal.class, "AMOUNT", "_amount", null ) );
+        itemMapping.addParameter( new FieldMapping( String.class, "CURRENCY", "_currency", null ) );
+        mapping.addTableParameter( new TableMapping( List.class, null, "ET_ITEMS", "_etItems", itemMapping, null ) );
+
+        final SAPEntityBuilder builder = new SAPEntityBuilder( new StructureRegistry(), 1, true );
+
+        builder.createNew( SAPEntityBuilderTest.CLASS_NAME, SAPEntityBuilderTest.JAVA_PACKAGE, mapping );
+
+        final SAPEntity entity = builder.getSAPEntity();
+        final Field<JavaClass> items = entity.getBapiClass().getField( "_etItems" );
+
+        Assert.assertThat( items.getType(), equalTo( "EtItemsTable" ) );
+        Assert.assertThat( items.getAnnotation( Table.class ), is( notNullValue() ) );
+        Assert.assertThat( items.getAnnotation( Convert.class ).getLiteralValue( "converter" ),
+                           equalTo( "EtItemsTableConverter.class" ) );
+
+        final List<String> classNames = new ArrayList<String>();
+
+        for ( final JavaClass structureClass : entity.getStructureClasses() ) {
+            classNames.add( structureClass.getName() );
+        }
+
+        Assert.assertTrue( classNames.containsAll( Arrays.asList( "EtItemsTable", "EtItemsTableCursor",
+                                                                  "EtItemsTableConverter" ) ) );
+        Assert.assertThat( classNames.size(), equalTo( 3 ) );
+    }
+
+    @Test
+    public void registersColumnarTableClassesByLayout() {
+        final StructureRegistry registry = new StructureRegistry();
+        final SAPEntityBuilder builder = new SAPEntityBuilder( registry, 1, true );
+
+        builder.createNew( "FirstBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createItemsMapping( "AMOUNT", "CURRENCY" ) );
+        Assert.assertThat( builder.getSAPEntity().getStructureClasses().size(), equalTo( 3 ) );
+
+        builder.createNew( "SecondBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createItemsMapping( "AMOUNT", "CURRENCY" ) );
+        Assert.assertThat( builder.getSAPEntity().getBapiClass().getField( "_etItems" ).getType(),
+                           equalTo( "EtItemsTable" ) );
+        Assert.assertTrue( builder.getSAPEntity().getStructureClasses().isEmpty() );
+
+        builder.createNew( "ThirdBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createItemsMapping( "AMOUNT" ) );
+
+        final SAPEntity entity = builder.getSAPEntity();
+        final Field<JavaClass> items = entity.getBapiClass().getField( "_etItems" );
+        final List<String> classNames = new ArrayList<String>();
+
+        for ( final JavaClass structureClass : entity.getStructureClasses() ) {
+            classNames.add( structureClass.getName() );
+        }
+
+        Assert.assertThat( items.getType(), equalTo( "EtItemsTable2" ) );
+        Assert.assertThat( items.getAnnotation( Convert.class ).getLiteralValue( "converter" ),
+                           equalTo( "EtItemsTable2Converter.class" ) );
+        Assert.assertTrue( classNames.containsAll( Arrays.asList( "EtItemsTable2", "EtItemsTable2Cursor",
+                                                                  "EtItemsTable2Converter" ) ) );
+        Assert.assertThat( registry.getClassNames(), equalTo( Arrays.asList( "myPackage.EtItemsTable",
+                                                                             "myPackage.EtItemsTable2" ) ) );
+    }
+
+    private BapiMapping createItemsMapping( final String... fieldNames ) {
+        final BapiMapping mapping = new BapiMapping( null, "Z_ORDERS", null );
+        final StructureMapping itemMapping = new StructureMapping( null, "ET_ITEMS", "_etItems", null );
+
+        for ( final String fieldName : fieldNames ) {
+            itemMapping.addParameter( new FieldMapping( String.class, fieldName, "_" + fieldName.toLowerCase(), null ) );
+        }
+        mapping.addTableParameter( new TableMapping( List.class, null, "ET_ITEMS", "_etItems", itemMapping, null ) );
+
+        return mapping;
+    }
+
+    @Test
+    public void createsRowStreamClassesForChosenTables() {
+        final BapiMapping mapping = new BapiMapping( null, "Z_ORDERS", null );
+
+        for ( final String tableName : Arrays.asList( "ET_ITEMS", "ET_LOG" ) ) {
+            final String javaName = "_" + tableName.toLowerCase();
+            final StructureMapping structureMapping = new StructureMapping( null, tableName, javaName, null );
+
+            structureMapping.addParameter( new FieldMapping( String.class, tableName + "_ID", "_id", null ) );
+            mapping.addTableParameter( new TableMapping( List.class, null, tableName, javaName, structureMapping, null ) );
+        }
+
+        final SAPEntityBuilder builder = new SAPEntityBuilder( null, 1, true );
+
+        builder.createNew( SAPEntityBuilderTest.CLASS_NAME, SAPEntityBuilderTest.JAVA_PACKAGE, mapping, null,
+                           Collections.singleton( "ET_ITEMS" ) );
+
+        final SAPEntity entity = builder.getSAPEntity();
+        final Field<JavaClass> items = entity.getBapiClass().getField( "_et_items" );
+
+        Assert.assertThat( items.getType(), equalTo( "Et_itemsRows" ) );
+        Assert.assertThat( items.getAnnotation( Convert.class ).getLiteralValue( "converter" ),
+                           equalTo( "Et_itemsRowsConverter.class" ) );
+        Assert.assertThat( entity.getBapiClass().getField( "_et_log" ).getType(), equalTo( "Et_logTable" ) );
+
+        final List<String> classNames = new ArrayList<String>();
+
+        for ( final JavaClass structureClass : entity.getStructureClasses() ) {
+            classNames.add( structureClass.getName() );
+        }
+
+        Assert.assertTrue( classNames.containsAll( Arrays.asList( "Et_items", "Et_itemsRows", "Et_itemsRowsConverter" ) ) );
+        Assert.assertThat( classNames.size(), equalTo( 6 ) );
+    }
+
+    @Test
+    public void registersRowStreamClassesByLayout() {
+        final StructureRegistry registry = new StructureRegistry();
+        final SAPEntityBuilder builder = new SAPEntityBuilder( registry );
+        final Set<String> streamingTables = Collections.singleton( "ET_ITEMS" );
+
+        builder.createNew( "FirstBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createItemsMapping( "AMOUNT", "CURRENCY" ),
+                           null, streamingTables );
+        Assert.assertThat( builder.getSAPEntity().getStructureClasses().size(), equalTo( 3 ) );
+
+        builder.createNew( "SecondBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createItemsMapping( "AMOUNT", "CURRENCY" ),
+                           null, streamingTables );
+        Assert.assertThat( builder.getSAPEntity().getBapiClass().getField( "_etItems" ).getType(),
+                           equalTo( "EtItemsRows" ) );
+        Assert.assertTrue( builder.getSAPEntity().getStructureClasses().isEmpty() );
+
+        builder.createNew( "ThirdBapi", SAPEntityBuilderTest.JAVA_PACKAGE, createItemsMapping( "AMOUNT" ), null,
+                           streamingTables );
+
+        final SAPEntity entity = builder.getSAPEntity();
+        final Field<JavaClass> items = entity.getBapiClass().getField( "_etItems" );
+        final List<String> classNames = new ArrayList<String>();
+
+        for ( final JavaClass structureClass : entity.getStructureClasses() ) {
+            classNames.add( structureClass.getName() );
+        }
+
+        Assert.assertThat( items.getType(), equalTo( "EtItemsRows2" ) );
+        Assert.assertThat( items.getAnnotation( Convert.class ).getLiteralValue( "converter" ),
+                           equalTo( "EtItemsRows2Converter.class" ) );
+        Assert.assertThat( classNames, equalTo( Arrays.asList( "EtItems2", "EtItemsRows2", "EtItemsRows2Converter" ) ) );
+        Assert.assertThat( registry.getClassNames(), equalTo( Arrays.asList( "myPackage.EtItems", "myPackage.EtItems2",
+                                                                             "myPackage.EtItemsRows",
+                                                                             "myPackage.EtItemsRows2" ) ) );
+    }
+
+    @Test
+    public void addsMappingDescriptorClass() {
+        final SAPEntityBuilder builder = new SAPEntityBuilder( null, 1, false, true );
+
+        builder.createNew( SAPEntityBuilderTest.CLASS_NAME, SAPEntityBuilderTest.JAVA_PACKAGE, createMapping() );
+
+        final JavaClass descriptorClass = builder.getSAPEntity().getDescriptorClass();
+
+        Assert.assertThat( descriptorClass.getQualifiedName(), equalTo( "myPackage.mySAPClassDescriptor" ) );
+        Assert.assertThat( descriptorClass.toString(),
+                           containsString( "new TableMapping(List.class, ExtensionOut.class, \"EXTENSION_OUT\"" ) );
+        Assert.assertTrue( SAPEntitySource.of( builder.getSAPEntity() ).getSources()
+                                   .containsKey( "myPackage.mySAPClassDescriptor" ) );
+
+        final SAPEntityBuilder defaultBuilder = new SAPEntityBuilder( new StructureRegistry() );
+
+        defaultBuilder.createNew( SAPEntityBuilderTest.CLASS_NAME, SAPEntityBuilderTest.JAVA_PACKAGE, createMapping() );
+        Assert.assertThat( defaultBuilder.getSAPEntity().getDescriptorClass(), is( nullValue() ) );
+    }
 }
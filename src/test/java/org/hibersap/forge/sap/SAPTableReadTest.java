@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the splitting of WHERE clauses into OPTIONS lines
+ *
+ */
+public class SAPTableReadTest {
+
+	@Test
+	public void keepsShortClause() {
+		Assert.assertEquals(Arrays.asList("SPRAS EQ 'E'"), SAPTableRead.splitWhereClause("  SPRAS  EQ 'E' "));
+		Assert.assertTrue(SAPTableRead.splitWhereClause("").isEmpty());
+	}
+
+	@Test
+	public void splitsLongClauseBetweenWords() {
+		final StringBuilder where = new StringBuilder("SPRAS EQ 'E'");
+
+		for (int i = 0; i < 10; i++) {
+			where.append(" OR FUNCNAME LIKE 'Z_FUNCTION_").append(i).append("%'");
+		}
+
+		final List<String> lines = SAPTableRead.splitWhereClause(where.toString());
+		final StringBuilder joined = new StringBuilder();
+
+		Assert.assertTrue(lines.size() > 1);
+
+		for (final String line : lines) {
+			Assert.assertTrue(line.length() <= 72);
+			joined.append(joined.length() > 0 ? " " : "").append(line);
+		}
+
+		Assert.assertEquals(where.toString(), joined.toString());
+	}
+
+}
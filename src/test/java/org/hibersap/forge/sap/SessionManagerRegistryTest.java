@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibersap.configuration.xml.SessionManagerConfig;
+import org.hibersap.session.SessionManager;
+import org.jboss.forge.shell.events.PreShutdown;
+import org.jboss.forge.shell.events.Shutdown;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests reusing and invalidating session managers with stub session managers instead of JCo
+ *
+ */
+public class SessionManagerRegistryTest {
+
+	private final List<SessionManagerConfig> builtConfigs = new ArrayList<SessionManagerConfig>();
+	private final List<boolean[]> closedFlags = new ArrayList<boolean[]>();
+
+	private final SessionManagerRegistry registry = new SessionManagerRegistry() {
+
+		@Override
+		protected SessionManager buildSessionManager(final SessionManagerConfig sessionManagerConfig) {
+			final boolean[] closed = new boolean[1];
+
+			SessionManagerRegistryTest.this.builtConfigs.add(sessionManagerConfig);
+			SessionManagerRegistryTest.this.closedFlags.add(closed);
+
+			return (SessionManager) Proxy.newProxyInstance(SessionManager.class.getClassLoader(),
+					new Class<?>[] { SessionManager.class }, new InvocationHandler() {
+
+						public Object invoke(final Object proxy, final Method method, final Object[] args) {
+							if (method.getName().equals("close")) {
+								closed[0] = true;
+							} else if (method.getName().equals("isClosed")) {
+								return closed[0];
+							} else if (method.getName().equals("getConfig")) {
+								return sessionManagerConfig;
+							}
+
+							return null;
+						}
+					});
+		}
+	};
+
+	@Test
+	public void reusesSessionManager() {
+		final SessionManager sessionManager = this.registry.getSessionManager(createConfig("A4H", "001"));
+
+		Assert.assertSame(sessionManager, this.registry.getSessionManager(createConfig("A4H", "001")));
+		Assert.assertEquals(1, this.builtConfigs.size());
+	}
+
+	@Test
+	public void rebuildsChangedConnection() {
+		final SessionManager sessionManager = this.registry.getSessionManager(createConfig("A4H", "001"));
+		final SessionManager changedSessionManager = this.registry.getSessionManager(createConfig("A4H", "100"));
+
+		Assert.assertNotSame(sessionManager, changedSessionManager);
+		Assert.assertTrue(sessionManager.isClosed());
+		Assert.assertFalse(changedSessionManager.isClosed());
+	}
+
+	@Test
+	public void invalidatesAndShutsDown() {
+		final SessionManager sessionManager = this.registry.getSessionManager(createConfig("A4H", "001"));
+
+		this.registry.invalidate();
+
+		Assert.assertTrue(sessionManager.isClosed());
+
+		final SessionManager newSessionManager = this.registry.getSessionManager(createConfig("A4H", "001"));
+
+		Assert.assertNotSame(sessionManager, newSessionManager);
+
+		this.registry.shutdown(new PreShutdown(Shutdown.Status.NORMAL));
+
+		Assert.assertTrue(newSessionManager.isClosed());
+		Assert.assertEquals(2, this.closedFlags.size());
+	}
+
+	@Test
+	public void ignoresPropertyOrder() {
+		final SessionManagerConfig config = new SessionManagerConfig("sap").setProperty("jco.client.client", "001")
+				.setProperty("jco.client.ashost", "a4h");
+		final SessionManagerConfig reorderedConfig = new SessionManagerConfig("sap").setProperty("jco.client.ashost",
+				"a4h").setProperty("jco.client.client", "001");
+
+		Assert.assertEquals(SessionManagerRegistry.getFingerprint(config),
+				SessionManagerRegistry.getFingerprint(reorderedConfig));
+	}
+
+	private static SessionManagerConfig createConfig(final String systemId, final String client) {
+		final SessionManagerConfig config = new SessionManagerConfig("sap");
+
+		config.setProperty("jco.client.r3name", systemId);
+		config.setProperty("jco.client.client", client);
+		config.addAnnotatedClass(SAPFunctionModuleSearch.class);
+
+		return config;
+	}
+
+}
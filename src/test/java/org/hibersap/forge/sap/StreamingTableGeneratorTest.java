@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the generation of row stream classes
+ *
+ */
+public class StreamingTableGeneratorTest {
+
+	@Test
+	public void createsRowStreamWithRowMapping() {
+		final String source = createGenerator(null).createRowsSource();
+
+		Assert.assertTrue(source.startsWith("package org.example;"));
+		Assert.assertTrue(source.contains("public class ItemsRows implements Iterable<Items> {"));
+		Assert.assertTrue(source.contains("import java.math.BigDecimal;"));
+		Assert.assertTrue(source
+				.contains("new StructureMapping(Items.class, \"ITEMS\", \"_items\", null);"));
+		Assert.assertTrue(source
+				.contains("rowMapping.addParameter(new FieldMapping(BigDecimal.class, \"AMOUNT\", \"_amount\", null));"));
+		Assert.assertTrue(source
+				.contains("rowMapping.addParameter(new FieldMapping(byte[].class, \"RAW\", \"_raw\", null));"));
+		Assert.assertTrue(source.contains("ItemsRows.this.sapRows.set(this.row, null);"));
+	}
+
+	@Test
+	public void mapsCompactFieldsWithTheirConverters() {
+		final CompactTypeMapping compactTypes = new CompactTypeMapping(false);
+
+		compactTypes.put("ITEMS", "AMOUNT", new SAPFieldType("BCD", 8, 2));
+		compactTypes.put("ITEMS", "DELETED", new SAPFieldType("CHAR", 1, 0));
+
+		final String source = createGenerator(compactTypes).createRowsSource();
+
+		Assert.assertFalse(source.contains("import java.math.BigDecimal;"));
+		Assert.assertTrue(source.contains("import org.hibersap.conversion.CharConverter;"));
+		Assert.assertTrue(source.contains("new FieldMapping(long.class, \"AMOUNT\", \"_amount\", ScaledLong2Converter.class)"));
+		Assert.assertTrue(source.contains("new FieldMapping(char.class, \"DELETED\", \"_deleted\", CharConverter.class)"));
+	}
+
+	@Test
+	public void createsConverterWrappingTheRowMaps() {
+		final String source = createGenerator(null).createConverterSource();
+
+		Assert.assertEquals("ItemsRowsConverter", StreamingTableGenerator.getConverterClassName("ItemsRows"));
+		Assert.assertTrue(source
+				.contains("public class ItemsRowsConverter implements Converter<ItemsRows, List<Map<String, Object>>>"));
+		Assert.assertTrue(source.contains("javaValue.getSapRows()"));
+	}
+
+	private StreamingTableGenerator createGenerator(final CompactTypeMapping compactTypes) {
+		final StructureMapping itemMapping = new StructureMapping(null, "ITEMS", "_items", null);
+
+		itemMapping.addParameter(new FieldMapping(String.class, "DELETED", "_deleted", null));
+		itemMapping.addParameter(new FieldMapping(BigDecimal.class, "AMOUNT", "_amount", null));
+		itemMapping.addParameter(new FieldMapping(byte[].class, "RAW", "_raw", null));
+
+		return new StreamingTableGenerator("org.example", "ItemsRows", "Items", new TableMapping(List.class, null,
+				"ITEMS", "_items", itemMapping, null), compactTypes);
+	}
+
+}
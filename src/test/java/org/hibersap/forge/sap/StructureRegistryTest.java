@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.sap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.hibersap.mapping.model.FieldMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the de-duplication of structure classes by field layout
+ *
+ */
+public class StructureRegistryTest {
+
+	private static final String JAVA_PACKAGE = "org.example.hibersap";
+
+	private static final List<FieldMapping> RETURN_FIELDS = Arrays.asList(new FieldMapping(String.class, "TYPE",
+			"_type", null), new FieldMapping(String.class, "MESSAGE", "_message", null));
+
+	@Test
+	public void reusesClassForSameLayout() {
+		final StructureRegistry registry = new StructureRegistry();
+		final StructureRegistry.Registration first = registry.register(JAVA_PACKAGE, "Return", RETURN_FIELDS);
+		final StructureRegistry.Registration second = registry.register(JAVA_PACKAGE, "ReturnMessage",
+				Arrays.asList(RETURN_FIELDS.get(1), RETURN_FIELDS.get(0)));
+
+		Assert.assertTrue(first.isCreated());
+		Assert.assertFalse(second.isCreated());
+		Assert.assertEquals("Return", second.getClassName());
+		Assert.assertTrue(registry.register("org.example.other", "Return", RETURN_FIELDS).isCreated());
+	}
+
+	@Test
+	public void appendsNumberOnNameClash() {
+		final StructureRegistry registry = new StructureRegistry();
+
+		registry.register(JAVA_PACKAGE, "Return", RETURN_FIELDS);
+
+		final StructureRegistry.Registration other = registry.register(JAVA_PACKAGE, "Return",
+				Arrays.asList(new FieldMapping(String.class, "MESSAGE", "_message", null)));
+
+		Assert.assertTrue(other.isCreated());
+		Assert.assertEquals("Return2", other.getClassName());
+	}
+
+	@Test
+	public void removesClass() {
+		final StructureRegistry registry = new StructureRegistry();
+
+		registry.register(JAVA_PACKAGE, "Return", RETURN_FIELDS);
+		registry.remove(JAVA_PACKAGE + ".Return");
+
+		Assert.assertTrue(registry.getClassNames().isEmpty());
+		Assert.assertTrue(registry.register(JAVA_PACKAGE, "Return", RETURN_FIELDS).isCreated());
+	}
+
+	@Test
+	public void roundTripsProperties() {
+		final StructureRegistry registry = new StructureRegistry();
+
+		registry.register(JAVA_PACKAGE, "Return", RETURN_FIELDS);
+
+		final Properties properties = registry.toProperties();
+		final StructureRegistry loaded = new StructureRegistry();
+
+		Assert.assertEquals("MESSAGE:java.lang.String,TYPE:java.lang.String",
+				properties.getProperty(JAVA_PACKAGE + ".Return"));
+
+		loaded.load(properties);
+
+		Assert.assertEquals(Arrays.asList(JAVA_PACKAGE + ".Return"), loaded.getClassNames());
+		Assert.assertFalse(loaded.register(JAVA_PACKAGE, "Other", RETURN_FIELDS).isCreated());
+	}
+
+}
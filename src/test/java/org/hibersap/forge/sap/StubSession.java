@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibersap.session.Session;
+import org.hibersap.session.SessionManager;
+
+/**
+ * A session answering function module searches from a fixed list of function names instead of a SAP system
+ * 
+ * Function module searches are answered in the order of the names, like the database reading TFDIR by its key.
+ * 
+ * Table reads are answered with the rows added for the table. Their WHERE clause is ignored, except for a list of
+ * values (IN) the first field of a row has to be in.
+ * 
+ */
+public class StubSession implements InvocationHandler {
+
+	/** The function names known by the stub **/
+	private final List<String> functionNames;
+	/** The number of executed calls **/
+	private final AtomicInteger calls = new AtomicInteger();
+	/** The rows per table name **/
+	private final Map<String, List<String>> tableRows = new HashMap<String, List<String>>();
+	/** The WHERE clause of the last function module search **/
+	private volatile String lastWhereClause;
+
+	/**
+	 * Constructor - Instantiates a new StubSession
+	 * 
+	 * @param functionNames - the function names known by the stub
+	 */
+	public StubSession(final String... functionNames) {
+		this.functionNames = Arrays.asList(functionNames);
+	}
+
+	/**
+	 * Creates the session
+	 * 
+	 * @return the session
+	 */
+	public Session createSession() {
+		return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class }, this);
+	}
+
+	/**
+	 * Creates a session manager opening stub sessions
+	 * 
+	 * @return the session manager
+	 */
+	public SessionManager createSessionManager() {
+		final InvocationHandler handler = new InvocationHandler() {
+
+			public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+				if (method.getName().equals("openSession")) {
+					return createSession();
+				}
+
+				return null;
+			}
+		};
+
+		return (SessionManager) Proxy.newProxyInstance(SessionManager.class.getClassLoader(),
+				new Class<?>[] { SessionManager.class }, handler);
+	}
+
+	/**
+	 * Adds rows answering table reads of the given table
+	 * 
+	 * @param tableName - the table name
+	 * @param rows - the rows, field values separated by |
+	 */
+	public void addTableRows(final String tableName, final String... rows) {
+		if (!this.tableRows.containsKey(tableName)) {
+			this.tableRows.put(tableName, new ArrayList<String>());
+		}
+		this.tableRows.get(tableName).addAll(Arrays.asList(rows));
+	}
+
+	/**
+	 * Gets the WHERE clause of the last function module search
+	 * 
+	 * @return the WHERE clause
+	 */
+	public String getLastWhereClause() {
+		return this.lastWhereClause;
+	}
+
+	/**
+	 * Gets the number of executed calls
+	 * 
+	 * @return the number of calls
+	 */
+	public int getCalls() {
+		return this.calls.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+	 */
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		if (method.getName().equals("execute") && args[0] instanceof SAPFunctionModuleSearch) {
+			final SAPFunctionModuleSearch search = (SAPFunctionModuleSearch) args[0];
+			final String startAfter = search.getStartAfter();
+			final List<String> functionNames = new ArrayList<String>(this.functionNames);
+			final List<String> result = new ArrayList<String>();
+			int skipped = 0;
+
+			Collections.sort(functionNames);
+
+			for (final String functionName : functionNames) {
+				if (search.getPattern().matches(functionName)
+						&& (startAfter == null || functionName.compareTo(startAfter) > 0)
+						&& skipped++ >= search.getRowSkips()) {
+					result.add(functionName);
+
+					if (result.size() == search.getRowCount()) {
+						break;
+					}
+				}
+			}
+
+			setFunctionModules(search, result);
+			this.lastWhereClause = search.getWhereClause();
+			this.calls.incrementAndGet();
+		} else if (method.getName().equals("execute") && args[0] instanceof SAPTableRead) {
+			final SAPTableRead tableRead = (SAPTableRead) args[0];
+			final List<String> rows = filterRows(tableRead.getWhereClause(),
+					this.tableRows.containsKey(tableRead.getTableName()) ? this.tableRows.get(tableRead.getTableName())
+							: new ArrayList<String>());
+			final int end = tableRead.getRowCount() > 0 ? Math.min(rows.size(), tableRead.getRowSkips()
+					+ tableRead.getRowCount()) : rows.size();
+
+			setTableRows(tableRead, rows.subList(Math.min(end, tableRead.getRowSkips()), end));
+			this.calls.incrementAndGet();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Filters rows by the list of values of an IN condition in the given WHERE clause
+	 * 
+	 * @param where - the WHERE clause
+	 * @param rows - the rows
+	 * @return the rows whose first field is in the list, all rows if there is no IN condition
+	 */
+	private static List<String> filterRows(final String where, final List<String> rows) {
+		final int listStart = where.indexOf(" IN (");
+
+		if (listStart < 0) {
+			return rows;
+		}
+
+		final List<String> values = new ArrayList<String>();
+		final List<String> result = new ArrayList<String>();
+
+		for (final String value : where.substring(listStart + 5, where.indexOf(')', listStart)).split(",")) {
+			values.add(value.trim().replace("'", ""));
+		}
+		for (final String row : rows) {
+			if (values.contains(row.split("\\|", -1)[0])) {
+				result.add(row);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sets the DATA table of the given search like Hibersap does after calling the SAP system
+	 * 
+	 * @param search - the search
+	 * @param functionNames - the function names to set
+	 * @throws Exception
+	 */
+	private static void setFunctionModules(final SAPFunctionModuleSearch search, final List<String> functionNames)
+			throws Exception {
+		final Class<?> functionModuleClass = Class.forName(SAPFunctionModuleSearch.class.getName() + "$FunctionModule");
+		final Constructor<?> constructor = functionModuleClass.getDeclaredConstructor();
+		final java.lang.reflect.Field nameField = functionModuleClass.getDeclaredField("name");
+		final java.lang.reflect.Field dataField = SAPFunctionModuleSearch.class.getDeclaredField("functionModules");
+		final List<Object> functionModules = new ArrayList<Object>();
+
+		constructor.setAccessible(true);
+		nameField.setAccessible(true);
+		dataField.setAccessible(true);
+
+		for (final String functionName : functionNames) {
+			final Object functionModule = constructor.newInstance();
+			nameField.set(functionModule, functionName);
+			functionModules.add(functionModule);
+		}
+
+		dataField.set(search, functionModules);
+	}
+
+	/**
+	 * Sets the DATA table of the given table read like Hibersap does after calling the SAP system
+	 * 
+	 * @param tableRead - the table read
+	 * @param rows - the rows to set
+	 * @throws Exception
+	 */
+	private static void setTableRows(final SAPTableRead tableRead, final List<String> rows) throws Exception {
+		final Class<?> rowClass = Class.forName(SAPTableRead.class.getName() + "$Row");
+		final Constructor<?> constructor = rowClass.getDeclaredConstructor();
+		final java.lang.reflect.Field dataField = rowClass.getDeclaredField("data");
+		final java.lang.reflect.Field rowsField = SAPTableRead.class.getDeclaredField("rows");
+		final List<Object> rowObjects = new ArrayList<Object>();
+
+		constructor.setAccessible(true);
+		dataField.setAccessible(true);
+		rowsField.setAccessible(true);
+
+		for (final String row : rows) {
+			final Object rowObject = constructor.newInstance();
+			dataField.set(rowObject, row);
+			rowObjects.add(rowObject);
+		}
+
+		rowsField.set(tableRead, rowObjects);
+	}
+
+}
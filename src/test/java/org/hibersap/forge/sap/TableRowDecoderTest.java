@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the decoding of fixed-width table rows
+ *
+ */
+public class TableRowDecoderTest {
+
+	private final TableRowDecoder decoder = new TableRowDecoder(new int[] { 0, 30 }, new int[] { 30, 4 });
+
+	@Test
+	public void decodesTrimmedFields() {
+		this.decoder.decode("BAPI_PO_CREATE1               ME  ");
+
+		Assert.assertEquals(2, this.decoder.getFieldCount());
+		Assert.assertEquals("BAPI_PO_CREATE1", this.decoder.get(0).toString());
+		Assert.assertEquals("ME", this.decoder.get(1).toString());
+		Assert.assertEquals('B', this.decoder.get(0).charAt(0));
+		Assert.assertEquals("PO", this.decoder.get(0).subSequence(5, 7));
+	}
+
+	@Test
+	public void reusesViews() {
+		this.decoder.decode("Z_LONG_FUNCTION_NAME_READ     ZMM ");
+
+		final CharSequence name = this.decoder.get(0);
+
+		this.decoder.decode("Z_READ");
+
+		Assert.assertSame(name, this.decoder.get(0));
+		Assert.assertEquals("Z_READ", name.toString());
+		//Fields beyond a truncated row are empty
+		Assert.assertEquals(0, this.decoder.get(1).length());
+		Assert.assertEquals(2, this.decoder.getRowNumber());
+	}
+
+	@Test
+	public void matchesPatternsWithoutCopy() {
+		this.decoder.decode("BAPI_PR_CREATE                ME  ");
+
+		Assert.assertTrue(new SAPLikePattern("BAPI_P?_CREATE*").matches(this.decoder.get(0)));
+		Assert.assertFalse(new SAPLikePattern("BAPI_PO*").matches(this.decoder.get(0)));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void checksIndex() {
+		this.decoder.decode("Z_READ");
+		this.decoder.get(0).charAt(6);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInconsistentLayout() {
+		new TableRowDecoder(new int[] { 0 }, new int[0]);
+	}
+
+}
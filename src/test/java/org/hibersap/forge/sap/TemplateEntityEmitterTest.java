@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.hibersap.forge.sap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.hibersap.mapping.model.BapiMapping;
+import org.hibersap.mapping.model.FieldMapping;
+import org.hibersap.mapping.model.StructureMapping;
+import org.hibersap.mapping.model.TableMapping;
+import org.jboss.forge.parser.JavaParser;
+import org.jboss.forge.parser.java.Annotation;
+import org.jboss.forge.parser.java.Field;
+import org.jboss.forge.parser.java.Import;
+import org.jboss.forge.parser.java.JavaClass;
+import org.jboss.forge.parser.java.Method;
+import org.jboss.forge.parser.java.Parameter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the template emitter against golden files and against the classes built by {@link SAPEntityBuilder}
+ * 
+ */
+public class TemplateEntityEmitterTest {
+
+	private static final String JAVA_PACKAGE = "org.example.hibersap";
+
+	private static StructureMapping createStructure(final String sapName, final String javaName) {
+		final StructureMapping structure = new StructureMapping(null, sapName, javaName, null);
+
+		structure.addParameter(new FieldMapping(BigDecimal.class, "PRICE_ECO2", "_priceEco2", null));
+		structure.addParameter(new FieldMapping(String.class, "CURR", "_curr", null));
+		structure.addParameter(new FieldMapping(int.class, "COUNT", "_count", null));
+
+		return structure;
+	}
+
+	private static BapiMapping createMapping() {
+		final BapiMapping mapping = new BapiMapping(null, "BAPI_FLCONN_GETDETAIL", null);
+
+		mapping.addImportParameter(new FieldMapping(String.class, "TRAVELAGENCYNUMBER", "_travelagencynumber", null));
+		mapping.addImportParameter(new FieldMapping(Date.class, "FLIGHTDATE", "_flightdate", null));
+		mapping.addImportParameter(createStructure("PRICE_IN", "_priceIn"));
+		mapping.addExportParameter(createStructure("PRICE_INFO", "_priceInfo"));
+		mapping.addExportParameter(new FieldMapping(Integer.class, "SEATS", "_seats", null));
+		mapping.addTableParameter(new TableMapping(List.class, null, "EXTENSION_OUT", "_extensionOut",
+				createStructure("EXTENSION_OUT", "_extensionOut"), null));
+
+		return mapping;
+	}
+
+	private static String readGolden(final String name) throws IOException {
+		final InputStream in = TemplateEntityEmitterTest.class.getResourceAsStream("/golden/" + name);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[4096];
+
+		Assert.assertNotNull("Golden file " + name + " missing", in);
+
+		try {
+			for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+				out.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+
+		return out.toString("UTF-8");
+	}
+
+	private static List<String> describe(final JavaClass javaClass) {
+		final List<String> description = new ArrayList<String>();
+		final Set<String> imports = new TreeSet<String>();
+
+		description.add("class " + javaClass.getPackage() + "." + javaClass.getName());
+
+		for (final Annotation<JavaClass> annotation : javaClass.getAnnotations()) {
+			description.add("class annotation " + annotation.toString().replaceAll("\\s", ""));
+		}
+
+		//The AST emitter adds imports in the order they are needed
+		for (final Import javaImport : javaClass.getImports()) {
+			imports.add("import " + javaImport.getQualifiedName());
+		}
+
+		description.addAll(imports);
+
+		for (final Field<JavaClass> field : javaClass.getFields()) {
+			final List<String> annotations = new ArrayList<String>();
+
+			for (final Annotation<JavaClass> annotation : field.getAnnotations()) {
+				annotations.add(annotation.toString().replaceAll("\\s", ""));
+			}
+
+			description.add("field " + field.getName() + " " + field.getQualifiedType() + " private="
+					+ field.isPrivate() + " final=" + field.isFinal() + " " + annotations);
+		}
+
+		for (final Method<JavaClass> method : javaClass.getMethods()) {
+			final List<String> parameters = new ArrayList<String>();
+
+			for (final Parameter parameter : method.getParameters()) {
+				parameters.add(parameter.getType() + " " + parameter.getName());
+			}
+
+			description.add("method " + method.getName() + " " + parameters + " "
+					+ method.getBody().replaceAll("\\s", "").replace("\"\"+", ""));
+		}
+
+		return description;
+	}
+
+	@Test
+	public void matchesGoldenFiles() throws IOException {
+		final SAPEntitySource source = new TemplateEntityEmitter().emit("FlightDetail", JAVA_PACKAGE, createMapping());
+		final Map<String, String> sources = source.getSources();
+
+		Assert.assertEquals(JAVA_PACKAGE + ".FlightDetail", source.getBapiClassName());
+		Assert.assertEquals(4, sources.size());
+		Assert.assertEquals(readGolden("FlightDetail.java.txt"), sources.get(JAVA_PACKAGE + ".FlightDetail"));
+		Assert.assertEquals(readGolden("PriceIn.java.txt"), sources.get(JAVA_PACKAGE + ".PriceIn"));
+		Assert.assertEquals(readGolden("PriceInfo.java.txt"), sources.get(JAVA_PACKAGE + ".PriceInfo"));
+		Assert.assertEquals(readGolden("ExtensionOut.java.txt"), sources.get(JAVA_PACKAGE + ".ExtensionOut"));
+	}
+
+	@Test
+	public void emitsSameClassesAsEntityBuilder() {
+		final SAPEntitySource expected = new AstEntityEmitter(null).emit("FlightDetail", JAVA_PACKAGE,
+				createMapping());
+		final SAPEntitySource actual = new TemplateEntityEmitter().emit("FlightDetail", JAVA_PACKAGE, createMapping());
+		final Map<String, List<String>> expectedClasses = new HashMap<String, List<String>>();
+		final Map<String, List<String>> actualClasses = new HashMap<String, List<String>>();
+
+		for (final Map.Entry<String, String> entry : expected.getSources().entrySet()) {
+			expectedClasses.put(entry.getKey(), describe(JavaParser.parse(JavaClass.class, entry.getValue())));
+		}
+
+		for (final Map.Entry<String, String> entry : actual.getSources().entrySet()) {
+			actualClasses.put(entry.getKey(), describe(JavaParser.parse(JavaClass.class, entry.getValue())));
+		}
+
+		Assert.assertEquals(expectedClasses, actualClasses);
+	}
+
+	@Test
+	public void sharesRegisteredStructures() {
+		final StructureRegistry registry = new StructureRegistry();
+		final TemplateEntityEmitter emitter = new TemplateEntityEmitter(registry);
+
+		final SAPEntitySource first = emitter.emit("FlightDetail", JAVA_PACKAGE, createMapping());
+		final SAPEntitySource second = emitter.emit("FlightDetailCopy", JAVA_PACKAGE, createMapping());
+
+		//All structures of the mapping have the same fields, so the first registered class is used for all of them
+		Assert.assertEquals(1, first.getStructureClassNames().size());
+		Assert.assertEquals(JAVA_PACKAGE + ".PriceIn", first.getStructureClassNames().get(0));
+		Assert.assertTrue(second.getStructureClassNames().isEmpty());
+		Assert.assertTrue(second.getBapiClassSource().contains("private PriceIn _priceInfo;"));
+		Assert.assertTrue(second.getBapiClassSource().contains("private List<PriceIn> _extensionOut;"));
+	}
+
+	@Test
+	public void writesArrayFields() {
+		final BapiMapping mapping = new BapiMapping(null, "Z_READ_RAW", null);
+
+		mapping.addExportParameter(new FieldMapping(byte[].class, "RAW", "_raw", null));
+
+		final String source = new TemplateEntityEmitter().emit("ReadRaw", "", mapping).getBapiClassSource();
+		final JavaClass javaClass = JavaParser.parse(JavaClass.class, source);
+
+		Assert.assertNotNull(javaClass.getField("_raw"));
+		Assert.assertTrue(source.contains("private byte[] _raw;"));
+		Assert.assertFalse(source.startsWith("package"));
+	}
+
+}
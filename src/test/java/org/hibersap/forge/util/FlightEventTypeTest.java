@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.util;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests recording custom Java Flight Recorder events
+ *
+ */
+public class FlightEventTypeTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final FlightEventType type = new FlightEventType("org.hibersap.forge.Test", "Test", new String[] {
+			"function", "rows" }, new Class<?>[] { String.class, long.class });
+
+	@Test
+	public void ignoresEventsWithoutRecording() {
+		final FlightEvent event = this.type.begin();
+
+		Assert.assertFalse(event.isRecorded());
+		//Fields are not checked if the event is not recorded
+		event.set("unknown", "value").set("rows", 1).commit();
+	}
+
+	@Test
+	public void recordsEvents() throws Exception {
+		Assume.assumeTrue(this.type.isAvailable());
+
+		//JFR is accessed by reflection, because the plugin is compiled for Java versions without JFR
+		final Object recording = Class.forName("jdk.jfr.Recording").newInstance();
+		final File file = new File(this.folder.getRoot(), "test.jfr");
+
+		recording.getClass().getMethod("enable", String.class).invoke(recording, this.type.getName());
+		recording.getClass().getMethod("start").invoke(recording);
+
+		final FlightEvent event = this.type.begin();
+
+		Assert.assertTrue(event.isRecorded());
+		event.set("function", "BAPI_PO_CREATE1").set("rows", 42).commit();
+
+		try {
+			event.set("unknown", "value");
+			Assert.fail("Expected IllegalArgumentException");
+		} catch (final IllegalArgumentException e) {
+			//expected
+		}
+
+		recording.getClass().getMethod("stop").invoke(recording);
+
+		final Class<?> pathClass = Class.forName("java.nio.file.Path");
+		final Object path = File.class.getMethod("toPath").invoke(file);
+
+		recording.getClass().getMethod("dump", pathClass).invoke(recording, path);
+		recording.getClass().getMethod("close").invoke(recording);
+
+		final List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+				.getMethod("readAllEvents", pathClass).invoke(null, path);
+		final Object recordedEvent = events.get(0);
+		final java.lang.reflect.Method getValue = recordedEvent.getClass().getMethod("getValue", String.class);
+
+		Assert.assertEquals(1, events.size());
+		Assert.assertEquals("BAPI_PO_CREATE1", getValue.invoke(recordedEvent, "function"));
+		Assert.assertEquals(42L, getValue.invoke(recordedEvent, "rows"));
+	}
+
+}
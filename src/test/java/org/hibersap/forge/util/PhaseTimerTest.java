@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2012 akquinet AG
+ *
+ * This file is part of the Forge Hibersap Plugin.
+ *
+ * The Forge Hibersap Plugin is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * The Forge Hibersap Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with the Forge Hibersap Plugin. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hibersap.forge.util;
+
+import java.util.List;
+
+import org.hibersap.forge.util.PhaseTimer.Phase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests measuring the phases of a command
+ *
+ */
+public class PhaseTimerTest {
+
+	@Test
+	public void accumulatesPhases() throws Exception {
+		final PhaseTimer timer = new PhaseTimer();
+
+		timer.start("search");
+		Thread.sleep(5);
+		timer.start("build-entity");
+		timer.stop();
+		//Not measured, e.g. a prompt
+		Thread.sleep(20);
+		timer.start("search");
+		Thread.sleep(5);
+		timer.stop();
+
+		final List<Phase> phases = timer.getPhases();
+
+		Assert.assertEquals(2, phases.size());
+		Assert.assertEquals("search", phases.get(0).getName());
+		Assert.assertEquals("build-entity", phases.get(1).getName());
+		Assert.assertTrue(phases.get(0).getNanos() >= 10000000L);
+		Assert.assertTrue(phases.get(1).getNanos() < 20000000L);
+		Assert.assertEquals(phases.get(0).getNanos() + phases.get(1).getNanos(), timer.getTotalNanos());
+	}
+
+	@Test
+	public void measuresAllocatedBytes() {
+		final PhaseTimer timer = new PhaseTimer();
+
+		timer.start("allocate");
+		final byte[] bytes = new byte[1024 * 1024];
+		timer.stop();
+
+		final long allocatedBytes = timer.getPhases().get(0).getAllocatedBytes();
+
+		Assert.assertTrue(allocatedBytes == -1 || allocatedBytes >= bytes.length);
+	}
+
+	@Test
+	public void skipsAllocatedBytesIfNotMeasured() {
+		final PhaseTimer timer = new PhaseTimer(false);
+
+		timer.start("allocate");
+		Assert.assertNotNull(new byte[1024]);
+		timer.stop();
+
+		Assert.assertEquals(-1, timer.getPhases().get(0).getAllocatedBytes());
+	}
+
+}
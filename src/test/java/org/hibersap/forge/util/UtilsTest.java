@@ -19,6 +19,8 @@
 
 package org.hibersap.forge.util;
 
+import java.util.Arrays;
+
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -93,4 +95,19 @@ public class UtilsTest {
 		Assert.assertEquals("ConvertThisText", Utils.toCamelCase("CONVERT/THIS/TEXT", '/'));
 	}
 
+	@Test
+	public void split() {
+		Assert.assertEquals(Arrays.asList("BAPI_PO_*", "BAPI_PR_*", "Z_MM_*"), Utils.split("BAPI_PO_*, BAPI_PR_*,,Z_MM_* ", ','));
+	}
+
+	@Test
+	public void splitSingle() {
+		Assert.assertEquals(Arrays.asList("BAPI*"), Utils.split("BAPI*", ','));
+	}
+
+	@Test
+	public void splitNull() {
+		Assert.assertTrue(Utils.split(null, ',').isEmpty());
+	}
+
 }